@@ -0,0 +1,19 @@
+package com.dsena7.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduz o log da aplicação e do Spring a WARN; o log INFO por consentimento dominaria a medição.
+ */
+final class BenchmarkLogging {
+
+    private BenchmarkLogging() {
+    }
+
+    static void quiet() {
+        ((Logger) LoggerFactory.getLogger("com.dsena7")).setLevel(Level.WARN);
+        ((Logger) LoggerFactory.getLogger("org.springframework")).setLevel(Level.WARN);
+    }
+}
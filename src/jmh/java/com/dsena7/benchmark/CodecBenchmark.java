@@ -0,0 +1,65 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.codec.BinaryConsentEventCodec;
+import com.dsena7.codec.ConsentEventCodec;
+import com.dsena7.codec.JsonConsentEventCodec;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de codificação e decodificação dos codecs de eventos e bytes por mensagem de cada formato.
+ * <p>
+ * {@code legacy-json} é o payload publicado antes dos codecs: o JSON do DTO serializado outra vez como
+ * string JSON, ainda aceito pelo {@link JsonConsentEventCodec}. O tamanho de cada mensagem é impresso
+ * no início de cada trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    private static final ConsentIdRequestDTO EVENT = new ConsentIdRequestDTO("urn:consent:7f3c2a9e-5b1d-4e8a-9c6f-2d4b8e1a0c73");
+
+    @Param({"json", "binary", "legacy-json"})
+    public String format;
+
+    private ConsentEventCodec codec;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        codec = format.equals("binary") ? new BinaryConsentEventCodec() : new JsonConsentEventCodec();
+        body = format.equals("legacy-json")
+                ? new ObjectMapper().writeValueAsBytes(new ObjectMapper().writeValueAsString(EVENT))
+                : codec.encode(EVENT);
+        System.out.printf("%nBytes por mensagem (%s): %d%n", format, body.length);
+    }
+
+    @Benchmark
+    public ConsentIdRequestDTO decode() {
+        return codec.decode(body);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(EVENT);
+    }
+}
@@ -0,0 +1,136 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.lifecycle.GuardField;
+import com.dsena7.lifecycle.LifecycleDefinition;
+import com.dsena7.lifecycle.LifecycleDefinition.GuardDefinition;
+import com.dsena7.lifecycle.LifecycleDefinition.TransitionDefinition;
+import com.dsena7.lifecycle.LifecycleTable;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por mensagem da {@link LifecycleTable} conforme a definição cresce: definições sintéticas com
+ * {@code size} estados e {@code size} eventos, cada estado não terminal com duas transições com guarda
+ * (a primeira falha e a segunda passa, o pior caso da resolução). {@link #target} e {@link #resolve}
+ * devem ficar constantes entre os tamanhos; {@link #compile} mostra o custo pago uma vez por carga,
+ * proporcional a estados x eventos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LifecycleLookupBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    @Param({"4", "64", "1024"})
+    private int size;
+
+    private LifecycleDefinition definition;
+    private List<String> stateNames;
+    private List<String> eventNames;
+    private LifecycleTable table;
+    private int[] states;
+    private int[] events;
+    private ConsentEntity entity;
+    private LocalDateTime now;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stateNames = names("S", size);
+        eventNames = names("E", size);
+        definition = definition(size);
+        table = LifecycleTable.compile(definition, stateNames, eventNames);
+
+        // Pares (estado, evento) aleatórios, para que a busca não fique presa em uma linha do cache
+        SplittableRandom random = new SplittableRandom(42);
+        states = new int[LOOKUPS];
+        events = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            states[i] = random.nextInt(size - 1);
+            events[i] = random.nextInt(size);
+        }
+        now = LocalDateTime.now();
+        entity = ConsentEntity.builder()
+                .consentId("lifecycle-benchmark")
+                .state(ConsentStateEnum.AUTHORISED)
+                .createdAt(now.minusMinutes(1))
+                .expiratedAt(now.minusMinutes(1))
+                .build();
+    }
+
+    /**
+     * Estado alvo de um par (estado, evento), como no motor compilado.
+     */
+    @Benchmark
+    public int target() {
+        int i = cursor++ & (LOOKUPS - 1);
+        return table.target(states[i], events[i]);
+    }
+
+    /**
+     * Evento aplicável a um consentimento pelas guardas do estado, como no processamento de cada mensagem.
+     */
+    @Benchmark
+    public int resolve() {
+        int i = cursor++ & (LOOKUPS - 1);
+        return table.resolve(states[i], entity, now);
+    }
+
+    /**
+     * Validação e compilação da definição inteira, executada na carga e em cada recarga do arquivo.
+     */
+    @Benchmark
+    public LifecycleTable compile() {
+        return LifecycleTable.compile(definition, stateNames, eventNames);
+    }
+
+    /**
+     * O último estado é terminal; cada estado {@code i} anterior tem uma transição para {@code i + 1} cuja
+     * guarda só passa uma hora após expiratedAt e outra, sempre aplicável, para o estado terminal.
+     */
+    private static LifecycleDefinition definition(int size) {
+        List<String> stateNames = names("S", size);
+        String terminal = stateNames.get(size - 1);
+        List<TransitionDefinition> transitions = new ArrayList<>(2 * size);
+        for (int i = 0; i < size - 1; i++) {
+            transitions.add(new TransitionDefinition("S" + i, "E" + (i % size), "S" + (i + 1),
+                    new GuardDefinition(GuardField.EXPIRATED_AT, Duration.ofHours(1))));
+            if (i + 1 < size - 1) {
+                transitions.add(new TransitionDefinition("S" + i, "E" + ((i + 1) % size), terminal,
+                        new GuardDefinition(GuardField.CREATED_AT, Duration.ZERO)));
+            }
+        }
+        return new LifecycleDefinition(stateNames, "S0", List.of(terminal), transitions);
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,143 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.config.StateMachineConfig;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.service.ConsentStateService;
+import com.dsena7.service.ConsentStateServiceImpl;
+import com.dsena7.service.ReactiveConsentStateService;
+import com.dsena7.service.ReactiveConsentStateServiceImpl;
+import com.dsena7.statemachine.CompiledTransitionEngine;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.timer.ConsentExpirationTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o pipeline bloqueante ({@link ConsentStateServiceImpl} com um pool de threads do tamanho
+ * do prefetch, como o container do Spring AMQP) com o reativo ({@link ReactiveConsentStateServiceImpl}
+ * com {@code flatMap} limitado ao prefetch) processando um lote de consentimentos sobre um
+ * {@link InMemoryConsentStore} com latência injetada em cada leitura e escrita.
+ * <p>
+ * O motor compilado é usado nos dois lados para isolar o custo de I/O e de agendamento.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Param({"0", "2"})
+    private long latencyMillis;
+
+    @Param({"16", "256"})
+    private int prefetch;
+
+    @Param({"2000"})
+    private int consents;
+
+    private AnnotationConfigApplicationContext context;
+    private InMemoryConsentStore store;
+    private ConsentStateService blockingService;
+    private ReactiveConsentStateService reactiveService;
+    private ExecutorService consumerThreads;
+    private String[] consentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+
+        context = new AnnotationConfigApplicationContext(ConsentLifecycleRegistry.class, StateMachineConfig.class);
+        ConsentLifecycleRegistry lifecycleRegistry = context.getBean(ConsentLifecycleRegistry.class);
+        ConsentTransitionEngine engine = new CompiledTransitionEngine(lifecycleRegistry);
+        var noTimer = new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class);
+        var noCache = new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class);
+        var noJournal = new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class);
+        var noCounters = new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class);
+
+        store = new InMemoryConsentStore(Duration.ofMillis(latencyMillis));
+        blockingService = new ConsentStateServiceImpl(engine, store.blocking(), lifecycleRegistry, noTimer, noCache, noJournal, noCounters,
+                new ConsentMetrics(new SimpleMeterRegistry()));
+        reactiveService = new ReactiveConsentStateServiceImpl(engine, store.reactive(), lifecycleRegistry, noTimer, noCache, noJournal, noCounters,
+                new ConsentMetrics(new SimpleMeterRegistry()));
+        consumerThreads = Executors.newFixedThreadPool(prefetch);
+
+        consentIds = new String[consents];
+        for (int i = 0; i < consents; i++) {
+            consentIds[i] = "pipeline-" + i;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetStore() {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        store.clear();
+        for (int i = 0; i < consents; i++) {
+            store.put(ConsentEntity.builder()
+                    .consentId(consentIds[i])
+                    .state(i % 2 == 0 ? ConsentStateEnum.AUTHORISED : ConsentStateEnum.AWAITING_AUTHORISATION)
+                    .createdAt(past)
+                    .expiratedAt(past)
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        consumerThreads.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void blocking() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[consents];
+        for (int i = 0; i < consents; i++) {
+            String consentId = consentIds[i];
+            futures[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    blockingService.processConsent(consentId);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, consumerThreads);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    public void reactive() {
+        Flux.fromArray(consentIds)
+                .flatMap(reactiveService::processConsent, prefetch)
+                .blockLast();
+    }
+}
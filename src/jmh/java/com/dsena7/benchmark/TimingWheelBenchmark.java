@@ -0,0 +1,90 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.timer.HierarchicalTimingWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de agendamento, cancelamento e disparo do {@link HierarchicalTimingWheel} com milhões de
+ * timers pendentes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TimingWheelBenchmark {
+
+    private static final long TICK_MILLIS = 100;
+    private static final long START = 1_700_000_000_000L;
+    private static final long HORIZON_MILLIS = 60_000;
+
+    @Param({"1000000"})
+    private int pending;
+
+    private HierarchicalTimingWheel wheel;
+    private String[] ids;
+    private long now;
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        wheel = new HierarchicalTimingWheel(TICK_MILLIS, START, pending);
+        ids = new String[pending];
+        for (int i = 0; i < pending; i++) {
+            ids[i] = "consent-" + i;
+            wheel.schedule(ids[i], START + 1 + (i * 7919L) % HORIZON_MILLIS);
+        }
+        now = START;
+        cursor = 0;
+    }
+
+    /**
+     * Reagenda um timer já pendente: um cancelamento seguido de uma inserção.
+     */
+    @Benchmark
+    public void reschedule() {
+        String id = ids[cursor];
+        cursor = (cursor + 1) % pending;
+        wheel.schedule(id, now + 1 + (cursor * 7919L) % HORIZON_MILLIS);
+    }
+
+    /**
+     * Cancela e reinsere um timer pendente.
+     */
+    @Benchmark
+    public boolean cancelAndSchedule() {
+        String id = ids[cursor];
+        cursor = (cursor + 1) % pending;
+        boolean cancelled = wheel.cancel(id);
+        wheel.schedule(id, now + HORIZON_MILLIS);
+        return cancelled;
+    }
+
+    /**
+     * Regime estacionário: cada operação agenda um novo prazo e avança o relógio em um tick,
+     * disparando os timers vencidos.
+     */
+    @Benchmark
+    public int tick(Blackhole blackhole) {
+        String id = ids[cursor];
+        cursor = (cursor + 1) % pending;
+        wheel.schedule(id, now + HORIZON_MILLIS);
+        now += TICK_MILLIS;
+        return wheel.advance(now, blackhole::consume);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.timer.HierarchicalTimingWheel;
+
+import java.lang.ref.Reference;
+
+/**
+ * Mede o heap retido pelo {@link HierarchicalTimingWheel} por milhão de timers pendentes, sem contar
+ * as Strings de consentId, que já existem fora do timer.
+ * <p>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.dsena7.benchmark.TimingWheelFootprint -Dbenchmark.args=1000000
+ */
+public class TimingWheelFootprint {
+
+    public static void main(String[] args) {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long start = System.currentTimeMillis();
+
+        String[] ids = new String[timers];
+        for (int i = 0; i < timers; i++) {
+            ids[i] = "consent-" + i;
+        }
+
+        long before = usedHeap();
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(100, start, 16);
+        long begin = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            wheel.schedule(ids[i], start + 1 + (i * 7919L) % 86_400_000L);
+        }
+        long elapsed = System.nanoTime() - begin;
+        long after = usedHeap();
+
+        long bytes = after - before;
+        System.out.printf("Timers pendentes: %d%n", wheel.size());
+        System.out.printf("Heap retido: %.1f MB (%.1f bytes por timer)%n", bytes / 1_048_576.0, (double) bytes / timers);
+        System.out.printf("Heap por milhão de timers: %.1f MB%n", bytes / 1_048_576.0 * 1_000_000 / timers);
+        System.out.printf("Inserção (com crescimento do slab): %.0f timers/s%n", timers / (elapsed / 1e9));
+        Reference.reachabilityFence(ids);
+        Reference.reachabilityFence(wheel);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,198 @@
+package com.dsena7.benchmark;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.config.StateMachineConfig;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.service.ConsentStateService;
+import com.dsena7.service.ConsentStateServiceImpl;
+import com.dsena7.statemachine.CompiledTransitionEngine;
+import com.dsena7.statemachine.ConsentStateMachineProvider;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.statemachine.PerCallStateMachineProvider;
+import com.dsena7.statemachine.PooledStateMachineProvider;
+import com.dsena7.statemachine.SpringStateMachineTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.timer.ConsentExpirationTimer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de cada etapa de uma transição de consentimento, medida isoladamente:
+ * construção da máquina pela {@link StateMachineFactory}, reidratação (stop/reset/start),
+ * {@code sendEvent} de EXPIRE e REJECT, decodificação do payload do consumidor e o
+ * {@code processConsent} completo sobre o {@link InMemoryConsentStore}.
+ * <p>
+ * Reporta vazão e tempo médio; a taxa de alocação é obtida com {@code -prof gc}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransitionHotPathBenchmark {
+
+    private static final String PAYLOAD = "{\"consentId\":\"consent-benchmark\"}";
+    private static final ObjectMapper SHARED_MAPPER = new ObjectMapper();
+
+    @State(Scope.Benchmark)
+    public static class Machines {
+
+        AnnotationConfigApplicationContext context;
+        StateMachineFactory<ConsentStateEnum, ConsentEventEnum> factory;
+        ConsentLifecycleRegistry lifecycleRegistry;
+        ConsentStateMachineProvider perCall;
+        ConsentStateMachineProvider pooled;
+        // Registry de produção, para que o custo dos histogramas medido seja o real
+        final ConsentMetrics consentMetrics = new ConsentMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        final ConsentEntity authorised = entity("authorised", ConsentStateEnum.AUTHORISED);
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("unchecked")
+        public void setUp() {
+            BenchmarkLogging.quiet();
+            context = new AnnotationConfigApplicationContext(ConsentLifecycleRegistry.class, StateMachineConfig.class);
+            lifecycleRegistry = context.getBean(ConsentLifecycleRegistry.class);
+            factory = context.getBean(StateMachineFactory.class);
+            perCall = new PerCallStateMachineProvider(factory);
+            pooled = new PooledStateMachineProvider(factory, new SimpleMeterRegistry(), 1, 1, 1000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    /**
+     * Máquina já reidratada antes de cada chamada, para que apenas o sendEvent seja medido.
+     */
+    @State(Scope.Thread)
+    public static class Rehydrated {
+
+        StateMachine<ConsentStateEnum, ConsentEventEnum> authorised;
+        StateMachine<ConsentStateEnum, ConsentEventEnum> awaiting;
+
+        @Setup(Level.Invocation)
+        public void setUp(Machines machines) {
+            authorised = machines.perCall.acquire(entity("expire", ConsentStateEnum.AUTHORISED));
+            awaiting = machines.perCall.acquire(entity("reject", ConsentStateEnum.AWAITING_AUTHORISATION));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pipeline {
+
+        @Param({"compiled", "pooled", "per-call"})
+        String engine;
+
+        InMemoryConsentStore store;
+        ConsentStateService service;
+
+        @Setup(Level.Trial)
+        public void setUp(Machines machines) {
+            ConsentTransitionEngine transitionEngine = switch (engine) {
+                case "compiled" -> new CompiledTransitionEngine(machines.lifecycleRegistry);
+                case "pooled" -> new SpringStateMachineTransitionEngine(
+                        new PooledStateMachineProvider(machines.factory, new SimpleMeterRegistry(), 8, 8, 1000),
+                        machines.consentMetrics);
+                default -> new SpringStateMachineTransitionEngine(machines.perCall, machines.consentMetrics);
+            };
+            store = new InMemoryConsentStore(Duration.ZERO);
+            service = new ConsentStateServiceImpl(transitionEngine, store.blocking(), machines.lifecycleRegistry,
+                    new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+                    new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+                    new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+                    new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class),
+                    machines.consentMetrics);
+        }
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            store.put(entity("pipeline", ConsentStateEnum.AUTHORISED));
+        }
+    }
+
+    @Benchmark
+    public StateMachine<ConsentStateEnum, ConsentEventEnum> createStateMachine(Machines machines) {
+        return machines.factory.getStateMachine("benchmark");
+    }
+
+    /**
+     * Sequência stop/reset/start sobre uma máquina já construída (reutilizada pelo pool).
+     */
+    @Benchmark
+    public StateMachine<ConsentStateEnum, ConsentEventEnum> rehydrate(Machines machines) {
+        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = machines.pooled.acquire(machines.authorised);
+        machines.pooled.release(stateMachine);
+        return stateMachine;
+    }
+
+    @Benchmark
+    public Object sendEventExpire(Rehydrated rehydrated) {
+        return rehydrated.authorised.sendEvent(
+                Mono.just(MessageBuilder.withPayload(ConsentEventEnum.EXPIRE).build())).blockFirst();
+    }
+
+    @Benchmark
+    public Object sendEventReject(Rehydrated rehydrated) {
+        return rehydrated.awaiting.sendEvent(
+                Mono.just(MessageBuilder.withPayload(ConsentEventEnum.REJECT).build())).blockFirst();
+    }
+
+    /**
+     * Decodificação como era feita em {@code ConsentConsumerUtils}, com um ObjectMapper novo por mensagem.
+     * A comparação entre os codecs atuais está em {@link CodecBenchmark}.
+     */
+    @Benchmark
+    public String decodePerMessageMapper() throws JsonProcessingException {
+        return new ObjectMapper().readValue(PAYLOAD, ConsentIdRequestDTO.class).consentId();
+    }
+
+    @Benchmark
+    public String decodeSharedMapper() throws JsonProcessingException {
+        return SHARED_MAPPER.readValue(PAYLOAD, ConsentIdRequestDTO.class).consentId();
+    }
+
+    @Benchmark
+    public void processConsent(Pipeline pipeline) throws IllegalAccessException {
+        pipeline.service.processConsent("pipeline");
+    }
+
+    private static ConsentEntity entity(String consentId, ConsentStateEnum state) {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        return ConsentEntity.builder().consentId(consentId).state(state).createdAt(past).expiratedAt(past).build();
+    }
+}
@@ -0,0 +1,354 @@
+package com.dsena7.benchmark.load;
+
+import com.dsena7.partition.ConsentPartitioner;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import org.HdrHistogram.Recorder;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.rabbitmq.AcknowledgableDelivery;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * RabbitTemplate que substitui o RabbitMQ no harness de carga. Toda publicação passa por
+ * {@link #send(String, String, Message, CorrelationData)}: mensagens para a fila de consumo, ou para a exchange
+ * particionada, entram em filas em memória; as exchanges das faixas de retry reenfileiram a mensagem na fila de
+ * origem depois do atraso da faixa, e a DLQ apenas conta. O confirm de cada publicação é completado na hora,
+ * com nack para a fração {@code nackRate}.
+ * <p>
+ * As filas são lidas como cada modo de consumo da aplicação as recebe: uma mensagem por chamada, lotes, um
+ * {@link Channel} com ack manual (virtual) ou um Flux de {@link AcknowledgableDelivery} (reativo). Com ack
+ * manual, a entrega termina no ack ou no nack; nack com requeue devolve a mensagem à fila.
+ * <p>
+ * A latência fim a fim vai da publicação ao fim da entrega, incluindo as esperas de retry.
+ */
+class InMemoryBroker extends RabbitTemplate {
+
+    private static final String SENT_AT_HEADER = "x-load-sent-at";
+    private static final MessagePropertiesConverter PROPERTIES_CONVERTER = new DefaultMessagePropertiesConverter();
+
+    private final String queue;
+    private final Map<String, BlockingQueue<Message>> queues = new ConcurrentHashMap<>();
+    private final Map<String, Long> delayedExchanges = new ConcurrentHashMap<>();
+    private final Set<String> retrying = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Message> unacked = new ConcurrentHashMap<>();
+    private final AtomicLong deliveryTags = new AtomicLong();
+    private final Channel channel;
+    private final ScheduledExecutorService delays = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-broker-delay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Recorder endToEnd = new Recorder(3);
+    private final double nackRate;
+    private volatile String deadLetterQueue = "";
+    private volatile boolean running = true;
+
+    final LongAdder published = new LongAdder();
+    final LongAdder nacked = new LongAdder();
+    final LongAdder delivered = new LongAdder();
+    final LongAdder listenerFailures = new LongAdder();
+    final LongAdder retried = new LongAdder();
+    final LongAdder deadLettered = new LongAdder();
+
+    InMemoryBroker(MessageConverter messageConverter, String queue, double nackRate) {
+        this.queue = queue;
+        this.nackRate = nackRate;
+        this.channel = channel();
+        queues.put(queue, new LinkedBlockingQueue<>());
+        setMessageConverter(messageConverter);
+    }
+
+    /**
+     * Registra as faixas de espera e a DLQ do roteador de retry, quando habilitado.
+     */
+    void routeRetries(ConsentRetryRouter router) {
+        for (Long delay : router.delaysMillis()) {
+            delayedExchanges.put(ConsentRetryRouter.tierName(delay), delay);
+        }
+        deadLetterQueue = router.deadLetterQueue();
+    }
+
+    /**
+     * Modo single: {@code consumers} threads entregam uma mensagem por chamada; uma exceção do listener rejeita
+     * a entrega sem requeue, como no container.
+     */
+    void startConsumers(int consumers, Consumer<Message> listener) {
+        for (int i = 0; i < consumers; i++) {
+            start("load-consumer-" + i, () -> consume(queue, listener, true));
+        }
+    }
+
+    /**
+     * Modo particionado: uma thread por fila consent.queue.p{n}, o único consumidor ativo de cada partição.
+     */
+    void startPartitionConsumers(int partitions, Consumer<Message> listener) {
+        for (int i = 0; i < partitions; i++) {
+            String partition = ConsentPartitioner.queueName(i);
+            queues.putIfAbsent(partition, new LinkedBlockingQueue<>());
+            start("load-consumer-" + partition, () -> consume(partition, listener, true));
+        }
+    }
+
+    /**
+     * Modo batch: cada thread acumula até {@code batchSize} mensagens ou espera {@code receiveTimeoutMillis}
+     * pela próxima, como o container com consumerBatchEnabled, e confirma pelo canal.
+     */
+    void startBatchConsumers(int consumers, int batchSize, long receiveTimeoutMillis,
+                             BiConsumer<List<Message>, Channel> listener) {
+        for (int i = 0; i < consumers; i++) {
+            start("load-consumer-" + i, () -> consumeBatches(batchSize, receiveTimeoutMillis, listener));
+        }
+    }
+
+    /**
+     * Modo virtual: o listener recebe a mensagem e o canal e confirma depois, de outra thread.
+     */
+    void startChannelConsumers(int consumers, BiConsumer<Message, Channel> listener) {
+        for (int i = 0; i < consumers; i++) {
+            start("load-consumer-" + i, () -> consume(queue, message -> listener.accept(message, channel), false));
+        }
+    }
+
+    /**
+     * Modo reativo: entregas da fila com ack manual, emitidas conforme a demanda do assinante.
+     */
+    Flux<AcknowledgableDelivery> deliveries(String name) {
+        BlockingQueue<Message> source = queues.computeIfAbsent(name, k -> new LinkedBlockingQueue<>());
+        return Flux.<AcknowledgableDelivery>generate(sink -> {
+                    Message message = null;
+                    while (message == null && running) {
+                        message = poll(source, 100);
+                    }
+                    if (message == null) {
+                        sink.complete();
+                        return;
+                    }
+                    long tag = deliver(message);
+                    Envelope envelope = new Envelope(tag, false, "", name);
+                    Delivery delivery = new Delivery(envelope,
+                            PROPERTIES_CONVERTER.fromMessageProperties(message.getMessageProperties(), StandardCharsets.UTF_8.name()),
+                            message.getBody());
+                    sink.next(new AcknowledgableDelivery(delivery, channel, (context, e) -> listenerFailures.increment()));
+                })
+                .subscribeOn(Schedulers.newSingle("load-consumer-reactive", true));
+    }
+
+    void stopConsumers() {
+        running = false;
+        delays.shutdownNow();
+    }
+
+    int depth() {
+        return queues.values().stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    Recorder endToEnd() {
+        return endToEnd;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // Sem ConnectionFactory: nenhuma operação abre canal
+    }
+
+    @Override
+    public <T> T invoke(OperationsCallback<T> action, com.rabbitmq.client.ConfirmCallback acks,
+                        com.rabbitmq.client.ConfirmCallback nacks) {
+        return action.doInRabbit(this);
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData)
+            throws AmqpException {
+        boolean ack = nackRate <= 0 || ThreadLocalRandom.current().nextDouble() >= nackRate;
+        if (ack) {
+            route(exchange, routingKey, message);
+        } else {
+            nacked.increment();
+        }
+        if (correlationData != null) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack injetado"));
+        }
+    }
+
+    private void route(String exchange, String routingKey, Message message) {
+        Long delay = delayedExchanges.get(exchange);
+        if (delay != null) {
+            retried.increment();
+            // A entrega original ainda será confirmada; a latência é registrada na última entrega
+            retrying.add(message.getMessageProperties().getMessageId());
+            try {
+                delays.schedule(() -> enqueue(routingKey, message), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Retry de uma entrega ainda em processamento quando a rodada terminou
+            }
+        } else if (ConsentPartitioner.EXCHANGE.equals(exchange)) {
+            publish(ConsentPartitioner.queueName(Integer.parseInt(routingKey)), message);
+        } else if (queue.equals(routingKey)) {
+            publish(routingKey, message);
+        } else if (routingKey.equals(deadLetterQueue)) {
+            deadLettered.increment();
+        }
+        // Demais destinos (invalidação de cache) não têm consumidor no harness
+    }
+
+    private void publish(String name, Message message) {
+        published.increment();
+        if (message.getMessageProperties().getHeader(SENT_AT_HEADER) == null) {
+            message.getMessageProperties().setHeader(SENT_AT_HEADER, System.nanoTime());
+        }
+        enqueue(name, message);
+    }
+
+    private void enqueue(String name, Message message) {
+        queues.computeIfAbsent(name, k -> new LinkedBlockingQueue<>()).add(message);
+    }
+
+    /**
+     * Com {@code autoAck}, o retorno do listener encerra a entrega, como no container com AcknowledgeMode.AUTO;
+     * sem ele, a entrega só termina no ack ou nack pelo canal.
+     */
+    private void consume(String name, Consumer<Message> listener, boolean autoAck) {
+        BlockingQueue<Message> source = queues.get(name);
+        while (running) {
+            Message message = poll(source, 100);
+            if (message == null) {
+                continue;
+            }
+            message.getMessageProperties().setConsumerQueue(name);
+            long tag = deliver(message);
+            try {
+                listener.accept(message);
+                if (autoAck) {
+                    complete(tag, false, false);
+                }
+            } catch (RuntimeException e) {
+                complete(tag, true, false);
+            }
+        }
+    }
+
+    private void consumeBatches(int batchSize, long receiveTimeoutMillis, BiConsumer<List<Message>, Channel> listener) {
+        BlockingQueue<Message> source = queues.get(queue);
+        while (running) {
+            List<Message> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize) {
+                Message message = poll(source, receiveTimeoutMillis);
+                if (message == null) {
+                    break;
+                }
+                deliver(message);
+                batch.add(message);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                listener.accept(batch, channel);
+            } catch (RuntimeException e) {
+                batch.forEach(message -> complete(message.getMessageProperties().getDeliveryTag(), true, false));
+            }
+        }
+    }
+
+    private long deliver(Message message) {
+        long tag = deliveryTags.incrementAndGet();
+        message.getMessageProperties().setDeliveryTag(tag);
+        unacked.put(tag, message);
+        delivered.increment();
+        return tag;
+    }
+
+    /**
+     * Encerra a entrega: registra a latência fim a fim, a menos que a mensagem tenha sido reagendada pelo
+     * retry ou devolvida à fila.
+     */
+    private void complete(long tag, boolean rejected, boolean requeue) {
+        Message message = unacked.remove(tag);
+        if (message == null) {
+            return;
+        }
+        if (requeue) {
+            enqueue(message.getMessageProperties().getConsumerQueue() != null
+                    ? message.getMessageProperties().getConsumerQueue() : queue, message);
+            return;
+        }
+        if (rejected) {
+            listenerFailures.increment();
+        }
+        if (!retrying.remove(message.getMessageProperties().getMessageId())
+                && message.getMessageProperties().getHeader(SENT_AT_HEADER) instanceof Long sentAt) {
+            endToEnd.recordValue(Math.max(0, System.nanoTime() - sentAt) / 1_000);
+        }
+    }
+
+    /**
+     * Canal com ack manual: basicAck, basicNack e basicReject encerram a entrega pelo delivery tag; os demais
+     * métodos não são usados pelos consumidores.
+     */
+    private Channel channel() {
+        return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[]{Channel.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "basicAck" -> {
+                        complete((Long) args[0], false, false);
+                        yield null;
+                    }
+                    case "basicNack" -> {
+                        complete((Long) args[0], true, (Boolean) args[2]);
+                        yield null;
+                    }
+                    case "basicReject" -> {
+                        complete((Long) args[0], true, (Boolean) args[1]);
+                        yield null;
+                    }
+                    case "isOpen" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryBroker.channel";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Message poll(BlockingQueue<Message> source, long timeoutMillis) {
+        try {
+            return source.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static void start(String name, Runnable consumer) {
+        Thread thread = new Thread(consumer, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
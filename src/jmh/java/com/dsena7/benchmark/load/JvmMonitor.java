@@ -0,0 +1,166 @@
+package com.dsena7.benchmark.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pausas de GC e uso de heap durante a carga, pelas notificações dos GarbageCollectorMXBean: cada coleta
+ * informa a duração e o heap ocupado depois dela. O heap após as coletas, ao longo de uma rodada longa,
+ * é o que indica retenção crescente; o heap instantâneo só reflete o ponto do ciclo de alocação.
+ */
+class JvmMonitor {
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<double[]> heapAfterGc = new ArrayList<>();
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+    private long startedNanos = System.nanoTime();
+
+    private long intervalPauses;
+    private long intervalPauseMicros;
+    private long intervalMaxPauseMicros;
+    private long totalPauses;
+    private long totalPauseMicros;
+    private long maxPauseMicros;
+    private long lastHeapAfterGc;
+    private long maxHeapAfterGc;
+
+    void start() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                NotificationListener listener = (notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        collected(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+                    }
+                };
+                emitter.addNotificationListener(listener, null, null);
+                registrations.add(new Registration(emitter, listener));
+            }
+        }
+    }
+
+    void stop() {
+        for (Registration registration : registrations) {
+            try {
+                registration.emitter().removeNotificationListener(registration.listener());
+            } catch (Exception e) {
+                // Listener já removido
+            }
+        }
+    }
+
+    /**
+     * Descarta os totais do aquecimento; o resumo passa a cobrir só o regime estável.
+     */
+    synchronized void reset() {
+        startedNanos = System.nanoTime();
+        heapAfterGc.clear();
+        totalPauses = 0;
+        totalPauseMicros = 0;
+        maxPauseMicros = 0;
+        maxHeapAfterGc = 0;
+    }
+
+    private synchronized void collected(GarbageCollectionNotificationInfo info) {
+        // Coletores concorrentes (ciclos do G1 e ZGC) notificam a duração do ciclo, não uma pausa
+        if (info.getGcName().contains("Cycles") || "No GC".equals(info.getGcCause())) {
+            return;
+        }
+        long pauseMicros = info.getGcInfo().getDuration() * 1_000;
+        intervalPauses++;
+        intervalPauseMicros += pauseMicros;
+        intervalMaxPauseMicros = Math.max(intervalMaxPauseMicros, pauseMicros);
+        totalPauses++;
+        totalPauseMicros += pauseMicros;
+        maxPauseMicros = Math.max(maxPauseMicros, pauseMicros);
+
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        lastHeapAfterGc = used;
+        maxHeapAfterGc = Math.max(maxHeapAfterGc, used);
+        heapAfterGc.add(new double[]{(System.nanoTime() - startedNanos) / 60e9, used});
+    }
+
+    /**
+     * Pausas desde a última chamada.
+     */
+    synchronized Interval interval() {
+        Interval interval = new Interval(intervalPauses, intervalPauseMicros / 1_000.0, intervalMaxPauseMicros / 1_000.0,
+                usedHeap(), lastHeapAfterGc);
+        intervalPauses = 0;
+        intervalPauseMicros = 0;
+        intervalMaxPauseMicros = 0;
+        return interval;
+    }
+
+    synchronized LoadReport.Gc gcSummary(double elapsedSeconds) {
+        return new LoadReport.Gc(totalPauses, totalPauseMicros / 1_000.0, maxPauseMicros / 1_000.0,
+                elapsedSeconds == 0 ? 0 : totalPauseMicros / 1e6 / elapsedSeconds * 100);
+    }
+
+    synchronized LoadReport.Heap heapSummary() {
+        return new LoadReport.Heap(mb(maxHeapAfterGc), mb(lastHeapAfterGc), mb(slopeBytesPerMinute()),
+                mb(Runtime.getRuntime().maxMemory()));
+    }
+
+    /**
+     * Inclinação, por mínimos quadrados, do heap após GC em função do tempo; positiva e estável em uma
+     * rodada longa indica vazamento.
+     */
+    private double slopeBytesPerMinute() {
+        int n = heapAfterGc.size();
+        if (n < 2) {
+            return 0;
+        }
+        double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (double[] point : heapAfterGc) {
+            sumX += point[0];
+            sumY += point[1];
+            sumXY += point[0] * point[1];
+            sumXX += point[0] * point[0];
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return denominator == 0 ? 0 : (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static double mb(double bytes) {
+        return Math.round(bytes / 1_048_576.0 * 10) / 10.0;
+    }
+
+    record Interval(long pauses, double pauseMillis, double maxPauseMillis, long heapUsed, long heapAfterGc) {
+
+        double heapUsedMb() {
+            return mb(heapUsed);
+        }
+
+        double heapAfterGcMb() {
+            return mb(heapAfterGc);
+        }
+    }
+
+    private record Registration(NotificationEmitter emitter, NotificationListener listener) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.dsena7.benchmark.load;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.support.InMemoryConsentStore;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga em malha aberta: as requisições partem no instante planejado pela taxa alvo,
+ * independentemente das respostas anteriores, e a latência é medida a partir desse instante. Um servidor
+ * que atrasa acumula atraso nas medições seguintes em vez de reduzir a taxa oferecida (coordinated omission).
+ * Acima de {@code maxInFlight} requisições pendentes, as novas são descartadas e contadas.
+ * <p>
+ * Cada requisição sorteia um {@link Kind} pelos pesos do mix:
+ * <ul>
+ *     <li>{@code save}: /save de um consentId novo, que passa a alimentar os eventos válidos;</li>
+ *     <li>{@code valid}: /event de um consentimento ainda não processado, que sofre transição;</li>
+ *     <li>{@code duplicate}: /event de um consentId enviado recentemente;</li>
+ *     <li>{@code unknown}: /event de um consentId inexistente, que segue para retry e DLQ;</li>
+ *     <li>{@code terminal}: /event de um consentimento EXPIRED ou REJECTED.</li>
+ * </ul>
+ */
+class LoadGenerator {
+
+    enum Kind {SAVE, VALID, DUPLICATE, UNKNOWN, TERMINAL}
+
+    private static final int RECENT_SIZE = 4096;
+
+    private final HttpClient client;
+    private final URI saveUri;
+    private final URI eventUri;
+    private final Map<Kind, Integer> mix;
+    private final int totalWeight;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    private final ConcurrentLinkedQueue<String> live = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<String> recent = new AtomicReferenceArray<>(RECENT_SIZE);
+    private final AtomicLong recentIndex = new AtomicLong();
+    private final List<String> terminal = new ArrayList<>();
+
+    private final Map<Kind, Recorder> latencies = new EnumMap<>(Kind.class);
+    private final Map<Kind, LongAdder> succeeded = new EnumMap<>(Kind.class);
+    private final Map<Kind, LongAdder> failed = new EnumMap<>(Kind.class);
+    final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    LoadGenerator(int port, Map<Kind, Integer> mix, int maxInFlight, int httpThreads) {
+        ExecutorService executor = Executors.newFixedThreadPool(httpThreads, runnable -> {
+            Thread thread = new Thread(runnable, "load-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.saveUri = URI.create("http://localhost:" + port + "/v1/consents/save");
+        this.eventUri = URI.create("http://localhost:" + port + "/v1/consents/event");
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        for (Kind kind : Kind.values()) {
+            latencies.put(kind, new Recorder(3));
+            succeeded.put(kind, new LongAdder());
+            failed.put(kind, new LongAdder());
+        }
+    }
+
+    /**
+     * Popula o armazenamento com consentimentos vencidos, que sofrem transição no primeiro evento, e com
+     * consentimentos já terminais.
+     */
+    void seed(InMemoryConsentStore store, int consents, int terminalConsents) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < consents; i++) {
+            String consentId = "seed-" + UUID.randomUUID();
+            ConsentStateEnum state = i % 2 == 0 ? ConsentStateEnum.AUTHORISED : ConsentStateEnum.AWAITING_AUTHORISATION;
+            store.put(ConsentEntity.builder()
+                    .consentId(consentId)
+                    .state(state)
+                    .createdAt(now.minusMinutes(5))
+                    .expiratedAt(now.minusSeconds(1))
+                    .build());
+            live.add(consentId);
+        }
+        for (int i = 0; i < terminalConsents; i++) {
+            String consentId = "terminal-" + UUID.randomUUID();
+            ConsentStateEnum state = i % 2 == 0 ? ConsentStateEnum.EXPIRED : ConsentStateEnum.REJECTED;
+            store.put(ConsentEntity.builder()
+                    .consentId(consentId)
+                    .state(state)
+                    .updateStatus(now.minusDays(1))
+                    .createdAt(now.minusDays(2))
+                    .expiratedAt(now.minusDays(1))
+                    .build());
+            terminal.add(consentId);
+        }
+    }
+
+    /**
+     * Dispara requisições na taxa alvo até {@link #stop()}. Bloqueia a thread chamadora.
+     */
+    void run(double ratePerSecond) {
+        running = true;
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long start = System.nanoTime();
+        for (long i = 0; running; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                dropped.increment();
+                continue;
+            }
+            Kind kind = pick();
+            String consentId = consentId(kind);
+            if (consentId == null) {
+                // Sem consentimento disponível para o tipo sorteado (pool de válidos esgotado, nenhum envio recente)
+                kind = Kind.UNKNOWN;
+                consentId = consentId(kind);
+            }
+            send(kind, consentId, intended);
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Histograma de latência (µs) de cada tipo desde a última chamada.
+     */
+    Map<Kind, Histogram> intervalLatencies() {
+        Map<Kind, Histogram> intervals = new EnumMap<>(Kind.class);
+        latencies.forEach((kind, recorder) -> intervals.put(kind, recorder.getIntervalHistogram()));
+        return intervals;
+    }
+
+    long succeeded(Kind kind) {
+        return succeeded.get(kind).sum();
+    }
+
+    long failed(Kind kind) {
+        return failed.get(kind).sum();
+    }
+
+    private Kind pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Kind, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Kind.UNKNOWN;
+    }
+
+    private void send(Kind kind, String consentId, long intended) {
+        HttpRequest request;
+        if (kind == Kind.SAVE) {
+            ConsentStateEnum state = ThreadLocalRandom.current().nextBoolean()
+                    ? ConsentStateEnum.AUTHORISED : ConsentStateEnum.AWAITING_AUTHORISATION;
+            request = post(saveUri, "{\"consentId\":\"" + consentId + "\",\"state\":\"" + state.name() + "\"}");
+        } else {
+            request = post(eventUri, "{\"consentId\":\"" + consentId + "\"}");
+            recent.set((int) (recentIndex.getAndIncrement() % RECENT_SIZE), consentId);
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            inFlight.release();
+            latencies.get(kind).recordValue(Math.max(0, System.nanoTime() - intended) / 1_000);
+            boolean success = error == null && response.statusCode() < 300;
+            (success ? succeeded : failed).get(kind).increment();
+            if (success && kind == Kind.SAVE) {
+                live.add(consentId);
+            }
+        });
+    }
+
+    private String consentId(Kind kind) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (kind) {
+            case SAVE -> "load-" + UUID.randomUUID();
+            case VALID -> live.poll();
+            case DUPLICATE -> recent.get(random.nextInt(RECENT_SIZE));
+            case UNKNOWN -> "unknown-" + UUID.randomUUID();
+            case TERMINAL -> terminal.isEmpty() ? null : terminal.get(random.nextInt(terminal.size()));
+        };
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
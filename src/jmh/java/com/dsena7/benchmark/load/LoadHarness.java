@@ -0,0 +1,349 @@
+package com.dsena7.benchmark.load;
+
+import com.dsena7.benchmark.load.LoadGenerator.Kind;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.partition.ConsentPartitioner;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.utils.ConsentBatchConsumerUtils;
+import com.dsena7.utils.ConsentConsumerUtils;
+import com.dsena7.utils.ConsentPartitionedConsumerUtils;
+import com.dsena7.utils.ConsentReactiveConsumerUtils;
+import com.dsena7.utils.ConsentVirtualThreadConsumerUtils;
+import org.HdrHistogram.Histogram;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Teste de carga e de longa duração (soak) da aplicação inteira: HTTP, publisher, consumidor, máquina de
+ * estados e repositório, com o MongoDB e o RabbitMQ substituídos por implementações em memória com
+ * latência e falhas injetadas (ver {@link LoadHarnessApplication}).
+ * <p>
+ * Argumentos {@code chave=valor}; chaves com ponto ({@code consent.statemachine.engine=compiled}) vão para
+ * o ambiente do Spring e alteram a configuração da rodada:
+ * <ul>
+ *     <li>{@code mode} (single): modo de consumo, {@code single}, {@code batch}, {@code reactive},
+ *     {@code virtual} ou {@code partitioned}; define {@code consent.consumer.mode} ou
+ *     {@code consent.partitions.enabled};</li>
+ *     <li>{@code rate} (500): requisições por segundo; {@code duration} (60) e {@code warmup} (10), em segundos;</li>
+ *     <li>{@code mix} (save:20,valid:40,duplicate:15,unknown:10,terminal:15): pesos de cada tipo de requisição;</li>
+ *     <li>{@code seed} (20000) e {@code terminal-seed} (2000): consentimentos vencidos e terminais criados antes da carga;</li>
+ *     <li>{@code repository-latency-ms} (1), {@code repository-failure-rate} (0) e {@code nack-rate} (0):
+ *     latência e falhas injetadas;</li>
+ *     <li>{@code consumers} (4), {@code max-in-flight} (1000), {@code http-threads} (4), {@code report-interval} (10);</li>
+ *     <li>{@code output} (target/load/load-report.json), {@code baseline}, {@code tolerance} (0.2) e
+ *     {@code fail-on-regression} (false).</li>
+ * </ul>
+ * Exemplo:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.dsena7.benchmark.load.LoadHarness \
+ *     -Dbenchmark.args="mode=batch rate=1000 duration=1800 baseline=src/jmh/resources/load-baseline-batch.json"
+ * </pre>
+ * A cada intervalo é impressa uma linha com vazão, p99 por tipo, profundidade da fila, pausas de GC e heap;
+ * ao final, o resumo da rodada, gravado em {@code output}, e as regressões em relação a {@code baseline}.
+ * A latência fim a fim inclui as esperas das filas de retry, de modo que consentIds inexistentes a levam
+ * para a soma das faixas de {@code consent.retry.delays-ms}.
+ * <p>
+ * Há uma referência por modo, {@code src/jmh/resources/load-baseline-<mode>.json}, gerada com
+ * {@code mode=<mode> rate=300 duration=60 warmup=20} e os demais valores padrão; uma referência de outro modo é
+ * recusada, e a comparação só faz sentido com os mesmos argumentos e na mesma máquina.
+ */
+public class LoadHarness {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("mode", "single"),
+            Map.entry("rate", "500"),
+            Map.entry("duration", "60"),
+            Map.entry("warmup", "10"),
+            Map.entry("mix", "save:20,valid:40,duplicate:15,unknown:10,terminal:15"),
+            Map.entry("seed", "20000"),
+            Map.entry("terminal-seed", "2000"),
+            Map.entry("repository-latency-ms", "1"),
+            Map.entry("repository-failure-rate", "0"),
+            Map.entry("nack-rate", "0"),
+            Map.entry("consumers", "4"),
+            Map.entry("max-in-flight", "1000"),
+            Map.entry("http-threads", "4"),
+            Map.entry("report-interval", "10"),
+            Map.entry("output", "target/load/load-report.json"),
+            Map.entry("tolerance", "0.2"),
+            Map.entry("fail-on-regression", "false"));
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                // Falhas fazem parte do mix (consentId inexistente, estado terminal); o log por mensagem dominaria a medição
+                "logging.level.com.dsena7=ERROR",
+                "logging.level.org.springframework=ERROR",
+                "spring.main.banner-mode=off"));
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Argumento sem chave=valor: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            if (key.contains(".")) {
+                properties.add(arg);
+            } else if (DEFAULTS.containsKey(key) || key.equals("baseline")) {
+                options.put(key, arg.substring(separator + 1));
+            } else {
+                throw new IllegalArgumentException("Opção desconhecida: " + key);
+            }
+        }
+        properties.addAll(modeProperties(options.get("mode")));
+        properties.add("load.repository-latency-ms=" + options.get("repository-latency-ms"));
+        properties.add("load.repository-failure-rate=" + options.get("repository-failure-rate"));
+        properties.add("load.nack-rate=" + options.get("nack-rate"));
+
+        // O restart do devtools recarregaria o contexto em outro classloader no meio da medição
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.exit(run(options, properties));
+    }
+
+    private static int run(Map<String, String> options, List<String> properties) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadHarnessApplication.class)
+                .web(WebApplicationType.SERVLET)
+                // Como argumentos de linha de comando, e não default properties, para prevalecer sobre o application.yml
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new))) {
+            LoadReport report = measure(context, options);
+            System.out.println();
+            System.out.print(report.summary());
+
+            Path output = Path.of(options.get("output"));
+            report.write(output);
+            System.out.println("Relatório gravado em " + output.toAbsolutePath());
+
+            String baseline = options.get("baseline");
+            if (baseline == null) {
+                return 0;
+            }
+            if (!Files.exists(Path.of(baseline))) {
+                System.out.println("Referência " + baseline + " inexistente; nada a comparar");
+                return 0;
+            }
+            LoadReport reference = LoadReport.read(Path.of(baseline));
+            String baselineMode = reference.options().getOrDefault("mode", "single");
+            if (!baselineMode.equals(options.get("mode"))) {
+                throw new IllegalArgumentException("Referência " + baseline + " gravada no modo " + baselineMode
+                        + ", rodada no modo " + options.get("mode"));
+            }
+            double tolerance = Double.parseDouble(options.get("tolerance"));
+            List<String> regressions = report.regressionsAgainst(reference, tolerance);
+            if (regressions.isEmpty()) {
+                System.out.printf(Locale.ROOT, "Dentro da tolerância de %.0f%% em relação a %s%n", tolerance * 100, baseline);
+                return 0;
+            }
+            System.out.printf(Locale.ROOT, "Regressões em relação a %s (tolerância %.0f%%):%n", baseline, tolerance * 100);
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            return Boolean.parseBoolean(options.get("fail-on-regression")) ? 1 : 0;
+        }
+    }
+
+    private static LoadReport measure(ConfigurableApplicationContext context, Map<String, String> options)
+            throws InterruptedException {
+        InMemoryBroker broker = (InMemoryBroker) context.getBean(RabbitTemplate.class);
+        context.getBeanProvider(ConsentRetryRouter.class).ifAvailable(broker::routeRetries);
+        startConsumers(context, broker, options.get("mode"), Integer.parseInt(options.get("consumers")));
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        LoadGenerator generator = new LoadGenerator(port, mix(options.get("mix")),
+                Integer.parseInt(options.get("max-in-flight")), Integer.parseInt(options.get("http-threads")));
+        generator.seed(context.getBean(InMemoryConsentStore.class),
+                Integer.parseInt(options.get("seed")), Integer.parseInt(options.get("terminal-seed")));
+
+        JvmMonitor monitor = new JvmMonitor();
+        monitor.start();
+        double rate = Double.parseDouble(options.get("rate"));
+        Thread load = new Thread(() -> generator.run(rate), "load-generator");
+        load.setDaemon(true);
+        load.start();
+
+        long intervalMillis = Long.parseLong(options.get("report-interval")) * 1_000;
+        long warmupMillis = Long.parseLong(options.get("warmup")) * 1_000;
+        long durationMillis = Long.parseLong(options.get("duration")) * 1_000;
+        long started = System.currentTimeMillis();
+        long steadySince = 0;
+        Map<Kind, Long> succeededAtWarmup = new EnumMap<>(Kind.class);
+        Map<Kind, Long> failedAtWarmup = new EnumMap<>(Kind.class);
+        long[] brokerAtWarmup = new long[6];
+        Map<Kind, Histogram> totals = new EnumMap<>(Kind.class);
+        Histogram endToEnd = new Histogram(3);
+
+        System.out.printf("%8s %9s %9s %9s %9s %9s %9s %9s %8s %8s %8s %6s %9s %9s%n", "t(s)", "req/s",
+                "save p99", "valid p99", "dup p99", "unk p99", "term p99", "e2e p99", "fila", "pend.", "desc.",
+                "gc", "gc max", "heap MB");
+        boolean warm = warmupMillis == 0;
+        if (warm) {
+            steadySince = started;
+        }
+        while (System.currentTimeMillis() - started < warmupMillis + durationMillis) {
+            Thread.sleep(Math.min(intervalMillis, Math.max(1, warmupMillis + durationMillis
+                    - (System.currentTimeMillis() - started))));
+            long elapsed = System.currentTimeMillis() - started;
+            Map<Kind, Histogram> interval = generator.intervalLatencies();
+            Histogram intervalEndToEnd = broker.endToEnd().getIntervalHistogram();
+            JvmMonitor.Interval jvm = monitor.interval();
+            printInterval(elapsed, intervalMillis, interval, intervalEndToEnd, broker, generator, jvm);
+
+            if (warm) {
+                interval.forEach((kind, histogram) -> totals.computeIfAbsent(kind, k -> new Histogram(3)).add(histogram));
+                endToEnd.add(intervalEndToEnd);
+            } else if (elapsed >= warmupMillis) {
+                warm = true;
+                steadySince = System.currentTimeMillis();
+                for (Kind kind : Kind.values()) {
+                    succeededAtWarmup.put(kind, generator.succeeded(kind));
+                    failedAtWarmup.put(kind, generator.failed(kind));
+                }
+                brokerAtWarmup = brokerCounters(broker);
+                monitor.reset();
+                System.out.println("-- fim do aquecimento --");
+            }
+        }
+        double elapsedSeconds = (System.currentTimeMillis() - steadySince) / 1_000.0;
+        generator.stop();
+        load.join(5_000);
+        monitor.stop();
+        broker.stopConsumers();
+
+        Map<String, LoadReport.Requests> requests = new LinkedHashMap<>();
+        for (Kind kind : Kind.values()) {
+            long succeeded = generator.succeeded(kind) - succeededAtWarmup.getOrDefault(kind, 0L);
+            long failed = generator.failed(kind) - failedAtWarmup.getOrDefault(kind, 0L);
+            Histogram histogram = totals.getOrDefault(kind, new Histogram(3));
+            requests.put(kind.name().toLowerCase(Locale.ROOT), new LoadReport.Requests(succeeded, failed,
+                    round(succeeded / elapsedSeconds), LoadReport.Latency.of(histogram)));
+        }
+        long[] counters = brokerCounters(broker);
+        LoadReport.Broker brokerReport = new LoadReport.Broker(counters[0] - brokerAtWarmup[0],
+                counters[1] - brokerAtWarmup[1], counters[2] - brokerAtWarmup[2], counters[3] - brokerAtWarmup[3],
+                counters[4] - brokerAtWarmup[4], counters[5] - brokerAtWarmup[5],
+                round((counters[1] - brokerAtWarmup[1]) / elapsedSeconds), broker.depth());
+
+        Map<String, String> reportOptions = new TreeMap<>(options);
+        reportOptions.remove("output");
+        reportOptions.remove("baseline");
+        reportOptions.put("dropped", Long.toString(generator.dropped.sum()));
+        return new LoadReport(reportOptions, round(elapsedSeconds), requests, LoadReport.Latency.of(endToEnd),
+                brokerReport, monitor.gcSummary(elapsedSeconds), monitor.heapSummary());
+    }
+
+    private static List<String> modeProperties(String mode) {
+        return switch (mode) {
+            case "single", "batch", "reactive", "virtual" -> List.of("consent.consumer.mode=" + mode);
+            case "partitioned" -> List.of("consent.partitions.enabled=true");
+            default -> throw new IllegalArgumentException("Modo de consumo desconhecido: " + mode);
+        };
+    }
+
+    /**
+     * Liga o consumidor do modo ao broker. No modo reativo o consumidor assina o Receiver ao subir o
+     * contexto; os demais recebem {@code consumers} threads, exceto o particionado, com uma por partição.
+     */
+    private static void startConsumers(ConfigurableApplicationContext context, InMemoryBroker broker, String mode,
+                                       int consumers) {
+        Environment environment = context.getEnvironment();
+        switch (mode) {
+            case "single" -> broker.startConsumers(consumers, listener(context.getBean(ConsentConsumerUtils.class)));
+            case "batch" -> {
+                ConsentBatchConsumerUtils consumer = context.getBean(ConsentBatchConsumerUtils.class);
+                broker.startBatchConsumers(consumers,
+                        environment.getProperty("consent.consumer.batch.size", Integer.class, 100),
+                        environment.getProperty("consent.consumer.batch.receive-timeout-ms", Long.class, 200L),
+                        (messages, channel) -> {
+                            try {
+                                consumer.receivedMessages(messages, channel);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            }
+            case "virtual" -> {
+                ConsentVirtualThreadConsumerUtils consumer = context.getBean(ConsentVirtualThreadConsumerUtils.class);
+                broker.startChannelConsumers(consumers, (message, channel) -> {
+                    try {
+                        consumer.receivedMessage(message, channel);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            case "partitioned" -> broker.startPartitionConsumers(context.getBean(ConsentPartitioner.class).count(),
+                    context.getBean(ConsentPartitionedConsumerUtils.class)::onMessage);
+            case "reactive" -> context.getBean(ConsentReactiveConsumerUtils.class);
+            default -> throw new IllegalArgumentException("Modo de consumo desconhecido: " + mode);
+        }
+    }
+
+    /**
+     * Entrega cada mensagem ao consumidor real, como o listener container faria.
+     */
+    static Consumer<Message> listener(ConsentConsumerUtils consumer) {
+        return message -> {
+            MessageProperties messageProperties = message.getMessageProperties();
+            try {
+                consumer.receivedMessage(message, messageProperties.getHeader(ConsentMetrics.PUBLISHED_AT_HEADER),
+                        messageProperties.getMessageId());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static void printInterval(long elapsed, long intervalMillis, Map<Kind, Histogram> interval,
+                                      Histogram endToEnd, InMemoryBroker broker, LoadGenerator generator,
+                                      JvmMonitor.Interval jvm) {
+        long requests = interval.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        System.out.printf(Locale.ROOT, "%8d %9.0f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %8d %8d %6d %9.1f %9.1f%n",
+                elapsed / 1_000, requests * 1_000.0 / intervalMillis,
+                p99(interval.get(Kind.SAVE)), p99(interval.get(Kind.VALID)), p99(interval.get(Kind.DUPLICATE)),
+                p99(interval.get(Kind.UNKNOWN)), p99(interval.get(Kind.TERMINAL)), p99(endToEnd),
+                broker.depth(), generator.inFlight(), generator.dropped.sum(), jvm.pauses(), jvm.maxPauseMillis(),
+                jvm.heapUsedMb());
+    }
+
+    private static long[] brokerCounters(InMemoryBroker broker) {
+        return new long[]{broker.published.sum(), broker.delivered.sum(), broker.nacked.sum(), broker.retried.sum(),
+                broker.deadLettered.sum(), broker.listenerFailures.sum()};
+    }
+
+    private static Map<Kind, Integer> mix(String value) {
+        Map<Kind, Integer> mix = new EnumMap<>(Kind.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            mix.put(Kind.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    private static double p99(Histogram histogram) {
+        return histogram == null ? 0 : histogram.getValueAtPercentile(99) / 1_000.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
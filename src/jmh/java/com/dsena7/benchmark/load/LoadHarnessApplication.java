@@ -0,0 +1,168 @@
+package com.dsena7.benchmark.load;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.codec.BinaryConsentEventCodec;
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.codec.ConsentMessageConverter;
+import com.dsena7.codec.JsonConsentEventCodec;
+import com.dsena7.config.LazyWebConfig;
+import com.dsena7.config.PrecomputedStateMachineConfig;
+import com.dsena7.config.StateMachineConfig;
+import com.dsena7.controller.ConsentController;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.partition.ConsentPartitioner;
+import com.dsena7.publisher.ConsentEventPublisher;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.repository.ReactiveConsentRepository;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentIngestionServiceImpl;
+import com.dsena7.service.ConsentStateServiceImpl;
+import com.dsena7.service.ReactiveConsentStateServiceImpl;
+import com.dsena7.statemachine.CompiledTransitionEngine;
+import com.dsena7.statemachine.PerCallStateMachineProvider;
+import com.dsena7.statemachine.PooledStateMachineProvider;
+import com.dsena7.statemachine.SpringStateMachineTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.utils.ConsentBatchConsumerUtils;
+import com.dsena7.utils.ConsentConsumerUtils;
+import com.dsena7.utils.ConsentPartitionedConsumerUtils;
+import com.dsena7.utils.ConsentReactiveConsumerUtils;
+import com.dsena7.utils.ConsentVirtualThreadConsumerUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.error.ErrorMvcAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Flux;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.Receiver;
+
+import java.time.Duration;
+
+/**
+ * Contexto do harness de carga: controller, publisher, consumidor e serviço reais, com o application.yml
+ * da aplicação, sobre um {@link InMemoryConsentStore} no lugar do MongoDB e um {@link InMemoryBroker} no
+ * lugar do RabbitMQ. Componentes que dependem do MongoTemplate (journal, flusher de estatísticas, sweeper,
+ * arquivamento, migração de formato, coordenação de partições, controle adaptativo) ficam de fora; os
+ * demais respeitam as mesmas propriedades {@code consent.*} da aplicação.
+ * <p>
+ * Todos os modos de consumo são importados; {@code consent.consumer.mode} e {@code consent.partitions.enabled}
+ * escolhem quais consumidores existem, como na aplicação, e o {@link LoadHarness} os liga ao broker.
+ */
+@Configuration
+@ImportAutoConfiguration({
+        PropertyPlaceholderAutoConfiguration.class,
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        ErrorMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class,
+        TaskExecutionAutoConfiguration.class
+})
+@Import({
+        ConsentLifecycleRegistry.class,
+        StateMachineConfig.class,
+        PrecomputedStateMachineConfig.class,
+        LazyWebConfig.class,
+        PerCallStateMachineProvider.class,
+        PooledStateMachineProvider.class,
+        SpringStateMachineTransitionEngine.class,
+        CompiledTransitionEngine.class,
+        ConsentMetrics.class,
+        JsonConsentEventCodec.class,
+        BinaryConsentEventCodec.class,
+        ConsentEventCodecs.class,
+        ConsentPartitioner.class,
+        ConsentEventPublisher.class,
+        ConsentStateCache.class,
+        ConsentDeliveryFilter.class,
+        ConsentRetryRouter.class,
+        ConsentStateCounters.class,
+        ConsentStateServiceImpl.class,
+        ReactiveConsentStateServiceImpl.class,
+        ConsentIngestionServiceImpl.class,
+        ConsentController.class,
+        ConsentConsumerUtils.class,
+        ConsentBatchConsumerUtils.class,
+        ConsentVirtualThreadConsumerUtils.class,
+        ConsentReactiveConsumerUtils.class,
+        ConsentPartitionedConsumerUtils.class
+})
+class LoadHarnessApplication {
+
+    static final String QUEUE = "consent.queue";
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    InMemoryConsentStore inMemoryConsentStore(@Value("${load.repository-latency-ms:0}") long latencyMillis,
+                                              @Value("${load.repository-failure-rate:0}") double failureRate) {
+        InMemoryConsentStore store = new InMemoryConsentStore(Duration.ofMillis(latencyMillis));
+        store.setFailureRate(failureRate);
+        return store;
+    }
+
+    @Bean
+    ConsentRepository consentRepository(InMemoryConsentStore store) {
+        return store.blocking();
+    }
+
+    @Bean
+    ReactiveConsentRepository reactiveConsentRepository(InMemoryConsentStore store) {
+        return store.reactive();
+    }
+
+    @Bean
+    MessageConverter messageConverter(ConsentEventCodecs codecs) {
+        ConsentMessageConverter converter = new ConsentMessageConverter(codecs, new Jackson2JsonMessageConverter());
+        // messageId por publicação, usado pelo filtro de entregas duplicadas
+        converter.setCreateMessageIds(true);
+        return converter;
+    }
+
+    @Bean
+    RabbitTemplate rabbitTemplate(MessageConverter messageConverter,
+                                  @Value("${load.nack-rate:0}") double nackRate) {
+        return new InMemoryBroker(messageConverter, QUEUE, nackRate);
+    }
+
+    /**
+     * Receiver do modo reativo sobre as filas do {@link InMemoryBroker}; nunca abre conexão, por isso não
+     * precisa de close.
+     */
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "reactive")
+    Receiver receiver(RabbitTemplate rabbitTemplate) {
+        InMemoryBroker broker = (InMemoryBroker) rabbitTemplate;
+        return new Receiver() {
+            @Override
+            public Flux<AcknowledgableDelivery> consumeManualAck(String queue, ConsumeOptions options) {
+                return broker.deliveries(queue);
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package com.dsena7.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resultado de uma rodada do harness de carga, gravado em JSON e comparado com uma rodada de referência.
+ * Latências em milissegundos; vazões em requisições (ou entregas) por segundo, contadas após o aquecimento.
+ */
+record LoadReport(Map<String, String> options,
+                  double elapsedSeconds,
+                  Map<String, Requests> requests,
+                  Latency endToEnd,
+                  Broker broker,
+                  Gc gc,
+                  Heap heap) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    record Latency(long count, double p50, double p90, double p99, double p999, double max) {
+
+        static Latency of(Histogram histogram) {
+            return new Latency(histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return Math.round(micros / 10.0) / 100.0;
+        }
+    }
+
+    record Requests(long succeeded, long failed, double throughput, Latency latency) {
+    }
+
+    record Broker(long published, long delivered, long nacked, long retried, long deadLettered,
+                  long listenerFailures, double deliveryThroughput, int finalDepth) {
+    }
+
+    record Gc(long pauses, double totalPauseMillis, double maxPauseMillis, double pauseTimePercent) {
+    }
+
+    record Heap(double maxAfterGcMb, double lastAfterGcMb, double afterGcSlopeMbPerMinute, double maxHeapMb) {
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    static LoadReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), LoadReport.class);
+    }
+
+    /**
+     * Compara com a referência: vazão abaixo de {@code 1 - tolerance} ou p99 acima de {@code 1 + tolerance}
+     * da referência, por tipo de requisição e fim a fim, e pausas de GC acima da referência com a mesma folga.
+     * Latências abaixo de 1 ms na referência usam 1 ms como base, para que ruído em valores pequenos não conte.
+     *
+     * @return Descrição de cada regressão; vazia se a rodada está dentro da tolerância
+     */
+    List<String> regressionsAgainst(LoadReport baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        baseline.requests().forEach((kind, expected) -> {
+            Requests actual = requests.get(kind);
+            if (actual == null || expected.latency().count() == 0) {
+                return;
+            }
+            if (actual.throughput() < expected.throughput() * (1 - tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: vazão %.1f/s, referência %.1f/s",
+                        kind, actual.throughput(), expected.throughput()));
+            }
+            checkLatency(regressions, kind, actual.latency(), expected.latency(), tolerance);
+        });
+        checkLatency(regressions, "fim a fim", endToEnd, baseline.endToEnd(), tolerance);
+        if (gc.pauseTimePercent() > Math.max(baseline.gc().pauseTimePercent(), 0.1) * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "gc: %.2f%% do tempo em pausa, referência %.2f%%",
+                    gc.pauseTimePercent(), baseline.gc().pauseTimePercent()));
+        }
+        return regressions;
+    }
+
+    private static void checkLatency(List<String> regressions, String name, Latency actual, Latency expected,
+                                     double tolerance) {
+        if (actual == null || expected == null || expected.count() == 0) {
+            return;
+        }
+        if (actual.p99() > Math.max(expected.p99(), 1.0) * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%s: p99 %.2f ms, referência %.2f ms",
+                    name, actual.p99(), expected.p99()));
+        }
+    }
+
+    String summary() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "tipo", "ok", "falhas", "vazão/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        requests.forEach((kind, result) -> summary.append(line(kind, result.succeeded(), result.failed(),
+                result.throughput(), result.latency())));
+        summary.append(line("fim a fim", broker.delivered(), broker.listenerFailures(),
+                broker.deliveryThroughput(), endToEnd));
+        summary.append(String.format(Locale.ROOT,
+                "broker: %d publicadas, %d nacks, %d retries, %d na DLQ, %d na fila ao final%n",
+                broker.published(), broker.nacked(), broker.retried(), broker.deadLettered(), broker.finalDepth()));
+        summary.append(String.format(Locale.ROOT,
+                "gc: %d pausas, %.1f ms no total (%.2f%% do tempo), maior %.1f ms%n",
+                gc.pauses(), gc.totalPauseMillis(), gc.pauseTimePercent(), gc.maxPauseMillis()));
+        summary.append(String.format(Locale.ROOT,
+                "heap após GC: máximo %.1f MB, último %.1f MB, tendência %+.2f MB/min (heap máximo %.0f MB)%n",
+                heap.maxAfterGcMb(), heap.lastAfterGcMb(), heap.afterGcSlopeMbPerMinute(), heap.maxHeapMb()));
+        return summary.toString();
+    }
+
+    private static String line(String name, long succeeded, long failed, double throughput, Latency latency) {
+        return String.format(Locale.ROOT, "%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, succeeded, failed, throughput, latency.p50(), latency.p90(), latency.p99(),
+                latency.p999(), latency.max());
+    }
+}
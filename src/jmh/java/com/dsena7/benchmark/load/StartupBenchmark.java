@@ -0,0 +1,235 @@
+package com.dsena7.benchmark.load;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Mede o tempo de inicialização até a primeira mensagem consumida, para que regressões de startup (novos
+ * beans, auto-configurações, varreduras) apareçam antes de chegar às réplicas autoescaladas. Cada rodada é
+ * uma JVM nova executando o {@link StartupProbe}; as variantes são:
+ * <ul>
+ *     <li>{@code default}: configuração padrão da aplicação;</li>
+ *     <li>{@code fast}: perfil {@code fast-startup} (modelo da máquina de estados pré-computado, controllers e
+ *     springdoc lazy);</li>
+ *     <li>{@code fast-cds}: {@code fast} com um arquivo CDS gravado por uma execução de treino antes das rodadas.</li>
+ * </ul>
+ * O contexto do harness é montado por {@code @Import}s e não passa pelo processamento AOT do build, de modo que
+ * o ganho do AOT no jar da aplicação não aparece aqui; o efeito das condições do perfil, sim. Como o CDS não
+ * arquiva classes de diretórios, os diretórios do classpath (target/classes, target/test-classes) são
+ * empacotados em jars em {@code work} e todas as variantes usam esse mesmo classpath.
+ * <p>
+ * Argumentos {@code chave=valor}; chaves com ponto vão para o ambiente do Spring de cada rodada:
+ * <ul>
+ *     <li>{@code runs} (10) e {@code variants} (default,fast,fast-cds);</li>
+ *     <li>{@code work} (target/startup), {@code output} (target/startup/startup-report.json), {@code baseline},
+ *     {@code tolerance} (0.2) e {@code fail-on-regression} (false).</li>
+ * </ul>
+ * Exemplo:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.dsena7.benchmark.load.StartupBenchmark \
+ *     -Dbenchmark.args="baseline=src/jmh/resources/startup-baseline.json fail-on-regression=true"
+ * </pre>
+ * {@code src/jmh/resources/startup-baseline.json} foi gerado com os valores padrão; a comparação só faz
+ * sentido na mesma máquina.
+ */
+public class StartupBenchmark {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("runs", "10"),
+            Map.entry("variants", "default,fast,fast-cds"),
+            Map.entry("work", "target/startup"),
+            Map.entry("output", "target/startup/startup-report.json"),
+            Map.entry("tolerance", "0.2"),
+            Map.entry("fail-on-regression", "false"));
+
+    private static final String FAST_PROFILE = "-Dspring.profiles.active=fast-startup";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> properties = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Argumento sem chave=valor: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            if (key.contains(".")) {
+                properties.add(arg);
+            } else if (DEFAULTS.containsKey(key) || key.equals("baseline")) {
+                options.put(key, arg.substring(separator + 1));
+            } else {
+                throw new IllegalArgumentException("Opção desconhecida: " + key);
+            }
+        }
+        System.exit(run(options, properties));
+    }
+
+    private static int run(Map<String, String> options, List<String> properties) throws Exception {
+        Path work = Path.of(options.get("work"));
+        Files.createDirectories(work);
+        String classpath = archivableClasspath(work);
+        int runs = Integer.parseInt(options.get("runs"));
+
+        Map<String, StartupReport.Variant> variants = new LinkedHashMap<>();
+        for (String variant : options.get("variants").split(",")) {
+            List<String> jvmOptions = jvmOptions(variant.trim(), work, classpath, properties);
+            long[] main = new long[runs];
+            long[] ready = new long[runs];
+            long[] firstMessage = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] result = probe(classpath, jvmOptions, properties);
+                main[i] = result[0];
+                ready[i] = result[1];
+                firstMessage[i] = result[2];
+                System.out.printf(Locale.ROOT, "%-10s rodada %2d: main %5d ms, pronto %5d ms, 1ª mensagem %5d ms%n",
+                        variant.trim(), i + 1, main[i], ready[i], firstMessage[i]);
+            }
+            variants.put(variant.trim(), new StartupReport.Variant(runs, StartupReport.Timing.of(main),
+                    StartupReport.Timing.of(ready), StartupReport.Timing.of(firstMessage)));
+        }
+
+        Map<String, String> reportOptions = new TreeMap<>(options);
+        reportOptions.remove("output");
+        reportOptions.remove("baseline");
+        reportOptions.remove("work");
+        reportOptions.put("java", Runtime.version().toString());
+        StartupReport report = new StartupReport(reportOptions, variants);
+        System.out.println();
+        System.out.print(report.summary());
+
+        Path output = Path.of(options.get("output"));
+        report.write(output);
+        System.out.println("Relatório gravado em " + output.toAbsolutePath());
+
+        String baseline = options.get("baseline");
+        if (baseline == null) {
+            return 0;
+        }
+        if (!Files.exists(Path.of(baseline))) {
+            System.out.println("Referência " + baseline + " inexistente; nada a comparar");
+            return 0;
+        }
+        double tolerance = Double.parseDouble(options.get("tolerance"));
+        List<String> regressions = report.regressionsAgainst(StartupReport.read(Path.of(baseline)), tolerance);
+        if (regressions.isEmpty()) {
+            System.out.printf(Locale.ROOT, "Dentro da tolerância de %.0f%% em relação a %s%n", tolerance * 100, baseline);
+            return 0;
+        }
+        System.out.printf(Locale.ROOT, "Regressões em relação a %s (tolerância %.0f%%):%n", baseline, tolerance * 100);
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return Boolean.parseBoolean(options.get("fail-on-regression")) ? 1 : 0;
+    }
+
+    /**
+     * Opções de JVM da variante; para {@code fast-cds}, grava antes o arquivo CDS com uma execução de treino.
+     */
+    private static List<String> jvmOptions(String variant, Path work, String classpath, List<String> properties)
+            throws IOException, InterruptedException {
+        return switch (variant) {
+            case "default" -> List.of();
+            case "fast" -> List.of(FAST_PROFILE);
+            case "fast-cds" -> {
+                Path archive = work.resolve("startup-probe.jsa").toAbsolutePath();
+                Files.deleteIfExists(archive);
+                probe(classpath, List.of(FAST_PROFILE, "-XX:ArchiveClassesAtExit=" + archive), properties);
+                if (!Files.exists(archive)) {
+                    throw new IllegalStateException("Execução de treino não gravou " + archive);
+                }
+                yield List.of(FAST_PROFILE, "-XX:SharedArchiveFile=" + archive);
+            }
+            default -> throw new IllegalArgumentException("Variante desconhecida: " + variant);
+        };
+    }
+
+    /**
+     * Executa o {@link StartupProbe} em uma JVM nova.
+     *
+     * @return Milissegundos desde o início da JVM até o main, o contexto pronto e a primeira mensagem consumida
+     */
+    private static long[] probe(String classpath, List<String> jvmOptions, List<String> properties)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(StartupProbe.class.getName());
+        command.addAll(properties);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] result = null;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StartupProbe.RESULT_PREFIX)) {
+                    String[] values = line.substring(StartupProbe.RESULT_PREFIX.length()).trim().split(" ");
+                    result = new long[]{Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])};
+                } else {
+                    output.add(line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || result == null) {
+            output.forEach(System.err::println);
+            throw new IllegalStateException("Rodada terminou com código " + exitCode + " sem resultado");
+        }
+        return result;
+    }
+
+    /**
+     * Classpath atual com cada diretório substituído por um jar com o mesmo conteúdo, gravado em {@code work}.
+     */
+    private static String archivableClasspath(Path work) throws IOException {
+        List<String> entries = new ArrayList<>();
+        int index = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (!Files.isDirectory(path)) {
+                entries.add(path.toAbsolutePath().toString());
+                continue;
+            }
+            Path jar = work.resolve(index++ + "-" + path.getFileName() + ".jar").toAbsolutePath();
+            writeJar(path, jar);
+            entries.add(jar.toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void writeJar(Path directory, Path jar) throws IOException {
+        try (OutputStream file = Files.newOutputStream(jar);
+             JarOutputStream output = new JarOutputStream(file);
+             Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted()::iterator) {
+                String name = directory.relativize(path).toString().replace(File.separatorChar, '/');
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (Files.isDirectory(path)) {
+                    output.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    output.putNextEntry(new JarEntry(name));
+                    Files.copy(path, output);
+                }
+                output.closeEntry();
+            }
+        }
+    }
+}
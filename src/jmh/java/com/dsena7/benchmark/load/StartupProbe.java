@@ -0,0 +1,81 @@
+package com.dsena7.benchmark.load;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.publisher.ConsentEventPublisher;
+import com.dsena7.publisher.OutboundConsentEvent;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.utils.ConsentConsumerUtils;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processo filho do {@link StartupBenchmark}: sobe o {@link LoadHarnessApplication} com as propriedades
+ * recebidas nos argumentos, publica uma mensagem para um consentimento vencido e termina assim que o
+ * consumidor o leva a EXPIRED. Imprime uma linha com os instantes, em milissegundos desde o início da JVM,
+ * em que o main começou, o contexto ficou pronto e a primeira mensagem foi consumida.
+ */
+public class StartupProbe {
+
+    static final String RESULT_PREFIX = "startup-probe ";
+
+    private static final String CONSENT_ID = "startup-probe";
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long mainAt = System.currentTimeMillis() - jvmStart;
+
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "logging.level.root=ERROR",
+                "spring.main.banner-mode=off"));
+        properties.addAll(List.of(args));
+        // O restart do devtools recarregaria o contexto em outro classloader e dobraria a inicialização medida
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadHarnessApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+            long readyAt = System.currentTimeMillis() - jvmStart;
+
+            InMemoryConsentStore store = context.getBean(InMemoryConsentStore.class);
+            LocalDateTime now = LocalDateTime.now();
+            store.put(ConsentEntity.builder()
+                    .consentId(CONSENT_ID)
+                    .state(ConsentStateEnum.AUTHORISED)
+                    .createdAt(now.minusMinutes(5))
+                    .expiratedAt(now.minusSeconds(1))
+                    .build());
+            context.getBean(ConsentEventPublisher.class)
+                    .publish(new OutboundConsentEvent(CONSENT_ID, new ConsentIdRequestDTO(CONSENT_ID)))
+                    .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            InMemoryBroker broker = (InMemoryBroker) context.getBean(RabbitTemplate.class);
+            broker.startConsumers(1, LoadHarness.listener(context.getBean(ConsentConsumerUtils.class)));
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (store.get(CONSENT_ID).map(ConsentEntity::getState).orElse(null) != ConsentStateEnum.EXPIRED) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Mensagem não consumida em " + TIMEOUT_MILLIS + " ms");
+                }
+                Thread.sleep(1);
+            }
+            long consumedAt = System.currentTimeMillis() - jvmStart;
+            broker.stopConsumers();
+
+            System.out.printf(Locale.ROOT, "%s%d %d %d%n", RESULT_PREFIX, mainAt, readyAt, consumedAt);
+        }
+        System.exit(0);
+    }
+}
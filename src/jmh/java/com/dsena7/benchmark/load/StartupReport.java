@@ -0,0 +1,92 @@
+package com.dsena7.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resultado do {@link StartupBenchmark}, gravado em JSON e comparado com uma rodada de referência. Tempos em
+ * milissegundos desde o início da JVM, por variante de inicialização.
+ */
+record StartupReport(Map<String, String> options, Map<String, Variant> variants) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * @param main         Até a entrada no main: carga da JVM e do classpath
+     * @param ready        Até o contexto do Spring pronto
+     * @param firstMessage Até a primeira mensagem consumida, o que importa para uma réplica recém-escalada
+     */
+    record Variant(int runs, Timing main, Timing ready, Timing firstMessage) {
+    }
+
+    record Timing(long min, long p50, long p90, long max) {
+
+        static Timing of(long[] values) {
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            return new Timing(sorted[0], percentile(sorted, 50), percentile(sorted, 90), sorted[sorted.length - 1]);
+        }
+
+        private static long percentile(long[] sorted, int percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    static StartupReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), StartupReport.class);
+    }
+
+    /**
+     * Compara com a referência: p50 até o contexto pronto ou até a primeira mensagem acima de
+     * {@code 1 + tolerance} da referência, por variante. Variantes ausentes em qualquer um dos lados são ignoradas.
+     *
+     * @return Descrição de cada regressão; vazia se a rodada está dentro da tolerância
+     */
+    List<String> regressionsAgainst(StartupReport baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        baseline.variants().forEach((name, expected) -> {
+            Variant actual = variants.get(name);
+            if (actual == null) {
+                return;
+            }
+            check(regressions, name + " contexto pronto", actual.ready(), expected.ready(), tolerance);
+            check(regressions, name + " primeira mensagem", actual.firstMessage(), expected.firstMessage(), tolerance);
+        });
+        return regressions;
+    }
+
+    private static void check(List<String> regressions, String name, Timing actual, Timing expected, double tolerance) {
+        if (actual.p50() > expected.p50() * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%s: p50 %d ms, referência %d ms",
+                    name, actual.p50(), expected.p50()));
+        }
+    }
+
+    String summary() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%-10s %6s %9s %11s %11s %11s %11s%n",
+                "variante", "runs", "main p50", "pronto p50", "pronto p90", "1ª msg p50", "1ª msg p90"));
+        variants.forEach((name, variant) -> summary.append(String.format(Locale.ROOT,
+                "%-10s %6d %9d %11d %11d %11d %11d%n", name, variant.runs(), variant.main().p50(),
+                variant.ready().p50(), variant.ready().p90(), variant.firstMessage().p50(),
+                variant.firstMessage().p90())));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.dsena7.adaptive;
+
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.LatencyWindow;
+import com.dsena7.utils.ConsentVirtualThreadConsumerUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ajusta em tempo de execução os consumidores concorrentes e o prefetch dos containers
+ * {@link SimpleMessageListenerContainer} dos {@code @RabbitListener} da fila consent.queue, conforme a
+ * latência do MongoDB. O container de invalidação de cache e o do modo virtual, cujo prefetch deriva de
+ * {@code max-in-flight}, não são ajustados.
+ * <p>
+ * A cada {@code interval-ms} o controle lê as janelas de latência de leitura e escrita do
+ * {@link ConsentMetrics} e aplica AIMD: se o maior p99 passar de {@code target-p99-ms} ou a taxa de falhas
+ * de persistência passar de {@code max-error-rate}, consumidores e prefetch são multiplicados por
+ * {@code decrease-factor}; abaixo do alvo, crescem de um consumidor e {@code prefetch-step} mensagens. Janelas
+ * com menos de {@code min-samples} registros e sem falhas mantêm os valores. Tudo fica entre os limites
+ * configurados. O ponto de partida é a concorrência e o prefetch com que os containers foram configurados,
+ * lidos no primeiro ciclo, de modo que o controle não corta a concorrência antes de medir.
+ * <p>
+ * Consumidores já ativos mantêm o qos com que foram criados; o novo prefetch vale para os consumidores
+ * iniciados depois do ajuste.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.adaptive", name = "enabled", havingValue = "true")
+public class AdaptiveConcurrencyController {
+
+    public enum Decision {INCREASE, DECREASE, HOLD}
+
+    private static final String QUEUE = "consent.queue";
+
+    private final Supplier<Collection<MessageListenerContainer>> containers;
+    private final LatencyWindow findLatency;
+    private final LatencyWindow updateLatency;
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final int prefetchStep;
+    private final long targetP99Nanos;
+    private final double maxErrorRate;
+    private final double decreaseFactor;
+    private final long minSamples;
+
+    private final Counter[] decisions = new Counter[Decision.values().length];
+    private boolean seeded;
+    private volatile int consumers;
+    private volatile int prefetch;
+    private volatile long lastP99Nanos;
+    private volatile double lastErrorRate;
+
+    @Autowired
+    public AdaptiveConcurrencyController(RabbitListenerEndpointRegistry endpointRegistry,
+                                         ConsentMetrics consentMetrics,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${consent.adaptive.min-consumers:1}") int minConsumers,
+                                         @Value("${consent.adaptive.max-consumers:16}") int maxConsumers,
+                                         @Value("${consent.adaptive.min-prefetch:10}") int minPrefetch,
+                                         @Value("${consent.adaptive.max-prefetch:250}") int maxPrefetch,
+                                         @Value("${consent.adaptive.prefetch-step:10}") int prefetchStep,
+                                         @Value("${consent.adaptive.target-p99-ms:50}") long targetP99Millis,
+                                         @Value("${consent.adaptive.max-error-rate:0.01}") double maxErrorRate,
+                                         @Value("${consent.adaptive.decrease-factor:0.5}") double decreaseFactor,
+                                         @Value("${consent.adaptive.min-samples:50}") long minSamples) {
+        this(endpointRegistry::getListenerContainers, consentMetrics, meterRegistry, minConsumers, maxConsumers,
+                minPrefetch, maxPrefetch, prefetchStep, targetP99Millis, maxErrorRate, decreaseFactor, minSamples);
+    }
+
+    AdaptiveConcurrencyController(Supplier<Collection<MessageListenerContainer>> containers,
+                                  ConsentMetrics consentMetrics, MeterRegistry meterRegistry,
+                                  int minConsumers, int maxConsumers, int minPrefetch, int maxPrefetch,
+                                  int prefetchStep, long targetP99Millis, double maxErrorRate,
+                                  double decreaseFactor, long minSamples) {
+        this.containers = containers;
+        this.findLatency = consentMetrics.findLatency();
+        this.updateLatency = consentMetrics.updateLatency();
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+        this.minPrefetch = minPrefetch;
+        this.maxPrefetch = maxPrefetch;
+        this.prefetchStep = prefetchStep;
+        this.targetP99Nanos = TimeUnit.MILLISECONDS.toNanos(targetP99Millis);
+        this.maxErrorRate = maxErrorRate;
+        this.decreaseFactor = decreaseFactor;
+        this.minSamples = minSamples;
+        this.consumers = minConsumers;
+        this.prefetch = minPrefetch;
+
+        for (Decision decision : Decision.values()) {
+            decisions[decision.ordinal()] = meterRegistry.counter("consent.adaptive.decisions",
+                    "decision", decision.name().toLowerCase(Locale.ROOT));
+        }
+        Gauge.builder("consent.adaptive.consumers", this, AdaptiveConcurrencyController::consumers).register(meterRegistry);
+        Gauge.builder("consent.adaptive.prefetch", this, AdaptiveConcurrencyController::prefetch).register(meterRegistry);
+        Gauge.builder("consent.adaptive.mongo.p99", this, controller -> controller.lastP99Nanos / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .description("Maior p99 entre leitura e escrita na última janela avaliada")
+                .register(meterRegistry);
+        Gauge.builder("consent.adaptive.mongo.error.rate", this, controller -> controller.lastErrorRate)
+                .register(meterRegistry);
+    }
+
+    public int consumers() {
+        return consumers;
+    }
+
+    public int prefetch() {
+        return prefetch;
+    }
+
+    @Scheduled(fixedDelayString = "${consent.adaptive.interval-ms:2000}")
+    public synchronized Decision adjust() {
+        List<SimpleMessageListenerContainer> targets = targets();
+        if (!seeded && !targets.isEmpty()) {
+            seed(targets);
+        }
+        LatencyWindow.Snapshot find = findLatency.snapshot();
+        LatencyWindow.Snapshot update = updateLatency.snapshot();
+        long samples = find.samples() + update.samples();
+        long errors = find.errors() + update.errors();
+        lastP99Nanos = Math.max(find.p99Nanos(), update.p99Nanos());
+        lastErrorRate = samples == 0 ? (errors > 0 ? 1.0 : 0.0) : (double) errors / samples;
+
+        Decision decision;
+        if (lastErrorRate > maxErrorRate || (samples >= minSamples && lastP99Nanos > targetP99Nanos)) {
+            decision = Decision.DECREASE;
+            consumers = Math.max(minConsumers, (int) (consumers * decreaseFactor));
+            prefetch = Math.max(minPrefetch, (int) (prefetch * decreaseFactor));
+        } else if (samples >= minSamples) {
+            decision = Decision.INCREASE;
+            consumers = Math.min(maxConsumers, consumers + 1);
+            prefetch = Math.min(maxPrefetch, prefetch + prefetchStep);
+        } else {
+            decision = Decision.HOLD;
+        }
+        decisions[decision.ordinal()].increment();
+        apply(targets);
+        if (decision != Decision.HOLD) {
+            log.debug("Controle adaptativo: {} para {} consumidores e prefetch {} (p99 {} ms, erros {})", decision,
+                    consumers, prefetch, TimeUnit.NANOSECONDS.toMillis(lastP99Nanos), errors);
+        }
+        return decision;
+    }
+
+    private void apply(List<SimpleMessageListenerContainer> targets) {
+        int targetConsumers = consumers;
+        for (SimpleMessageListenerContainer simple : targets) {
+            // O máximo acompanha o valor fixado, então o container não escala por conta própria;
+            // a ordem das chamadas respeita concurrentConsumers <= maxConcurrentConsumers
+            simple.setMaxConcurrentConsumers(Math.max(targetConsumers, maxConsumers));
+            simple.setConcurrentConsumers(targetConsumers);
+            simple.setMaxConcurrentConsumers(targetConsumers);
+            simple.setPrefetchCount(prefetch);
+        }
+    }
+
+    /**
+     * Parte da maior concorrência e do maior prefetch configurados nos containers, dentro dos limites.
+     * Os containers não expõem esses valores, que são lidos dos campos.
+     */
+    private void seed(List<SimpleMessageListenerContainer> targets) {
+        int currentConsumers = 0;
+        int currentPrefetch = 0;
+        for (SimpleMessageListenerContainer simple : targets) {
+            DirectFieldAccessor fields = new DirectFieldAccessor(simple);
+            currentConsumers = Math.max(currentConsumers, (Integer) fields.getPropertyValue("concurrentConsumers"));
+            currentPrefetch = Math.max(currentPrefetch, (Integer) fields.getPropertyValue("prefetchCount"));
+        }
+        consumers = Math.min(maxConsumers, Math.max(minConsumers, currentConsumers));
+        prefetch = Math.min(maxPrefetch, Math.max(minPrefetch, currentPrefetch));
+        seeded = true;
+    }
+
+    private List<SimpleMessageListenerContainer> targets() {
+        return containers.get().stream()
+                .filter(SimpleMessageListenerContainer.class::isInstance)
+                .map(SimpleMessageListenerContainer.class::cast)
+                .filter(simple -> !ConsentVirtualThreadConsumerUtils.LISTENER_ID.equals(simple.getListenerId()))
+                .filter(simple -> Arrays.asList(simple.getQueueNames()).contains(QUEUE))
+                .toList();
+    }
+}
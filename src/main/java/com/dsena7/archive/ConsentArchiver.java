@@ -0,0 +1,211 @@
+package com.dsena7.archive;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.storage.ConsentStorageFormat;
+import com.dsena7.storage.ConsentStorageLayout;
+import com.dsena7.sweeper.SweeperLeaseManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Move para {@value ConsentEntity#ARCHIVE_COLLECTION} os consentimentos em estado terminal do ciclo de vida
+ * com expiratedAt anterior a {@code min-age-ms}. Estados terminais não têm transições no ciclo de vida; em
+ * consent_entity eles só ocupam o índice de consentId e o working set das buscas.
+ * <p>
+ * Os candidatos vêm de um cursor pelo índice (state, expiratedAt, _id), já usado pela varredura de expiração, e
+ * são movidos em blocos de {@code chunk-size}: cópia idempotente para o arquivo e, só depois, remoção de
+ * consent_entity. Uma rodada interrompida entre as duas etapas é refeita na próxima sem duplicar
+ * documentos, e as buscas por consentId encontram o consentimento em uma das coleções durante todo o
+ * processo. A idade é medida por expiratedAt para não exigir outro índice; um consentimento rejeitado antes
+ * de expirar só é arquivado {@code min-age-ms} depois do expiratedAt original. Uma réplica por vez, sob lease.
+ * <p>
+ * Antes e depois de cada rodada o collStats das duas coleções atualiza os gauges de documentos, dados e
+ * índices.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.archive", name = "enabled", havingValue = "true")
+public class ConsentArchiver {
+
+    private static final String LEASE_ID = "consent-archive";
+
+    private final ConsentRepository consentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ConsentStorageFormat storageFormat;
+    private final SweeperLeaseManager leaseManager;
+    private final Duration minAge;
+    private final int chunkSize;
+    private volatile boolean archiveIndexed;
+
+    private final AtomicReference<CollectionStats> hotStats = new AtomicReference<>(CollectionStats.EMPTY);
+    private final AtomicReference<CollectionStats> archiveStats = new AtomicReference<>(CollectionStats.EMPTY);
+    private final Counter archived;
+    private final DistributionSummary reclaimedIndexBytes;
+
+    public ConsentArchiver(ConsentRepository consentRepository,
+                           MongoTemplate mongoTemplate,
+                           ConsentStorageFormat storageFormat,
+                           MeterRegistry meterRegistry,
+                           @Value("${consent.archive.min-age-ms:2592000000}") long minAgeMillis,
+                           @Value("${consent.archive.chunk-size:1000}") int chunkSize,
+                           @Value("${consent.archive.lease-ms:600000}") long leaseMillis) {
+        this.consentRepository = consentRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.storageFormat = storageFormat;
+        this.minAge = Duration.ofMillis(minAgeMillis);
+        this.chunkSize = chunkSize;
+        this.leaseManager = new SweeperLeaseManager(mongoTemplate, LEASE_ID, instanceId(), Duration.ofMillis(leaseMillis));
+
+        this.archived = meterRegistry.counter("consent.archive.moved");
+        this.reclaimedIndexBytes = DistributionSummary.builder("consent.archive.index.reclaimed")
+                .baseUnit("bytes")
+                .description("Redução do tamanho dos índices de consent_entity por rodada de arquivamento")
+                .register(meterRegistry);
+        registerGauges(meterRegistry, ConsentEntity.COLLECTION, hotStats);
+        registerGauges(meterRegistry, ConsentEntity.ARCHIVE_COLLECTION, archiveStats);
+    }
+
+    @Scheduled(fixedDelayString = "${consent.archive.interval-ms:3600000}")
+    public void archive() {
+        if (leaseManager.tryAcquire().isEmpty()) {
+            return;
+        }
+
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(minAge);
+        CollectionStats before = refresh(ConsentEntity.COLLECTION, hotStats);
+        log.info("Iniciando arquivamento de consentimentos terminais com expiratedAt anterior a {}; consent_entity: {}",
+                expiredBefore, before);
+
+        long moved = 0;
+        try (Stream<ConsentEntity> candidates = consentRepository.streamArchivalCandidates(expiredBefore)) {
+            ensureArchiveIndex();
+            Iterator<ConsentEntity> iterator = candidates.iterator();
+            while (iterator.hasNext()) {
+                List<ConsentEntity> chunk = new ArrayList<>(chunkSize);
+                while (iterator.hasNext() && chunk.size() < chunkSize) {
+                    chunk.add(iterator.next());
+                }
+                int removed = consentRepository.archive(chunk);
+                moved += removed;
+                archived.increment(removed);
+
+                if (!leaseManager.advance(chunk.get(chunk.size() - 1).getExpiratedAt())) {
+                    log.warn("Lease do arquivamento perdido; interrompendo após {} consentimentos", moved);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro no arquivamento; os blocos restantes serão movidos na próxima rodada", e);
+        } finally {
+            leaseManager.release();
+            CollectionStats after = refresh(ConsentEntity.COLLECTION, hotStats);
+            refresh(ConsentEntity.ARCHIVE_COLLECTION, archiveStats);
+            reclaimedIndexBytes.record(Math.max(0, before.indexBytes() - after.indexBytes()));
+            log.info("Arquivamento concluído: {} consentimentos movidos; consent_entity: {}", moved, after);
+        }
+    }
+
+    /**
+     * Último collStats lido de consent_entity.
+     */
+    public CollectionStats hotStats() {
+        return hotStats.get();
+    }
+
+    /**
+     * Último collStats lido do arquivo.
+     */
+    public CollectionStats archiveStats() {
+        return archiveStats.get();
+    }
+
+    private void ensureArchiveIndex() {
+        if (!archiveIndexed) {
+            // Sem este índice, o fallback das buscas por consentId varreria o arquivo inteiro
+            for (ConsentStorageLayout layout : storageFormat.layouts()) {
+                mongoTemplate.indexOps(ConsentEntity.ARCHIVE_COLLECTION)
+                        .ensureIndex(new Index().on(layout.consentId(), Sort.Direction.ASC).named(layout.consentId()));
+            }
+            archiveIndexed = true;
+        }
+    }
+
+    private CollectionStats refresh(String collection, AtomicReference<CollectionStats> target) {
+        try {
+            Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+            CollectionStats current = new CollectionStats(number(stats, "count"), number(stats, "size"),
+                    number(stats, "totalIndexSize"));
+            target.set(current);
+            return current;
+        } catch (RuntimeException e) {
+            // Coleção ainda inexistente ou sem permissão para collStats: mantém a última leitura
+            log.debug("Falha ao ler collStats de {}: {}", collection, e.getMessage());
+            return target.get();
+        }
+    }
+
+    private static long number(Document stats, String field) {
+        return stats != null && stats.get(field) instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static void registerGauges(MeterRegistry meterRegistry, String collection,
+                                       AtomicReference<CollectionStats> stats) {
+        register(meterRegistry, "consent.archive.collection.documents", null, collection, stats,
+                current -> current.get().documents());
+        register(meterRegistry, "consent.archive.collection.data", "bytes", collection, stats,
+                current -> current.get().dataBytes());
+        register(meterRegistry, "consent.archive.collection.index", "bytes", collection, stats,
+                current -> current.get().indexBytes());
+    }
+
+    private static void register(MeterRegistry meterRegistry, String name, String baseUnit, String collection,
+                                 AtomicReference<CollectionStats> stats,
+                                 ToDoubleFunction<AtomicReference<CollectionStats>> value) {
+        Gauge.builder(name, stats, value)
+                .tag("collection", collection)
+                .baseUnit(baseUnit)
+                .register(meterRegistry);
+    }
+
+    private static String instanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * @param documents  Documentos na coleção
+     * @param dataBytes  Tamanho dos documentos, sem compressão
+     * @param indexBytes Soma do tamanho dos índices
+     */
+    public record CollectionStats(long documents, long dataBytes, long indexBytes) {
+
+        static final CollectionStats EMPTY = new CollectionStats(0, 0, 0);
+    }
+}
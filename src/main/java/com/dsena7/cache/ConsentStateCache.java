@@ -0,0 +1,138 @@
+package com.dsena7.cache;
+
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Cache limitado, por consentId, dos consentimentos que já estão em um estado terminal do ciclo de vida
+ * em uso. Eventos duplicados ou atrasados para esses consentimentos são rejeitados
+ * pela validação sem nenhuma leitura no MongoDB.
+ * <p>
+ * Apenas o estado é guardado. O cache é atualizado na leitura e na gravação de cada transição,
+ * sempre só na réplica local: uma transição parte de um estado não terminal, que nenhuma réplica tem
+ * em cache, e portanto nunca torna obsoleta uma entrada remota. Só a reinserção pelo {@code /save}
+ * substitui um consentimento que pode estar em cache como terminal; ela é propagada às demais réplicas
+ * pela exchange fanout {@code consent.cache.invalidation-exchange}, e cada réplica descarta a entrada
+ * recebida. As mensagens publicadas pela própria réplica são ignoradas pelo header {@value #ORIGIN_HEADER}.
+ * A ingestão em lote também pode reinserir um consentId, mas evita uma mensagem por registro: descarta
+ * só a entrada local e conta com a expiração por tempo nas demais réplicas.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.cache", name = "enabled", havingValue = "true")
+public class ConsentStateCache {
+
+    static final String ORIGIN_HEADER = "x-consent-cache-origin";
+
+    private final Cache<String, ConsentStateEnum> cache;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final RabbitTemplate rabbitTemplate;
+    private final String invalidationExchange;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter invalidationsSent;
+    private final Counter invalidationsReceived;
+
+    public ConsentStateCache(RabbitTemplate rabbitTemplate,
+                             ConsentLifecycleRegistry lifecycleRegistry,
+                             MeterRegistry meterRegistry,
+                             @Value("${consent.cache.max-size:100000}") long maxSize,
+                             @Value("${consent.cache.expire-after-write-ms:600000}") long expireAfterWriteMillis,
+                             @Value("${consent.cache.invalidation-exchange:consent.cache.invalidation}") String invalidationExchange) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.invalidationExchange = invalidationExchange;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "consent.state");
+        this.invalidationsSent = meterRegistry.counter("consent.cache.invalidations", "direction", "sent");
+        this.invalidationsReceived = meterRegistry.counter("consent.cache.invalidations", "direction", "received");
+    }
+
+    /**
+     * Retorna o consentimento terminal em cache, contendo apenas consentId e state.
+     *
+     * @param consentId Identificador do consentimento
+     * @return Entidade parcial ou null se o consentimento não está em cache
+     */
+    public ConsentEntity get(String consentId) {
+        ConsentStateEnum state = cache.getIfPresent(consentId);
+        if (state == null) {
+            return null;
+        }
+        return ConsentEntity.builder().consentId(consentId).state(state).build();
+    }
+
+    /**
+     * Registra o estado conhecido de um consentimento: estados terminais são guardados e os demais
+     * removem qualquer entrada anterior.
+     *
+     * @param consentId Identificador do consentimento
+     * @param state     Estado lido ou gravado no MongoDB
+     */
+    public void put(String consentId, ConsentStateEnum state) {
+        if (lifecycleRegistry.current().isTerminal(state)) {
+            cache.put(consentId, state);
+        } else {
+            cache.invalidate(consentId);
+        }
+    }
+
+    /**
+     * Remove a entrada local, sem avisar as demais réplicas.
+     *
+     * @param consentId Identificador do consentimento
+     */
+    public void evict(String consentId) {
+        cache.invalidate(consentId);
+    }
+
+    /**
+     * Publica na exchange fanout a alteração do consentimento para que as demais réplicas descartem
+     * suas entradas. Falhas de publicação não interrompem o processamento; a entrada remota expira
+     * por tempo.
+     *
+     * @param consentId Identificador do consentimento alterado
+     */
+    public void publishInvalidation(String consentId) {
+        try {
+            rabbitTemplate.convertAndSend(invalidationExchange, "", consentId, message -> {
+                message.getMessageProperties().setHeader(ORIGIN_HEADER, instanceId);
+                return message;
+            });
+            invalidationsSent.increment();
+        } catch (AmqpException e) {
+            log.warn("Falha ao publicar invalidação de cache do consentimento {}: {}", consentId, e.getMessage());
+        }
+    }
+
+    @RabbitListener(queues = "#{consentCacheInvalidationQueue.name}")
+    public void onInvalidation(String consentId, @Header(name = ORIGIN_HEADER, required = false) String origin) {
+        if (instanceId.equals(origin)) {
+            return;
+        }
+        invalidationsReceived.increment();
+        cache.invalidate(consentId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.dsena7.codec;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.model.ConsentIdRequestDTO;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formato binário compacto: {@code [versão: 1 byte][tamanho: varint][consentId: UTF-8]}. Para um
+ * consentId típico a mensagem tem o tamanho do id mais dois bytes, e a leitura não passa por um parser.
+ */
+@Component
+public class BinaryConsentEventCodec implements ConsentEventCodec {
+
+    public static final String CONTENT_TYPE = "application/x-consent-event";
+    private static final byte VERSION = 1;
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(ConsentIdRequestDTO event) {
+        byte[] consentId = event.consentId().getBytes(StandardCharsets.UTF_8);
+        int length = consentId.length;
+        int prefix = 1 + varintSize(length);
+        byte[] body = new byte[prefix + length];
+        body[0] = VERSION;
+        int position = 1;
+        while ((length & ~0x7F) != 0) {
+            body[position++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        body[position] = (byte) length;
+        System.arraycopy(consentId, 0, body, prefix, consentId.length);
+        return body;
+    }
+
+    @Override
+    public ConsentIdRequestDTO decode(byte[] body) {
+        if (body.length < 2 || body[0] != VERSION) {
+            throw new ConsentCodecException("Mensagem binária com versão ou tamanho inválido");
+        }
+        int length = 0;
+        int shift = 0;
+        int position = 1;
+        byte current;
+        do {
+            if (position >= body.length || shift > 28) {
+                throw new ConsentCodecException("Prefixo de tamanho inválido na mensagem binária");
+            }
+            current = body[position++];
+            length |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        if (length <= 0 || length != body.length - position) {
+            throw new ConsentCodecException("Tamanho do consentId não corresponde ao corpo da mensagem binária");
+        }
+        return new ConsentIdRequestDTO(new String(body, position, length, StandardCharsets.UTF_8));
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
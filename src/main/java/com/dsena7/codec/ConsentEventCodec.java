@@ -0,0 +1,28 @@
+package com.dsena7.codec;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.model.ConsentIdRequestDTO;
+
+/**
+ * Formato de uma mensagem de evento de consentimento na fila, identificado pelo content-type AMQP.
+ * Implementações devem ser thread-safe e sem estado por mensagem.
+ */
+public interface ConsentEventCodec {
+
+    /**
+     * @return Nome usado em {@code consent.codec.outbound}
+     */
+    String name();
+
+    /**
+     * @return Valor do header content-type das mensagens neste formato, sem parâmetros
+     */
+    String contentType();
+
+    byte[] encode(ConsentIdRequestDTO event);
+
+    /**
+     * @throws ConsentCodecException se o corpo não estiver no formato esperado
+     */
+    ConsentIdRequestDTO decode(byte[] body);
+}
@@ -0,0 +1,62 @@
+package com.dsena7.codec;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.model.ConsentIdRequestDTO;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codecs de eventos disponíveis, indexados pelo content-type. A publicação usa o codec
+ * {@code consent.codec.outbound}; a leitura escolhe o codec pelo content-type de cada mensagem, então
+ * produtores e consumidores podem trocar de formato sem uma migração coordenada. Mensagens sem
+ * content-type são lidas como JSON.
+ */
+@Component
+public class ConsentEventCodecs {
+
+    private final Map<String, ConsentEventCodec> byContentType = new HashMap<>();
+    private final ConsentEventCodec outbound;
+    private final ConsentEventCodec fallback;
+
+    public ConsentEventCodecs(List<ConsentEventCodec> codecs,
+                              @Value("${consent.codec.outbound:json}") String outbound) {
+        for (ConsentEventCodec codec : codecs) {
+            byContentType.put(codec.contentType(), codec);
+        }
+        this.outbound = codecs.stream().filter(codec -> codec.name().equals(outbound)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Codec de eventos desconhecido: " + outbound));
+        this.fallback = codecs.stream().filter(JsonConsentEventCodec.class::isInstance).findFirst().orElse(this.outbound);
+    }
+
+    public ConsentEventCodec outbound() {
+        return outbound;
+    }
+
+    public boolean supports(String contentType) {
+        return contentType != null && byContentType.containsKey(baseType(contentType));
+    }
+
+    public ConsentIdRequestDTO decode(String contentType, byte[] body) {
+        ConsentEventCodec codec = contentType == null ? fallback : byContentType.get(baseType(contentType));
+        if (codec == null) {
+            throw new ConsentCodecException("Content-type sem codec de eventos: " + contentType);
+        }
+        return codec.decode(body);
+    }
+
+    public ConsentIdRequestDTO decode(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        return decode(properties.getContentType(), message.getBody());
+    }
+
+    private static String baseType(String contentType) {
+        int parameters = contentType.indexOf(';');
+        return (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim();
+    }
+}
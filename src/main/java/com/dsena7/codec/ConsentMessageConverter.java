@@ -0,0 +1,51 @@
+package com.dsena7.codec;
+
+import com.dsena7.model.ConsentIdRequestDTO;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * MessageConverter do RabbitTemplate e dos listeners: eventos {@link ConsentIdRequestDTO} são escritos
+ * com o codec de publicação e lidos pelo codec do content-type; os demais payloads (por exemplo as
+ * invalidações do cache) seguem pelo conversor delegado.
+ */
+public class ConsentMessageConverter extends AbstractMessageConverter {
+
+    private final ConsentEventCodecs codecs;
+    private final MessageConverter delegate;
+
+    public ConsentMessageConverter(ConsentEventCodecs codecs, MessageConverter delegate) {
+        this.codecs = codecs;
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        if (object instanceof ConsentIdRequestDTO event) {
+            ConsentEventCodec codec = codecs.outbound();
+            byte[] body = codec.encode(event);
+            messageProperties.setContentType(codec.contentType());
+            messageProperties.setContentLength(body.length);
+            return new Message(body, messageProperties);
+        }
+        return delegate.toMessage(object, messageProperties);
+    }
+
+    /**
+     * Mensagens JSON só são lidas como evento quando o listener declara um {@link ConsentIdRequestDTO};
+     * formatos exclusivos de eventos, como o binário, são sempre lidos pelo codec.
+     */
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        MessageProperties properties = message.getMessageProperties();
+        String contentType = properties.getContentType();
+        boolean eventOnlyFormat = codecs.supports(contentType) && !contentType.contains("json");
+        if (eventOnlyFormat || properties.getInferredArgumentType() == ConsentIdRequestDTO.class) {
+            return codecs.decode(message);
+        }
+        return delegate.fromMessage(message);
+    }
+}
@@ -0,0 +1,76 @@
+package com.dsena7.codec;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Evento como JSON {@code {"consentId":"..."}}. O ObjectMapper, o reader e o writer do DTO são criados
+ * uma única vez e reutilizados por todas as mensagens.
+ * <p>
+ * Mensagens publicadas antes deste codec trazem o JSON do DTO serializado outra vez como string JSON;
+ * esse formato continua sendo aceito na leitura.
+ */
+@Component
+public class JsonConsentEventCodec implements ConsentEventCodec {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader READER = OBJECT_MAPPER.readerFor(ConsentIdRequestDTO.class);
+    private static final ObjectWriter WRITER = OBJECT_MAPPER.writerFor(ConsentIdRequestDTO.class);
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public String contentType() {
+        return MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    @Override
+    public byte[] encode(ConsentIdRequestDTO event) {
+        try {
+            return WRITER.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new ConsentCodecException("Erro ao serializar evento do consentimento " + event.consentId(), e);
+        }
+    }
+
+    @Override
+    public ConsentIdRequestDTO decode(byte[] body) {
+        ConsentIdRequestDTO event;
+        try {
+            if (body.length > 0 && body[0] == '"') {
+                JsonNode node = OBJECT_MAPPER.readTree(body);
+                event = READER.readValue(node.textValue());
+            } else {
+                event = READER.readValue(body);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ConsentCodecException("Payload inválido: " + new String(body, StandardCharsets.UTF_8), e);
+        }
+        if (event == null || event.consentId() == null || event.consentId().isBlank()) {
+            throw new ConsentCodecException("Payload sem consentId: " + new String(body, StandardCharsets.UTF_8));
+        }
+        return event;
+    }
+
+    /**
+     * Leitura do corpo de uma requisição HTTP com o mesmo reader das mensagens.
+     */
+    public ConsentIdRequestDTO decode(String body) {
+        return decode(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package com.dsena7.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Marca como lazy os controllers e os beans do springdoc, para que a réplica comece a consumir a fila sem
+ * esperar a montagem da camada HTTP. O RequestMappingHandlerMapping registra os handlers pelo nome do bean
+ * e cria cada controller na primeira requisição; o springdoc já só monta o documento OpenAPI em
+ * {@code /v3/api-docs}. Com AOT, a marcação é aplicada no build e fica nas definições geradas.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "consent.startup.lazy-web", name = "enabled", havingValue = "true")
+@Slf4j
+public class LazyWebConfig {
+
+    private static final String SPRINGDOC_PACKAGE = "org.springdoc.";
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyWebBeans() {
+        return beanFactory -> {
+            int lazy = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (!definition.isLazyInit() && definition.getRole() == BeanDefinition.ROLE_APPLICATION && isWebBean(definition)) {
+                    definition.setLazyInit(true);
+                    lazy++;
+                }
+            }
+            // Com AOT as definições geradas já chegam marcadas e nada resta a alterar
+            if (lazy > 0) {
+                log.info("{} beans de controllers e springdoc criados sob demanda", lazy);
+            }
+        };
+    }
+
+    private static boolean isWebBean(BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        if (className != null && className.startsWith(SPRINGDOC_PACKAGE)) {
+            return true;
+        }
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClassName().startsWith(SPRINGDOC_PACKAGE);
+            }
+            return annotated.getMetadata().isAnnotated(Controller.class.getName());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.dsena7.config;
+
+import com.dsena7.storage.ConsentDocumentConverters;
+import com.dsena7.storage.ConsentStorageFormat;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+@Configuration
+public class MongoStorageConfig {
+
+    /**
+     * Substitui as conversões padrão do Spring Boot. Fora do modo legacy, {@link com.dsena7.model.ConsentEntity}
+     * passa a ser gravada no formato compacto e lida nos dois formatos; os demais tipos mantêm o mapeamento
+     * padrão.
+     *
+     * @param storageFormat Formato configurado em consent.storage.format
+     * @return Conversões usadas pelo MongoTemplate e pelo ReactiveMongoTemplate
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(ConsentStorageFormat storageFormat) {
+        return new MongoCustomConversions(ConsentDocumentConverters.forMode(storageFormat.mode()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.dsena7.config;
+
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.statemachine.config.ObjectStateMachineFactory;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.config.model.ConfigurationData;
+import org.springframework.statemachine.config.model.DefaultStateMachineModel;
+import org.springframework.statemachine.config.model.StateData;
+import org.springframework.statemachine.config.model.StateMachineModel;
+import org.springframework.statemachine.config.model.StatesData;
+import org.springframework.statemachine.config.model.TransitionData;
+import org.springframework.statemachine.config.model.TransitionsData;
+import org.springframework.statemachine.transition.TransitionKind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Alternativa de inicialização rápida ao {@link StateMachineConfig}: monta o {@link StateMachineModel}
+ * direto do ciclo de vida já validado e compilado, sem o {@code @EnableStateMachineFactory} e a cadeia de
+ * builders e configurers anotados que ele importa e executa na criação da factory. A máquina resultante
+ * tem os mesmos estados, estados finais e transições externas.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "consent.startup.precomputed-state-machine", name = "enabled", havingValue = "true")
+public class PrecomputedStateMachineConfig {
+
+    @Bean
+    public StateMachineFactory<ConsentStateEnum, ConsentEventEnum> stateMachineFactory(ConsentLifecycleRegistry lifecycleRegistry) {
+        return new ObjectStateMachineFactory<>(model(lifecycleRegistry.current()));
+    }
+
+    /**
+     * Modelo equivalente ao produzido por {@link StateMachineConfig} para o mesmo ciclo de vida.
+     */
+    public static StateMachineModel<ConsentStateEnum, ConsentEventEnum> model(ConsentLifecycle lifecycle) {
+        List<StateData<ConsentStateEnum, ConsentEventEnum>> states = new ArrayList<>(lifecycle.states().size());
+        for (ConsentStateEnum state : lifecycle.states()) {
+            StateData<ConsentStateEnum, ConsentEventEnum> data = new StateData<>(state, state == lifecycle.initial());
+            data.setEnd(lifecycle.isTerminal(state));
+            states.add(data);
+        }
+        List<TransitionData<ConsentStateEnum, ConsentEventEnum>> transitions = new ArrayList<>(lifecycle.transitions().size());
+        for (ConsentLifecycle.Transition transition : lifecycle.transitions()) {
+            transitions.add(new TransitionData<>(transition.source(), transition.target(), transition.event(),
+                    null, null, TransitionKind.EXTERNAL));
+        }
+        return new DefaultStateMachineModel<>(new ConfigurationData<>(), new StatesData<>(states),
+                new TransitionsData<>(transitions));
+    }
+}
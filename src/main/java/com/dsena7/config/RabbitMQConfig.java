@@ -1,14 +1,38 @@
 package com.dsena7.config;
 
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.codec.ConsentMessageConverter;
+import com.dsena7.partition.ConsentPartitioner;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.utils.ConsentPartitionedConsumerUtils;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+import reactor.rabbitmq.RabbitFlux;
+import reactor.rabbitmq.Receiver;
+import reactor.rabbitmq.ReceiverOptions;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RabbitMQConfig {
@@ -31,6 +55,90 @@ public class RabbitMQConfig {
         // durable=true, exclusive=false, autoDelete=false
     }
 
+    /**
+     * Exchange fanout de invalidação do cache de estados; cada réplica liga a ela uma fila anônima,
+     * exclusiva e removida ao desconectar.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.cache", name = "enabled", havingValue = "true")
+    public FanoutExchange consentCacheInvalidationExchange(
+            @Value("${consent.cache.invalidation-exchange:consent.cache.invalidation}") String name) {
+        return new FanoutExchange(name, true, false);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.cache", name = "enabled", havingValue = "true")
+    public AnonymousQueue consentCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.cache", name = "enabled", havingValue = "true")
+    public Binding consentCacheInvalidationBinding(FanoutExchange consentCacheInvalidationExchange,
+                                                   AnonymousQueue consentCacheInvalidationQueue) {
+        return BindingBuilder.bind(consentCacheInvalidationQueue).to(consentCacheInvalidationExchange);
+    }
+
+    /**
+     * Exchange direta consent.partitioned e uma fila durável por partição, ligada pela chave igual ao
+     * índice da partição. As filas usam single-active-consumer para que apenas uma réplica consuma
+     * cada partição, mesmo durante um rebalanceamento.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.partitions", name = "enabled", havingValue = "true")
+    public Declarables consentPartitionDeclarables(ConsentPartitioner partitioner) {
+        DirectExchange exchange = new DirectExchange(ConsentPartitioner.EXCHANGE, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (int partition = 0; partition < partitioner.count(); partition++) {
+            Queue queue = QueueBuilder.durable(ConsentPartitioner.queueName(partition)).singleActiveConsumer().build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(Integer.toString(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Filas de espera do retry: uma exchange fanout por faixa de atraso, ligada a uma fila com TTL igual
+     * ao atraso. Ao expirar, a mensagem é devolvida pela exchange padrão com a routing key usada na
+     * republicação, o nome da fila de origem. Como todas as mensagens de uma fila têm o mesmo TTL, elas
+     * expiram na ordem de chegada. A DLQ recebe as mensagens que esgotaram as faixas ou não admitem retry.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.retry", name = "enabled", havingValue = "true")
+    public Declarables consentRetryDeclarables(ConsentRetryRouter retryRouter) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long delay : retryRouter.delaysMillis()) {
+            String name = ConsentRetryRouter.tierName(delay);
+            FanoutExchange exchange = new FanoutExchange(name, true, false);
+            Queue queue = QueueBuilder.durable(name).ttl((int) delay).deadLetterExchange("").build();
+            declarables.add(exchange);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange));
+        }
+        declarables.add(QueueBuilder.durable(retryRouter.deadLetterQueue()).build());
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Container das filas particionadas. Começa sem filas e parado; o PartitionedConsumerCoordinator
+     * adiciona e remove filas conforme as partições atribuídas a esta réplica.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.partitions", name = "enabled", havingValue = "true")
+    public DirectMessageListenerContainer consentPartitionContainer(
+            ConnectionFactory connectionFactory,
+            ConsentPartitionedConsumerUtils consumer,
+            @Value("${consent.partitions.prefetch:50}") int prefetch) {
+        DirectMessageListenerContainer container = new DirectMessageListenerContainer(connectionFactory);
+        container.setConsumersPerQueue(1);
+        container.setPrefetchCount(prefetch);
+        container.setDefaultRequeueRejected(false);
+        container.setMessageListener(consumer);
+        container.setAutoStartup(false);
+        return container;
+    }
+
     @Bean
     public ConnectionFactory connectionFactory() {
         CachingConnectionFactory connectionFactory = new CachingConnectionFactory();
@@ -38,18 +146,92 @@ public class RabbitMQConfig {
         connectionFactory.setPort(port);
         connectionFactory.setUsername(username);
         connectionFactory.setPassword(password);
+        // Confirms correlacionados para o ConsentEventPublisher
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
         return connectionFactory;
     }
 
+    /**
+     * Eventos de consentimento no formato de {@code consent.codec.outbound}, negociado pelo content-type;
+     * os demais payloads seguem em JSON pelo Jackson2JsonMessageConverter.
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter jsonMessageConverter(ConsentEventCodecs consentEventCodecs) {
+        ConsentMessageConverter converter = new ConsentMessageConverter(consentEventCodecs, new Jackson2JsonMessageConverter());
+        // messageId em cada mensagem publicada, usado pelo filtro de entregas duplicadas
+        converter.setCreateMessageIds(true);
+        return converter;
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter jsonMessageConverter) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(jsonMessageConverter);
         return rabbitTemplate;
     }
-}
\ No newline at end of file
+
+    /**
+     * Container de consumo em lote: entrega até {@code batch.size} mensagens por chamada ou o que
+     * chegar em {@code batch.receive-timeout-ms}. O ack é manual para confirmar ou rejeitar cada
+     * mensagem individualmente.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "batch")
+    public SimpleRabbitListenerContainerFactory consentBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter jsonMessageConverter,
+            @Value("${consent.consumer.batch.size:100}") int batchSize,
+            @Value("${consent.consumer.batch.receive-timeout-ms:200}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setPrefetchCount(batchSize);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    /**
+     * Container do modo virtual: as mensagens são despachadas para virtual threads, então o prefetch
+     * é derivado do limite de mensagens em processamento para que o broker nunca entregue mais do que
+     * a aplicação aceita processar.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "virtual")
+    public SimpleRabbitListenerContainerFactory consentVirtualThreadContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter jsonMessageConverter,
+            @Value("${consent.consumer.virtual.max-in-flight:256}") int maxInFlight,
+            @Value("${consent.consumer.virtual.consumers:2}") int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setConcurrentConsumers(consumers);
+        factory.setPrefetchCount(Math.max(1, maxInFlight / consumers));
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    /**
+     * Receiver do reactor-rabbitmq usado pelo modo reativo. A conexão é aberta com NIO e só na
+     * primeira assinatura, no scheduler boundedElastic.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "reactive")
+    public Receiver consentReceiver() {
+        com.rabbitmq.client.ConnectionFactory connectionFactory = new com.rabbitmq.client.ConnectionFactory();
+        connectionFactory.setHost(host);
+        connectionFactory.setPort(port);
+        connectionFactory.setUsername(username);
+        connectionFactory.setPassword(password);
+        connectionFactory.useNio();
+        return RabbitFlux.createReceiver(new ReceiverOptions()
+                .connectionFactory(connectionFactory)
+                .connectionSubscriptionScheduler(Schedulers.boundedElastic()));
+    }
+}
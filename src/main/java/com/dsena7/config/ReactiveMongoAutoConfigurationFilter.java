@@ -0,0 +1,44 @@
+package com.dsena7.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+/**
+ * Só importa as auto-configurações do MongoDB reativo (cliente reactive streams, ReactiveMongoTemplate e
+ * repositórios reativos) com {@code consent.consumer.mode=reactive}. Nos demais modos o starter reativo
+ * continua no classpath, mas nenhum segundo cliente MongoDB com seu pool de conexões é criado e o
+ * {@link com.dsena7.repository.ReactiveConsentRepository} não é registrado.
+ * <p>
+ * Registrado em {@code META-INF/spring.factories}; as exclusões do {@code @SpringBootApplication} não servem
+ * aqui porque valeriam para todos os modos.
+ */
+public class ReactiveMongoAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final Set<String> REACTIVE_AUTO_CONFIGURATIONS = Set.of(
+            "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration");
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean reactive = "reactive".equals(environment.getProperty("consent.consumer.mode"));
+        boolean[] match = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            // Posições nulas já foram descartadas por outro filtro
+            String autoConfiguration = autoConfigurationClasses[i];
+            match[i] = reactive || autoConfiguration == null || !REACTIVE_AUTO_CONFIGURATIONS.contains(autoConfiguration);
+        }
+        return match;
+    }
+}
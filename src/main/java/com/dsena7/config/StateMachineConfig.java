@@ -1,54 +1,70 @@
 package com.dsena7.config;
 
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
 import com.dsena7.model.ConsentEventEnum;
 import com.dsena7.model.ConsentStateEnum;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.statemachine.config.EnableStateMachineFactory;
 import org.springframework.statemachine.config.StateMachineConfigurerAdapter;
 import org.springframework.statemachine.config.builders.StateMachineStateConfigurer;
 import org.springframework.statemachine.config.builders.StateMachineTransitionConfigurer;
+import org.springframework.statemachine.config.configurers.StateConfigurer;
 
-import java.util.EnumSet;
-
+/**
+ * Máquina de estados montada pelo {@code @EnableStateMachineFactory} a partir do ciclo de vida carregado na
+ * inicialização. Com {@code consent.startup.precomputed-state-machine.enabled=true} é substituída por
+ * {@link PrecomputedStateMachineConfig}.
+ */
 @Configuration
 @EnableStateMachineFactory
+@ConditionalOnProperty(prefix = "consent.startup.precomputed-state-machine", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
 public class StateMachineConfig extends StateMachineConfigurerAdapter<ConsentStateEnum, ConsentEventEnum> {
 
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+
+    public StateMachineConfig(ConsentLifecycleRegistry lifecycleRegistry) {
+        this.lifecycleRegistry = lifecycleRegistry;
+    }
+
     /**
-     * Configura os estados possíveis da máquina de estados.
-     * Define o estado inicial como AUTHORISED e o estado EXPIRED como final.
+     * Configura os estados possíveis da máquina de estados a partir do ciclo de vida carregado
+     * na inicialização ({@code consent-lifecycle.yml}): estado inicial, estados declarados e terminais.
      *
      * @param states Configurador de estados da máquina
      * @throws Exception se houver erro na configuração
      */
     @Override
     public void configure(StateMachineStateConfigurer<ConsentStateEnum, ConsentEventEnum> states) throws Exception {
-        states.withStates()
-                .initial(ConsentStateEnum.AWAITING_AUTHORISATION)
-                .states(EnumSet.allOf(ConsentStateEnum.class))
-                .end(ConsentStateEnum.EXPIRED)
-                .end(ConsentStateEnum.REJECTED);
+        ConsentLifecycle lifecycle = lifecycleRegistry.current();
+        StateConfigurer<ConsentStateEnum, ConsentEventEnum> configurer = states.withStates()
+                .initial(lifecycle.initial())
+                .states(lifecycle.states());
+        for (ConsentStateEnum terminal : lifecycle.terminalStates()) {
+            configurer.end(terminal);
+        }
     }
 
     /**
      * Configura as transições permitidas entre os estados.
-     * Define que é possível transicionar de AUTHORISED para EXPIRED através do evento EXPIRE.
-     * Transição é a mudança de estado provocada por um determinado evento, nesse caso temos
-     * a mudança de AUTHORISED (source), para EXPIRED (target) com base no evento de EXPIRE (event).
+     * Transição é a mudança de estado provocada por um determinado evento, por exemplo a mudança de
+     * AUTHORISED (source) para EXPIRED (target) com base no evento de EXPIRE (event). As transições
+     * vêm do ciclo de vida carregado na inicialização; as guardas são avaliadas antes, por
+     * {@link ConsentLifecycle#resolveEvent}.
+     *
      * @param transitions Configurador de transições da máquina
      * @throws Exception se houver erro na configuração
      */
     @Override
     public void configure(StateMachineTransitionConfigurer<ConsentStateEnum, ConsentEventEnum> transitions) throws Exception {
-        transitions
-                .withExternal()
-                    .source(ConsentStateEnum.AUTHORISED)
-                    .target(ConsentStateEnum.EXPIRED)
-                    .event(ConsentEventEnum.EXPIRE)
-                .and()
-                .withExternal()
-                    .source(ConsentStateEnum.AWAITING_AUTHORISATION)
-                    .target(ConsentStateEnum.REJECTED)
-                    .event(ConsentEventEnum.REJECT);
+        for (ConsentLifecycle.Transition transition : lifecycleRegistry.current().transitions()) {
+            transitions
+                    .withExternal()
+                        .source(transition.source())
+                        .target(transition.target())
+                        .event(transition.event());
+        }
     }
 }
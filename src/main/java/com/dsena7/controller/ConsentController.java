@@ -1,24 +1,46 @@
 package com.dsena7.controller;
 
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.codec.JsonConsentEventCodec;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
 import com.dsena7.model.ConsentDTO;
 import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentIdRequestDTO;
 import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStatsDTO;
+import com.dsena7.model.ConsentTransitionEntity;
+import com.dsena7.publisher.ConsentEventPublisher;
+import com.dsena7.publisher.OutboundConsentEvent;
 import com.dsena7.repository.ConsentRepository;
+import com.dsena7.service.ConsentIngestionService;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
 import com.dsena7.utils.ConsentValidationUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.persistence.PersistenceException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("v1/consents")
@@ -26,22 +48,57 @@ import java.time.LocalDateTime;
 @Slf4j
 public class ConsentController {
 
-    private final RabbitTemplate rabbitTemplate;
-
     private final ConsentRepository consentRepository;
 
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+
+    private final ObjectProvider<ConsentExpirationTimer> expirationTimer;
+
+    private final ObjectProvider<ConsentStateCache> stateCache;
+
+    private final ObjectProvider<ConsentTransitionJournal> transitionJournal;
+
+    private final ObjectProvider<ConsentStateCounters> stateCounters;
+
+    private final ConsentIngestionService consentIngestionService;
+
+    private final ConsentEventPublisher consentEventPublisher;
+
+    private final JsonConsentEventCodec jsonConsentEventCodec;
+
     @PostMapping("/event")
     @Operation(summary = "Publica um consentId na fila RabbitMQ")
-    public ResponseEntity<String> consentEvent(@RequestBody String consentId){
+    public CompletableFuture<ResponseEntity<String>> consentEvent(@RequestBody String body){
+        ConsentIdRequestDTO event;
+        try {
+            event = jsonConsentEventCodec.decode(body);
+        } catch (ConsentCodecException e) {
+            log.warn("Evento recusado: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+        String consentId = event.consentId();
         log.info("Enviando consentId: {} para a fila.", consentId);
-        rabbitTemplate.convertAndSend("consent.queue", consentId);
-        return ResponseEntity.accepted().body("ConsentId: " + consentId +  "enviado par a fila.");
+        CompletableFuture<Void> published = consentEventPublisher.publish(new OutboundConsentEvent(consentId, event));
+        return accepted(List.of(published), "ConsentId: " + consentId +  "enviado par a fila.");
+    }
+
+    @PostMapping("/events")
+    @Operation(summary = "Publica vários consentIds na fila RabbitMQ em uma única chamada")
+    public CompletableFuture<ResponseEntity<String>> consentEvents(@RequestBody List<String> consentIds) {
+        log.info("Enviando {} consentIds para a fila.", consentIds.size());
+        List<OutboundConsentEvent> events = new ArrayList<>(consentIds.size());
+        for (String consentId : consentIds) {
+            events.add(new OutboundConsentEvent(consentId, new ConsentIdRequestDTO(consentId)));
+        }
+        return accepted(consentEventPublisher.publishAll(events), consentIds.size() + " consentIds enviados para a fila.");
     }
 
     @PostMapping("/save")
-    @Operation(summary = "Insere um consentimento com estado AUTHORISED na base Mongo DB")
+    @Operation(summary = "Insere um consentimento na base Mongo DB, substituindo o documento de mesmo consentId se houver")
     public ResponseEntity<ConsentEntity> insertConsent(@RequestBody @Valid ConsentDTO consentDTO) {
         log.info("Iniciando inserção do consentId: {} na base", consentDTO.consentId());
+        ConsentEntity previous;
+        ConsentEntity savedEntity;
         try {
             ConsentEntity entity = ConsentEntity.builder()
                     .consentId(consentDTO.consentId())
@@ -50,19 +107,93 @@ public class ConsentController {
                     .expiratedAt(LocalDateTime.now().plusMinutes(1))
                     .build();
 
-            ConsentValidationUtils.validateConsentState(entity);
+            ConsentValidationUtils.validateConsentState(lifecycleRegistry.current(), entity);
 
             log.info("Entidade construída: {}", entity);
 
-            ConsentEntity savedEntity = consentRepository.save(entity);
+            previous = consentRepository.replaceByConsentId(entity).orElse(null);
+            savedEntity = entity;
             log.info("Entidade salva com sucesso: {}", savedEntity);
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedEntity);
         } catch (Exception exception) {
             log.error("Erro ao salvar consentimento: {}", consentDTO.consentId(), exception);
             throw new PersistenceException(
                     String.format("Erro ao inserir consentimento: %s na base de dados",
                             consentDTO.consentId()), exception);
         }
+
+        // O consentimento já está gravado: uma falha daqui em diante não muda a resposta
+        String consentId = savedEntity.getConsentId();
+        afterSave(consentId, "agendar a expiração",
+                () -> expirationTimer.ifAvailable(timer -> timer.schedule(savedEntity)));
+        afterSave(consentId, "atualizar a contagem por estado",
+                () -> stateCounters.ifAvailable(counters -> {
+                    if (previous == null) {
+                        counters.inserted(savedEntity.getState());
+                    } else {
+                        counters.replaced(previous.getState(), savedEntity.getState());
+                    }
+                }));
+        // Só estados terminais ficam em cache: um consentId novo ou não terminal não está em nenhuma réplica
+        if (previous != null && lifecycleRegistry.current().isTerminal(previous.getState())) {
+            afterSave(consentId, "invalidar o cache", () -> stateCache.ifAvailable(cache -> {
+                cache.evict(consentId);
+                cache.publishInvalidation(consentId);
+            }));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedEntity);
+    }
+
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Insere consentimentos em lote a partir de um corpo NDJSON ou array JSON, com resultado por registro em NDJSON")
+    public ResponseEntity<StreamingResponseBody> insertConsents(HttpServletRequest request) {
+        log.info("Iniciando carga em lote de consentimentos");
+        StreamingResponseBody body = output -> consentIngestionService.ingest(request.getInputStream(), output);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/{consentId}/history")
+    @Operation(summary = "Lista as transições de estado registradas no journal para um consentimento")
+    public ResponseEntity<List<ConsentTransitionEntity>> history(@PathVariable String consentId) {
+        ConsentTransitionJournal journal = transitionJournal.getIfAvailable();
+        if (journal == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return journal.history(consentId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Contagem de consentimentos por estado e taxa de transições por minuto, servidas da memória")
+    public ResponseEntity<ConsentStatsDTO> stats() {
+        ConsentStateCounters counters = stateCounters.getIfAvailable();
+        if (counters == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(counters.snapshot());
     }
 
+    /**
+     * Executa um efeito colateral da gravação pelo {@code /save}, registrando a falha sem propagá-la. O timer é
+     * coberto pela varredura e pela fila, a contagem pela reconciliação e o cache pela expiração das entradas.
+     */
+    private static void afterSave(String consentId, String action, Runnable sideEffect) {
+        try {
+            sideEffect.run();
+        } catch (RuntimeException e) {
+            log.error("Consentimento {} salvo, mas houve falha ao {}", consentId, action, e);
+        }
+    }
+
+    private CompletableFuture<ResponseEntity<String>> accepted(List<CompletableFuture<Void>> published, String body) {
+        return consentEventPublisher.acknowledgement(published)
+                .thenApply(confirmed -> ResponseEntity.accepted().body(body))
+                .exceptionally(error -> {
+                    log.error("Publicação não confirmada pelo broker", error);
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .body("Publicação não confirmada pelo broker");
+                });
+    }
 }
@@ -0,0 +1,216 @@
+package com.dsena7.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Descarta entregas repetidas de um mesmo evento antes de qualquer acesso ao MongoDB: reentregas do
+ * broker e republicações do produtor chegam com o mesmo messageId e o mesmo consentId.
+ * <p>
+ * A chave (messageId, consentId) é consultada primeiro em um {@link RotatingBloomFilter}; a grande
+ * maioria das entregas é nova e é liberada sem contenção. Um positivo do filtro é confirmado em um
+ * LRU exato e limitado ({@code lru-max-size}); se a chave não estiver lá o positivo era falso e a
+ * entrega segue normalmente. Ambos lembram as chaves por até {@code window-ms}.
+ * <p>
+ * Se o LRU for menor que o volume de entregas da janela, ele descarta chaves que o filtro ainda lembra.
+ * Enquanto houver uma chave descartada dentro da janela, um positivo sem confirmação pode ser uma
+ * duplicata: a entrega segue normalmente, mas é contada como {@code unconfirmed}, e não como falso
+ * positivo. Esses descartes são contados em {@code consent.dedup.lru.evictions}; se forem frequentes,
+ * o {@code lru-max-size} deve ser aumentado para cobrir a taxa de entregas vezes a janela.
+ * <p>
+ * A chave só é registrada ao fim do processamento e não é registrada quando a falha é de acesso ao banco,
+ * para que o retry de uma falha transitória ainda chegue ao MongoDB. Os consumidores também não a registram
+ * quando a entrega é reagendada pelo {@link com.dsena7.retry.ConsentRetryRouter}, cuja cópia volta com o
+ * mesmo messageId. Mensagens sem messageId não passam pelo filtro.
+ * <p>
+ * Enquanto uma entrega está em processamento a chave fica em um conjunto de entregas em andamento, marcado
+ * no mesmo {@link #isDuplicate} que consulta o filtro e o LRU: uma reentrega que chega antes do fim do
+ * processamento também é descartada. Quem recebeu {@code false} de {@link #isDuplicate} deve chamar
+ * {@link #release} ao terminar, com ou sem sucesso; {@link #completed} registra a chave antes, de modo que
+ * uma reentrega nunca encontra a chave fora dos dois lugares.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.dedup", name = "enabled", havingValue = "true")
+public class ConsentDeliveryFilter {
+
+    private final RotatingBloomFilter bloomFilter;
+    private final Map<String, Long> recent;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    private final Counter passed;
+    private final Counter duplicates;
+    private final Counter inFlightDuplicates;
+    private final Counter falsePositives;
+    private final Counter unconfirmed;
+    private final Counter unkeyed;
+    private final Counter evictions;
+    private long lastEvictedAt = Long.MIN_VALUE;
+
+    @Autowired
+    public ConsentDeliveryFilter(MeterRegistry meterRegistry,
+                                 @Value("${consent.dedup.window-ms:600000}") long windowMillis,
+                                 @Value("${consent.dedup.expected-entries:1000000}") long expectedEntries,
+                                 @Value("${consent.dedup.false-positive-probability:0.01}") double falsePositiveProbability,
+                                 @Value("${consent.dedup.lru-max-size:100000}") int lruMaxSize) {
+        this(meterRegistry, windowMillis, expectedEntries, falsePositiveProbability, lruMaxSize, System::nanoTime);
+    }
+
+    ConsentDeliveryFilter(MeterRegistry meterRegistry, long windowMillis, long expectedEntries,
+                          double falsePositiveProbability, int lruMaxSize, LongSupplier nanoClock) {
+        this.bloomFilter = new RotatingBloomFilter(expectedEntries, falsePositiveProbability, windowMillis, nanoClock);
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() <= lruMaxSize) {
+                    return false;
+                }
+                if (nanoClock.getAsLong() - eldest.getValue() <= windowNanos) {
+                    lastEvictedAt = Math.max(lastEvictedAt, eldest.getValue());
+                    evictions.increment();
+                }
+                return true;
+            }
+        };
+
+        this.passed = meterRegistry.counter("consent.dedup.checks", "result", "passed");
+        this.duplicates = meterRegistry.counter("consent.dedup.checks", "result", "duplicate");
+        this.inFlightDuplicates = meterRegistry.counter("consent.dedup.checks", "result", "in_flight");
+        this.falsePositives = meterRegistry.counter("consent.dedup.checks", "result", "false_positive");
+        this.unconfirmed = meterRegistry.counter("consent.dedup.checks", "result", "unconfirmed");
+        this.unkeyed = meterRegistry.counter("consent.dedup.checks", "result", "unkeyed");
+        this.evictions = meterRegistry.counter("consent.dedup.lru.evictions");
+        Gauge.builder("consent.dedup.drop.ratio", this, filter -> ratio(
+                        filter.duplicates.count() + filter.inFlightDuplicates.count(),
+                        filter.duplicates.count() + filter.inFlightDuplicates.count() + filter.falsePositives.count()
+                                + filter.unconfirmed.count() + filter.passed.count()))
+                .description("Fração das entregas com messageId descartadas como duplicadas")
+                .register(meterRegistry);
+        Gauge.builder("consent.dedup.false.positive.ratio", this, filter -> ratio(filter.falsePositives.count(),
+                        filter.falsePositives.count() + filter.passed.count()))
+                .description("Fração das entregas novas em que o filtro de Bloom indicou duplicidade")
+                .register(meterRegistry);
+        Gauge.builder("consent.dedup.lru.size", this, ConsentDeliveryFilter::lruSize).register(meterRegistry);
+        Gauge.builder("consent.dedup.in.flight", inFlight, Set::size).register(meterRegistry);
+        log.info("Filtro de entregas duplicadas: janela de {} ms, {} bits e {} hashes por geração",
+                windowMillis, bloomFilter.bits(), bloomFilter.hashes());
+    }
+
+    /**
+     * @param messageId messageId da mensagem AMQP, pode ser nulo
+     * @param consentId consentId decodificado do payload
+     * @return true se a entrega já foi processada dentro da janela ou está em processamento e deve ser
+     *         descartada; com false a entrega passa a constar como em andamento até {@link #release}
+     */
+    public boolean isDuplicate(String messageId, String consentId) {
+        if (messageId == null) {
+            unkeyed.increment();
+            return false;
+        }
+        String key = key(messageId, consentId);
+        if (!inFlight.add(key)) {
+            inFlightDuplicates.increment();
+            return true;
+        }
+        if (!bloomFilter.mightContain(key)) {
+            passed.increment();
+            return false;
+        }
+        synchronized (recent) {
+            if (seen(key)) {
+                inFlight.remove(key);
+                duplicates.increment();
+                return true;
+            }
+            if (lastEvictedAt != Long.MIN_VALUE && nanoClock.getAsLong() - lastEvictedAt <= windowNanos) {
+                unconfirmed.increment();
+                return false;
+            }
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Registra uma entrega cujo processamento terminou, com sucesso ou com falha definitiva. A entrega continua
+     * em andamento até {@link #release}.
+     *
+     * @param failure Falha do processamento ou null em caso de sucesso; uma falha de acesso ao banco não é registrada
+     */
+    public void completed(String messageId, String consentId, Throwable failure) {
+        if (messageId == null || isTransient(failure)) {
+            return;
+        }
+        String key = key(messageId, consentId);
+        bloomFilter.put(key);
+        synchronized (recent) {
+            recent.put(key, nanoClock.getAsLong());
+        }
+    }
+
+    /**
+     * Encerra uma entrega liberada por {@link #isDuplicate}, registrada ou não por {@link #completed}: sem
+     * registro, uma reentrega volta a ser processada.
+     */
+    public void release(String messageId, String consentId) {
+        if (messageId != null) {
+            inFlight.remove(key(messageId, consentId));
+        }
+    }
+
+    /**
+     * Chamado com o lock de {@code recent}.
+     */
+    private boolean seen(String key) {
+        Long seenAt = recent.get(key);
+        if (seenAt == null) {
+            return false;
+        }
+        if (nanoClock.getAsLong() - seenAt > windowNanos) {
+            recent.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    private int lruSize() {
+        synchronized (recent) {
+            return recent.size();
+        }
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PersistenceException || cause instanceof DataAccessException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(String messageId, String consentId) {
+        return messageId + ':' + consentId;
+    }
+
+    private static double ratio(double part, double total) {
+        return total == 0 ? 0 : part / total;
+    }
+}
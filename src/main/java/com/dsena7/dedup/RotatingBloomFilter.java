@@ -0,0 +1,121 @@
+package com.dsena7.dedup;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Filtro de Bloom com janela de tempo formado por duas gerações. As inserções vão para a geração
+ * atual e as consultas olham as duas; a cada metade da janela a geração anterior é descartada e uma
+ * geração vazia passa a ser a atual. Uma chave é lembrada, portanto, por pelo menos metade da janela e
+ * no máximo pela janela inteira.
+ * <p>
+ * Cada geração é dimensionada para {@code expectedInsertions} chaves com a probabilidade de falso
+ * positivo pedida. Os bits ficam em um {@link AtomicLongArray}, então inserções e consultas são
+ * seguras entre threads sem bloqueio; apenas a rotação é serializada.
+ */
+public class RotatingBloomFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final long rotationNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    private volatile long rotatedAt;
+
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveProbability, long windowMillis,
+                               LongSupplier nanoClock) {
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(Long.SIZE, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        this.rotationNanos = windowMillis * 1_000_000L / 2;
+        this.nanoClock = nanoClock;
+        this.current = newGeneration();
+        this.previous = newGeneration();
+        this.rotatedAt = nanoClock.getAsLong();
+    }
+
+    public void put(String key) {
+        rotateIfDue();
+        long hash = hash(key);
+        AtomicLongArray generation = current;
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long value = generation.get(word);
+            while ((value & mask) == 0 && !generation.compareAndSet(word, value, value | mask)) {
+                value = generation.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return false se a chave certamente não foi inserida na janela; true se talvez tenha sido
+     */
+    public boolean mightContain(String key) {
+        rotateIfDue();
+        long hash = hash(key);
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    public int bits() {
+        return bits;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    private boolean contains(AtomicLongArray generation, long hash) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            if ((generation.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfDue() {
+        if (nanoClock.getAsLong() - rotatedAt < rotationNanos) {
+            return;
+        }
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            long elapsed = now - rotatedAt;
+            if (elapsed < rotationNanos) {
+                return;
+            }
+            // Após uma janela inteira sem rotação nenhuma das gerações ainda é válida
+            previous = elapsed >= 2 * rotationNanos ? newGeneration() : current;
+            current = newGeneration();
+            rotatedAt = now;
+        }
+    }
+
+    private AtomicLongArray newGeneration() {
+        return new AtomicLongArray((bits + 63) >>> 6);
+    }
+
+    /**
+     * Hashing duplo (Kirsch-Mitzenmacher): as {@code hashes} posições derivam das duas metades de um
+     * único hash de 64 bits.
+     */
+    private int index(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return Math.floorMod(combined, bits);
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        // Finalizador do SplitMix64 para espalhar os bits do FNV-1a
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
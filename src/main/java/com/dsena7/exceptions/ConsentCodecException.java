@@ -0,0 +1,11 @@
+package com.dsena7.exceptions;
+
+public class ConsentCodecException extends RuntimeException {
+    public ConsentCodecException(String message) {
+        super(message);
+    }
+
+    public ConsentCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
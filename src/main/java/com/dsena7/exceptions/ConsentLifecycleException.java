@@ -0,0 +1,15 @@
+package com.dsena7.exceptions;
+
+/**
+ * Definição de ciclo de vida inválida: YAML malformado, estado ou evento desconhecido, transição ambígua
+ * ou saindo de estado terminal. Na inicialização impede a subida; em uma recarga mantém a definição atual.
+ */
+public class ConsentLifecycleException extends RuntimeException {
+    public ConsentLifecycleException(String message) {
+        super(message);
+    }
+
+    public ConsentLifecycleException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.dsena7.exceptions;
+
+/**
+ * Consentimento em um estado que não admite a transição. A falha é determinística, então a mensagem
+ * vai direto para a DLQ, sem passar pelas filas de retry.
+ */
+public class InvalidConsentStateException extends StateMachineTransitionException {
+    public InvalidConsentStateException(String message) {
+        super(message);
+    }
+}
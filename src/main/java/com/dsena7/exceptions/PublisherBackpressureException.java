@@ -0,0 +1,11 @@
+package com.dsena7.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PublisherBackpressureException extends RuntimeException {
+    public PublisherBackpressureException(String message) {
+        super(message);
+    }
+}
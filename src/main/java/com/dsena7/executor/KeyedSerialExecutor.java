@@ -0,0 +1,99 @@
+package com.dsena7.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Executa tarefas em série por chave e em paralelo entre chaves diferentes.
+ * <p>
+ * Cada chave com tarefas pendentes possui uma fila; a tarefa na cabeça da fila é a que está em
+ * execução. Quando a fila esvazia a chave é removida do mapa, de modo que a memória é proporcional
+ * apenas às chaves em processamento. Uma tarefa que lança exceção é registrada no log e a fila segue
+ * para a próxima.
+ */
+@Slf4j
+public class KeyedSerialExecutor {
+
+    private final Executor delegate;
+    private final Map<String, ArrayDeque<Task>> queues = new ConcurrentHashMap<>();
+
+    private record Task(Runnable action, Runnable onRejected) {
+    }
+
+    public KeyedSerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Agenda a tarefa para execução depois de todas as tarefas já submetidas para a mesma chave.
+     * <p>
+     * Se o executor recusar a tarefa (rejeição ou shutdown), a chave é removida e a exceção propagada ao
+     * chamador, que trata a própria tarefa. As tarefas enfileiradas atrás dela nesse intervalo não serão
+     * executadas: o {@code onRejected} de cada uma é chamado para que liberem o que reservaram.
+     *
+     * @param key        Chave de serialização
+     * @param task       Tarefa
+     * @param onRejected Chamado no lugar da tarefa se ela ficou na fila de uma chave recusada pelo executor
+     */
+    public void execute(String key, Runnable task, Runnable onRejected) {
+        boolean[] idle = new boolean[1];
+        queues.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            queue.add(new Task(task, onRejected));
+            return queue;
+        });
+        if (idle[0]) {
+            try {
+                delegate.execute(() -> drain(key, task));
+            } catch (RuntimeException e) {
+                ArrayDeque<Task> abandoned = queues.remove(key);
+                if (abandoned != null) {
+                    // A cabeça é a tarefa recusada, tratada pelo chamador
+                    abandoned.poll();
+                    abandoned.forEach(pending -> reject(key, pending));
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Quantidade de chaves com tarefas pendentes ou em execução.
+     */
+    public int activeKeys() {
+        return queues.size();
+    }
+
+    private void drain(String key, Runnable first) {
+        Runnable task = first;
+        while (task != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Tarefa da chave {} falhou; seguindo para a próxima", key, e);
+            }
+            Task[] following = new Task[1];
+            queues.computeIfPresent(key, (k, queue) -> {
+                queue.poll();
+                following[0] = queue.peek();
+                return queue.isEmpty() ? null : queue;
+            });
+            task = following[0] != null ? following[0].action() : null;
+        }
+    }
+
+    private static void reject(String key, Task task) {
+        try {
+            task.onRejected().run();
+        } catch (RuntimeException e) {
+            log.error("Falha ao descartar tarefa pendente da chave {}", key, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.dsena7.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cria executores de virtual threads quando a JVM oferece suporte (Java 21+). O projeto compila com
+ * Java 17, por isso a fábrica é obtida por reflexão. Em JVMs sem suporte, como a do próprio Java 17, o
+ * executor é um pool de no máximo {@code maxThreads} threads de plataforma, criadas sob demanda e
+ * encerradas após um minuto ociosas; um aviso é registrado na criação.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final long IDLE_SECONDS = 60;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param name       Prefixo do nome das threads
+     * @param maxThreads Limite de threads de plataforma quando não há virtual threads; normalmente o limite de
+     *                   tarefas em andamento do chamador
+     */
+    public static ExecutorService newExecutor(String name, int maxThreads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Executor {} usando virtual threads", name);
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads indisponíveis na JVM {}; executor {} usando até {} threads de plataforma",
+                    Runtime.version(), name, maxThreads);
+            AtomicLong sequence = new AtomicLong();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
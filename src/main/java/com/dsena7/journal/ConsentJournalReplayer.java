@@ -0,0 +1,86 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.ConsentTransitionEntity;
+import com.dsena7.repository.ConsentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconstrói o estado de consent_entity a partir do journal de transições. Executado na inicialização
+ * quando {@code consent.journal.replay.enabled=true}, lendo o destino {@code consent.journal.replay.source}
+ * (mongo ou file): a última transição de cada consentimento, em ordem cronológica, define o estado e o
+ * updateStatus gravados. Consentimentos sem entrada no journal, ou criados ou alterados depois da última
+ * entrada (por exemplo, recriados pelo {@code /save}), não são alterados.
+ * <p>
+ * A gravação não passa pelo journal, então a reconstrução pode ser repetida sem gerar novas entradas.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.journal", name = {"enabled", "replay.enabled"}, havingValue = "true")
+public class ConsentJournalReplayer implements ApplicationRunner {
+
+    private final ConsentTransitionJournal journal;
+    private final ConsentRepository consentRepository;
+    private final String source;
+    private final int chunkSize;
+
+    public ConsentJournalReplayer(ConsentTransitionJournal journal,
+                                 ConsentRepository consentRepository,
+                                 @Value("${consent.journal.replay.source:mongo}") String source,
+                                 @Value("${consent.journal.replay.chunk-size:1000}") int chunkSize) {
+        this.journal = journal;
+        this.consentRepository = consentRepository;
+        this.source = source;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        replay();
+    }
+
+    /**
+     * @return Quantidade de consentimentos encontrados em consent_entity e regravados
+     */
+    public int replay() {
+        JournalSink sink = journal.sink(source).orElseThrow(() -> new IllegalStateException(String.format(
+                "Destino do journal '%s' não habilitado para replay: habilite consent.journal.%s.enabled "
+                        + "ou ajuste consent.journal.replay.source", source, source)));
+        log.info("Reconstruindo estados de consent_entity a partir do journal {}", source);
+
+        Map<String, ConsentTransitionEntity> latest = new HashMap<>();
+        long[] entries = {0};
+        sink.replay(entry -> {
+            latest.merge(entry.getConsentId(), entry,
+                    (current, candidate) -> candidate.getAt().isBefore(current.getAt()) ? current : candidate);
+            entries[0]++;
+        });
+
+        int restored = 0;
+        List<ConsentStateTransition> chunk = new ArrayList<>(chunkSize);
+        for (ConsentTransitionEntity entry : latest.values()) {
+            chunk.add(new ConsentStateTransition(entry.getConsentId(), entry.getFrom(), entry.getTo(), entry.getEvent(),
+                    entry.getAt()));
+            if (chunk.size() == chunkSize) {
+                restored += consentRepository.overwriteStates(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            restored += consentRepository.overwriteStates(chunk);
+        }
+        log.info("Replay do journal concluído: {} entradas, {} consentimentos, {} regravados",
+                entries[0], latest.size(), restored);
+        return restored;
+    }
+}
@@ -0,0 +1,159 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.ConsentTransitionEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal append-only das transições de estado, gravado em write-behind.
+ * <p>
+ * As transições aplicadas são colocadas em um buffer circular limitado ({@code buffer-size}) sem
+ * bloquear a thread que processa a mensagem; uma thread dedicada drena o buffer em lotes de até
+ * {@code batch-size} entradas e grava cada lote em todos os {@link JournalSink} habilitados. Com o
+ * buffer cheio a entrada é descartada e contada em {@code consent.journal.dropped}, pois o journal
+ * não pode atrasar as transições.
+ * <p>
+ * O histórico fica disponível alguns milissegundos após a transição ({@code linger-ms} mais a escrita).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.journal", name = "enabled", havingValue = "true")
+public class ConsentTransitionJournal {
+
+    private final List<JournalSink> sinks;
+    private final BlockingQueue<ConsentTransitionEntity> buffer;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Map<String, Counter> writeFailures = new HashMap<>();
+
+    public ConsentTransitionJournal(ObjectProvider<JournalSink> sinks,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${consent.journal.buffer-size:65536}") int bufferSize,
+                                    @Value("${consent.journal.batch-size:500}") int batchSize,
+                                    @Value("${consent.journal.linger-ms:50}") long lingerMillis) {
+        this.sinks = sinks.orderedStream().toList();
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+
+        this.recorded = meterRegistry.counter("consent.journal.recorded");
+        this.dropped = meterRegistry.counter("consent.journal.dropped");
+        for (JournalSink sink : this.sinks) {
+            writeFailures.put(sink.name(), meterRegistry.counter("consent.journal.write.failures", "sink", sink.name()));
+        }
+        Gauge.builder("consent.journal.pending", buffer, BlockingQueue::size).register(meterRegistry);
+
+        if (this.sinks.isEmpty()) {
+            log.warn("Journal de transições habilitado sem nenhum destino; as entradas serão descartadas");
+        }
+        this.writer = new Thread(this::drain, "consent-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Registra uma transição já gravada em consent_entity.
+     */
+    public void record(String consentId, ConsentStateEnum from, ConsentStateEnum to, ConsentEventEnum event, LocalDateTime at) {
+        ConsentTransitionEntity entry = ConsentTransitionEntity.builder()
+                .consentId(consentId)
+                .from(from)
+                .to(to)
+                .event(event)
+                .at(at)
+                .build();
+        if (buffer.offer(entry)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Registra as transições aplicadas por uma escrita em lote condicional, já resolvidas por
+     * {@link com.dsena7.repository.ConsentRepositoryCustom#findApplied(List, int)}.
+     *
+     * @param applied Transições aplicadas pela escrita
+     */
+    public void recordApplied(List<ConsentStateTransition> applied) {
+        applied.forEach(this::record);
+    }
+
+    /**
+     * Histórico do consentimento a partir do primeiro destino habilitado (Mongo, se disponível).
+     */
+    public Optional<List<ConsentTransitionEntity>> history(String consentId) {
+        return sinks.stream().findFirst().map(sink -> sink.history(consentId));
+    }
+
+    public Optional<JournalSink> sink(String name) {
+        return sinks.stream().filter(sink -> sink.name().equals(name)).findFirst();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void record(ConsentStateTransition transition) {
+        record(transition.consentId(), transition.from(), transition.to(), transition.event(), transition.at());
+    }
+
+    private void drain() {
+        List<ConsentTransitionEntity> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                ConsentTransitionEntity first = running ? buffer.poll(lingerMillis, TimeUnit.MILLISECONDS) : buffer.poll();
+                if (first == null) {
+                    sinks.forEach(JournalSink::idle);
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // Encerramento: o laço continua até esvaziar o buffer
+                continue;
+            }
+            buffer.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<ConsentTransitionEntity> batch) {
+        for (JournalSink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (Exception e) {
+                writeFailures.get(sink.name()).increment(batch.size());
+                log.error("Erro ao gravar {} entradas do journal no destino {}", batch.size(), sink.name(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentTransitionEntity;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Destino das entradas do journal de transições. As escritas são feitas sempre pela thread de escrita
+ * do {@link ConsentTransitionJournal}, em lotes; leituras podem ocorrer em paralelo.
+ */
+public interface JournalSink {
+
+    String name();
+
+    /**
+     * Grava um lote de entradas na ordem em que foram registradas.
+     */
+    void write(List<ConsentTransitionEntity> batch);
+
+    /**
+     * Chamado pela thread de escrita quando não há entradas pendentes, para aplicar políticas de
+     * sincronização por intervalo.
+     */
+    default void idle() {
+    }
+
+    /**
+     * @return Transições do consentimento em ordem cronológica
+     */
+    List<ConsentTransitionEntity> history(String consentId);
+
+    /**
+     * Percorre todas as entradas gravadas em ordem cronológica.
+     */
+    void replay(Consumer<ConsentTransitionEntity> consumer);
+}
@@ -0,0 +1,235 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentTransitionEntity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Grava o journal em segmentos locais de tamanho fixo mapeados em memória ({@code segment-size-bytes}).
+ * <p>
+ * Cada entrada é {@code [short tamanho][consentId][from][to][event][epochSecond][nano]}, com strings
+ * prefixadas pelo tamanho. O tamanho é escrito por último, então uma entrada só se torna visível para
+ * a leitura depois de completa; o segmento é criado zerado e um tamanho 0 marca o fim dos dados.
+ * Quando uma entrada não cabe no segmento atual, um novo segmento é aberto. Os nomes dos segmentos
+ * ordenam cronologicamente, inclusive entre reinícios.
+ * <p>
+ * A política {@code fsync} define quando as páginas são forçadas para o disco: {@code never} deixa a
+ * cargo do sistema operacional, {@code batch} força após cada lote e {@code interval} no máximo a cada
+ * {@code fsync-interval-ms}.
+ */
+@Component
+@Order(1)
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.journal", name = {"enabled", "file.enabled"}, havingValue = "true")
+public class MappedFileJournalSink implements JournalSink {
+
+    public enum FsyncPolicy { NEVER, BATCH, INTERVAL }
+
+    private static final String SEGMENT_PREFIX = "consent-journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int MAX_ENTRY_SIZE = Short.MAX_VALUE;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long startedAt = System.currentTimeMillis();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_ENTRY_SIZE);
+
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private boolean dirty;
+    private long lastSync = System.nanoTime();
+
+    public MappedFileJournalSink(@Value("${consent.journal.file.directory:journal}") String directory,
+                                 @Value("${consent.journal.file.segment-size-bytes:67108864}") int segmentSize,
+                                 @Value("${consent.journal.file.fsync:interval}") String fsyncPolicy,
+                                 @Value("${consent.journal.file.fsync-interval-ms:1000}") long fsyncIntervalMillis) {
+        this.directory = Path.of(directory);
+        this.segmentSize = Math.max(segmentSize, Short.BYTES + MAX_ENTRY_SIZE);
+        this.fsyncPolicy = FsyncPolicy.valueOf(fsyncPolicy.toUpperCase());
+        this.fsyncIntervalNanos = fsyncIntervalMillis * 1_000_000L;
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do journal " + directory, e);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void write(List<ConsentTransitionEntity> batch) {
+        for (ConsentTransitionEntity entry : batch) {
+            scratch.clear();
+            encode(entry, scratch);
+            scratch.flip();
+            if (segment == null || segment.remaining() < Short.BYTES + scratch.remaining()) {
+                roll();
+            }
+            int position = segment.position();
+            segment.position(position + Short.BYTES);
+            segment.put(scratch);
+            segment.putShort(position, (short) (segment.position() - position - Short.BYTES));
+        }
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            sync();
+        } else if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            idle();
+        }
+    }
+
+    @Override
+    public synchronized void idle() {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastSync >= fsyncIntervalNanos) {
+            sync();
+        }
+    }
+
+    /**
+     * Varre todos os segmentos; indicado quando o destino Mongo não está habilitado.
+     */
+    @Override
+    public List<ConsentTransitionEntity> history(String consentId) {
+        List<ConsentTransitionEntity> history = new ArrayList<>();
+        replay(entry -> {
+            if (entry.getConsentId().equals(consentId)) {
+                history.add(entry);
+            }
+        });
+        return history;
+    }
+
+    @Override
+    public void replay(Consumer<ConsentTransitionEntity> consumer) {
+        for (Path path : segments()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                readSegment(buffer, consumer, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler o segmento do journal " + path, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar os segmentos do journal em " + directory, e);
+        }
+    }
+
+    private void roll() {
+        if (segment != null) {
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                segment.force();
+            }
+        }
+        Path path = directory.resolve(String.format("%s%013d-%06d%s", SEGMENT_PREFIX, startedAt, segmentIndex++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido após fechar o canal
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao criar o segmento do journal " + path, e);
+        }
+        log.info("Novo segmento do journal de transições: {}", path);
+    }
+
+    private void sync() {
+        if (dirty && segment != null) {
+            segment.force();
+        }
+        dirty = false;
+        lastSync = System.nanoTime();
+    }
+
+    private static void readSegment(ByteBuffer buffer, Consumer<ConsentTransitionEntity> consumer, Path path) {
+        while (buffer.remaining() >= Short.BYTES) {
+            int length = buffer.getShort();
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+            ByteBuffer entry = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            try {
+                consumer.accept(decode(entry));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                log.warn("Entrada inválida no segmento {}; leitura do segmento interrompida", path);
+                return;
+            }
+        }
+    }
+
+    private static void encode(ConsentTransitionEntity entry, ByteBuffer buffer) {
+        putString(buffer, entry.getConsentId());
+        putString(buffer, entry.getFrom().name());
+        putString(buffer, entry.getTo().name());
+        putString(buffer, entry.getEvent().name());
+        buffer.putLong(entry.getAt().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(entry.getAt().getNano());
+    }
+
+    static ConsentTransitionEntity decode(ByteBuffer buffer) {
+        return ConsentTransitionEntity.builder()
+                .consentId(getString(buffer))
+                .from(ConsentStateEnum.valueOf(getString(buffer)))
+                .to(ConsentStateEnum.valueOf(getString(buffer)))
+                .event(ConsentEventEnum.valueOf(getString(buffer)))
+                .at(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC))
+                .build();
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentTransitionEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Grava o journal na coleção consent_transitions com um insertMany não ordenado por lote. O índice
+ * (consentId, at) atende a consulta de histórico; é o destino preferido para consultas quando habilitado.
+ */
+@Component
+@Order(0)
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "consent.journal", name = {"enabled", "mongo.enabled"}, havingValue = "true")
+public class MongoJournalSink implements JournalSink {
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public String name() {
+        return "mongo";
+    }
+
+    @Override
+    public void write(List<ConsentTransitionEntity> batch) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsentTransitionEntity.class)
+                .insert(batch)
+                .execute();
+    }
+
+    @Override
+    public List<ConsentTransitionEntity> history(String consentId) {
+        return mongoTemplate.find(Query.query(where("consentId").is(consentId))
+                .with(Sort.by(Sort.Direction.ASC, "at")), ConsentTransitionEntity.class);
+    }
+
+    @Override
+    public void replay(Consumer<ConsentTransitionEntity> consumer) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "at")).cursorBatchSize(CURSOR_BATCH_SIZE);
+        try (Stream<ConsentTransitionEntity> entries = mongoTemplate.stream(query, ConsentTransitionEntity.class)) {
+            entries.forEach(consumer);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import com.dsena7.lifecycle.LifecycleDefinition.TransitionDefinition;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ciclo de vida compilado sobre {@link ConsentStateEnum} e {@link ConsentEventEnum}: o índice de cada estado
+ * e evento na {@link LifecycleTable} é o seu ordinal. Imutável; uma nova definição gera uma nova instância,
+ * trocada atomicamente pelo {@link ConsentLifecycleRegistry}.
+ */
+public final class ConsentLifecycle {
+
+    public static final String DEFAULT_LOCATION = "consent-lifecycle.yml";
+
+    private static final ConsentStateEnum[] STATES = ConsentStateEnum.values();
+    private static final ConsentEventEnum[] EVENTS = ConsentEventEnum.values();
+    private static final List<String> STATE_NAMES = Arrays.stream(STATES).map(Enum::name).toList();
+    private static final List<String> EVENT_NAMES = Arrays.stream(EVENTS).map(Enum::name).toList();
+
+    private final LifecycleTable table;
+    private final List<Transition> transitions;
+    private final Set<ConsentStateEnum> states;
+    private final Set<ConsentStateEnum> terminalStates;
+    private final Set<ConsentStateEnum> activeStates;
+    private final String checksum;
+
+    /**
+     * Transição declarada, na ordem do YAML.
+     */
+    public record Transition(ConsentStateEnum source, ConsentEventEnum event, ConsentStateEnum target) {
+    }
+
+    private ConsentLifecycle(LifecycleDefinition definition, String checksum) {
+        this.table = LifecycleTable.compile(definition, STATE_NAMES, EVENT_NAMES);
+        this.transitions = definition.transitions().stream()
+                .map(ConsentLifecycle::transition)
+                .toList();
+        this.states = states(definition.states());
+        this.terminalStates = states(definition.terminal());
+        EnumSet<ConsentStateEnum> active = EnumSet.noneOf(ConsentStateEnum.class);
+        active.addAll(states);
+        active.removeAll(terminalStates);
+        this.activeStates = Collections.unmodifiableSet(active);
+        this.checksum = checksum;
+    }
+
+    /**
+     * Lê, valida e compila uma definição YAML.
+     *
+     * @throws ConsentLifecycleException se a definição for inválida
+     */
+    public static ConsentLifecycle parse(byte[] yaml) {
+        return new ConsentLifecycle(LifecycleDefinition.parse(yaml), checksum(yaml));
+    }
+
+    /**
+     * Definição empacotada com a aplicação ({@value #DEFAULT_LOCATION}).
+     */
+    public static ConsentLifecycle defaults() {
+        try (InputStream input = new ClassPathResource(DEFAULT_LOCATION).getInputStream()) {
+            return parse(input.readAllBytes());
+        } catch (IOException e) {
+            throw new ConsentLifecycleException("Falha ao ler " + DEFAULT_LOCATION, e);
+        }
+    }
+
+    /**
+     * Evento a aplicar ao consentimento no instante informado: o da primeira transição saindo do estado
+     * atual cuja guarda passa.
+     *
+     * @return Evento, ou null se nenhuma transição se aplica agora
+     */
+    public ConsentEventEnum resolveEvent(ConsentEntity entity, LocalDateTime now) {
+        int event = table.resolve(entity.getState().ordinal(), entity, now);
+        return event < 0 ? null : EVENTS[event];
+    }
+
+    /**
+     * @return Estado alvo, ou null se o evento não se aplica ao estado
+     */
+    public ConsentStateEnum target(ConsentStateEnum source, ConsentEventEnum event) {
+        int target = table.target(source.ordinal(), event.ordinal());
+        return target < 0 ? null : STATES[target];
+    }
+
+    /**
+     * Estados declarados e não terminais: os únicos em que um consentimento pode ser inserido ou processado.
+     */
+    public boolean accepts(ConsentStateEnum state) {
+        int index = state.ordinal();
+        return table.isDeclared(index) && !table.isTerminal(index);
+    }
+
+    public boolean isTerminal(ConsentStateEnum state) {
+        return table.isTerminal(state.ordinal());
+    }
+
+    public ConsentStateEnum initial() {
+        return STATES[table.initial()];
+    }
+
+    public Set<ConsentStateEnum> states() {
+        return states;
+    }
+
+    public Set<ConsentStateEnum> terminalStates() {
+        return terminalStates;
+    }
+
+    /**
+     * Estados aceitos por {@link #accepts(ConsentStateEnum)}, usados nas consultas de consentimentos pendentes.
+     */
+    public Set<ConsentStateEnum> activeStates() {
+        return activeStates;
+    }
+
+    public List<Transition> transitions() {
+        return transitions;
+    }
+
+    /**
+     * SHA-256 do YAML de origem, usado para detectar alterações no arquivo.
+     */
+    public String checksum() {
+        return checksum;
+    }
+
+    private static Transition transition(TransitionDefinition definition) {
+        return new Transition(ConsentStateEnum.valueOf(definition.source()), ConsentEventEnum.valueOf(definition.event()),
+                ConsentStateEnum.valueOf(definition.target()));
+    }
+
+    private static Set<ConsentStateEnum> states(List<String> names) {
+        EnumSet<ConsentStateEnum> states = EnumSet.noneOf(ConsentStateEnum.class);
+        names.forEach(name -> states.add(ConsentStateEnum.valueOf(name)));
+        return Collections.unmodifiableSet(states);
+    }
+
+    static String checksum(byte[] yaml) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(yaml));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
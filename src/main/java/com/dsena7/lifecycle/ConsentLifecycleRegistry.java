@@ -0,0 +1,138 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ciclo de vida em uso, lido de {@code consent.lifecycle.location} na inicialização e relido a cada
+ * {@code consent.lifecycle.reload.interval-ms} quando o conteúdo do arquivo muda.
+ * <p>
+ * A nova definição é validada e compilada fora do caminho das mensagens e publicada com uma única escrita
+ * volátil: cada processamento lê {@link #current()} uma vez e termina com a definição que leu, sem pausa
+ * nem lock. Uma definição inválida é recusada e a atual continua valendo.
+ * <p>
+ * A recarga exige {@code consent.statemachine.engine=compiled}: com {@code engine=spring} estados finais e
+ * transições ficam fixados na StateMachineFactory construída na inicialização, então a combinação com
+ * {@code consent.lifecycle.reload.enabled=true} é recusada na inicialização. Estados e eventos continuam
+ * limitados a {@link com.dsena7.model.ConsentStateEnum} e {@link com.dsena7.model.ConsentEventEnum}; um
+ * estado ou evento novo exige deploy.
+ */
+@Component
+@Slf4j
+public class ConsentLifecycleRegistry {
+
+    private final Resource resource;
+    private final boolean reloadEnabled;
+    private final AtomicLong generation = new AtomicLong(1);
+    private volatile ConsentLifecycle current;
+
+    private final Counter applied;
+    private final Counter rejected;
+
+    @Autowired
+    public ConsentLifecycleRegistry(ResourceLoader resourceLoader,
+                                    ObjectProvider<MeterRegistry> meterRegistry,
+                                    @Value("${consent.lifecycle.location:classpath:consent-lifecycle.yml}") String location,
+                                    @Value("${consent.lifecycle.reload.enabled:false}") boolean reloadEnabled,
+                                    @Value("${consent.statemachine.engine:spring}") String engine) {
+        if (reloadEnabled && !"compiled".equals(engine)) {
+            throw new ConsentLifecycleException("consent.lifecycle.reload.enabled=true exige consent.statemachine.engine=compiled; "
+                    + "com engine=spring as transições ficam fixadas na inicialização");
+        }
+        this.resource = resourceLoader.getResource(location);
+        this.reloadEnabled = reloadEnabled;
+        this.current = ConsentLifecycle.parse(read(resource));
+        log.info("Ciclo de vida carregado de {}: {} estados, {} transições", location,
+                current.states().size(), current.transitions().size());
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.applied = registry != null ? registry.counter("consent.lifecycle.reloads", "outcome", "applied") : null;
+        this.rejected = registry != null ? registry.counter("consent.lifecycle.reloads", "outcome", "rejected") : null;
+        if (registry != null) {
+            Gauge.builder("consent.lifecycle.generation", generation, AtomicLong::get)
+                    .description("Número de definições de ciclo de vida aplicadas desde a inicialização")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Definição fixa, sem arquivo nem recarga; usada em testes e benchmarks.
+     */
+    public ConsentLifecycleRegistry(ConsentLifecycle lifecycle) {
+        this.resource = null;
+        this.reloadEnabled = false;
+        this.current = lifecycle;
+        this.applied = null;
+        this.rejected = null;
+    }
+
+    public ConsentLifecycle current() {
+        return current;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    @Scheduled(fixedDelayString = "${consent.lifecycle.reload.interval-ms:5000}")
+    public void reloadIfChanged() {
+        reload();
+    }
+
+    /**
+     * Relê o arquivo e aplica a definição se a recarga está habilitada e o conteúdo mudou e é válido.
+     *
+     * @return true se uma nova definição passou a valer
+     */
+    public synchronized boolean reload() {
+        if (!reloadEnabled || resource == null) {
+            return false;
+        }
+        ConsentLifecycle candidate;
+        try {
+            byte[] yaml = read(resource);
+            if (ConsentLifecycle.checksum(yaml).equals(current.checksum())) {
+                return false;
+            }
+            candidate = ConsentLifecycle.parse(yaml);
+        } catch (ConsentLifecycleException e) {
+            log.error("Definição de ciclo de vida recusada em {}; mantendo a atual: {}", resource, e.getMessage());
+            increment(rejected);
+            return false;
+        }
+        current = candidate;
+        long applied = generation.incrementAndGet();
+        increment(this.applied);
+        log.info("Ciclo de vida recarregado de {} (geração {}): {} estados, {} transições", resource, applied,
+                candidate.states().size(), candidate.transitions().size());
+        return true;
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static byte[] read(Resource resource) {
+        try (InputStream input = resource.getInputStream()) {
+            return input.readAllBytes();
+        } catch (IOException e) {
+            throw new ConsentLifecycleException("Falha ao ler a definição de ciclo de vida em " + resource, e);
+        }
+    }
+}
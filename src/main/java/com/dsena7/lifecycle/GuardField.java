@@ -0,0 +1,41 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import com.dsena7.model.ConsentEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Campos de data de {@link ConsentEntity} que uma guarda pode comparar com o instante atual.
+ */
+public enum GuardField {
+    CREATED_AT("createdAt"), EXPIRATED_AT("expiratedAt"), UPDATE_STATUS("updateStatus");
+
+    private final String fieldName;
+
+    GuardField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    LocalDateTime valueOf(ConsentEntity entity) {
+        return switch (this) {
+            case CREATED_AT -> entity.getCreatedAt();
+            case EXPIRATED_AT -> entity.getExpiratedAt();
+            case UPDATE_STATUS -> entity.getUpdateStatus();
+        };
+    }
+
+    static GuardField fromFieldName(String fieldName) {
+        for (GuardField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new ConsentLifecycleException("Campo de guarda desconhecido: " + fieldName
+                + "; use createdAt, expiratedAt ou updateStatus");
+    }
+}
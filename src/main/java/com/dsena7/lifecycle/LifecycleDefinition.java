@@ -0,0 +1,127 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Definição de ciclo de vida como escrita no YAML (ver {@code consent-lifecycle.yml}), antes da compilação.
+ * A leitura valida apenas a forma do documento; nomes de estados e eventos e a coerência das transições
+ * são verificados por {@link LifecycleTable#compile}.
+ */
+public record LifecycleDefinition(List<String> states,
+                                  String initial,
+                                  List<String> terminal,
+                                  List<TransitionDefinition> transitions) {
+
+    private static final Set<String> ROOT_KEYS = Set.of("states", "initial", "terminal", "transitions");
+    private static final Set<String> TRANSITION_KEYS = Set.of("source", "event", "target", "guard");
+    private static final Set<String> GUARD_KEYS = Set.of("field", "after");
+
+    /**
+     * @param guard Guarda da transição, ou null se ela se aplica sempre
+     */
+    public record TransitionDefinition(String source, String event, String target, GuardDefinition guard) {
+    }
+
+    /**
+     * A guarda passa quando {@code field + after} é anterior ao instante da avaliação.
+     */
+    public record GuardDefinition(GuardField field, Duration after) {
+    }
+
+    public static LifecycleDefinition parse(byte[] yaml) {
+        Object document;
+        try {
+            document = new Yaml(new SafeConstructor(new LoaderOptions())).load(new ByteArrayInputStream(yaml));
+        } catch (RuntimeException e) {
+            throw new ConsentLifecycleException("YAML de ciclo de vida inválido: " + e.getMessage(), e);
+        }
+        Map<?, ?> root = map(document, "documento");
+        checkKeys(root, ROOT_KEYS, "documento");
+
+        List<TransitionDefinition> transitions = new ArrayList<>();
+        List<?> entries = root.containsKey("transitions") ? list(root.get("transitions"), "transitions") : List.of();
+        for (int i = 0; i < entries.size(); i++) {
+            String where = "transitions[" + i + "]";
+            Map<?, ?> entry = map(entries.get(i), where);
+            checkKeys(entry, TRANSITION_KEYS, where);
+            transitions.add(new TransitionDefinition(
+                    string(entry.get("source"), where + ".source"),
+                    string(entry.get("event"), where + ".event"),
+                    string(entry.get("target"), where + ".target"),
+                    entry.containsKey("guard") ? guard(entry.get("guard"), where + ".guard") : null));
+        }
+        return new LifecycleDefinition(
+                strings(root.get("states"), "states"),
+                string(root.get("initial"), "initial"),
+                root.containsKey("terminal") ? strings(root.get("terminal"), "terminal") : List.of(),
+                Collections.unmodifiableList(transitions));
+    }
+
+    private static GuardDefinition guard(Object value, String where) {
+        Map<?, ?> guard = map(value, where);
+        checkKeys(guard, GUARD_KEYS, where);
+        GuardField field = GuardField.fromFieldName(string(guard.get("field"), where + ".field"));
+        Duration after = Duration.ZERO;
+        if (guard.containsKey("after")) {
+            try {
+                after = Duration.parse(string(guard.get("after"), where + ".after"));
+            } catch (DateTimeParseException e) {
+                throw new ConsentLifecycleException(where + ".after não é uma duração ISO-8601: " + guard.get("after"), e);
+            }
+            if (after.isNegative()) {
+                throw new ConsentLifecycleException(where + ".after não pode ser negativo: " + after);
+            }
+        }
+        return new GuardDefinition(field, after);
+    }
+
+    private static void checkKeys(Map<?, ?> map, Set<String> allowed, String where) {
+        for (Object key : map.keySet()) {
+            if (!allowed.contains(String.valueOf(key))) {
+                throw new ConsentLifecycleException("Chave desconhecida em " + where + ": " + key);
+            }
+        }
+    }
+
+    private static Map<?, ?> map(Object value, String where) {
+        if (value instanceof Map<?, ?> map) {
+            return map;
+        }
+        throw new ConsentLifecycleException(where + " deve ser um mapa");
+    }
+
+    private static List<?> list(Object value, String where) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        throw new ConsentLifecycleException(where + " deve ser uma lista");
+    }
+
+    private static List<String> strings(Object value, String where) {
+        List<?> list = list(value, where);
+        List<String> strings = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            strings.add(string(list.get(i), where + "[" + i + "]"));
+        }
+        return Collections.unmodifiableList(strings);
+    }
+
+    private static String string(Object value, String where) {
+        if (value instanceof String string && !string.isBlank()) {
+            return string.trim();
+        }
+        throw new ConsentLifecycleException(where + " é obrigatório");
+    }
+}
@@ -0,0 +1,197 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import com.dsena7.lifecycle.LifecycleDefinition.GuardDefinition;
+import com.dsena7.lifecycle.LifecycleDefinition.TransitionDefinition;
+import com.dsena7.model.ConsentEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definição de ciclo de vida validada e compilada em tabelas imutáveis, indexadas pela posição de cada
+ * estado e evento nos espaços de nomes informados na compilação:
+ * <ul>
+ *     <li>{@code targets[estado * eventos + evento]}: estado alvo, ou -1 sem transição;</li>
+ *     <li>{@code rules[estado]}: transições com guarda saindo do estado, na ordem do YAML.</li>
+ * </ul>
+ * A busca de uma transição é uma leitura de array e a resolução do evento percorre só as transições do
+ * estado de origem; nenhuma das duas depende do tamanho da definição nem aloca.
+ */
+public final class LifecycleTable {
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final int eventCount;
+    private final int[] targets;
+    private final Rule[][] rules;
+    private final boolean[] declared;
+    private final boolean[] terminal;
+    private final int initial;
+
+    private LifecycleTable(int eventCount, int[] targets, Rule[][] rules, boolean[] declared, boolean[] terminal,
+                           int initial) {
+        this.eventCount = eventCount;
+        this.targets = targets;
+        this.rules = rules;
+        this.declared = declared;
+        this.terminal = terminal;
+        this.initial = initial;
+    }
+
+    /**
+     * Valida a definição e compila as tabelas.
+     *
+     * @param definition Definição lida do YAML
+     * @param stateNames Estados que a definição pode usar; a posição na lista é o índice do estado
+     * @param eventNames Eventos que a definição pode usar; a posição na lista é o índice do evento
+     * @throws ConsentLifecycleException se a definição for incoerente
+     */
+    public static LifecycleTable compile(LifecycleDefinition definition, List<String> stateNames, List<String> eventNames) {
+        Map<String, Integer> stateIndex = index(stateNames);
+        Map<String, Integer> eventIndex = index(eventNames);
+        int stateCount = stateNames.size();
+        int eventCount = eventNames.size();
+
+        boolean[] declared = new boolean[stateCount];
+        for (String state : definition.states()) {
+            int index = lookup(stateIndex, state, "Estado", stateNames);
+            if (declared[index]) {
+                throw new ConsentLifecycleException("Estado declarado mais de uma vez: " + state);
+            }
+            declared[index] = true;
+        }
+        boolean[] terminal = new boolean[stateCount];
+        for (String state : definition.terminal()) {
+            terminal[declaredState(stateIndex, declared, state, "terminal", stateNames)] = true;
+        }
+        int initial = declaredState(stateIndex, declared, definition.initial(), "initial", stateNames);
+        if (terminal[initial]) {
+            throw new ConsentLifecycleException("Estado inicial não pode ser terminal: " + definition.initial());
+        }
+
+        int[] targets = new int[stateCount * eventCount];
+        Arrays.fill(targets, -1);
+        List<List<Rule>> rulesByState = new ArrayList<>(stateCount);
+        for (int i = 0; i < stateCount; i++) {
+            rulesByState.add(new ArrayList<>());
+        }
+        for (TransitionDefinition transition : definition.transitions()) {
+            String description = transition.source() + " --" + transition.event() + "--> " + transition.target();
+            int source = declaredState(stateIndex, declared, transition.source(), "source de " + description, stateNames);
+            int target = declaredState(stateIndex, declared, transition.target(), "target de " + description, stateNames);
+            int event = lookup(eventIndex, transition.event(), "Evento", eventNames);
+            if (terminal[source]) {
+                throw new ConsentLifecycleException("Transição saindo de estado terminal: " + description);
+            }
+            if (source == target) {
+                throw new ConsentLifecycleException("Transição para o próprio estado: " + description);
+            }
+            int slot = source * eventCount + event;
+            if (targets[slot] >= 0) {
+                throw new ConsentLifecycleException(String.format(
+                        "Transição ambígua para o estado %s com o evento %s", transition.source(), transition.event()));
+            }
+            targets[slot] = target;
+
+            List<Rule> stateRules = rulesByState.get(source);
+            if (!stateRules.isEmpty() && stateRules.get(stateRules.size() - 1).field() == null) {
+                throw new ConsentLifecycleException("Transição sem guarda antes de " + description
+                        + " torna as seguintes inalcançáveis");
+            }
+            GuardDefinition guard = transition.guard();
+            stateRules.add(guard == null ? new Rule(event, null, Duration.ZERO) : new Rule(event, guard.field(), guard.after()));
+        }
+
+        Rule[][] rules = new Rule[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            List<Rule> stateRules = rulesByState.get(state);
+            if (declared[state] && !terminal[state] && stateRules.isEmpty()) {
+                throw new ConsentLifecycleException("Estado não terminal sem transições de saída: " + stateNames.get(state));
+            }
+            rules[state] = stateRules.isEmpty() ? NO_RULES : stateRules.toArray(Rule[]::new);
+        }
+        return new LifecycleTable(eventCount, targets, rules, declared, terminal, initial);
+    }
+
+    /**
+     * @return Índice do estado alvo, ou -1 se o evento não se aplica ao estado
+     */
+    public int target(int state, int event) {
+        return targets[state * eventCount + event];
+    }
+
+    /**
+     * Primeira transição saindo do estado cuja guarda passa no instante informado.
+     *
+     * @return Índice do evento, ou -1 se nenhuma guarda passa
+     */
+    public int resolve(int state, ConsentEntity entity, LocalDateTime now) {
+        for (Rule rule : rules[state]) {
+            if (rule.test(entity, now)) {
+                return rule.event();
+            }
+        }
+        return -1;
+    }
+
+    public boolean isDeclared(int state) {
+        return declared[state];
+    }
+
+    public boolean isTerminal(int state) {
+        return terminal[state];
+    }
+
+    public int initial() {
+        return initial;
+    }
+
+    private static Map<String, Integer> index(List<String> names) {
+        Map<String, Integer> index = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            index.put(names.get(i), i);
+        }
+        return index;
+    }
+
+    private static int lookup(Map<String, Integer> index, String name, String kind, List<String> names) {
+        Integer value = index.get(name);
+        if (value == null) {
+            throw new ConsentLifecycleException(kind + " desconhecido: " + name
+                    + (names.size() <= 16 ? "; disponíveis: " + names : ""));
+        }
+        return value;
+    }
+
+    private static int declaredState(Map<String, Integer> stateIndex, boolean[] declared, String state, String where,
+                                     List<String> stateNames) {
+        int index = lookup(stateIndex, state, "Estado", stateNames);
+        if (!declared[index]) {
+            throw new ConsentLifecycleException("Estado " + state + " usado em " + where + " não está em states");
+        }
+        return index;
+    }
+
+    /**
+     * Transição candidata de um estado; sem campo, a guarda passa sempre.
+     */
+    private record Rule(int event, GuardField field, Duration after) {
+
+        boolean test(ConsentEntity entity, LocalDateTime now) {
+            if (field == null) {
+                return true;
+            }
+            LocalDateTime value = field.valueOf(entity);
+            if (value == null) {
+                return false;
+            }
+            return (after.isZero() ? value : value.plus(after)).isBefore(now);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.dsena7.metrics;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de cada etapa do processamento de um consentimento.
+ * <p>
+ * Os timers e contadores são resolvidos uma única vez por combinação de tags e guardados em arrays
+ * indexados pelos ordinais dos enums, então o registro no caminho quente é uma leitura de array e um
+ * {@link Timer#record(long, TimeUnit)}, sem montar tags nem consultar o registry. Os timers publicam
+ * apenas histogramas (sem percentis calculados na aplicação), com limites fixos para conter o número
+ * de buckets; os percentis são calculados no Prometheus. As etapas de acesso ao MongoDB (FIND e UPDATE)
+ * também alimentam uma {@link LatencyWindow}, lida pelo controle adaptativo de concorrência.
+ * <p>
+ * Todos os consumidores registram QUEUE_DWELL e DECODE por mensagem. FIND e UPDATE vêm dos serviços por
+ * mensagem, bloqueante e reativo; a leitura {@code $in} e o bulk write do lote não são medidos por documento
+ * e ficam fora dessas etapas. STATE_MACHINE_SETUP e SEND_EVENT só existem com {@code engine=spring}.
+ * <p>
+ * {@code consent.transitions} e {@code consent.transition.lost.race} são registrados só aqui, e os caminhos
+ * que gravam transições (mensagem única, lote, reativo e varredura) passam por estes métodos.
+ */
+@Component
+public class ConsentMetrics {
+
+    /**
+     * Header com o instante da publicação em epoch millis; o timestamp AMQP tem resolução de segundos.
+     */
+    public static final String PUBLISHED_AT_HEADER = "x-published-at";
+
+    private static final String NO_EVENT = "none";
+    private static final int EVENT_SLOTS = ConsentEventEnum.values().length + 1;
+    private static final int STATES = ConsentStateEnum.values().length;
+    private static final int OUTCOME_SLOTS = Outcome.values().length;
+
+    public enum Stage {
+        QUEUE_DWELL, DECODE, FIND, STATE_MACHINE_SETUP, SEND_EVENT, UPDATE
+    }
+
+    public enum Outcome {
+        SUCCESS, LOST_RACE, FAILURE
+    }
+
+    public enum FailureReason {
+        DECODE, NOT_FOUND, INVALID_STATE, TRANSITION, PERSISTENCE
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Timer[] timers = new Timer[Stage.values().length * EVENT_SLOTS * OUTCOME_SLOTS];
+    private final Counter[] transitions = new Counter[STATES * STATES];
+    private final Counter[] failures = new Counter[FailureReason.values().length];
+    private final Counter noop;
+    private final Counter lostRaces;
+    private final LatencyWindow findLatency = new LatencyWindow();
+    private final LatencyWindow updateLatency = new LatencyWindow();
+
+    public ConsentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.noop = meterRegistry.counter("consent.process.noop");
+        this.lostRaces = meterRegistry.counter("consent.transition.lost.race");
+        for (FailureReason reason : FailureReason.values()) {
+            failures[reason.ordinal()] = meterRegistry.counter("consent.process.failures", "reason", tag(reason));
+        }
+        for (Stage stage : Stage.values()) {
+            timer(stage, null, Outcome.SUCCESS);
+        }
+    }
+
+    /**
+     * Registra a duração de uma etapa iniciada em {@code startNanos} ({@link System#nanoTime()}).
+     *
+     * @param stage      Etapa medida
+     * @param event      Evento em processamento ou null se ainda não resolvido
+     * @param outcome    Resultado da etapa
+     * @param startNanos Início da etapa
+     */
+    public void record(Stage stage, ConsentEventEnum event, Outcome outcome, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        timer(stage, event, outcome).record(elapsed, TimeUnit.NANOSECONDS);
+        if (stage == Stage.FIND) {
+            findLatency.record(elapsed);
+        } else if (stage == Stage.UPDATE) {
+            updateLatency.record(elapsed);
+        }
+    }
+
+    /**
+     * Registra o tempo entre a publicação e o consumo da mensagem.
+     *
+     * @param publishedAtMillis Valor do header {@value #PUBLISHED_AT_HEADER} ou null se ausente
+     */
+    public void recordQueueDwell(Long publishedAtMillis) {
+        if (publishedAtMillis != null) {
+            timer(Stage.QUEUE_DWELL, null, Outcome.SUCCESS)
+                    .record(Math.max(0, System.currentTimeMillis() - publishedAtMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void transition(ConsentStateEnum from, ConsentStateEnum to) {
+        int index = from.ordinal() * STATES + to.ordinal();
+        Counter counter = transitions[index];
+        if (counter == null) {
+            counter = meterRegistry.counter("consent.transitions", "from", from.name(), "to", to.name());
+            transitions[index] = counter;
+        }
+        counter.increment();
+    }
+
+    /**
+     * Registra as transições aplicadas por uma escrita em lote, já resolvidas por
+     * {@link com.dsena7.repository.ConsentRepositoryCustom#findApplied(List, int)}.
+     *
+     * @param applied Transições aplicadas pela escrita
+     */
+    public void recordApplied(List<ConsentStateTransition> applied) {
+        applied.forEach(transition -> transition(transition.from(), transition.to()));
+    }
+
+    /**
+     * Registra escritas condicionais que não casaram com o estado esperado: outro consumidor já aplicou a transição.
+     *
+     * @param count Quantidade de corridas perdidas
+     */
+    public void lostRace(int count) {
+        lostRaces.increment(count);
+    }
+
+    public void noop() {
+        noop.increment();
+    }
+
+    public void failure(FailureReason reason) {
+        failures[reason.ordinal()].increment();
+        if (reason == FailureReason.PERSISTENCE) {
+            updateLatency.error();
+        }
+    }
+
+    /**
+     * Janela de latência da leitura do consentimento.
+     */
+    public LatencyWindow findLatency() {
+        return findLatency;
+    }
+
+    /**
+     * Janela de latência da escrita condicional do estado; também conta as falhas de persistência.
+     */
+    public LatencyWindow updateLatency() {
+        return updateLatency;
+    }
+
+    private Timer timer(Stage stage, ConsentEventEnum event, Outcome outcome) {
+        int eventSlot = event == null ? 0 : event.ordinal() + 1;
+        int index = (stage.ordinal() * EVENT_SLOTS + eventSlot) * OUTCOME_SLOTS + outcome.ordinal();
+        Timer timer = timers[index];
+        if (timer == null) {
+            // Corridas na criação resolvem para o mesmo meter no registry
+            timer = Timer.builder("consent.process.stage")
+                    .tag("stage", tag(stage))
+                    .tag("event", event == null ? NO_EVENT : event.name())
+                    .tag("outcome", tag(outcome))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+            timers[index] = timer;
+        }
+        return timer;
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '.');
+    }
+}
@@ -0,0 +1,84 @@
+package com.dsena7.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências da janela corrente, zerado a cada {@link #snapshot()}. Os timers do
+ * {@link ConsentMetrics} acumulam desde a inicialização e só expõem percentis no Prometheus; esta janela
+ * dá ao controle adaptativo o p99 dos últimos segundos dentro da própria aplicação.
+ * <p>
+ * Os buckets são log-lineares em microssegundos: abaixo de 8 µs um bucket por valor, acima disso 8
+ * sub-buckets por potência de dois, um erro relativo de no máximo 12,5%. O registro é um incremento
+ * atômico em um array, sem alocação.
+ */
+public class LatencyWindow {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder errors = new LongAdder();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos))));
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    /**
+     * Lê e zera a janela. Registros concorrentes com a leitura caem nesta janela ou na próxima.
+     */
+    public Snapshot snapshot() {
+        long[] window = new long[BUCKETS];
+        long samples = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            window[i] = counts.getAndSet(i, 0);
+            samples += window[i];
+        }
+        long p99Micros = 0;
+        if (samples > 0) {
+            long rank = (long) Math.ceil(samples * 0.99);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += window[i];
+                if (seen >= rank) {
+                    p99Micros = upperBound(i);
+                    break;
+                }
+            }
+        }
+        return new Snapshot(samples, errors.sumThenReset(), TimeUnit.MICROSECONDS.toNanos(p99Micros));
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * @param samples  Registros na janela
+     * @param errors   Erros na janela
+     * @param p99Nanos p99 da janela, arredondado para o limite superior do bucket; 0 se vazia
+     */
+    public record Snapshot(long samples, long errors, long p99Nanos) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.dsena7.model;
+
+import java.util.Map;
+
+/**
+ * Resultado do processamento de um lote de consentimentos.
+ *
+ * @param failures Falhas indexadas por consentId; consentimentos ausentes foram processados com sucesso
+ */
+public record ConsentBatchResult(Map<String, RuntimeException> failures) {
+
+    public boolean isFailed(String consentId) {
+        return failures.containsKey(consentId);
+    }
+}
@@ -5,19 +5,27 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
-@Document(collection = "consent_entity")
+@Document(collection = ConsentEntity.COLLECTION)
+@CompoundIndex(name = "state_expiratedAt_id", def = "{'state': 1, 'expiratedAt': 1, '_id': 1}")
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class ConsentEntity {
 
+    public static final String COLLECTION = "consent_entity";
+    /**
+     * Consentimentos EXPIRED e REJECTED movidos pelo arquivamento; mesmo formato de documento e mesmo {@code _id}.
+     */
+    public static final String ARCHIVE_COLLECTION = "consent_entity_archive";
+
     @Id
     private String id;
 
@@ -0,0 +1,16 @@
+package com.dsena7.model;
+
+/**
+ * Resultado de um registro da carga em lote, emitido como uma linha NDJSON.
+ *
+ * @param index     Posição do registro no corpo da requisição, a partir de zero
+ * @param consentId Identificador do consentimento, quando presente no registro
+ * @param status    CREATED, INVALID ou FAILED
+ * @param error     Motivo da rejeição ou da falha de gravação
+ */
+public record ConsentIngestionRecordResult(long index, String consentId, Status status, String error) {
+
+    public enum Status {
+        CREATED, INVALID, FAILED
+    }
+}
@@ -0,0 +1,13 @@
+package com.dsena7.model;
+
+/**
+ * Totais da carga em lote, emitidos na última linha da resposta.
+ *
+ * @param received Registros lidos do corpo da requisição
+ * @param created  Registros gravados
+ * @param invalid  Registros rejeitados na validação
+ * @param failed   Registros válidos que falharam na gravação
+ * @param error    Erro que interrompeu a leitura do corpo, ou null se o corpo foi lido até o fim
+ */
+public record ConsentIngestionSummary(long received, long created, long invalid, long failed, String error) {
+}
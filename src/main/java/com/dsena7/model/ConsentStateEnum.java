@@ -4,5 +4,33 @@ import lombok.ToString;
 
 @ToString
 public enum ConsentStateEnum {
-    AUTHORISED, EXPIRED, REJECTED, AWAITING_AUTHORISATION
+    AUTHORISED(1), EXPIRED(2), REJECTED(3), AWAITING_AUTHORISATION(4);
+
+    private static final ConsentStateEnum[] BY_CODE = new ConsentStateEnum[values().length + 1];
+
+    static {
+        for (ConsentStateEnum state : values()) {
+            BY_CODE[state.code] = state;
+        }
+    }
+
+    /**
+     * Código fixo gravado no formato compacto de consent_entity; não depende da ordem de declaração.
+     */
+    private final int code;
+
+    ConsentStateEnum(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static ConsentStateEnum fromCode(int code) {
+        if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Código de estado desconhecido: " + code);
+        }
+        return BY_CODE[code];
+    }
 }
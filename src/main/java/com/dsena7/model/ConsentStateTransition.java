@@ -0,0 +1,16 @@
+package com.dsena7.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transição de estado de um consentimento a ser persistida de forma condicional.
+ *
+ * @param consentId Identificador do consentimento
+ * @param from      Estado esperado na base antes da transição
+ * @param to        Estado alvo
+ * @param event     Evento que levou ao estado alvo, registrado no journal
+ * @param at        Momento da transição, gravado em updateStatus
+ */
+public record ConsentStateTransition(String consentId, ConsentStateEnum from, ConsentStateEnum to, ConsentEventEnum event,
+                                     LocalDateTime at) {
+}
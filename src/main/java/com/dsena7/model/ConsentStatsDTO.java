@@ -0,0 +1,21 @@
+package com.dsena7.model;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * @param counts                Consentimentos por estado, somando todas as réplicas até o último flush
+ *                              e as alterações desta réplica ainda não gravadas
+ * @param transitionsLastMinute Transições por estado de destino no último minuto completo, nesta réplica
+ * @param transitionsPerMinute  Média de transições por minuto em {@code rateWindowMinutes}, nesta réplica
+ * @param rateWindowMinutes     Janela da média de transições
+ * @param flushedAt             Último flush dos contadores
+ * @param reconciledAt          Última reconciliação com a coleção consent_entity
+ */
+public record ConsentStatsDTO(Map<ConsentStateEnum, Long> counts,
+                              Map<ConsentStateEnum, Long> transitionsLastMinute,
+                              Map<ConsentStateEnum, Double> transitionsPerMinute,
+                              int rateWindowMinutes,
+                              LocalDateTime flushedAt,
+                              LocalDateTime reconciledAt) {
+}
@@ -0,0 +1,34 @@
+package com.dsena7.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Contagem de consentimentos por estado, mantida com {@code $inc} pelas réplicas e corrigida pela reconciliação.
+ */
+@Document(collection = "consent_stats")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConsentStatsEntity {
+
+    public static final String STATES_ID = "states";
+
+    @Id
+    private String id;
+
+    @Field("counts")
+    private Map<String, Long> counts;
+
+    @Field("reconciledAt")
+    private LocalDateTime reconciledAt;
+}
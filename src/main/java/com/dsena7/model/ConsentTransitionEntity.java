@@ -0,0 +1,43 @@
+package com.dsena7.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada do journal de transições: um consentimento que passou de {@code from} para {@code to}
+ * pelo evento {@code event}. Apenas inserida, nunca alterada.
+ */
+@Document(collection = "consent_transitions")
+@CompoundIndex(name = "consentId_at", def = "{'consentId': 1, 'at': 1}")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConsentTransitionEntity {
+
+    @Id
+    private String id;
+
+    @Field("consentId")
+    private String consentId;
+
+    @Field("from")
+    private ConsentStateEnum from;
+
+    @Field("to")
+    private ConsentStateEnum to;
+
+    @Field("event")
+    private ConsentEventEnum event;
+
+    @Field("at")
+    private LocalDateTime at;
+}
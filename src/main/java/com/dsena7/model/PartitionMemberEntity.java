@@ -0,0 +1,28 @@
+package com.dsena7.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réplica registrada para consumir as partições de consentimentos, com o último heartbeat.
+ */
+@Document(collection = "consent_partition_members")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PartitionMemberEntity {
+
+    @Id
+    private String id;
+
+    @Field("heartbeatAt")
+    private LocalDateTime heartbeatAt;
+}
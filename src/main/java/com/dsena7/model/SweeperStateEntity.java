@@ -0,0 +1,47 @@
+package com.dsena7.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease e watermark persistidos de uma varredura de expiração.
+ */
+@Document(collection = "consent_sweeper")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SweeperStateEntity {
+
+    @Id
+    private String id;
+
+    @Field("owner")
+    private String owner;
+
+    @Field("leaseUntil")
+    private LocalDateTime leaseUntil;
+
+    @Field("watermark")
+    private LocalDateTime watermark;
+
+    /**
+     * _id do último consentimento processado com expiratedAt igual ao watermark; null se todos já foram.
+     */
+    @Field("watermarkId")
+    private String watermarkId;
+
+    /**
+     * Início da última passada completa, que recomeça do início para alcançar consentimentos inseridos
+     * com expiratedAt anterior ao watermark.
+     */
+    @Field("catchUpAt")
+    private LocalDateTime catchUpAt;
+}
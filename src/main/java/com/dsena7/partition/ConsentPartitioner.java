@@ -0,0 +1,49 @@
+package com.dsena7.partition;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapeia cada consentId para uma de {@code consent.partitions.count} partições. O mapeamento depende
+ * apenas do consentId, então todos os eventos de um consentimento caem na mesma fila e são
+ * consumidos em ordem.
+ */
+@Component
+public class ConsentPartitioner {
+
+    public static final String EXCHANGE = "consent.partitioned";
+    private static final String QUEUE_PREFIX = "consent.queue.p";
+
+    private final boolean enabled;
+    private final int count;
+
+    public ConsentPartitioner(@Value("${consent.partitions.enabled:false}") boolean enabled,
+                              @Value("${consent.partitions.count:16}") int count) {
+        this.enabled = enabled;
+        this.count = count;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int partition(String consentId) {
+        int hash = consentId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), count);
+    }
+
+    /**
+     * Chave de roteamento na exchange {@value #EXCHANGE}, igual ao índice da partição.
+     */
+    public String routingKey(String consentId) {
+        return Integer.toString(partition(consentId));
+    }
+
+    public static String queueName(int partition) {
+        return QUEUE_PREFIX + partition;
+    }
+}
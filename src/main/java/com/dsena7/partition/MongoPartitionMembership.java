@@ -0,0 +1,53 @@
+package com.dsena7.partition;
+
+import com.dsena7.model.PartitionMemberEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Membros das partições persistidos na coleção consent_partition_members.
+ */
+@Component
+@ConditionalOnProperty(prefix = "consent.partitions", name = "enabled", havingValue = "true")
+public class MongoPartitionMembership implements PartitionMembership {
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration memberTtl;
+
+    public MongoPartitionMembership(MongoTemplate mongoTemplate,
+                                    @Value("${consent.partitions.member-ttl-ms:15000}") long memberTtlMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.memberTtl = Duration.ofMillis(memberTtlMillis);
+    }
+
+    @Override
+    public void heartbeat(String member) {
+        mongoTemplate.upsert(Query.query(where("id").is(member)),
+                new Update().set("heartbeatAt", LocalDateTime.now()), PartitionMemberEntity.class);
+    }
+
+    @Override
+    public Set<String> liveMembers() {
+        Query query = Query.query(where("heartbeatAt").gt(LocalDateTime.now().minus(memberTtl)));
+        query.fields().include("id");
+        return mongoTemplate.find(query, PartitionMemberEntity.class).stream()
+                .map(PartitionMemberEntity::getId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void leave(String member) {
+        mongoTemplate.remove(Query.query(where("id").is(member)), PartitionMemberEntity.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.dsena7.partition;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Atribuição de partições às réplicas por rendezvous hashing: cada partição pertence à réplica com
+ * o maior peso {@code hash(réplica, partição)}. Todas as réplicas chegam à mesma atribuição a partir
+ * da mesma lista de membros, sem coordenação, e a entrada ou saída de uma réplica só move as
+ * partições que ela ganha ou perde (cerca de 1/n do total).
+ */
+public final class PartitionAssignor {
+
+    private PartitionAssignor() {
+    }
+
+    /**
+     * @param member     Réplica para a qual a atribuição é calculada
+     * @param members    Réplicas vivas, incluindo {@code member}
+     * @param partitions Quantidade de partições
+     * @return Partições atribuídas a {@code member}
+     */
+    public static Set<Integer> assign(String member, Collection<String> members, int partitions) {
+        Set<Integer> owned = new TreeSet<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            if (member.equals(owner(members, partition))) {
+                owned.add(partition);
+            }
+        }
+        return owned;
+    }
+
+    static String owner(Collection<String> members, int partition) {
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String candidate : members) {
+            long weight = weight(candidate, partition);
+            if (owner == null || weight > best || (weight == best && candidate.compareTo(owner) < 0)) {
+                owner = candidate;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    private static long weight(String member, int partition) {
+        // Finalizador do SplitMix64 sobre o hash do membro combinado com a partição
+        long z = member.hashCode() * 0x9E3779B97F4A7C15L + partition;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,24 @@
+package com.dsena7.partition;
+
+import java.util.Set;
+
+/**
+ * Registro das réplicas vivas que consomem as partições.
+ */
+public interface PartitionMembership {
+
+    /**
+     * Registra ou renova a presença da réplica.
+     */
+    void heartbeat(String member);
+
+    /**
+     * @return Réplicas com heartbeat dentro do TTL de membros
+     */
+    Set<String> liveMembers();
+
+    /**
+     * Remove a réplica imediatamente, sem esperar o TTL.
+     */
+    void leave(String member);
+}
@@ -0,0 +1,134 @@
+package com.dsena7.partition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Distribui as partições entre as réplicas vivas. A cada heartbeat a réplica renova sua presença,
+ * recalcula pelo {@link PartitionAssignor} as partições que lhe cabem e ajusta as filas assinadas
+ * pelo container: primeiro libera as que perdeu, depois assina as que ganhou.
+ * <p>
+ * Durante um rebalanceamento duas réplicas podem assinar a mesma fila por um intervalo curto; como as
+ * filas são declaradas com single-active-consumer, o broker só entrega a um consumidor por vez e a
+ * ordem por consentimento é mantida.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.partitions", name = "enabled", havingValue = "true")
+public class PartitionedConsumerCoordinator {
+
+    private final PartitionMembership membership;
+    private final DirectMessageListenerContainer container;
+    private final int partitions;
+    private final String instanceId;
+    private final Set<Integer> owned = new TreeSet<>();
+
+    private final Counter rebalances;
+
+    public PartitionedConsumerCoordinator(PartitionMembership membership,
+                                          ConsentPartitioner partitioner,
+                                          @Qualifier("consentPartitionContainer") DirectMessageListenerContainer container,
+                                          MeterRegistry meterRegistry) {
+        this.membership = membership;
+        this.container = container;
+        this.partitions = partitioner.count();
+        this.instanceId = newInstanceId();
+
+        this.rebalances = meterRegistry.counter("consent.partitions.rebalances");
+        Gauge.builder("consent.partitions.owned", owned, Set::size).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${consent.partitions.heartbeat-ms:5000}")
+    public void rebalance() {
+        Set<String> members;
+        try {
+            membership.heartbeat(instanceId);
+            members = new HashSet<>(membership.liveMembers());
+        } catch (Exception e) {
+            // Sem acesso à lista de membros mantém as partições atuais até o próximo heartbeat
+            log.warn("Falha ao renovar presença da réplica {}: {}", instanceId, e.getMessage());
+            return;
+        }
+        members.add(instanceId);
+        apply(PartitionAssignor.assign(instanceId, members, partitions), members.size());
+    }
+
+    @PreDestroy
+    public void leave() {
+        synchronized (owned) {
+            if (!owned.isEmpty()) {
+                container.removeQueueNames(queueNames(owned));
+                owned.clear();
+            }
+        }
+        try {
+            membership.leave(instanceId);
+        } catch (Exception e) {
+            log.warn("Falha ao remover a réplica {} dos membros: {}", instanceId, e.getMessage());
+        }
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    public Set<Integer> ownedPartitions() {
+        synchronized (owned) {
+            return Set.copyOf(owned);
+        }
+    }
+
+    private void apply(Set<Integer> assigned, int memberCount) {
+        synchronized (owned) {
+            Set<Integer> released = new TreeSet<>(owned);
+            released.removeAll(assigned);
+            Set<Integer> acquired = new TreeSet<>(assigned);
+            acquired.removeAll(owned);
+            if (released.isEmpty() && acquired.isEmpty()) {
+                return;
+            }
+
+            if (!released.isEmpty()) {
+                container.removeQueueNames(queueNames(released));
+            }
+            if (!acquired.isEmpty()) {
+                container.addQueueNames(queueNames(acquired));
+            }
+            owned.removeAll(released);
+            owned.addAll(acquired);
+            if (!container.isRunning() && !owned.isEmpty()) {
+                container.start();
+            }
+            rebalances.increment();
+            log.info("Partições rebalanceadas entre {} réplicas: {} assume {}, libera {}",
+                    memberCount, instanceId, acquired, released);
+        }
+    }
+
+    private static String[] queueNames(Set<Integer> partitions) {
+        return partitions.stream().map(ConsentPartitioner::queueName).toArray(String[]::new);
+    }
+
+    private static String newInstanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.dsena7.publisher;
+
+import com.dsena7.exceptions.PublisherBackpressureException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.partition.ConsentPartitioner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica os eventos de consentimento em lotes, com publisher confirms assíncronos.
+ * <p>
+ * As requisições concorrentes apenas enfileiram seus eventos; uma thread dedicada agrupa até
+ * {@code batch-size} eventos (aguardando no máximo {@code linger-ms} pelo primeiro) e publica o lote
+ * em um único canal via {@link RabbitTemplate#invoke}, na fila consent.queue ou, com partições
+ * habilitadas, na partição do consentId. Cada mensagem leva um {@link CorrelationData}
+ * cujo confirm completa o {@link CompletableFuture} devolvido ao chamador.
+ * <p>
+ * No máximo {@code max-unconfirmed} mensagens ficam aguardando confirm; acima disso o chamador espera
+ * até {@code offer-timeout-ms} e recebe {@link PublisherBackpressureException}.
+ */
+@Component
+@Slf4j
+public class ConsentEventPublisher {
+
+    private static final String QUEUE = "consent.queue";
+    private static final String BACKPRESSURE = "Limite de %d mensagens sem confirmação atingido";
+    private static final MessagePostProcessor PUBLISHED_AT = message -> {
+        message.getMessageProperties().setHeader(ConsentMetrics.PUBLISHED_AT_HEADER, System.currentTimeMillis());
+        return message;
+    };
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ConsentPartitioner partitioner;
+    private final BlockingQueue<PendingEvent> pending;
+    private final Semaphore unconfirmed;
+    private final int maxUnconfirmed;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long offerTimeoutMillis;
+    private final boolean awaitConfirm;
+    private final long confirmTimeoutMillis;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
+
+    private final Counter confirmed;
+    private final Counter nacked;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+
+    public ConsentEventPublisher(RabbitTemplate rabbitTemplate,
+                                 ConsentPartitioner partitioner,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${consent.publisher.batch-size:256}") int batchSize,
+                                 @Value("${consent.publisher.linger-ms:2}") long lingerMillis,
+                                 @Value("${consent.publisher.max-unconfirmed:10000}") int maxUnconfirmed,
+                                 @Value("${consent.publisher.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                 @Value("${consent.publisher.await-confirm:true}") boolean awaitConfirm,
+                                 @Value("${consent.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMillis) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.partitioner = partitioner;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.maxUnconfirmed = maxUnconfirmed;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.awaitConfirm = awaitConfirm;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.unconfirmed = new Semaphore(maxUnconfirmed);
+        this.pending = new ArrayBlockingQueue<>(maxUnconfirmed);
+
+        this.confirmed = meterRegistry.counter("consent.publisher.messages", "result", "confirmed");
+        this.nacked = meterRegistry.counter("consent.publisher.messages", "result", "nacked");
+        this.rejected = meterRegistry.counter("consent.publisher.messages", "result", "rejected");
+        this.batchSizes = meterRegistry.summary("consent.publisher.batch.size");
+        Gauge.builder("consent.publisher.unconfirmed", unconfirmed, semaphore -> maxUnconfirmed - semaphore.availablePermits())
+                .register(meterRegistry);
+
+        this.publisherThread = new Thread(this::run, "consent-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+    }
+
+    /**
+     * Enfileira um evento para publicação.
+     *
+     * @param event Evento a ser publicado
+     * @return Future completado quando o broker confirma a mensagem, ou com erro em caso de nack
+     * @throws PublisherBackpressureException se o limite de mensagens sem confirmação for atingido
+     */
+    public CompletableFuture<Void> publish(OutboundConsentEvent event) {
+        return publishAll(List.of(event)).get(0);
+    }
+
+    /**
+     * Enfileira vários eventos; as permissões são reservadas de uma vez, então ou todos são aceitos
+     * ou nenhum é.
+     *
+     * @param events Eventos a serem publicados
+     * @return Um future por mensagem, na mesma ordem
+     * @throws PublisherBackpressureException se o limite de mensagens sem confirmação for atingido
+     */
+    public List<CompletableFuture<Void>> publishAll(List<OutboundConsentEvent> events) {
+        if (events.size() > maxUnconfirmed || !tryAcquire(events.size())) {
+            rejected.increment(events.size());
+            throw new PublisherBackpressureException(String.format(BACKPRESSURE, maxUnconfirmed));
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(events.size());
+        for (OutboundConsentEvent event : events) {
+            PendingEvent pendingEvent = new PendingEvent(event, new CompletableFuture<>());
+            // Cabe sempre: a fila tem a mesma capacidade do semáforo
+            pending.offer(pendingEvent);
+            futures.add(pendingEvent.future());
+        }
+        return futures;
+    }
+
+    /**
+     * Momento em que a publicação pode ser respondida ao cliente: após o confirm de todas as mensagens
+     * (limitado a {@code confirm-timeout-ms}) ou imediatamente, se {@code await-confirm} for false.
+     *
+     * @param futures Futures devolvidos por {@link #publishAll(List)}
+     * @return Future completado conforme a política configurada
+     */
+    public CompletableFuture<Void> acknowledgement(List<CompletableFuture<Void>> futures) {
+        if (!awaitConfirm) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .orTimeout(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        publisherThread.interrupt();
+    }
+
+    private boolean tryAcquire(int permits) {
+        try {
+            return unconfirmed.tryAcquire(permits, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingEvent first = pending.take();
+                batch.add(first);
+                if (lingerMillis > 0 && pending.size() < batchSize - 1) {
+                    Thread.sleep(lingerMillis);
+                }
+                pending.drainTo(batch, batchSize - 1);
+                publishBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publishBatch(List<PendingEvent> batch) {
+        batchSizes.record(batch.size());
+        int[] sent = {0};
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingEvent event : batch) {
+                    CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+                    if (partitioner.isEnabled()) {
+                        operations.convertAndSend(ConsentPartitioner.EXCHANGE, partitioner.routingKey(event.event().consentId()),
+                                event.event().payload(), PUBLISHED_AT, correlation);
+                    } else {
+                        operations.convertAndSend("", QUEUE, event.event().payload(), PUBLISHED_AT, correlation);
+                    }
+                    sent[0]++;
+                    correlation.getFuture().whenComplete((confirm, error) -> complete(event, confirm, error));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Falha ao publicar lote de {} eventos", batch.size(), e);
+        } finally {
+            // Eventos que não chegaram a ser enviados nunca receberão confirm
+            for (int i = sent[0]; i < batch.size(); i++) {
+                complete(batch.get(i), null, new IllegalStateException("Evento não publicado"));
+            }
+        }
+    }
+
+    private void complete(PendingEvent event, CorrelationData.Confirm confirm, Throwable error) {
+        unconfirmed.release();
+        if (error == null && confirm != null && confirm.isAck()) {
+            confirmed.increment();
+            event.future().complete(null);
+            return;
+        }
+        nacked.increment();
+        event.future().completeExceptionally(error != null ? error
+                : new IllegalStateException("Mensagem recusada pelo broker: " + (confirm != null ? confirm.getReason() : null)));
+    }
+
+    private record PendingEvent(OutboundConsentEvent event, CompletableFuture<Void> future) {
+    }
+}
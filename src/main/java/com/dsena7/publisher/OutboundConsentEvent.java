@@ -0,0 +1,10 @@
+package com.dsena7.publisher;
+
+/**
+ * Evento a ser publicado.
+ *
+ * @param consentId Identificador do consentimento, usado para rotear o evento à sua partição
+ * @param payload   Corpo da mensagem, convertido pelo MessageConverter do RabbitTemplate
+ */
+public record OutboundConsentEvent(String consentId, Object payload) {
+}
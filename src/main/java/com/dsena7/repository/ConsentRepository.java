@@ -4,9 +4,10 @@ import com.dsena7.model.ConsentEntity;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
-
+/**
+ * As buscas por consentId ficam em {@link ConsentRepositoryCustom}, que consulta o arquivo quando o
+ * consentimento não está mais em consent_entity.
+ */
 @Repository
-public interface ConsentRepository extends MongoRepository<ConsentEntity, String> {
-    Optional<ConsentEntity> findByConsentId(String consentId);
-}
\ No newline at end of file
+public interface ConsentRepository extends MongoRepository<ConsentEntity, String>, ConsentRepositoryCustom {
+}
@@ -0,0 +1,134 @@
+package com.dsena7.repository;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateTransition;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Operações de escrita que não são cobertas pelos métodos derivados do Spring Data.
+ * As escritas são condicionais: só alteram o documento se ele ainda estiver no estado de origem
+ * esperado, evitando que duas entregas do mesmo consentId (ou duas réplicas) apliquem a mesma transição.
+ * <p>
+ * As buscas por consentId olham primeiro consent_entity e, nos não encontrados, a coleção de arquivo
+ * {@value ConsentEntity#ARCHIVE_COLLECTION}.
+ */
+public interface ConsentRepositoryCustom {
+
+    /**
+     * Busca o consentimento em consent_entity e, se não encontrado, no arquivo.
+     *
+     * @param consentId Identificador do consentimento
+     * @return Consentimento encontrado em uma das coleções
+     */
+    Optional<ConsentEntity> findByConsentId(String consentId);
+
+    /**
+     * Busca os consentimentos em consent_entity e consulta o arquivo apenas para os que faltaram.
+     *
+     * @param consentIds Identificadores dos consentimentos
+     * @return Consentimentos encontrados, sem ordem definida
+     */
+    List<ConsentEntity> findByConsentIdIn(Collection<String> consentIds);
+
+    /**
+     * Aplica a transição com um único updateOne filtrando por consentId e estado de origem,
+     * alterando apenas {@code state} e {@code updateStatus}.
+     *
+     * @param transition Transição a ser aplicada
+     * @return false se nenhum documento estava no estado esperado (corrida perdida)
+     */
+    boolean applyTransition(ConsentStateTransition transition);
+
+    /**
+     * Aplica as transições em uma única escrita em lote não ordenada, com o mesmo filtro condicional
+     * de {@link #applyTransition(ConsentStateTransition)}.
+     *
+     * @param transitions Transições a serem aplicadas
+     * @return Quantidade de documentos que estavam no estado esperado
+     */
+    int applyTransitions(List<ConsentStateTransition> transitions);
+
+    /**
+     * Transições de uma escrita de {@link #applyTransitions(List)} que foram de fato aplicadas por ela. A escrita
+     * em lote informa apenas quantas casaram; se alguma perdeu a corrida, os documentos são relidos e ficam as
+     * transições cujo estado e updateStatus são os gravados pelo lote. Os instantes das transições devem estar
+     * truncados em milissegundos, a precisão de datas do MongoDB.
+     *
+     * @param transitions Transições enviadas na escrita em lote
+     * @param applied     Quantidade devolvida pela escrita
+     * @return Transições aplicadas, na ordem em que foram enviadas
+     */
+    List<ConsentStateTransition> findApplied(List<ConsentStateTransition> transitions, int applied);
+
+    /**
+     * Percorre com cursor, pelo índice (state, expiratedAt, _id), os consentimentos em estados não terminais
+     * do ciclo de vida em uso posteriores a (after, afterId) e com expiratedAt até upTo, em ordem de
+     * (expiratedAt, _id). O desempate pelo _id permite retomar no meio de um grupo de consentimentos com o
+     * mesmo expiratedAt sem pular nenhum. São projetados _id, consentId, state e os campos de data que as
+     * guardas podem comparar. O Stream deve ser fechado pelo chamador.
+     *
+     * @param after   expiratedAt do watermark
+     * @param afterId _id do watermark; null se todos com expiratedAt igual a after já foram processados
+     * @param upTo    Limite superior inclusivo
+     * @return Stream de entidades parciais
+     */
+    Stream<ConsentEntity> streamExpirationCandidates(LocalDateTime after, String afterId, LocalDateTime upTo);
+
+    /**
+     * Grava o consentimento no lugar do documento de consent_entity com o mesmo consentId, em um único
+     * findAndModify com upsert: os campos ausentes na entidade são removidos, como em um replaceOne, e o
+     * {@code _id} existente é mantido. Se o consentId não estava em consent_entity, a cópia que possa existir
+     * no arquivo é removida, para que o consentimento não fique nas duas coleções. Não há leitura prévia.
+     *
+     * @param entity Consentimento a gravar; recebe o {@code _id} do documento gravado
+     * @return Consentimento substituído, de consent_entity ou do arquivo; vazio se o consentId é novo
+     */
+    Optional<ConsentEntity> replaceByConsentId(ConsentEntity entity);
+
+    /**
+     * Insere os consentimentos com um único insertMany não ordenado: a falha de um documento não interrompe
+     * a gravação dos demais. Cada entidade gera um novo documento, sem a substituição por consentId do
+     * {@link #replaceByConsentId(ConsentEntity)}; consentId não tem índice único.
+     *
+     * @param entities Entidades a serem inseridas
+     * @return Mensagens de erro indexadas pela posição da entidade na lista; vazio se todas foram gravadas
+     */
+    Map<Integer, String> insertUnordered(List<ConsentEntity> entities);
+
+    /**
+     * Grava o estado alvo das transições sem o filtro de estado de origem, em uma única escrita em
+     * lote não ordenada. Usado apenas na reconstrução de estados a partir do journal de transições.
+     * Documentos criados ou alterados depois do instante da transição (por exemplo, recriados pelo
+     * {@code /save}) não são tocados.
+     *
+     * @param transitions Transições cujo estado alvo deve prevalecer
+     * @return Quantidade de documentos regravados
+     */
+    int overwriteStates(List<ConsentStateTransition> transitions);
+
+    /**
+     * Percorre com cursor, pelo índice (state, expiratedAt, _id), os consentimentos em estado terminal do ciclo
+     * de vida em uso com expiratedAt anterior a {@code expiredBefore}, em ordem de expiratedAt. O Stream deve ser fechado
+     * pelo chamador.
+     *
+     * @param expiredBefore Limite superior exclusivo
+     * @return Stream de entidades completas
+     */
+    Stream<ConsentEntity> streamArchivalCandidates(LocalDateTime expiredBefore);
+
+    /**
+     * Copia os consentimentos para o arquivo com replaceOne e upsert por {@code _id} e só então os remove
+     * de consent_entity, filtrando por {@code _id} e estado terminal. Repetir a operação após uma falha
+     * entre a cópia e a remoção não duplica documentos.
+     *
+     * @param entities Consentimentos terminais lidos de consent_entity
+     * @return Quantidade de documentos removidos de consent_entity
+     */
+    int archive(List<ConsentEntity> entities);
+}
@@ -0,0 +1,264 @@
+package com.dsena7.repository;
+
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.lifecycle.GuardField;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.storage.ConsentStorageFormat;
+import com.dsena7.storage.ConsentStorageLayout;
+import com.dsena7.storage.SortedStreams;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ConsentRepositoryCustomImpl implements ConsentRepositoryCustom {
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final String CLASS_FIELD = "_class";
+
+    private final MongoTemplate mongoTemplate;
+    private final ConsentStorageFormat storageFormat;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+
+    @Override
+    public Optional<ConsentEntity> findByConsentId(String consentId) {
+        Query query = Query.query(storageFormat.match(layout -> layout.byConsentId(consentId)));
+        ConsentEntity entity = mongoTemplate.findOne(query, ConsentEntity.class);
+        if (entity == null) {
+            entity = mongoTemplate.findOne(query, ConsentEntity.class, ConsentEntity.ARCHIVE_COLLECTION);
+        }
+        return Optional.ofNullable(entity);
+    }
+
+    @Override
+    public List<ConsentEntity> findByConsentIdIn(Collection<String> consentIds) {
+        List<ConsentEntity> found = new ArrayList<>(mongoTemplate.find(
+                Query.query(storageFormat.match(layout -> layout.byConsentIds(consentIds))), ConsentEntity.class));
+        if (found.size() < consentIds.size()) {
+            Set<String> missing = new HashSet<>(consentIds);
+            found.forEach(entity -> missing.remove(entity.getConsentId()));
+            if (!missing.isEmpty()) {
+                found.addAll(mongoTemplate.find(Query.query(storageFormat.match(layout -> layout.byConsentIds(missing))),
+                        ConsentEntity.class, ConsentEntity.ARCHIVE_COLLECTION));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean applyTransition(ConsentStateTransition transition) {
+        // Durante a migração o documento está em um dos formatos; o de escrita é tentado primeiro
+        for (ConsentStorageLayout layout : storageFormat.layouts()) {
+            if (mongoTemplate.updateFirst(expectedState(layout, transition), targetState(layout, transition),
+                    ConsentEntity.class).getMatchedCount() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int applyTransitions(List<ConsentStateTransition> transitions) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsentEntity.class);
+        for (ConsentStateTransition transition : transitions) {
+            for (ConsentStorageLayout layout : storageFormat.layouts()) {
+                bulk.updateOne(expectedState(layout, transition), targetState(layout, transition));
+            }
+        }
+        return bulk.execute().getMatchedCount();
+    }
+
+    @Override
+    public List<ConsentStateTransition> findApplied(List<ConsentStateTransition> transitions, int applied) {
+        if (applied >= transitions.size()) {
+            return transitions;
+        }
+        if (applied == 0) {
+            return List.of();
+        }
+        Map<String, ConsentEntity> current = new HashMap<>();
+        findByConsentIdIn(transitions.stream().map(ConsentStateTransition::consentId).toList())
+                .forEach(entity -> current.put(entity.getConsentId(), entity));
+        List<ConsentStateTransition> found = new ArrayList<>(applied);
+        for (ConsentStateTransition transition : transitions) {
+            ConsentEntity entity = current.get(transition.consentId());
+            if (entity != null && entity.getState() == transition.to() && transition.at().equals(entity.getUpdateStatus())) {
+                found.add(transition);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Stream<ConsentEntity> streamExpirationCandidates(LocalDateTime after, String afterId, LocalDateTime upTo) {
+        Set<ConsentStateEnum> activeStates = lifecycleRegistry.current().activeStates();
+        return streamByExpiration(layout -> {
+            Criteria range = afterId == null
+                    ? where(layout.expiratedAt()).gt(after).lte(upTo)
+                    : new Criteria().orOperator(
+                            where(layout.expiratedAt()).gt(after).lte(upTo),
+                            where(layout.expiratedAt()).is(after).and("_id").gt(afterId));
+            Query query = Query.query(layout.byStates(activeStates).andOperator(range));
+            // As guardas do ciclo de vida podem comparar qualquer um dos campos de data
+            query.fields().include(layout.consentId(), layout.state());
+            for (GuardField field : GuardField.values()) {
+                query.fields().include(layout.field(field));
+            }
+            return query;
+        });
+    }
+
+    @Override
+    public Optional<ConsentEntity> replaceByConsentId(ConsentEntity entity) {
+        Query query = Query.query(storageFormat.match(layout -> layout.byConsentId(entity.getConsentId())));
+        ObjectId insertedId = new ObjectId();
+        ConsentEntity previous = mongoTemplate.findAndModify(query, replacement(entity, insertedId),
+                FindAndModifyOptions.options().upsert(true).returnNew(false), ConsentEntity.class);
+        if (previous != null) {
+            entity.setId(previous.getId());
+            return Optional.of(previous);
+        }
+        entity.setId(insertedId.toHexString());
+        return Optional.ofNullable(mongoTemplate.findAndRemove(query, ConsentEntity.class, ConsentEntity.ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<ConsentEntity> entities) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsentEntity.class)
+                    .insert(entities)
+                    .execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<Integer, String> failures = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error.getMessage());
+            }
+            return failures;
+        }
+    }
+
+    @Override
+    public int overwriteStates(List<ConsentStateTransition> transitions) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsentEntity.class);
+        for (ConsentStateTransition transition : transitions) {
+            for (ConsentStorageLayout layout : storageFormat.layouts()) {
+                bulk.updateOne(notNewerThan(layout, transition), targetState(layout, transition));
+            }
+        }
+        return bulk.execute().getMatchedCount();
+    }
+
+    @Override
+    public Stream<ConsentEntity> streamArchivalCandidates(LocalDateTime expiredBefore) {
+        Set<ConsentStateEnum> terminalStates = lifecycleRegistry.current().terminalStates();
+        return streamByExpiration(layout ->
+                Query.query(layout.byStates(terminalStates).and(layout.expiratedAt()).lt(expiredBefore)));
+    }
+
+    @Override
+    public int archive(List<ConsentEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsentEntity.class,
+                ConsentEntity.ARCHIVE_COLLECTION);
+        List<String> ids = new ArrayList<>(entities.size());
+        for (ConsentEntity entity : entities) {
+            copy.replaceOne(Query.query(where("id").is(entity.getId())), entity, FindAndReplaceOptions.options().upsert());
+            ids.add(entity.getId());
+        }
+        copy.execute();
+        // A remoção só alcança documentos ainda terminais; o arquivo já tem a cópia de todos eles
+        Set<ConsentStateEnum> terminalStates = lifecycleRegistry.current().terminalStates();
+        Query archived = Query.query(where("id").in(ids)
+                .andOperator(storageFormat.match(layout -> layout.byStates(terminalStates))));
+        return (int) mongoTemplate.remove(archived, ConsentEntity.class).getDeletedCount();
+    }
+
+    /**
+     * Cursor por formato, cada um pelo seu índice (state, expiratedAt, _id) e em ordem de (expiratedAt, _id).
+     * Durante a migração os cursores são intercalados, preservando a ordem de que o watermark da varredura depende.
+     */
+    private Stream<ConsentEntity> streamByExpiration(Function<ConsentStorageLayout, Query> queryFor) {
+        List<Stream<ConsentEntity>> streams = new ArrayList<>(storageFormat.layouts().size());
+        for (ConsentStorageLayout layout : storageFormat.layouts()) {
+            Query query = queryFor.apply(layout)
+                    .with(Sort.by(Sort.Direction.ASC, layout.expiratedAt(), "_id"))
+                    .withHint(layout.expirationIndex())
+                    .cursorBatchSize(CURSOR_BATCH_SIZE);
+            streams.add(mongoTemplate.stream(query, ConsentEntity.class));
+        }
+        Comparator<ConsentEntity> order = Comparator.comparing(ConsentEntity::getExpiratedAt,
+                Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())).thenComparing(ConsentEntity::getId);
+        return streams.size() == 1 ? streams.get(0) : SortedStreams.merge(streams, order);
+    }
+
+    /**
+     * Update equivalente a um replaceOne do documento gravado para a entidade no formato de escrita. Durante a
+     * migração o documento substituído pode estar no outro formato, então os campos dos dois formatos que a
+     * entidade não tem são removidos.
+     */
+    private Update replacement(ConsentEntity entity, ObjectId insertedId) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entity, document);
+        document.remove("_id");
+        Update update = new Update();
+        document.forEach(update::set);
+        for (ConsentStorageLayout layout : ConsentStorageLayout.values()) {
+            for (String field : List.of(layout.consentId(), layout.state(), layout.updateStatus(),
+                    layout.createdAt(), layout.expiratedAt())) {
+                if (!document.containsKey(field)) {
+                    update.unset(field);
+                }
+            }
+        }
+        if (!document.containsKey(CLASS_FIELD)) {
+            update.unset(CLASS_FIELD);
+        }
+        return update.setOnInsert("_id", insertedId);
+    }
+
+    private static Query expectedState(ConsentStorageLayout layout, ConsentStateTransition transition) {
+        return Query.query(layout.byConsentIdAndState(transition.consentId(), transition.from()));
+    }
+
+    private static Query notNewerThan(ConsentStorageLayout layout, ConsentStateTransition transition) {
+        return Query.query(layout.byConsentId(transition.consentId()).andOperator(
+                where(layout.createdAt()).lte(transition.at()),
+                new Criteria().orOperator(
+                        where(layout.updateStatus()).is(null),
+                        where(layout.updateStatus()).lte(transition.at()))));
+    }
+
+    private static Update targetState(ConsentStorageLayout layout, ConsentStateTransition transition) {
+        return layout.transition(transition.to(), transition.at());
+    }
+}
@@ -0,0 +1,13 @@
+package com.dsena7.repository;
+
+import com.dsena7.model.ConsentEntity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Versão reativa de {@link ConsentRepository}, usada pelo pipeline não bloqueante
+ * ({@code consent.consumer.mode=reactive}).
+ */
+@Repository
+public interface ReactiveConsentRepository extends ReactiveMongoRepository<ConsentEntity, String>, ReactiveConsentRepositoryCustom {
+}
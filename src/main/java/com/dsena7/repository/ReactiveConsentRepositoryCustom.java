@@ -0,0 +1,29 @@
+package com.dsena7.repository;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateTransition;
+import reactor.core.publisher.Mono;
+
+/**
+ * Escritas condicionais do {@link ReactiveConsentRepository}, com a mesma semântica de
+ * {@link ConsentRepositoryCustom#applyTransition(ConsentStateTransition)}.
+ */
+public interface ReactiveConsentRepositoryCustom {
+
+    /**
+     * Busca o consentimento em consent_entity e, se não encontrado, no arquivo, como
+     * {@link ConsentRepositoryCustom#findByConsentId(String)}.
+     *
+     * @param consentId Identificador do consentimento
+     * @return Mono vazio se o consentimento não existe em nenhuma das coleções
+     */
+    Mono<ConsentEntity> findByConsentId(String consentId);
+
+    /**
+     * Aplica a transição com um único updateOne filtrando por consentId e estado de origem.
+     *
+     * @param transition Transição a ser aplicada
+     * @return Mono com false se nenhum documento estava no estado esperado (corrida perdida)
+     */
+    Mono<Boolean> applyTransition(ConsentStateTransition transition);
+}
@@ -0,0 +1,40 @@
+package com.dsena7.repository;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.storage.ConsentStorageFormat;
+import com.dsena7.storage.ConsentStorageLayout;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveConsentRepositoryCustomImpl implements ReactiveConsentRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final ConsentStorageFormat storageFormat;
+
+    @Override
+    public Mono<ConsentEntity> findByConsentId(String consentId) {
+        Query query = Query.query(storageFormat.match(layout -> layout.byConsentId(consentId)));
+        return reactiveMongoTemplate.findOne(query, ConsentEntity.class)
+                .switchIfEmpty(Mono.defer(() ->
+                        reactiveMongoTemplate.findOne(query, ConsentEntity.class, ConsentEntity.ARCHIVE_COLLECTION)));
+    }
+
+    @Override
+    public Mono<Boolean> applyTransition(ConsentStateTransition transition) {
+        // Um formato por vez, parando no primeiro que encontrar o documento no estado esperado
+        return Flux.fromIterable(storageFormat.layouts())
+                .concatMap(layout -> apply(layout, transition))
+                .any(applied -> applied);
+    }
+
+    private Mono<Boolean> apply(ConsentStorageLayout layout, ConsentStateTransition transition) {
+        Query query = Query.query(layout.byConsentIdAndState(transition.consentId(), transition.from()));
+        return reactiveMongoTemplate.updateFirst(query, layout.transition(transition.to(), transition.at()), ConsentEntity.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+}
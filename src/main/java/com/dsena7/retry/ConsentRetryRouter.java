@@ -0,0 +1,165 @@
+package com.dsena7.retry;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.exceptions.InvalidConsentStateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retry sem espera do atraso na thread do consumidor. Uma mensagem que falhou é republicada na fila de espera
+ * da próxima faixa de {@code delays-ms}; a fila tem TTL igual ao atraso e, ao expirar, devolve a
+ * mensagem pela exchange padrão para a fila de origem, usando como routing key o nome dessa fila.
+ * Esgotadas as faixas, ou se a falha não admite retry, a mensagem vai para a DLQ.
+ * <p>
+ * O número da tentativa segue no header {@value #ATTEMPT_HEADER}, a fila de origem em
+ * {@value #ORIGIN_HEADER} e a última falha em {@value #ERROR_HEADER}. O chamador deve confirmar a
+ * entrega original somente depois que este roteador retornar.
+ * <p>
+ * A republicação aguarda o confirm do broker na thread do chamador, por até {@code confirm-timeout-ms}. O
+ * confirm costuma chegar em poucos milissegundos; o limite curto evita que um broker lento prenda a thread
+ * do consumidor, e sem confirmação a entrega original volta para a fila.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.retry", name = "enabled", havingValue = "true")
+public class ConsentRetryRouter {
+
+    public static final String ATTEMPT_HEADER = "x-consent-attempt";
+    public static final String ORIGIN_HEADER = "x-consent-origin-queue";
+    public static final String ERROR_HEADER = "x-consent-last-error";
+    private static final String TIER_PREFIX = "consent.retry.";
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    public enum Outcome {RETRY, DEAD_LETTER}
+
+    private final RabbitTemplate rabbitTemplate;
+    private final List<Long> delaysMillis;
+    private final String deadLetterQueue;
+    private final long confirmTimeoutMillis;
+
+    private final List<Counter> retried;
+    private final Counter deadLettered;
+    private final Counter nonRetryable;
+
+    public ConsentRetryRouter(RabbitTemplate rabbitTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${consent.retry.delays-ms:2000,3000,5000}") List<Long> delaysMillis,
+                              @Value("${consent.retry.dead-letter-queue:consent.dlq}") String deadLetterQueue,
+                              @Value("${consent.retry.confirm-timeout-ms:500}") long confirmTimeoutMillis) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.delaysMillis = List.copyOf(delaysMillis);
+        this.deadLetterQueue = deadLetterQueue;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+
+        this.retried = this.delaysMillis.stream()
+                .map(delay -> meterRegistry.counter("consent.retry.messages", "destination", tierName(delay)))
+                .toList();
+        this.deadLettered = meterRegistry.counter("consent.retry.messages", "destination", "dlq");
+        this.nonRetryable = meterRegistry.counter("consent.retry.non.retryable");
+    }
+
+    public List<Long> delaysMillis() {
+        return delaysMillis;
+    }
+
+    public String deadLetterQueue() {
+        return deadLetterQueue;
+    }
+
+    /**
+     * Nome da exchange e da fila de espera de uma faixa, por exemplo {@code consent.retry.2000ms}.
+     */
+    public static String tierName(long delayMillis) {
+        return TIER_PREFIX + delayMillis + "ms";
+    }
+
+    /**
+     * Republica uma entrega que falhou na próxima faixa de espera ou na DLQ.
+     *
+     * @param message Mensagem recebida; os headers de retry são atualizados nela
+     * @param queue   Fila de onde a mensagem foi consumida, para onde ela volta após o atraso
+     * @param failure Falha do processamento
+     * @return Destino da mensagem
+     * @throws AmqpException se o broker não confirmar a republicação
+     */
+    public Outcome route(Message message, String queue, Throwable failure) {
+        MessageProperties properties = message.getMessageProperties();
+        int attempt = attempt(properties);
+        String origin = properties.getHeader(ORIGIN_HEADER) instanceof String header ? header : queue;
+        properties.setHeader(ORIGIN_HEADER, origin);
+        properties.setHeader(ERROR_HEADER, describe(failure));
+
+        boolean retryable = isRetryable(failure);
+        if (retryable && attempt < delaysMillis.size()) {
+            long delay = delaysMillis.get(attempt);
+            properties.setHeader(ATTEMPT_HEADER, attempt + 1);
+            send(tierName(delay), origin, message);
+            retried.get(attempt).increment();
+            log.info("Mensagem da fila {} reagendada em {} ms (tentativa {})", origin, delay, attempt + 1);
+            return Outcome.RETRY;
+        }
+
+        if (!retryable) {
+            nonRetryable.increment();
+        }
+        send("", deadLetterQueue, message);
+        deadLettered.increment();
+        log.warn("Mensagem da fila {} enviada para {} após {} tentativa(s): {}", origin, deadLetterQueue,
+                attempt + 1, failure.getMessage());
+        return Outcome.DEAD_LETTER;
+    }
+
+    /**
+     * Falhas determinísticas (payload inválido, consentimento em estado inválido) não mudam em uma
+     * nova tentativa.
+     */
+    public static boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidConsentStateException || cause instanceof ConsentCodecException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void send(String exchange, String routingKey, Message message) {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.send(exchange, routingKey, message, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Republicação interrompida", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("Republicação sem confirmação em " + exchange + "/" + routingKey, e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("Republicação recusada pelo broker em " + exchange + "/" + routingKey
+                    + ": " + confirm.getReason());
+        }
+    }
+
+    private static int attempt(MessageProperties properties) {
+        return properties.getHeader(ATTEMPT_HEADER) instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static String describe(Throwable failure) {
+        String description = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+}
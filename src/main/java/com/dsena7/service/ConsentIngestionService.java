@@ -0,0 +1,21 @@
+package com.dsena7.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Carga em lote de consentimentos a partir de um corpo NDJSON ou array JSON.
+ */
+public interface ConsentIngestionService {
+
+    /**
+     * Lê os registros de forma incremental, valida cada um e grava em lotes, escrevendo em
+     * {@code output} uma linha NDJSON por registro e uma linha final com os totais.
+     *
+     * @param input  Corpo da requisição
+     * @param output Corpo da resposta
+     * @throws IOException se a resposta não puder ser escrita
+     */
+    void ingest(InputStream input, OutputStream output) throws IOException;
+}
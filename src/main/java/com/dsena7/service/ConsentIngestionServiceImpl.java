@@ -0,0 +1,207 @@
+package com.dsena7.service;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentDTO;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentIngestionRecordResult;
+import com.dsena7.model.ConsentIngestionRecordResult.Status;
+import com.dsena7.model.ConsentIngestionSummary;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
+import com.dsena7.utils.ConsentValidationUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carga em lote com memória limitada: o corpo é lido registro a registro pelo {@link MappingIterator}
+ * (um array JSON na raiz é desembrulhado; caso contrário os objetos são lidos em sequência, como NDJSON),
+ * e apenas {@code chunk-size} entidades ficam em memória antes de cada insertMany não ordenado.
+ * Os resultados são escritos e enviados ao cliente a cada lote gravado.
+ */
+@Service
+@Slf4j
+public class ConsentIngestionServiceImpl implements ConsentIngestionService {
+
+    private static final String INVALID_CONSENT_ID = "consentId não pode ser vazio ou nulo";
+
+    private final ConsentRepository consentRepository;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final ObjectProvider<ConsentExpirationTimer> expirationTimer;
+    private final ObjectProvider<ConsentStateCache> stateCache;
+    private final ObjectProvider<ConsentStateCounters> stateCounters;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    private final Counter created;
+    private final Counter invalid;
+    private final Counter failed;
+
+    public ConsentIngestionServiceImpl(ConsentRepository consentRepository,
+                                       ConsentLifecycleRegistry lifecycleRegistry,
+                                       ObjectProvider<ConsentExpirationTimer> expirationTimer,
+                                       ObjectProvider<ConsentStateCache> stateCache,
+                                       ObjectProvider<ConsentStateCounters> stateCounters,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${consent.ingestion.chunk-size:1000}") int chunkSize) {
+        this.consentRepository = consentRepository;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.expirationTimer = expirationTimer;
+        this.stateCache = stateCache;
+        this.stateCounters = stateCounters;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+
+        this.created = meterRegistry.counter("consent.ingestion.records", "status", Status.CREATED.name());
+        this.invalid = meterRegistry.counter("consent.ingestion.records", "status", Status.INVALID.name());
+        this.failed = meterRegistry.counter("consent.ingestion.records", "status", Status.FAILED.name());
+    }
+
+    @Override
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.setRootValueSeparator(null);
+        Ingestion ingestion = new Ingestion(generator);
+        String error = null;
+
+        try (MappingIterator<JsonNode> records = objectMapper.readerFor(JsonNode.class).readValues(input)) {
+            while (records.hasNextValue()) {
+                ingestion.accept(records.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            // Erro de sintaxe: não há como localizar o próximo registro com segurança
+            error = "Corpo inválido após " + ingestion.received + " registros: " + e.getOriginalMessage();
+            log.warn("Carga em lote interrompida: {}", error);
+        }
+
+        ingestion.flushChunk();
+        ingestion.finish(error);
+    }
+
+    /**
+     * Estado de uma carga: o lote pendente e os totais.
+     */
+    private final class Ingestion {
+
+        private final JsonGenerator generator;
+        private final List<ConsentEntity> chunk = new ArrayList<>(chunkSize);
+        private final List<Long> chunkIndexes = new ArrayList<>(chunkSize);
+        private long received;
+        private long createdCount;
+        private long invalidCount;
+        private long failedCount;
+
+        private Ingestion(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        private void accept(JsonNode node) throws IOException {
+            long index = received++;
+            ConsentEntity entity;
+            try {
+                ConsentDTO dto = objectMapper.treeToValue(node, ConsentDTO.class);
+                if (dto == null || dto.consentId() == null || dto.consentId().isBlank()) {
+                    throw new IllegalArgumentException(INVALID_CONSENT_ID);
+                }
+                LocalDateTime now = LocalDateTime.now();
+                entity = ConsentEntity.builder()
+                        .consentId(dto.consentId())
+                        .state(dto.state())
+                        .createdAt(now)
+                        .expiratedAt(now.plusMinutes(1))
+                        .build();
+                ConsentValidationUtils.validateConsentState(lifecycleRegistry.current(), entity);
+            } catch (JsonProcessingException | RuntimeException e) {
+                invalidCount++;
+                invalid.increment();
+                JsonNode consentId = node.get("consentId");
+                write(new ConsentIngestionRecordResult(index, consentId != null ? consentId.asText() : null,
+                        Status.INVALID, e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage()));
+                return;
+            }
+
+            chunk.add(entity);
+            chunkIndexes.add(index);
+            if (chunk.size() >= chunkSize) {
+                flushChunk();
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Map<Integer, String> failures;
+            try {
+                failures = consentRepository.insertUnordered(chunk);
+            } catch (RuntimeException e) {
+                log.error("Erro ao gravar lote de {} consentimentos", chunk.size(), e);
+                failures = null;
+            }
+
+            ConsentExpirationTimer timer = expirationTimer.getIfAvailable();
+            ConsentStateCache cache = stateCache.getIfAvailable();
+            ConsentStateCounters counters = stateCounters.getIfAvailable();
+            for (int i = 0; i < chunk.size(); i++) {
+                ConsentEntity entity = chunk.get(i);
+                String failure = failures == null ? "Erro ao gravar lote" : failures.get(i);
+                if (failure != null) {
+                    failedCount++;
+                    failed.increment();
+                    write(new ConsentIngestionRecordResult(chunkIndexes.get(i), entity.getConsentId(), Status.FAILED, failure));
+                    continue;
+                }
+                createdCount++;
+                created.increment();
+                if (timer != null) {
+                    timer.schedule(entity);
+                }
+                if (cache != null) {
+                    cache.evict(entity.getConsentId());
+                }
+                if (counters != null) {
+                    counters.inserted(entity.getState());
+                }
+                write(new ConsentIngestionRecordResult(chunkIndexes.get(i), entity.getConsentId(), Status.CREATED, null));
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+            generator.flush();
+        }
+
+        private void finish(String error) throws IOException {
+            generator.writeStartObject();
+            generator.writePOJOField("summary",
+                    new ConsentIngestionSummary(received, createdCount, invalidCount, failedCount, error));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+            log.info("Carga em lote concluída: {} recebidos, {} gravados, {} inválidos, {} com falha",
+                    received, createdCount, invalidCount, failedCount);
+        }
+
+        private void write(ConsentIngestionRecordResult result) throws IOException {
+            generator.writePOJO(result);
+            generator.writeRaw('\n');
+        }
+    }
+}
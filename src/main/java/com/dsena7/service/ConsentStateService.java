@@ -1,5 +1,11 @@
 package com.dsena7.service;
 
+import com.dsena7.model.ConsentBatchResult;
+
+import java.util.Collection;
+
 public interface ConsentStateService {
     void processConsent(String consentId) throws IllegalAccessException;
+
+    ConsentBatchResult processConsents(Collection<String> consentIds);
 }
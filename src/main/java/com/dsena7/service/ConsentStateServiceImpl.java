@@ -1,27 +1,43 @@
 package com.dsena7.service;
 
+import com.dsena7.cache.ConsentStateCache;
 import com.dsena7.exceptions.EntityNotFoundException;
 import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.model.ConsentBatchResult;
 import com.dsena7.model.ConsentEntity;
 import com.dsena7.model.ConsentEventEnum;
 import com.dsena7.model.ConsentIdRequestDTO;
 import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
 import com.dsena7.repository.ConsentRepository;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
 import com.dsena7.utils.ConsentValidationUtils;
 import jakarta.persistence.PersistenceException;
 import jakarta.validation.constraints.NotBlank;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.statemachine.StateMachine;
-import org.springframework.statemachine.config.StateMachineFactory;
-import org.springframework.statemachine.support.DefaultStateMachineContext;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
-import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Serviço responsável por gerenciar as transições de estado dos consentimentos.
@@ -30,7 +46,6 @@ import java.util.Optional;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 @Validated
 public class ConsentStateServiceImpl implements ConsentStateService {
 
@@ -40,16 +55,40 @@ public class ConsentStateServiceImpl implements ConsentStateService {
     private static final String CONSENT_NOT_FOUND = "Consentimento não encontrado: %s";
     private static final String SAVE_ERROR = "Erro ao salvar alteração de estado do consentimento";
 
-    private final StateMachineFactory<ConsentStateEnum, ConsentEventEnum> factory;
+    private final ConsentTransitionEngine transitionEngine;
     private final ConsentRepository consentRepository;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final ObjectProvider<ConsentExpirationTimer> expirationTimer;
+    private final ObjectProvider<ConsentStateCache> stateCache;
+    private final ObjectProvider<ConsentTransitionJournal> journal;
+    private final ObjectProvider<ConsentStateCounters> stateCounters;
+    private final ConsentMetrics consentMetrics;
+
+    public ConsentStateServiceImpl(ConsentTransitionEngine transitionEngine,
+                                   ConsentRepository consentRepository,
+                                   ConsentLifecycleRegistry lifecycleRegistry,
+                                   ObjectProvider<ConsentExpirationTimer> expirationTimer,
+                                   ObjectProvider<ConsentStateCache> stateCache,
+                                   ObjectProvider<ConsentTransitionJournal> journal,
+                                   ObjectProvider<ConsentStateCounters> stateCounters,
+                                   ConsentMetrics consentMetrics) {
+        this.transitionEngine = transitionEngine;
+        this.consentRepository = consentRepository;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.expirationTimer = expirationTimer;
+        this.stateCache = stateCache;
+        this.journal = journal;
+        this.stateCounters = stateCounters;
+        this.consentMetrics = consentMetrics;
+    }
 
     /**
-     * Processa um consentimento, realizando a transição de estado de AUTHORISED para EXPIRED.
+     * Processa um consentimento, realizando a transição de estado definida no ciclo de vida em uso.
      *
      * @param consentId Identificador único do consentimento
      * @throws IllegalArgumentException        se o consentId for nulo ou vazio
      * @throws EntityNotFoundException         se o consentimento não for encontrado
-     * @throws IllegalStateException           se o consentimento não estiver no estado AUTHORISED
+     * @throws IllegalStateException           se o consentimento estiver em estado terminal ou não declarado
      * @throws StateMachineTransitionException se houver erro na transição de estado
      */
     @Override
@@ -58,18 +97,163 @@ public class ConsentStateServiceImpl implements ConsentStateService {
 
         ConsentIdRequestDTO consentIdRequestDTO = new ConsentIdRequestDTO(consentId);
 
-        ConsentEntity entity = findConsent(consentIdRequestDTO);
-        ConsentValidationUtils.validateConsentState(entity);
-        processStateMachineTransition(entity);
+        long started = System.nanoTime();
+        ConsentEntity entity;
+        try {
+            entity = findConsent(consentIdRequestDTO);
+        } catch (RuntimeException e) {
+            consentMetrics.record(Stage.FIND, null, Outcome.FAILURE, started);
+            consentMetrics.failure(e instanceof EntityNotFoundException ? FailureReason.NOT_FOUND : FailureReason.PERSISTENCE);
+            throw e;
+        }
+        consentMetrics.record(Stage.FIND, null, Outcome.SUCCESS, started);
+
+        // Uma única leitura da definição por mensagem: uma recarga concorrente vale a partir da próxima
+        ConsentLifecycle lifecycle = lifecycleRegistry.current();
+        try {
+            ConsentValidationUtils.validateConsentState(lifecycle, entity);
+        } catch (StateMachineTransitionException e) {
+            consentMetrics.failure(FailureReason.INVALID_STATE);
+            throw e;
+        }
+        processStateMachineTransition(lifecycle, entity);
+    }
+
+    /**
+     * Processa um lote de consentimentos com uma única consulta {@code $in} por consentId e uma
+     * única escrita em lote não ordenada. Falhas são reportadas por consentimento, sem interromper o lote.
+     *
+     * @param consentIds Identificadores dos consentimentos do lote
+     * @return Resultado do lote com as falhas indexadas por consentId
+     */
+    @Override
+    public ConsentBatchResult processConsents(Collection<String> consentIds) {
+        Set<String> distinctIds = new LinkedHashSet<>(consentIds);
+        log.info("Processando lote com {} consentimentos", distinctIds.size());
+
+        // Consentimentos terminais em cache são validados (e rejeitados) sem entrar na consulta $in
+        Map<String, ConsentEntity> entities = new HashMap<>();
+        ConsentStateCache cache = stateCache.getIfAvailable();
+        Set<String> uncachedIds = distinctIds;
+        if (cache != null) {
+            uncachedIds = new LinkedHashSet<>();
+            for (String consentId : distinctIds) {
+                ConsentEntity cached = cache.get(consentId);
+                if (cached != null) {
+                    entities.put(consentId, cached);
+                } else {
+                    uncachedIds.add(consentId);
+                }
+            }
+        }
+        if (!uncachedIds.isEmpty()) {
+            for (ConsentEntity entity : consentRepository.findByConsentIdIn(uncachedIds)) {
+                if (entities.putIfAbsent(entity.getConsentId(), entity) == null && cache != null) {
+                    cache.put(entity.getConsentId(), entity.getState());
+                }
+            }
+        }
+
+        Map<String, RuntimeException> failures = new HashMap<>();
+        List<ConsentStateTransition> transitions = new ArrayList<>();
+        // Precisão de datas do MongoDB, para o journal reconhecer as transições gravadas por este lote
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        ConsentLifecycle lifecycle = lifecycleRegistry.current();
 
-        log.info(TRANSITION_SUCCESS_MESSAGE, consentId, entity.getState());
+        for (String consentId : distinctIds) {
+            ConsentEntity entity = entities.get(consentId);
+            if (entity == null) {
+                failures.put(consentId, new EntityNotFoundException(String.format(CONSENT_NOT_FOUND, consentId)));
+                continue;
+            }
+            try {
+                ConsentValidationUtils.validateConsentState(lifecycle, entity);
+                ConsentEventEnum event = lifecycle.resolveEvent(entity, now);
+                if (event == null) {
+                    log.warn("Nenhuma transição aplicável para o consentimento {} no estado {}",
+                            entity.getConsentId(), entity.getState());
+                    continue;
+                }
+                transitions.add(new ConsentStateTransition(
+                        consentId, entity.getState(), transitionEngine.fire(entity, event), event, now));
+            } catch (RuntimeException e) {
+                failures.put(consentId, e);
+            }
+        }
+
+        if (!transitions.isEmpty()) {
+            List<ConsentStateTransition> written = transitions;
+            int applied;
+            try {
+                applied = consentRepository.applyTransitions(transitions);
+            } catch (RuntimeException e) {
+                log.warn("Erro ao salvar lote de {} alterações de estado; gravando uma a uma", transitions.size(), e);
+                written = applyEach(transitions, failures);
+                applied = written.size();
+            }
+            if (written == transitions && applied < transitions.size()) {
+                log.warn("{} transições do lote já haviam sido aplicadas por outro consumidor",
+                        transitions.size() - applied);
+                consentMetrics.lostRace(transitions.size() - applied);
+            }
+            afterApplied(written, applied, cache);
+        }
+
+        log.info("Lote processado: {} consentimentos, {} falhas", distinctIds.size(), failures.size());
+        return new ConsentBatchResult(failures);
+    }
+
+    private void afterApplied(List<ConsentStateTransition> transitions, int applied, ConsentStateCache cache) {
+        List<ConsentStateTransition> appliedTransitions = consentRepository.findApplied(transitions, applied);
+        journal.ifAvailable(transitionJournal -> transitionJournal.recordApplied(appliedTransitions));
+        stateCounters.ifAvailable(counters -> counters.recordApplied(appliedTransitions));
+        consentMetrics.recordApplied(appliedTransitions);
+        expirationTimer.ifAvailable(timer -> transitions.forEach(transition -> timer.cancel(transition.consentId())));
+        if (cache != null) {
+            transitions.forEach(transition -> cache.evict(transition.consentId()));
+        }
+    }
+
+    /**
+     * Uma falha do bulk não diz quais escritas falharam: cada transição é regravada isoladamente e só as que
+     * falharem de novo voltam como falha, para que o restante do lote seja confirmado. Transições que o bulk
+     * chegou a gravar antes de falhar não casam mais com o estado esperado e contam como corrida perdida.
+     *
+     * @return Transições aplicadas
+     */
+    private List<ConsentStateTransition> applyEach(List<ConsentStateTransition> transitions,
+                                                   Map<String, RuntimeException> failures) {
+        List<ConsentStateTransition> applied = new ArrayList<>(transitions.size());
+        for (ConsentStateTransition transition : transitions) {
+            try {
+                if (consentRepository.applyTransition(transition)) {
+                    applied.add(transition);
+                } else {
+                    consentMetrics.lostRace(1);
+                }
+            } catch (RuntimeException e) {
+                log.error("Erro ao salvar alteração de estado do consentimento {}", transition.consentId(), e);
+                failures.put(transition.consentId(), new PersistenceException(SAVE_ERROR, e));
+            }
+        }
+        return applied;
     }
 
     private ConsentEntity findConsent(ConsentIdRequestDTO consentIdRequestDTO) {
         String consentId = consentIdRequestDTO.consentId();
+        ConsentStateCache cache = stateCache.getIfAvailable();
+        ConsentEntity cached = cache != null ? cache.get(consentId) : null;
+        if (cached != null) {
+            log.info("Consentimento {} encontrado em cache no estado terminal {}", consentId, cached.getState());
+            return cached;
+        }
+
         log.info("Buscando consent com ID: {}", consentId);
         Optional<ConsentEntity> consent = consentRepository.findByConsentId(consentId);
         log.info("Resultado da busca: {}", consent.isPresent() ? "Encontrado" : "Não encontrado");
+        if (cache != null) {
+            consent.ifPresent(entity -> cache.put(consentId, entity.getState()));
+        }
         return consent.orElseThrow(() -> new EntityNotFoundException(
                 String.format(CONSENT_NOT_FOUND, consentId)));
     }
@@ -80,32 +264,30 @@ public class ConsentStateServiceImpl implements ConsentStateService {
      * Este método orquestra o fluxo completo de transição, incluindo a configuração
      * da máquina de estados e a execução da transição propriamente dita.
      *
-     * @param entity A entidade de consentimento que terá seu estado alterado
+     * @param lifecycle Ciclo de vida lido no início do processamento da mensagem
+     * @param entity    A entidade de consentimento que terá seu estado alterado
      * @throws StateMachineTransitionException se ocorrer qualquer erro durante o processo de transição,
      *                                         seja na configuração da máquina de estados ou na execução da transição.
      *                                         A exceção incluirá o ID do consentimento na mensagem de erro para facilitar o diagnóstico.
      *                                         O processo inclui:
-     *                                         1. Configuração da máquina de estados com o estado atual da entidade
+     *                                         1. Resolução do evento pelas guardas do estado atual da entidade
      *                                         2. Execução da transição de estado
      *                                         3. Tratamento de erros com logging apropriado
      */
-    private void processStateMachineTransition(ConsentEntity entity) {
+    private void processStateMachineTransition(ConsentLifecycle lifecycle, ConsentEntity entity) {
         try {
-            StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = configureStateMachine(entity);
-            if (entity.getState() == ConsentStateEnum.AUTHORISED &&
-                    entity.getExpiratedAt().isBefore(LocalDateTime.now())) {
-                executeStateTransitionToExpired(stateMachine, entity);
-
-            } else if (entity.getState() == ConsentStateEnum.AWAITING_AUTHORISATION &&
-                    entity.getCreatedAt().isBefore(LocalDateTime.now())) {
-                executeStateTransitionToRejected(stateMachine, entity);
+            ConsentEventEnum event = lifecycle.resolveEvent(entity, LocalDateTime.now());
+            if (event != null) {
+                executeStateTransition(entity, event);
             } else {
                 log.warn("Nenhuma transição aplicável para o consentimento {} no estado {}",
                         entity.getConsentId(), entity.getState());
+                consentMetrics.noop();
             }
 
         } catch (Exception e) {
             log.error(TRANSITION_ERROR_MESSAGE, entity.getConsentId(), entity.getState(), e);
+            consentMetrics.failure(isPersistenceFailure(e) ? FailureReason.PERSISTENCE : FailureReason.TRANSITION);
             throw new StateMachineTransitionException(
                     String.format("Falha ao processar transição de estado para consentimento: %s",
                             entity.getConsentId()), e);
@@ -113,51 +295,17 @@ public class ConsentStateServiceImpl implements ConsentStateService {
     }
 
     /**
-     * Configura uma nova instância da máquina de estados para um consentimento específico.
-     * Para a máquina atual, reseta seu estado e a reinicia com o estado atual da entidade.
-     * A máquina de estados inicia como null,por isso o stopReactively é necessário e na
-     * chamada do metodo resetStateMachineReactively inicia com o estado atual do consentimento
+     * Executa a transição de estado no motor de transições configurado.
+     * Envia o evento resolvido e grava o estado alvo devolvido pelo motor.
      *
      * @param entity Entidade de consentimento
-     * @return StateMachine configurada para o consentimento
-     */
-    private StateMachine<ConsentStateEnum, ConsentEventEnum> configureStateMachine(ConsentEntity entity) {
-        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = factory.getStateMachine(entity.getConsentId());
-
-        stateMachine.stopReactively().block();
-
-        stateMachine.getStateMachineAccessor().doWithAllRegions(access -> {
-            access.resetStateMachineReactively(
-                    new DefaultStateMachineContext<>(entity.getState(), null, null, null)
-            ).block();
-        });
-
-        stateMachine.startReactively().block();
-
-
-        return stateMachine;
-    }
-
-    /**
-     * Executa a transição de estado na máquina de estados.
-     * Envia o evento EXPIRE e atualiza o estado da entidade se a transição for bem-sucedida.
-     *
-     * @param stateMachine Máquina de estados configurada
-     * @param entity       Entidade de consentimento
+     * @param event  Evento resolvido pelas guardas do ciclo de vida
      * @throws StateMachineTransitionException se a transição falhar
      */
-    private void executeStateTransitionToExpired(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine, ConsentEntity entity) {
+    private void executeStateTransition(ConsentEntity entity, ConsentEventEnum event) {
         try {
-            var result = stateMachine.sendEvent
-                    (Mono.just(MessageBuilder
-                            .withPayload(ConsentEventEnum.EXPIRE)
-                            .build())).blockFirst();
-
-            if (result == null || !stateMachine.getState().getId().equals(ConsentStateEnum.EXPIRED)) {
-                throw new StateMachineTransitionException("Transição inválida ou não aplicada");
-            }
-
-            updateConsentState(entity, ConsentStateEnum.EXPIRED);
+            ConsentStateEnum target = transitionEngine.fire(entity, event);
+            updateConsentState(entity, target, event);
         } catch (Exception e) {
             throw new StateMachineTransitionException(
                     String.format(TRANSITION_ERROR_MESSAGE, entity.getConsentId(), entity.getState()), e);
@@ -165,45 +313,54 @@ public class ConsentStateServiceImpl implements ConsentStateService {
     }
 
     /**
-     * Executa a transição de estado na máquina de estados.
-     * Envia o evento REJECT e atualiza o estado da entidade se a transição for bem-sucedida.
-     *
-     * @param stateMachine
-     * @param entity
-     */
-    private void executeStateTransitionToRejected(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine, ConsentEntity entity) {
-        try {
-            var result = stateMachine.sendEvent(
-                    Mono.just(MessageBuilder.withPayload(ConsentEventEnum.REJECT).build())
-            ).blockFirst();
-
-            if (result == null || !stateMachine.getState().getId().equals(ConsentStateEnum.REJECTED)) {
-                throw new StateMachineTransitionException("Transição inválida ou não aplicada");
-            }
-
-            updateConsentState(entity, ConsentStateEnum.REJECTED);
-        } catch (Exception e) {
-            throw new StateMachineTransitionException(
-                    String.format("Erro ao executar transição de estado para consentimento: %s",
-                            entity.getConsentId()), e);
-        }
-    }
-
-    /**
-     * Responsável pela mudança de estado na base de dados MongoDB
+     * Responsável pela mudança de estado na base de dados MongoDB.
+     * A escrita é um único updateOne condicionado ao estado de origem; se outro consumidor já aplicou
+     * a transição nenhum documento é alterado e a corrida perdida é apenas registrada.
+     * Com o cache de estados habilitado, o estado gravado é escrito no cache e as demais réplicas são avisadas.
+     * O sucesso só é registrado no log com o estado efetivamente gravado.
      *
      * @param entity
      * @param consentStateEnum
+     * @param event
      */
-    private void updateConsentState(ConsentEntity entity, ConsentStateEnum consentStateEnum) {
+    private void updateConsentState(ConsentEntity entity, ConsentStateEnum consentStateEnum, ConsentEventEnum event) {
+        long started = System.nanoTime();
         try {
+            LocalDateTime now = LocalDateTime.now();
+            boolean applied = consentRepository.applyTransition(
+                    new ConsentStateTransition(entity.getConsentId(), entity.getState(), consentStateEnum, event, now));
+            if (!applied) {
+                consentMetrics.record(Stage.UPDATE, event, Outcome.LOST_RACE, started);
+                log.warn("Consentimento {} não está mais no estado {}; transição já aplicada por outro consumidor",
+                        entity.getConsentId(), entity.getState());
+                consentMetrics.lostRace(1);
+                stateCache.ifAvailable(cache -> cache.evict(entity.getConsentId()));
+                return;
+            }
+            consentMetrics.record(Stage.UPDATE, event, Outcome.SUCCESS, started);
+            consentMetrics.transition(entity.getState(), consentStateEnum);
+            stateCounters.ifAvailable(counters -> counters.transition(entity.getState(), consentStateEnum));
+            journal.ifAvailable(transitionJournal -> transitionJournal.record(
+                    entity.getConsentId(), entity.getState(), consentStateEnum, event, now));
             entity.setState(consentStateEnum);
-            entity.setUpdateStatus(LocalDateTime.now());
-            consentRepository.save(entity);
+            entity.setUpdateStatus(now);
+            log.info(TRANSITION_SUCCESS_MESSAGE, entity.getConsentId(), consentStateEnum);
+            expirationTimer.ifAvailable(timer -> timer.cancel(entity.getConsentId()));
+            stateCache.ifAvailable(cache -> cache.put(entity.getConsentId(), consentStateEnum));
         } catch (Exception e) {
+            consentMetrics.record(Stage.UPDATE, event, Outcome.FAILURE, started);
             log.error("Erro ao salvar alteração de estado do consentimento: {}",
                     entity.getConsentId(), e);
             throw new PersistenceException(SAVE_ERROR, e);
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isPersistenceFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PersistenceException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
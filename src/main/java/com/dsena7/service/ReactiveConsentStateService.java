@@ -0,0 +1,18 @@
+package com.dsena7.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Variante não bloqueante de {@link ConsentStateService}: a leitura, a transição e a escrita são
+ * compostas em um único {@link Mono}, sem bloquear a thread do assinante.
+ */
+public interface ReactiveConsentStateService {
+
+    /**
+     * Processa um consentimento, aplicando EXPIRE ou REJECT conforme o estado e os prazos.
+     *
+     * @param consentId Identificador único do consentimento
+     * @return Mono que completa após a gravação ou termina com o erro da transição
+     */
+    Mono<Void> processConsent(String consentId);
+}
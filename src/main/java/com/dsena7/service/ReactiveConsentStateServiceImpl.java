@@ -0,0 +1,163 @@
+package com.dsena7.service;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.exceptions.EntityNotFoundException;
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.repository.ReactiveConsentRepository;
+import com.dsena7.statemachine.CompiledTransitionEngine;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
+import com.dsena7.utils.ConsentValidationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Implementação reativa das transições de consentimento sobre o {@link ReactiveConsentRepository}.
+ * Segue as mesmas regras de {@link ConsentStateServiceImpl}, inclusive a escrita condicional ao
+ * estado de origem.
+ * <p>
+ * A leitura e a escrita são medidas como as etapas FIND e UPDATE do caminho bloqueante: o início é tomado na
+ * assinatura ({@link Mono#defer}) e a duração registrada no sinal de término, o que também alimenta as
+ * janelas de latência do controle adaptativo de concorrência.
+ * <p>
+ * O modo reativo deve ser usado com {@code consent.statemachine.engine=compiled}. Com {@code engine=spring} a
+ * aquisição e a reidratação da máquina bloqueiam e cada transição é deslocada para o scheduler boundedElastic,
+ * o que devolve ao pipeline o custo de uma thread por transição em andamento.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "reactive")
+public class ReactiveConsentStateServiceImpl implements ReactiveConsentStateService {
+
+    private static final String CONSENT_NOT_FOUND = "Consentimento não encontrado: %s";
+    private static final String TRANSITION_ERROR = "Falha ao processar transição de estado para consentimento: %s";
+
+    private final ConsentTransitionEngine transitionEngine;
+    private final ReactiveConsentRepository consentRepository;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final ObjectProvider<ConsentExpirationTimer> expirationTimer;
+    private final ObjectProvider<ConsentStateCache> stateCache;
+    private final ObjectProvider<ConsentTransitionJournal> journal;
+    private final ObjectProvider<ConsentStateCounters> stateCounters;
+    private final ConsentMetrics consentMetrics;
+
+    public ReactiveConsentStateServiceImpl(ConsentTransitionEngine transitionEngine,
+                                           ReactiveConsentRepository consentRepository,
+                                           ConsentLifecycleRegistry lifecycleRegistry,
+                                           ObjectProvider<ConsentExpirationTimer> expirationTimer,
+                                           ObjectProvider<ConsentStateCache> stateCache,
+                                           ObjectProvider<ConsentTransitionJournal> journal,
+                                           ObjectProvider<ConsentStateCounters> stateCounters,
+                                           ConsentMetrics consentMetrics) {
+        this.transitionEngine = transitionEngine;
+        this.consentRepository = consentRepository;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.expirationTimer = expirationTimer;
+        this.stateCache = stateCache;
+        this.journal = journal;
+        this.stateCounters = stateCounters;
+        this.consentMetrics = consentMetrics;
+        if (!(transitionEngine instanceof CompiledTransitionEngine)) {
+            log.warn("consent.consumer.mode=reactive sem consent.statemachine.engine=compiled: as transições "
+                    + "serão avaliadas no scheduler boundedElastic, com bloqueio");
+        }
+    }
+
+    @Override
+    public Mono<Void> processConsent(String consentId) {
+        return findConsent(consentId)
+                .flatMap(this::transition);
+    }
+
+    private Mono<ConsentEntity> findConsent(String consentId) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return lookup(consentId)
+                    .doOnSuccess(entity -> consentMetrics.record(Stage.FIND, null, Outcome.SUCCESS, started))
+                    .doOnError(e -> {
+                        consentMetrics.record(Stage.FIND, null, Outcome.FAILURE, started);
+                        consentMetrics.failure(e instanceof EntityNotFoundException ? FailureReason.NOT_FOUND : FailureReason.PERSISTENCE);
+                    });
+        });
+    }
+
+    private Mono<ConsentEntity> lookup(String consentId) {
+        ConsentStateCache cache = stateCache.getIfAvailable();
+        ConsentEntity cached = cache != null ? cache.get(consentId) : null;
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return consentRepository.findByConsentId(consentId)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(String.format(CONSENT_NOT_FOUND, consentId))))
+                .doOnNext(entity -> {
+                    if (cache != null) {
+                        cache.put(consentId, entity.getState());
+                    }
+                });
+    }
+
+    private Mono<Void> transition(ConsentEntity entity) {
+        ConsentLifecycle lifecycle = lifecycleRegistry.current();
+        ConsentValidationUtils.validateConsentState(lifecycle, entity);
+        LocalDateTime now = LocalDateTime.now();
+        ConsentEventEnum event = lifecycle.resolveEvent(entity, now);
+        if (event == null) {
+            log.warn("Nenhuma transição aplicável para o consentimento {} no estado {}",
+                    entity.getConsentId(), entity.getState());
+            return Mono.empty();
+        }
+
+        return transitionEngine.fireReactive(entity, event)
+                .flatMap(target -> updateConsentState(
+                                new ConsentStateTransition(entity.getConsentId(), entity.getState(), target, event, now))
+                        .doOnNext(applied -> {
+                            if (applied) {
+                                log.info("Transição de estado realizada com sucesso para consentimento: {} com estado: {}",
+                                        entity.getConsentId(), target);
+                                journal.ifAvailable(transitionJournal -> transitionJournal.record(
+                                        entity.getConsentId(), entity.getState(), target, event, now));
+                                consentMetrics.transition(entity.getState(), target);
+                                stateCounters.ifAvailable(counters -> counters.transition(entity.getState(), target));
+                                expirationTimer.ifAvailable(timer -> timer.cancel(entity.getConsentId()));
+                                stateCache.ifAvailable(cache -> cache.put(entity.getConsentId(), target));
+                            } else {
+                                log.warn("Consentimento {} não está mais no estado {}; transição já aplicada por outro consumidor",
+                                        entity.getConsentId(), entity.getState());
+                                consentMetrics.lostRace(1);
+                                stateCache.ifAvailable(cache -> cache.evict(entity.getConsentId()));
+                            }
+                        }))
+                .onErrorMap(e -> !(e instanceof StateMachineTransitionException),
+                        e -> new StateMachineTransitionException(String.format(TRANSITION_ERROR, entity.getConsentId()), e))
+                .then();
+    }
+
+    private Mono<Boolean> updateConsentState(ConsentStateTransition transition) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return consentRepository.applyTransition(transition)
+                    .doOnSuccess(applied -> consentMetrics.record(Stage.UPDATE, transition.event(),
+                            Boolean.TRUE.equals(applied) ? Outcome.SUCCESS : Outcome.LOST_RACE, started))
+                    .doOnError(e -> {
+                        consentMetrics.record(Stage.UPDATE, transition.event(), Outcome.FAILURE, started);
+                        consentMetrics.failure(FailureReason.PERSISTENCE);
+                    });
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avalia transições direto na tabela pré-compilada do ciclo de vida em uso
+ * ({@link ConsentLifecycleRegistry#current()}), indexada por {@code ConsentStateEnum x ConsentEventEnum}.
+ * A avaliação de uma transição é uma leitura de array: sem alocação, sem Mono/Message e sem chamadas
+ * bloqueantes. Como a tabela é lida a cada disparo, uma definição recarregada passa a valer na
+ * mensagem seguinte, inclusive com transições novas.
+ */
+@Component
+@ConditionalOnProperty(prefix = "consent.statemachine", name = "engine", havingValue = "compiled")
+public class CompiledTransitionEngine implements ConsentTransitionEngine {
+
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+
+    public CompiledTransitionEngine(ConsentLifecycleRegistry lifecycleRegistry) {
+        this.lifecycleRegistry = lifecycleRegistry;
+    }
+
+    @Override
+    public ConsentStateEnum fire(ConsentEntity entity, ConsentEventEnum event) {
+        ConsentStateEnum target = lifecycleRegistry.current().target(entity.getState(), event);
+        if (target == null) {
+            throw new StateMachineTransitionException(TRANSITION_NOT_APPLIED);
+        }
+        return target;
+    }
+}
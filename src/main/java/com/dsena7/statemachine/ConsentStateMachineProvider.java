@@ -0,0 +1,28 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.statemachine.StateMachine;
+
+/**
+ * Fornece máquinas de estados já posicionadas no estado atual de um consentimento.
+ * Toda máquina obtida via {@link #acquire(ConsentEntity)} deve ser devolvida via {@link #release(StateMachine)}.
+ */
+public interface ConsentStateMachineProvider {
+
+    /**
+     * Obtém uma máquina de estados reidratada com o estado atual da entidade.
+     *
+     * @param entity Entidade de consentimento
+     * @return StateMachine iniciada no estado da entidade
+     */
+    StateMachine<ConsentStateEnum, ConsentEventEnum> acquire(ConsentEntity entity);
+
+    /**
+     * Devolve a máquina de estados após o uso.
+     *
+     * @param stateMachine Máquina obtida em {@link #acquire(ConsentEntity)}
+     */
+    void release(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine);
+}
@@ -0,0 +1,39 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import reactor.core.publisher.Mono;
+
+/**
+ * Avalia as transições do ciclo de vida ({@link com.dsena7.lifecycle.ConsentLifecycleRegistry}).
+ * A implementação é escolhida pela propriedade {@code consent.statemachine.engine}.
+ */
+public interface ConsentTransitionEngine {
+
+    String TRANSITION_NOT_APPLIED = "Transição inválida ou não aplicada";
+
+    /**
+     * Aplica o evento sobre o estado atual da entidade, sem alterá-la.
+     *
+     * @param entity Entidade de consentimento
+     * @param event  Evento a ser enviado
+     * @return Estado alvo da transição
+     * @throws StateMachineTransitionException se não houver transição para o estado e evento informados
+     */
+    ConsentStateEnum fire(ConsentEntity entity, ConsentEventEnum event);
+
+    /**
+     * Versão reativa de {@link #fire(ConsentEntity, ConsentEventEnum)} para o pipeline não bloqueante.
+     * A implementação padrão avalia a transição na própria thread do assinante, adequada a motores
+     * que não bloqueiam.
+     *
+     * @param entity Entidade de consentimento
+     * @param event  Evento a ser enviado
+     * @return Mono com o estado alvo da transição
+     */
+    default Mono<ConsentStateEnum> fireReactive(ConsentEntity entity, ConsentEventEnum event) {
+        return Mono.fromCallable(() -> fire(entity, event));
+    }
+}
@@ -0,0 +1,35 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cria uma nova máquina de estados a cada consentimento processado (comportamento original).
+ */
+@Component
+@Lazy
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "consent.statemachine", name = "mode", havingValue = "per-call", matchIfMissing = true)
+public class PerCallStateMachineProvider implements ConsentStateMachineProvider {
+
+    private final StateMachineFactory<ConsentStateEnum, ConsentEventEnum> factory;
+
+    @Override
+    public StateMachine<ConsentStateEnum, ConsentEventEnum> acquire(ConsentEntity entity) {
+        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = factory.getStateMachine(entity.getConsentId());
+        StateMachineRehydrator.rehydrate(stateMachine, entity.getState());
+        return stateMachine;
+    }
+
+    @Override
+    public void release(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine) {
+        // A máquina é descartada após o uso.
+    }
+}
@@ -0,0 +1,138 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool limitado de máquinas de estados pré-construídas. As máquinas são retiradas do pool, reidratadas
+ * com o estado da entidade e devolvidas após o uso, evitando a construção de uma nova máquina a cada mensagem.
+ * <p>
+ * As máquinas vêm da mesma {@link StateMachineFactory} usada pelo {@link PerCallStateMachineProvider}. Uma
+ * máquina que entra em um estado final (EXPIRED/REJECTED) se para sozinha e não volta a funcionar com
+ * stop/reset/start, então na devolução ela é trocada por uma nova, construída fora do caminho de aquisição.
+ * Também são descartadas as máquinas cuja reidratação falha.
+ */
+@Component
+@Lazy
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.statemachine", name = "mode", havingValue = "pooled")
+public class PooledStateMachineProvider implements ConsentStateMachineProvider {
+
+    private static final String POOL_EXHAUSTED = "Pool de máquinas de estados esgotado após %d ms";
+
+    private final StateMachineFactory<ConsentStateEnum, ConsentEventEnum> factory;
+    private final BlockingQueue<StateMachine<ConsentStateEnum, ConsentEventEnum>> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final int maxSize;
+    private final long maxWaitMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter waits;
+    private final Counter timeouts;
+    private final Counter discards;
+
+    public PooledStateMachineProvider(StateMachineFactory<ConsentStateEnum, ConsentEventEnum> factory,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${consent.statemachine.pool.max-size:32}") int maxSize,
+                                      @Value("${consent.statemachine.pool.initial-size:8}") int initialSize,
+                                      @Value("${consent.statemachine.pool.max-wait-ms:500}") long maxWaitMillis) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+
+        this.hits = meterRegistry.counter("consent.statemachine.pool.hits");
+        this.misses = meterRegistry.counter("consent.statemachine.pool.misses");
+        this.waits = meterRegistry.counter("consent.statemachine.pool.waits");
+        this.timeouts = meterRegistry.counter("consent.statemachine.pool.timeouts");
+        this.discards = meterRegistry.counter("consent.statemachine.pool.discards");
+        Gauge.builder("consent.statemachine.pool.size", created, AtomicInteger::get)
+                .description("Máquinas de estados criadas pelo pool")
+                .register(meterRegistry);
+        Gauge.builder("consent.statemachine.pool.idle", idle, BlockingQueue::size)
+                .description("Máquinas de estados disponíveis no pool")
+                .register(meterRegistry);
+
+        for (int i = 0; i < Math.min(initialSize, maxSize); i++) {
+            idle.offer(create());
+        }
+        log.info("Pool de máquinas de estados iniciado com {} instâncias (máximo {})", created.get(), maxSize);
+    }
+
+    @Override
+    public StateMachine<ConsentStateEnum, ConsentEventEnum> acquire(ConsentEntity entity) {
+        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = checkout();
+        try {
+            StateMachineRehydrator.rehydrate(stateMachine, entity.getState());
+            return stateMachine;
+        } catch (RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine) {
+        if (stateMachine.isComplete()) {
+            discards.increment();
+            stateMachine = factory.getStateMachine("consent-pool-" + created.get());
+        }
+        if (!idle.offer(stateMachine)) {
+            discard();
+        }
+    }
+
+    private StateMachine<ConsentStateEnum, ConsentEventEnum> checkout() {
+        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine = idle.poll();
+        if (stateMachine != null) {
+            hits.increment();
+            return stateMachine;
+        }
+
+        if (created.incrementAndGet() <= maxSize) {
+            misses.increment();
+            return factory.getStateMachine("consent-pool-" + created.get());
+        }
+        created.decrementAndGet();
+
+        waits.increment();
+        try {
+            stateMachine = idle.poll(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StateMachineTransitionException(String.format(POOL_EXHAUSTED, maxWaitMillis), e);
+        }
+        if (stateMachine == null) {
+            timeouts.increment();
+            throw new StateMachineTransitionException(String.format(POOL_EXHAUSTED, maxWaitMillis));
+        }
+        return stateMachine;
+    }
+
+    private StateMachine<ConsentStateEnum, ConsentEventEnum> create() {
+        return factory.getStateMachine("consent-pool-" + created.incrementAndGet());
+    }
+
+    private void discard() {
+        discards.increment();
+        created.decrementAndGet();
+    }
+}
@@ -0,0 +1,71 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Avalia as transições enviando o evento para uma máquina do Spring Statemachine
+ * obtida do {@link ConsentStateMachineProvider}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "consent.statemachine", name = "engine", havingValue = "spring", matchIfMissing = true)
+public class SpringStateMachineTransitionEngine implements ConsentTransitionEngine {
+
+    private final ConsentStateMachineProvider stateMachineProvider;
+    private final ConsentMetrics consentMetrics;
+
+    @Override
+    public ConsentStateEnum fire(ConsentEntity entity, ConsentEventEnum event) {
+        long started = System.nanoTime();
+        StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine;
+        try {
+            stateMachine = stateMachineProvider.acquire(entity);
+        } catch (RuntimeException e) {
+            consentMetrics.record(Stage.STATE_MACHINE_SETUP, event, Outcome.FAILURE, started);
+            throw e;
+        }
+        consentMetrics.record(Stage.STATE_MACHINE_SETUP, event, Outcome.SUCCESS, started);
+
+        started = System.nanoTime();
+        Outcome outcome = Outcome.FAILURE;
+        try {
+            var result = stateMachine.sendEvent(
+                    Mono.just(MessageBuilder.withPayload(event).build())
+            ).blockFirst();
+
+            ConsentStateEnum target = stateMachine.getState().getId();
+            if (result == null || target == entity.getState()) {
+                throw new StateMachineTransitionException(TRANSITION_NOT_APPLIED);
+            }
+            outcome = Outcome.SUCCESS;
+            return target;
+        } finally {
+            consentMetrics.record(Stage.SEND_EVENT, event, outcome, started);
+            stateMachineProvider.release(stateMachine);
+        }
+    }
+
+    /**
+     * A obtenção da máquina (espera no pool) e a reidratação bloqueiam, por isso a avaliação é
+     * deslocada para o scheduler boundedElastic e nunca ocupa as threads do pipeline reativo. É um
+     * paliativo: o modo reativo deve usar {@code engine=compiled}, que avalia sem bloqueio.
+     */
+    @Override
+    public Mono<ConsentStateEnum> fireReactive(ConsentEntity entity, ConsentEventEnum event) {
+        return Mono.fromCallable(() -> fire(entity, event))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
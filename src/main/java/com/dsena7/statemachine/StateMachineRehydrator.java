@@ -0,0 +1,32 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+
+final class StateMachineRehydrator {
+
+    private StateMachineRehydrator() {
+    }
+
+    /**
+     * Para a máquina, reseta seu estado para o estado informado e a reinicia.
+     * A máquina de estados inicia como null, por isso o stopReactively é necessário antes
+     * da chamada do metodo resetStateMachineReactively.
+     *
+     * @param stateMachine Máquina de estados a ser reidratada
+     * @param state        Estado atual do consentimento
+     */
+    static void rehydrate(StateMachine<ConsentStateEnum, ConsentEventEnum> stateMachine, ConsentStateEnum state) {
+        stateMachine.stopReactively().block();
+
+        stateMachine.getStateMachineAccessor().doWithAllRegions(access -> {
+            access.resetStateMachineReactively(
+                    new DefaultStateMachineContext<>(state, null, null, null)
+            ).block();
+        });
+
+        stateMachine.startReactively().block();
+    }
+}
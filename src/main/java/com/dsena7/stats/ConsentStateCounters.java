@@ -0,0 +1,200 @@
+package com.dsena7.stats;
+
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.ConsentStatsDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Contagem de consentimentos por estado mantida incrementalmente, sem {@code count} sobre consent_entity.
+ * <p>
+ * Inserções e transições somam em {@link LongAdder}s por estado, sem contenção entre consumidores; o
+ * {@link ConsentStatsFlusher} drena os acumuladores periodicamente em um único {@code $inc} na coleção
+ * consent_stats e devolve os totais de todas as réplicas. A contagem servida é o último total lido mais
+ * o que esta réplica ainda não gravou.
+ * <p>
+ * As transições também alimentam uma janela de minutos por estado de destino, de onde saem as taxas por
+ * minuto. As taxas são desta réplica.
+ */
+@Component
+@ConditionalOnProperty(prefix = "consent.stats", name = "enabled", havingValue = "true")
+public class ConsentStateCounters {
+
+    private static final ConsentStateEnum[] STATES = ConsentStateEnum.values();
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final LongAdder[] pending = new LongAdder[STATES.length];
+    private final long[] flushing = new long[STATES.length];
+    private final long[] totals = new long[STATES.length];
+    private final int rateWindowMinutes;
+    private final int slots;
+    private final AtomicLongArray minuteCounts;
+    private final AtomicLongArray minuteStamps;
+    private final long startedMinute;
+    private final LongSupplier clock;
+    private LocalDateTime flushedAt;
+    private LocalDateTime reconciledAt;
+
+    @Autowired
+    public ConsentStateCounters(MeterRegistry meterRegistry,
+                                @Value("${consent.stats.rate-window-minutes:15}") int rateWindowMinutes) {
+        this(meterRegistry, rateWindowMinutes, System::currentTimeMillis);
+    }
+
+    ConsentStateCounters(MeterRegistry meterRegistry, int rateWindowMinutes, LongSupplier clock) {
+        this.rateWindowMinutes = rateWindowMinutes;
+        // Janela + minuto corrente + uma folga para o minuto que está sendo preparado
+        this.slots = rateWindowMinutes + 2;
+        this.minuteCounts = new AtomicLongArray(slots * STATES.length);
+        this.minuteStamps = new AtomicLongArray(slots);
+        this.clock = clock;
+        this.startedMinute = clock.getAsLong() / MINUTE_MILLIS;
+        for (int i = 0; i < slots; i++) {
+            minuteStamps.set(i, -1);
+        }
+        for (ConsentStateEnum state : STATES) {
+            pending[state.ordinal()] = new LongAdder();
+            Gauge.builder("consent.state.count", this, counters -> counters.count(state))
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    public void inserted(ConsentStateEnum state) {
+        pending[state.ordinal()].increment();
+    }
+
+    /**
+     * Consentimento regravado pelo {@code /save}: sai do estado anterior e entra no novo, sem contar como transição.
+     */
+    public void replaced(ConsentStateEnum previous, ConsentStateEnum state) {
+        pending[previous.ordinal()].decrement();
+        pending[state.ordinal()].increment();
+    }
+
+    public void transition(ConsentStateEnum from, ConsentStateEnum to) {
+        pending[from.ordinal()].decrement();
+        pending[to.ordinal()].increment();
+        long minute = clock.getAsLong() / MINUTE_MILLIS;
+        minuteCounts.incrementAndGet(slot(minute) * STATES.length + to.ordinal());
+    }
+
+    /**
+     * Registra as transições aplicadas por uma escrita em lote, já resolvidas por
+     * {@link com.dsena7.repository.ConsentRepositoryCustom#findApplied(List, int)}.
+     *
+     * @param applied Transições aplicadas pela escrita
+     */
+    public void recordApplied(List<ConsentStateTransition> applied) {
+        applied.forEach(transition -> transition(transition.from(), transition.to()));
+    }
+
+    public synchronized long count(ConsentStateEnum state) {
+        int index = state.ordinal();
+        return totals[index] + flushing[index] + pending[index].sum();
+    }
+
+    /**
+     * Move os incrementos acumulados para o flush em andamento.
+     *
+     * @return Incremento por estado, indexado pelo ordinal
+     */
+    synchronized long[] drain() {
+        long[] deltas = new long[STATES.length];
+        for (int i = 0; i < STATES.length; i++) {
+            deltas[i] = pending[i].sumThenReset();
+            flushing[i] += deltas[i];
+        }
+        return deltas;
+    }
+
+    /**
+     * Devolve aos acumuladores os incrementos de um flush que falhou.
+     */
+    synchronized void restore() {
+        for (int i = 0; i < STATES.length; i++) {
+            pending[i].add(flushing[i]);
+            flushing[i] = 0;
+        }
+    }
+
+    /**
+     * Substitui os totais pelos lidos da coleção, que já incluem o flush em andamento.
+     *
+     * @param counts     Totais por nome do estado
+     * @param reconciled true se os totais vêm de uma reconciliação
+     */
+    synchronized void flushed(Map<String, Long> counts, boolean reconciled) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ConsentStateEnum state : STATES) {
+            Long count = counts == null ? null : counts.get(state.name());
+            totals[state.ordinal()] = count == null ? 0 : count;
+            flushing[state.ordinal()] = 0;
+        }
+        flushedAt = now;
+        if (reconciled) {
+            reconciledAt = now;
+        }
+    }
+
+    synchronized void reconciledAt(LocalDateTime reconciledAt) {
+        if (reconciledAt != null && (this.reconciledAt == null || reconciledAt.isAfter(this.reconciledAt))) {
+            this.reconciledAt = reconciledAt;
+        }
+    }
+
+    public synchronized ConsentStatsDTO snapshot() {
+        long minute = clock.getAsLong() / MINUTE_MILLIS;
+        int elapsed = (int) Math.max(1, Math.min(rateWindowMinutes, minute - startedMinute));
+        Map<ConsentStateEnum, Long> counts = new EnumMap<>(ConsentStateEnum.class);
+        Map<ConsentStateEnum, Long> lastMinute = new EnumMap<>(ConsentStateEnum.class);
+        Map<ConsentStateEnum, Double> perMinute = new EnumMap<>(ConsentStateEnum.class);
+        for (ConsentStateEnum state : STATES) {
+            counts.put(state, count(state));
+            lastMinute.put(state, transitionsAt(minute - 1, state));
+            long window = 0;
+            for (int i = 1; i <= rateWindowMinutes; i++) {
+                window += transitionsAt(minute - i, state);
+            }
+            perMinute.put(state, (double) window / elapsed);
+        }
+        return new ConsentStatsDTO(counts, lastMinute, perMinute, rateWindowMinutes, flushedAt, reconciledAt);
+    }
+
+    private long transitionsAt(long minute, ConsentStateEnum state) {
+        int slot = (int) Math.floorMod(minute, (long) slots);
+        return minuteStamps.get(slot) == minute ? minuteCounts.get(slot * STATES.length + state.ordinal()) : 0;
+    }
+
+    /**
+     * Slot do minuto informado, zerado na primeira escrita do minuto. O caminho comum é uma leitura
+     * volátil; o lock só é tomado uma vez por minuto.
+     */
+    private int slot(long minute) {
+        int slot = (int) Math.floorMod(minute, (long) slots);
+        if (minuteStamps.get(slot) != minute) {
+            synchronized (minuteStamps) {
+                if (minuteStamps.get(slot) != minute) {
+                    for (int i = 0; i < STATES.length; i++) {
+                        minuteCounts.set(slot * STATES.length + i, 0);
+                    }
+                    minuteStamps.set(slot, minute);
+                }
+            }
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,181 @@
+package com.dsena7.stats;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStatsEntity;
+import com.dsena7.storage.ConsentStorageLayout;
+import com.dsena7.sweeper.SweeperLeaseManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Grava os contadores de {@link ConsentStateCounters} na coleção consent_stats e corrige o desvio.
+ * <p>
+ * A cada {@code flush-interval-ms} os incrementos acumulados viram um único {@code $inc} com upsert, que
+ * devolve os totais de todas as réplicas; sem incrementos, os totais são apenas relidos. Se a escrita
+ * falhar, os incrementos voltam aos acumuladores e seguem no próximo flush.
+ * <p>
+ * A cada {@code reconcile-interval-ms} a réplica que obtiver o lease conta consent_entity e o arquivo por
+ * estado com um {@code $group} e sobrescreve os totais. Incrementos de outras réplicas ainda não gravados no
+ * momento da contagem podem ser somados de novo; o desvio fica limitado a um intervalo de flush e é corrigido na
+ * reconciliação seguinte. Sem documento em consent_stats, a primeira contagem é feita no primeiro flush.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.stats", name = "enabled", havingValue = "true")
+public class ConsentStatsFlusher {
+
+    private static final String LEASE_ID = "consent-stats-reconcile";
+    private static final Query STATES = Query.query(where("id").is(ConsentStatsEntity.STATES_ID));
+
+    private final ConsentStateCounters counters;
+    private final MongoTemplate mongoTemplate;
+    private final SweeperLeaseManager leaseManager;
+    private volatile boolean bootstrapped;
+
+    private final Counter flushFailures;
+    private final DistributionSummary drift;
+
+    public ConsentStatsFlusher(ConsentStateCounters counters,
+                               MongoTemplate mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${consent.stats.reconcile-lease-ms:600000}") long leaseMillis) {
+        this.counters = counters;
+        this.mongoTemplate = mongoTemplate;
+        this.leaseManager = new SweeperLeaseManager(mongoTemplate, LEASE_ID, instanceId(), Duration.ofMillis(leaseMillis));
+        this.flushFailures = meterRegistry.counter("consent.stats.flush.failures");
+        this.drift = DistributionSummary.builder("consent.stats.reconcile.drift")
+                .description("Soma das diferenças absolutas corrigidas por reconciliação")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${consent.stats.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (!bootstrapped) {
+            bootstrap();
+        }
+        long[] deltas = counters.drain();
+        Update update = new Update();
+        boolean changed = false;
+        for (ConsentStateEnum state : ConsentStateEnum.values()) {
+            long delta = deltas[state.ordinal()];
+            if (delta != 0) {
+                update.inc("counts." + state.name(), delta);
+                changed = true;
+            }
+        }
+        try {
+            ConsentStatsEntity stats = changed
+                    ? mongoTemplate.findAndModify(STATES, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), ConsentStatsEntity.class)
+                    : mongoTemplate.findOne(STATES, ConsentStatsEntity.class);
+            counters.flushed(stats == null ? null : stats.getCounts(), false);
+            if (stats != null) {
+                counters.reconciledAt(stats.getReconciledAt());
+            }
+        } catch (RuntimeException e) {
+            counters.restore();
+            flushFailures.increment();
+            log.warn("Falha ao gravar os contadores de consentimentos; nova tentativa no próximo flush: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${consent.stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${consent.stats.reconcile-interval-ms:3600000}")
+    public synchronized void reconcile() {
+        if (leaseManager.tryAcquire().isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+            Map<String, Long> actual = countByState();
+            ConsentStatsEntity stored = mongoTemplate.findOne(STATES, ConsentStatsEntity.class);
+            long difference = 0;
+            for (ConsentStateEnum state : ConsentStateEnum.values()) {
+                long before = stored == null || stored.getCounts() == null
+                        ? 0 : stored.getCounts().getOrDefault(state.name(), 0L);
+                difference += Math.abs(actual.getOrDefault(state.name(), 0L) - before);
+            }
+            mongoTemplate.upsert(STATES, new Update().set("counts", actual).set("reconciledAt", LocalDateTime.now()),
+                    ConsentStatsEntity.class);
+            counters.flushed(actual, true);
+            drift.record(difference);
+            log.info("Contadores de consentimentos reconciliados: {} (desvio de {})", actual, difference);
+        } catch (RuntimeException e) {
+            log.error("Erro na reconciliação dos contadores de consentimentos", e);
+        } finally {
+            leaseManager.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void bootstrap() {
+        try {
+            boolean empty = !mongoTemplate.exists(STATES, ConsentStatsEntity.class);
+            bootstrapped = true;
+            if (empty) {
+                log.info("Coleção consent_stats vazia; contando consentimentos por estado");
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao verificar a coleção consent_stats: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Long> countByState() {
+        // Documentos no formato compacto guardam o estado como código em outro campo
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.project().and(ConditionalOperators.ifNull(ConsentStorageLayout.COMPACT.state())
+                        .thenValueOf(ConsentStorageLayout.LEGACY.state())).as("state"),
+                Aggregation.group("state").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        // Consentimentos arquivados continuam contando no seu estado terminal
+        for (String collection : List.of(ConsentEntity.COLLECTION, ConsentEntity.ARCHIVE_COLLECTION)) {
+            for (Document group : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+                Object state = group.get("_id");
+                if (state != null) {
+                    counts.merge(ConsentStorageLayout.readState(state).name(), ((Number) group.get("count")).longValue(),
+                            Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static String instanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
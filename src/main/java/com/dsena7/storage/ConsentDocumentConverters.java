@@ -0,0 +1,103 @@
+package com.dsena7.storage;
+
+import com.dsena7.model.ConsentEntity;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Conversores de {@link ConsentEntity} para o formato compacto, registrados fora do modo legacy.
+ * <p>
+ * A escrita gera sempre o formato compacto. A leitura aceita os dois formatos, campo a campo, o que permite
+ * servir documentos ainda não migrados. As datas seguem a mesma regra dos conversores padrão do Spring Data
+ * (fuso da JVM), então um documento migrado representa os mesmos instantes.
+ */
+public final class ConsentDocumentConverters {
+
+    private static final ConsentStorageLayout COMPACT = ConsentStorageLayout.COMPACT;
+    private static final ConsentStorageLayout LEGACY = ConsentStorageLayout.LEGACY;
+
+    private ConsentDocumentConverters() {
+    }
+
+    public static List<Converter<?, ?>> forMode(ConsentStorageFormat.Mode mode) {
+        return mode == ConsentStorageFormat.Mode.LEGACY
+                ? List.of()
+                : List.of(new CompactWriter(), new DualReader());
+    }
+
+    public static Document toCompact(ConsentEntity entity) {
+        Document document = new Document();
+        if (entity.getId() != null) {
+            document.put("_id", ObjectId.isValid(entity.getId()) ? new ObjectId(entity.getId()) : entity.getId());
+        }
+        putIfPresent(document, COMPACT.consentId(), entity.getConsentId());
+        putIfPresent(document, COMPACT.state(), entity.getState() == null ? null : COMPACT.stateValue(entity.getState()));
+        putIfPresent(document, COMPACT.updateStatus(), toDate(entity.getUpdateStatus()));
+        putIfPresent(document, COMPACT.createdAt(), toDate(entity.getCreatedAt()));
+        putIfPresent(document, COMPACT.expiratedAt(), toDate(entity.getExpiratedAt()));
+        return document;
+    }
+
+    public static ConsentEntity read(Document document) {
+        Object id = document.get("_id");
+        return new ConsentEntity(
+                id instanceof ObjectId objectId ? objectId.toHexString() : id == null ? null : id.toString(),
+                (String) field(document, COMPACT.consentId(), LEGACY.consentId()),
+                ConsentStorageLayout.readState(field(document, COMPACT.state(), LEGACY.state())),
+                toLocalDateTime(field(document, COMPACT.updateStatus(), LEGACY.updateStatus())),
+                toLocalDateTime(field(document, COMPACT.createdAt(), LEGACY.createdAt())),
+                toLocalDateTime(field(document, COMPACT.expiratedAt(), LEGACY.expiratedAt())));
+    }
+
+    /**
+     * Documento no formato antigo, se tiver algum campo com nome completo.
+     */
+    public static boolean isLegacy(Document document) {
+        return document.containsKey(LEGACY.consentId()) || document.containsKey(LEGACY.state());
+    }
+
+    private static Object field(Document document, String compact, String legacy) {
+        Object value = document.get(compact);
+        return value != null ? value : document.get(legacy);
+    }
+
+    private static void putIfPresent(Document document, String key, Object value) {
+        if (value != null) {
+            document.put(key, value);
+        }
+    }
+
+    private static Date toDate(LocalDateTime value) {
+        return value == null ? null : Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Date date ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+
+    @WritingConverter
+    public static class CompactWriter implements Converter<ConsentEntity, Document> {
+
+        @Override
+        public Document convert(ConsentEntity source) {
+            return toCompact(source);
+        }
+    }
+
+    @ReadingConverter
+    public static class DualReader implements Converter<Document, ConsentEntity> {
+
+        @Override
+        public ConsentEntity convert(Document source) {
+            return read(source);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dsena7.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Formato de armazenamento de consent_entity escolhido em {@code consent.storage.format}.
+ * <ul>
+ *     <li>{@code legacy}: mapeamento padrão do Spring Data, sem conversores;</li>
+ *     <li>{@code migrating}: grava no formato compacto e lê os dois, enquanto o
+ *     {@link ConsentStorageMigrator} reescreve os documentos antigos;</li>
+ *     <li>{@code compact}: grava e consulta apenas o formato compacto.</li>
+ * </ul>
+ * Um documento está sempre inteiro em um único formato: as escritas condicionais são feitas por formato e
+ * a migração troca o documento todo com replaceOne.
+ */
+@Component
+public class ConsentStorageFormat {
+
+    public enum Mode {LEGACY, MIGRATING, COMPACT}
+
+    private final Mode mode;
+    private final List<ConsentStorageLayout> layouts;
+
+    @Autowired
+    public ConsentStorageFormat(@Value("${consent.storage.format:legacy}") String format) {
+        this(Mode.valueOf(format.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    public ConsentStorageFormat(Mode mode) {
+        this.mode = mode;
+        this.layouts = switch (mode) {
+            case LEGACY -> List.of(ConsentStorageLayout.LEGACY);
+            case MIGRATING -> List.of(ConsentStorageLayout.COMPACT, ConsentStorageLayout.LEGACY);
+            case COMPACT -> List.of(ConsentStorageLayout.COMPACT);
+        };
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Formatos que podem existir na coleção, começando pelo de escrita.
+     */
+    public List<ConsentStorageLayout> layouts() {
+        return layouts;
+    }
+
+    public ConsentStorageLayout writeLayout() {
+        return layouts.get(0);
+    }
+
+    /**
+     * Aplica o filtro em cada formato ativo; durante a migração, os filtros são combinados com {@code $or}.
+     */
+    public Criteria match(Function<ConsentStorageLayout, Criteria> criteria) {
+        if (layouts.size() == 1) {
+            return criteria.apply(layouts.get(0));
+        }
+        return new Criteria().orOperator(layouts.stream().map(criteria).toArray(Criteria[]::new));
+    }
+}
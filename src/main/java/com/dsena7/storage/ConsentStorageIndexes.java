@@ -0,0 +1,75 @@
+package com.dsena7.storage;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentTransitionEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cria os índices do formato compacto, equivalentes aos declarados em {@link ConsentEntity} para o formato
+ * legacy: consentId e (state, expiratedAt, _id) com as chaves curtas. No modo legacy nada é criado.
+ * <p>
+ * Com {@code spring.data.mongodb.auto-index-creation=false} (perfil fast-startup), os índices declarados
+ * nas entidades também são garantidos aqui, depois que os consumidores já começaram, em vez de durante o
+ * refresh do contexto.
+ */
+@Component
+@Slf4j
+public class ConsentStorageIndexes {
+
+    private final ConsentStorageFormat storageFormat;
+    private final MongoTemplate mongoTemplate;
+    private final boolean autoIndexCreation;
+
+    public ConsentStorageIndexes(ConsentStorageFormat storageFormat,
+                                 MongoTemplate mongoTemplate,
+                                 @Value("${spring.data.mongodb.auto-index-creation:false}") boolean autoIndexCreation) {
+        this.storageFormat = storageFormat;
+        this.mongoTemplate = mongoTemplate;
+        this.autoIndexCreation = autoIndexCreation;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        if (!autoIndexCreation) {
+            ensureEntityIndexes(ConsentEntity.class);
+            ensureEntityIndexes(ConsentTransitionEntity.class);
+        }
+        if (storageFormat.mode() == ConsentStorageFormat.Mode.LEGACY) {
+            return;
+        }
+        ConsentStorageLayout compact = ConsentStorageLayout.COMPACT;
+        try {
+            IndexOperations indexes = mongoTemplate.indexOps(ConsentEntity.COLLECTION);
+            indexes.ensureIndex(new Index().on(compact.consentId(), Sort.Direction.ASC).named(compact.consentId()));
+            indexes.ensureIndex(new Index()
+                    .on(compact.state(), Sort.Direction.ASC)
+                    .on(compact.expiratedAt(), Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named(compact.expirationIndex()));
+        } catch (RuntimeException e) {
+            log.error("Falha ao criar os índices do formato compacto de consent_entity", e);
+        }
+    }
+
+    private void ensureEntityIndexes(Class<?> entityType) {
+        try {
+            MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+            IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+            IndexOperations indexes = mongoTemplate.indexOps(entityType);
+            resolver.resolveIndexFor(entityType).forEach(indexes::ensureIndex);
+        } catch (RuntimeException e) {
+            log.error("Falha ao criar os índices declarados em {}", entityType.getSimpleName(), e);
+        }
+    }
+}
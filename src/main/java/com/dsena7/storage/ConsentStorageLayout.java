@@ -0,0 +1,116 @@
+package com.dsena7.storage;
+
+import com.dsena7.lifecycle.GuardField;
+import com.dsena7.model.ConsentStateEnum;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Formato de um documento de consent_entity: nomes dos campos e representação do estado.
+ * <p>
+ * LEGACY é o mapeamento padrão de {@link com.dsena7.model.ConsentEntity}, com os nomes completos, o estado
+ * pelo nome do enum e {@code _class}. COMPACT usa chaves de uma letra, o estado pelo
+ * {@link ConsentStateEnum#code()} e nenhum {@code _class}. As datas são BSON Date nos dois formatos.
+ */
+public enum ConsentStorageLayout {
+
+    LEGACY("consentId", "state", "updateStatus", "createdAt", "expiratedAt", "state_expiratedAt_id"),
+    COMPACT("c", "s", "u", "t", "e", "s_e_id");
+
+    private final String consentId;
+    private final String state;
+    private final String updateStatus;
+    private final String createdAt;
+    private final String expiratedAt;
+    private final String expirationIndex;
+
+    ConsentStorageLayout(String consentId, String state, String updateStatus, String createdAt,
+                         String expiratedAt, String expirationIndex) {
+        this.consentId = consentId;
+        this.state = state;
+        this.updateStatus = updateStatus;
+        this.createdAt = createdAt;
+        this.expiratedAt = expiratedAt;
+        this.expirationIndex = expirationIndex;
+    }
+
+    public String consentId() {
+        return consentId;
+    }
+
+    public String state() {
+        return state;
+    }
+
+    public String updateStatus() {
+        return updateStatus;
+    }
+
+    public String createdAt() {
+        return createdAt;
+    }
+
+    public String expiratedAt() {
+        return expiratedAt;
+    }
+
+    /**
+     * Nome, neste formato, do campo comparado por uma guarda do ciclo de vida.
+     */
+    public String field(GuardField field) {
+        return switch (field) {
+            case CREATED_AT -> createdAt;
+            case EXPIRATED_AT -> expiratedAt;
+            case UPDATE_STATUS -> updateStatus;
+        };
+    }
+
+    /**
+     * Nome do índice (state, expiratedAt, _id) deste formato, usado como hint nas varreduras. O _id desempata
+     * consentimentos com o mesmo expiratedAt sem ordenação em memória.
+     */
+    public String expirationIndex() {
+        return expirationIndex;
+    }
+
+    public Object stateValue(ConsentStateEnum value) {
+        return this == LEGACY ? value.name() : value.code();
+    }
+
+    /**
+     * Estado lido de um documento: nome do enum ou código, conforme o formato em que foi gravado.
+     */
+    public static ConsentStateEnum readState(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Number code ? ConsentStateEnum.fromCode(code.intValue()) : ConsentStateEnum.valueOf(value.toString());
+    }
+
+    public Criteria byConsentId(String value) {
+        return where(consentId).is(value);
+    }
+
+    public Criteria byConsentIds(Collection<String> values) {
+        return where(consentId).in(values);
+    }
+
+    public Criteria byConsentIdAndState(String value, ConsentStateEnum expected) {
+        return where(consentId).is(value).and(state).is(stateValue(expected));
+    }
+
+    public Criteria byStates(Collection<ConsentStateEnum> values) {
+        return where(state).in(values.stream().map(this::stateValue).toList());
+    }
+
+    public Update transition(ConsentStateEnum target, LocalDateTime at) {
+        return new Update()
+                .set(state, stateValue(target))
+                .set(updateStatus, at);
+    }
+}
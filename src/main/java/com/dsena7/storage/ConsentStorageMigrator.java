@@ -0,0 +1,235 @@
+package com.dsena7.storage;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.sweeper.SweeperLeaseManager;
+import com.mongodb.MongoClientSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reescreve no formato compacto os documentos de consent_entity e do arquivo que ainda estão no formato
+ * legacy, com a aplicação no ar ({@code consent.storage.format=migrating}).
+ * <p>
+ * Os documentos são lidos crus, em blocos de {@code chunk-size}, e trocados com replaceOne filtrando por
+ * {@code _id}, estado e updateStatus lidos: se uma transição alterou o documento depois da leitura, a troca
+ * não acontece e o documento volta na próxima rodada. Enquanto a migração roda, leituras e escritas
+ * condicionais consideram os dois formatos (ver {@link ConsentStorageFormat}). Uma réplica por vez, sob lease.
+ * <p>
+ * O tamanho BSON de cada documento antes e depois da troca alimenta {@code consent.storage.document.size}
+ * e o relatório de cada rodada. Quando nenhuma coleção tiver documentos no formato antigo, o formato pode
+ * passar para {@code compact}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.storage.migration", name = "enabled", havingValue = "true")
+public class ConsentStorageMigrator {
+
+    private static final String LEASE_ID = "consent-storage-migration";
+    private static final ConsentStorageLayout LEGACY = ConsentStorageLayout.LEGACY;
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ConsentStorageFormat storageFormat;
+    private final SweeperLeaseManager leaseManager;
+    private final int chunkSize;
+    private volatile MigrationReport lastReport;
+
+    private final Counter migrated;
+    private final Counter conflicts;
+    private final DistributionSummary legacySize;
+    private final DistributionSummary compactSize;
+
+    public ConsentStorageMigrator(MongoTemplate mongoTemplate,
+                                  ConsentStorageFormat storageFormat,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${consent.storage.migration.chunk-size:1000}") int chunkSize,
+                                  @Value("${consent.storage.migration.lease-ms:600000}") long leaseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.storageFormat = storageFormat;
+        this.chunkSize = chunkSize;
+        this.leaseManager = new SweeperLeaseManager(mongoTemplate, LEASE_ID, instanceId(), Duration.ofMillis(leaseMillis));
+
+        this.migrated = meterRegistry.counter("consent.storage.migrated");
+        this.conflicts = meterRegistry.counter("consent.storage.migration.conflicts");
+        this.legacySize = documentSize(meterRegistry, ConsentStorageLayout.LEGACY);
+        this.compactSize = documentSize(meterRegistry, ConsentStorageLayout.COMPACT);
+    }
+
+    @Scheduled(fixedDelayString = "${consent.storage.migration.interval-ms:60000}")
+    public void migrate() {
+        if (storageFormat.mode() == ConsentStorageFormat.Mode.LEGACY) {
+            log.warn("Migração de formato habilitada com consent.storage.format=legacy; nada a fazer");
+            return;
+        }
+        if (leaseManager.tryAcquire().isEmpty()) {
+            return;
+        }
+
+        MigrationReport report = new MigrationReport();
+        try {
+            for (String collection : List.of(ConsentEntity.COLLECTION, ConsentEntity.ARCHIVE_COLLECTION)) {
+                if (!migrate(collection, report)) {
+                    log.warn("Lease da migração perdido; interrompendo após {} documentos", report.migrated);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro na migração de formato; será retomada na próxima rodada", e);
+        } finally {
+            leaseManager.release();
+            lastReport = report;
+        }
+
+        if (report.scanned == 0) {
+            log.info("Nenhum documento no formato legacy; consent.storage.format pode passar para compact");
+        } else {
+            log.info("Migração de formato: {} documentos reescritos, {} alterados durante a leitura; "
+                            + "bytes por documento: {} antes, {} depois ({}% menor)", report.migrated, report.conflicts,
+                    Math.round(report.legacyBytesPerDocument()), Math.round(report.compactBytesPerDocument()),
+                    Math.round(report.reduction() * 100));
+        }
+    }
+
+    /**
+     * Resultado da última rodada, ou null se nenhuma rodada terminou.
+     */
+    public MigrationReport lastReport() {
+        return lastReport;
+    }
+
+    private boolean migrate(String collection, MigrationReport report) {
+        Query legacy = new BasicQuery(new Document(LEGACY.consentId(), new Document("$exists", true)))
+                .cursorBatchSize(chunkSize);
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, collection)) {
+            Iterator<Document> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                List<Document> chunk = new ArrayList<>(chunkSize);
+                while (iterator.hasNext() && chunk.size() < chunkSize) {
+                    Document document = iterator.next();
+                    // Um documento já trocado pode reaparecer no cursor
+                    if (ConsentDocumentConverters.isLegacy(document)) {
+                        chunk.add(document);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    replace(collection, chunk, report);
+                }
+                if (!leaseManager.advance(null)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void replace(String collection, List<Document> chunk, MigrationReport report) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        long legacyBytes = 0;
+        long compactBytes = 0;
+        for (Document document : chunk) {
+            Document compact = ConsentDocumentConverters.toCompact(ConsentDocumentConverters.read(document));
+            int before = bsonSize(document);
+            int after = bsonSize(compact);
+            legacySize.record(before);
+            compactSize.record(after);
+            legacyBytes += before;
+            compactBytes += after;
+
+            Document unchanged = new Document("_id", document.get("_id"))
+                    .append(LEGACY.state(), document.get(LEGACY.state()))
+                    .append(LEGACY.updateStatus(), document.get(LEGACY.updateStatus()));
+            bulk.replaceOne(new BasicQuery(unchanged), compact);
+        }
+        int replaced = bulk.execute().getMatchedCount();
+        migrated.increment(replaced);
+        conflicts.increment(chunk.size() - replaced);
+        report.add(chunk.size(), replaced, legacyBytes, compactBytes);
+    }
+
+    static int bsonSize(Document document) {
+        return new RawBsonDocument(document, DOCUMENT_CODEC).getByteBuffer().remaining();
+    }
+
+    private static DistributionSummary documentSize(MeterRegistry meterRegistry, ConsentStorageLayout layout) {
+        return DistributionSummary.builder("consent.storage.document.size")
+                .baseUnit("bytes")
+                .tag("layout", layout.name().toLowerCase(Locale.ROOT))
+                .description("Tamanho BSON dos documentos de consentimento reescritos pela migração")
+                .register(meterRegistry);
+    }
+
+    private static String instanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * Totais de uma rodada de migração.
+     */
+    public static class MigrationReport {
+
+        private long scanned;
+        private long migrated;
+        private long conflicts;
+        private long legacyBytes;
+        private long compactBytes;
+
+        void add(int scanned, int migrated, long legacyBytes, long compactBytes) {
+            this.scanned += scanned;
+            this.migrated += migrated;
+            this.conflicts += scanned - migrated;
+            this.legacyBytes += legacyBytes;
+            this.compactBytes += compactBytes;
+        }
+
+        public long scanned() {
+            return scanned;
+        }
+
+        public long migrated() {
+            return migrated;
+        }
+
+        public long conflicts() {
+            return conflicts;
+        }
+
+        public double legacyBytesPerDocument() {
+            return scanned == 0 ? 0 : (double) legacyBytes / scanned;
+        }
+
+        public double compactBytesPerDocument() {
+            return scanned == 0 ? 0 : (double) compactBytes / scanned;
+        }
+
+        public double reduction() {
+            return legacyBytes == 0 ? 0 : 1 - (double) compactBytes / legacyBytes;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dsena7.storage;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Intercala streams já ordenados, consumindo um elemento de cada vez. Fechar o resultado fecha todos os
+ * streams de origem, o que libera os cursores do MongoDB.
+ */
+public final class SortedStreams {
+
+    private SortedStreams() {
+    }
+
+    public static <T> Stream<T> merge(List<Stream<T>> streams, Comparator<? super T> order) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, streams.size()),
+                (left, right) -> order.compare(left.value, right.value));
+        Iterator<T> merged = new Iterator<>() {
+
+            private boolean started;
+
+            @Override
+            public boolean hasNext() {
+                start();
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Head<T> head = heads.poll();
+                T value = head.value;
+                if (head.source.hasNext()) {
+                    heads.add(new Head<>(head.source.next(), head.source));
+                }
+                return value;
+            }
+
+            // Os cursores só são abertos na primeira leitura, como em um Stream comum
+            private void start() {
+                if (!started) {
+                    started = true;
+                    for (Stream<T> stream : streams) {
+                        Iterator<T> source = stream.iterator();
+                        if (source.hasNext()) {
+                            heads.add(new Head<>(source.next(), source));
+                        }
+                    }
+                }
+            }
+        };
+        Stream<T> result = StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+        return result.onClose(() -> streams.forEach(Stream::close));
+    }
+
+    private record Head<T>(T value, Iterator<T> source) {
+    }
+}
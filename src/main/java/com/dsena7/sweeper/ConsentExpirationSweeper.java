@@ -0,0 +1,216 @@
+package com.dsena7.sweeper;
+
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.SweeperStateEntity;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Varredura agendada que encontra, pelo índice (state, expiratedAt), os consentimentos em estados não
+ * terminais do ciclo de vida cujo expiratedAt já passou e aplica em lotes o evento resolvido pelas guardas
+ * do ciclo de vida em uso. Candidatos cuja guarda ainda não passa (por exemplo, com {@code after}
+ * configurado) são ignorados pela varredura e ficam a cargo do timer e da fila.
+ * <p>
+ * Os candidatos são lidos em blocos de {@code chunk-size}; até {@code parallelism} blocos são
+ * transicionados em paralelo, cada um com uma única escrita em lote condicional. O watermark só avança
+ * depois que todos os blocos de uma rodada foram gravados, permitindo retomar após um restart. Ele é o par
+ * (expiratedAt, _id) do último candidato, de modo que a retomada não pula consentimentos com o mesmo
+ * expiratedAt do limite.
+ * <p>
+ * Consentimentos inseridos depois com expiratedAt já anterior ao watermark (por exemplo, pela ingestão em
+ * lote) ficariam fora do intervalo; a cada {@code catch-up-interval-ms} a varredura recomeça do início para
+ * alcançá-los. Como só estados expiráveis entram no índice consultado e as transições são condicionais,
+ * essa passada relê apenas o que ainda não expirou e não reaplica nada.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.sweeper", name = "enabled", havingValue = "true")
+public class ConsentExpirationSweeper {
+
+    private static final String SWEEPER_ID = "consent-expiration";
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ConsentRepository consentRepository;
+    private final ConsentTransitionEngine transitionEngine;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final SweeperLeaseManager leaseManager;
+    private final ObjectProvider<ConsentTransitionJournal> journal;
+    private final ObjectProvider<ConsentStateCounters> stateCounters;
+    private final ConsentMetrics consentMetrics;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration catchUpInterval;
+
+    private final Map<ConsentEventEnum, Counter> candidates = new EnumMap<>(ConsentEventEnum.class);
+    private final Counter lostRaces;
+
+    public ConsentExpirationSweeper(ConsentRepository consentRepository,
+                                    ConsentTransitionEngine transitionEngine,
+                                    ConsentLifecycleRegistry lifecycleRegistry,
+                                    MongoTemplate mongoTemplate,
+                                    ObjectProvider<ConsentTransitionJournal> journal,
+                                    ObjectProvider<ConsentStateCounters> stateCounters,
+                                    ConsentMetrics consentMetrics,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${consent.sweeper.chunk-size:500}") int chunkSize,
+                                    @Value("${consent.sweeper.parallelism:4}") int parallelism,
+                                    @Value("${consent.sweeper.lease-ms:120000}") long leaseMillis,
+                                    @Value("${consent.sweeper.catch-up-interval-ms:3600000}") long catchUpIntervalMillis) {
+        this.consentRepository = consentRepository;
+        this.transitionEngine = transitionEngine;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.journal = journal;
+        this.stateCounters = stateCounters;
+        this.consentMetrics = consentMetrics;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.catchUpInterval = Duration.ofMillis(catchUpIntervalMillis);
+        this.leaseManager = new SweeperLeaseManager(mongoTemplate, SWEEPER_ID, instanceId(), Duration.ofMillis(leaseMillis));
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "consent-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (ConsentEventEnum event : ConsentEventEnum.values()) {
+            candidates.put(event, meterRegistry.counter("consent.sweeper.candidates", "event", event.name()));
+        }
+        this.lostRaces = meterRegistry.counter("consent.sweeper.lost.race");
+    }
+
+    @Scheduled(fixedDelayString = "${consent.sweeper.interval-ms:60000}")
+    public void sweep() {
+        SweeperStateEntity state = leaseManager.tryAcquire().orElse(null);
+        if (state == null) {
+            return;
+        }
+
+        LocalDateTime upTo = LocalDateTime.now();
+        if (state.getCatchUpAt() == null || !state.getCatchUpAt().plus(catchUpInterval).isAfter(upTo)) {
+            if (!leaseManager.restart(upTo)) {
+                return;
+            }
+            state.setWatermark(null);
+            state.setWatermarkId(null);
+            log.info("Iniciando passada completa da varredura de expiração");
+        }
+        LocalDateTime watermark = state.getWatermark() != null ? state.getWatermark() : INITIAL_WATERMARK;
+        log.info("Iniciando varredura de expiração no intervalo ({}/{}, {}]", watermark, state.getWatermarkId(), upTo);
+
+        try (Stream<ConsentEntity> candidates =
+                     consentRepository.streamExpirationCandidates(watermark, state.getWatermarkId(), upTo)) {
+            Iterator<ConsentEntity> iterator = candidates.iterator();
+            long swept = 0;
+            while (iterator.hasNext()) {
+                List<List<ConsentEntity>> round = nextRound(iterator);
+                runRound(round);
+                swept += round.stream().mapToInt(List::size).sum();
+
+                List<ConsentEntity> lastChunk = round.get(round.size() - 1);
+                ConsentEntity last = lastChunk.get(lastChunk.size() - 1);
+                if (!leaseManager.advance(last.getExpiratedAt(), last.getId())) {
+                    log.warn("Lease da varredura perdido; interrompendo após {} consentimentos", swept);
+                    return;
+                }
+            }
+            leaseManager.advance(upTo);
+            log.info("Varredura de expiração concluída: {} consentimentos avaliados", swept);
+        } catch (Exception e) {
+            log.error("Erro na varredura de expiração; será retomada a partir do último watermark", e);
+        } finally {
+            leaseManager.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<List<ConsentEntity>> nextRound(Iterator<ConsentEntity> iterator) {
+        List<List<ConsentEntity>> round = new ArrayList<>(parallelism);
+        while (iterator.hasNext() && round.size() < parallelism) {
+            List<ConsentEntity> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext() && chunk.size() < chunkSize) {
+                chunk.add(iterator.next());
+            }
+            round.add(chunk);
+        }
+        return round;
+    }
+
+    private void runRound(List<List<ConsentEntity>> round) {
+        CompletableFuture.allOf(round.stream()
+                .map(chunk -> CompletableFuture.runAsync(() -> transitionChunk(chunk), executor))
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void transitionChunk(List<ConsentEntity> chunk) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        ConsentLifecycle lifecycle = lifecycleRegistry.current();
+        List<ConsentStateTransition> transitions = new ArrayList<>(chunk.size());
+        for (ConsentEntity entity : chunk) {
+            ConsentEventEnum event = lifecycle.resolveEvent(entity, now);
+            if (event == null) {
+                continue;
+            }
+            transitions.add(new ConsentStateTransition(
+                    entity.getConsentId(), entity.getState(), transitionEngine.fire(entity, event), event, now));
+            candidates.get(event).increment();
+        }
+        if (transitions.isEmpty()) {
+            return;
+        }
+
+        int applied = consentRepository.applyTransitions(transitions);
+        if (applied < transitions.size()) {
+            lostRaces.increment(transitions.size() - applied);
+        }
+        List<ConsentStateTransition> appliedTransitions = consentRepository.findApplied(transitions, applied);
+        journal.ifAvailable(transitionJournal -> transitionJournal.recordApplied(appliedTransitions));
+        stateCounters.ifAvailable(counters -> counters.recordApplied(appliedTransitions));
+        consentMetrics.recordApplied(appliedTransitions);
+    }
+
+    private static String instanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.dsena7.sweeper;
+
+import com.dsena7.model.SweeperStateEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Controla o lease que garante que apenas uma réplica varre um intervalo de tempo por vez
+ * e o watermark a partir do qual a próxima varredura é retomada.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class SweeperLeaseManager {
+
+    private final MongoTemplate mongoTemplate;
+    private final String sweeperId;
+    private final String owner;
+    private final Duration leaseDuration;
+
+    /**
+     * Adquire ou renova o lease. O documento só é alterado se o lease estiver livre, expirado
+     * ou já pertencer a esta réplica; caso contrário o upsert colide com o _id existente.
+     *
+     * @return Estado da varredura com o watermark atual, ou vazio se outra réplica detém o lease
+     */
+    public Optional<SweeperStateEntity> tryAcquire() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(where("id").is(sweeperId).orOperator(
+                where("owner").is(owner),
+                where("leaseUntil").lt(now)));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("leaseUntil", now.plus(leaseDuration));
+        try {
+            return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), SweeperStateEntity.class));
+        } catch (DuplicateKeyException e) {
+            log.debug("Lease da varredura {} pertence a outra réplica", sweeperId);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Persiste o novo watermark e renova o lease, desde que esta réplica ainda seja a dona.
+     *
+     * @param watermark Maior expiratedAt já processado
+     * @return false se o lease foi perdido para outra réplica
+     */
+    public boolean advance(LocalDateTime watermark) {
+        return advance(watermark, null);
+    }
+
+    /**
+     * Persiste o novo watermark com o _id de desempate e renova o lease, desde que esta réplica ainda seja a dona.
+     *
+     * @param watermark   Maior expiratedAt já processado
+     * @param watermarkId _id do último consentimento processado com esse expiratedAt; null se todos já foram
+     * @return false se o lease foi perdido para outra réplica
+     */
+    public boolean advance(LocalDateTime watermark, String watermarkId) {
+        Update update = new Update()
+                .set("watermark", watermark)
+                .set("watermarkId", watermarkId)
+                .set("leaseUntil", LocalDateTime.now().plus(leaseDuration));
+        return mongoTemplate.updateFirst(owned(), update, SweeperStateEntity.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Recomeça a varredura do início: apaga o watermark e registra o início da passada completa.
+     *
+     * @param at Início da passada
+     * @return false se o lease foi perdido para outra réplica
+     */
+    public boolean restart(LocalDateTime at) {
+        Update update = new Update()
+                .unset("watermark")
+                .unset("watermarkId")
+                .set("catchUpAt", at)
+                .set("leaseUntil", LocalDateTime.now().plus(leaseDuration));
+        return mongoTemplate.updateFirst(owned(), update, SweeperStateEntity.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Libera o lease ao final da varredura para que outra réplica possa assumir a próxima.
+     */
+    public void release() {
+        mongoTemplate.updateFirst(owned(), new Update().set("leaseUntil", LocalDateTime.now()), SweeperStateEntity.class);
+    }
+
+    private Query owned() {
+        return Query.query(new Criteria().andOperator(where("id").is(sweeperId), where("owner").is(owner)));
+    }
+}
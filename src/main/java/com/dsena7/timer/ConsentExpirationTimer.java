@@ -0,0 +1,164 @@
+package com.dsena7.timer;
+
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.service.ConsentStateService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Dispara {@link ConsentStateService#processConsent(String)} no expiratedAt de cada consentimento em um
+ * estado não terminal do ciclo de vida em uso, sem depender de uma mensagem externa.
+ * <p>
+ * Os prazos ficam em um {@link HierarchicalTimingWheel} em memória, avançado a cada tick por uma
+ * thread dedicada. Na inicialização o timer é reconstruído a partir do MongoDB com os consentimentos
+ * ainda não vencidos; os já vencidos ficam a cargo da varredura de expiração.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.timer", name = "enabled", havingValue = "true")
+public class ConsentExpirationTimer {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final ConsentStateService consentStateService;
+    private final ConsentRepository consentRepository;
+    private final ConsentLifecycleRegistry lifecycleRegistry;
+    private final HierarchicalTimingWheel wheel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService dispatcher;
+
+    private final Counter scheduled;
+    private final Counter cancelled;
+    private final Counter fired;
+
+    public ConsentExpirationTimer(@Lazy ConsentStateService consentStateService,
+                                  ConsentRepository consentRepository,
+                                  ConsentLifecycleRegistry lifecycleRegistry,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${consent.timer.tick-ms:100}") long tickMillis,
+                                  @Value("${consent.timer.initial-capacity:65536}") int initialCapacity,
+                                  @Value("${consent.timer.dispatch-threads:4}") int dispatchThreads) {
+        this.consentStateService = consentStateService;
+        this.consentRepository = consentRepository;
+        this.lifecycleRegistry = lifecycleRegistry;
+        this.wheel = new HierarchicalTimingWheel(tickMillis, System.currentTimeMillis(), initialCapacity);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "consent-timer-tick"));
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> daemon(runnable, "consent-timer-dispatch"));
+
+        this.scheduled = meterRegistry.counter("consent.timer.scheduled");
+        this.cancelled = meterRegistry.counter("consent.timer.cancelled");
+        this.fired = meterRegistry.counter("consent.timer.fired");
+        Gauge.builder("consent.timer.pending", wheel, HierarchicalTimingWheel::size).register(meterRegistry);
+
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra o prazo de um consentimento que ainda pode transicionar.
+     *
+     * @param entity Entidade salva
+     */
+    public void schedule(ConsentEntity entity) {
+        if (entity.getExpiratedAt() == null || !lifecycleRegistry.current().accepts(entity.getState())) {
+            return;
+        }
+        long deadline = entity.getExpiratedAt().atZone(ZONE).toInstant().toEpochMilli();
+        lock.lock();
+        try {
+            wheel.schedule(entity.getConsentId(), deadline);
+        } finally {
+            lock.unlock();
+        }
+        scheduled.increment();
+    }
+
+    /**
+     * Remove o prazo de um consentimento que já transicionou.
+     *
+     * @param consentId Identificador do consentimento
+     */
+    public void cancel(String consentId) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = wheel.cancel(consentId);
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            cancelled.increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long count = 0;
+        try (Stream<ConsentEntity> pending = consentRepository.streamExpirationCandidates(LocalDateTime.now(), null, FAR_FUTURE)) {
+            for (ConsentEntity entity : (Iterable<ConsentEntity>) pending::iterator) {
+                schedule(entity);
+                count++;
+            }
+        } catch (Exception e) {
+            log.error("Erro ao reconstruir timers de expiração a partir do MongoDB", e);
+        }
+        log.info("Timers de expiração reconstruídos: {} consentimentos pendentes", count);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private void tick() {
+        List<String> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), expired::add);
+        } finally {
+            lock.unlock();
+        }
+        for (String consentId : expired) {
+            fired.increment();
+            dispatcher.execute(() -> process(consentId));
+        }
+    }
+
+    private void process(String consentId) {
+        try {
+            consentStateService.processConsent(consentId);
+        } catch (Exception e) {
+            log.warn("Falha ao processar expiração agendada do consentimento {}: {}", consentId, e.getMessage());
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,295 @@
+package com.dsena7.timer;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel hierárquico com {@value #LEVELS} níveis de {@value #WHEEL_SIZE} posições.
+ * <p>
+ * Os timers são mantidos em arrays paralelos (slab) encadeados por índices inteiros, sem um objeto
+ * por timer: cada entrada ocupa o id, o tick de disparo e os ponteiros next/prev, além de uma posição
+ * no índice aberto por id. Inserção e cancelamento são O(1); o avanço do relógio move os timers dos
+ * níveis superiores para os inferiores (cascata) conforme os ticks passam.
+ * <p>
+ * A classe não é thread-safe; o acesso concorrente deve ser serializado pelo chamador.
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    static final int LEVELS = 4;
+    private static final long MAX_DELTA = 1L << (WHEEL_BITS * LEVELS);
+
+    private static final int NIL = -1;
+
+    private final long tickMillis;
+    private long currentTick;
+
+    // Slab de entradas
+    private String[] ids;
+    private long[] ticks;
+    private int[] next;
+    private int[] prev;
+    private int freeHead;
+    private int allocated;
+    private int size;
+
+    // Cabeças das listas de cada posição de cada nível; prev de uma cabeça guarda -(bucket + 2)
+    private final int[] buckets = new int[LEVELS * WHEEL_SIZE];
+
+    // Índice aberto id -> entrada, com sondagem linear
+    private String[] indexKeys;
+    private int[] indexValues;
+    private int indexMask;
+
+    public HierarchicalTimingWheel(long tickMillis, long startMillis, int initialCapacity) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        int capacity = Math.max(16, initialCapacity);
+        this.ids = new String[capacity];
+        this.ticks = new long[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.freeHead = NIL;
+        Arrays.fill(buckets, NIL);
+
+        int indexCapacity = Integer.highestOneBit(Math.max(32, capacity * 2 - 1)) << 1;
+        this.indexKeys = new String[indexCapacity];
+        this.indexValues = new int[indexCapacity];
+        this.indexMask = indexCapacity - 1;
+    }
+
+    /**
+     * Agenda (ou reagenda) o timer de um id.
+     *
+     * @param id             Identificador do timer
+     * @param deadlineMillis Instante de disparo em epoch millis
+     */
+    public void schedule(String id, long deadlineMillis) {
+        cancel(id);
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+
+        int entry = allocate();
+        ids[entry] = id;
+        ticks[entry] = tick;
+        link(entry);
+        indexPut(id, entry);
+        size++;
+    }
+
+    /**
+     * Cancela o timer de um id.
+     *
+     * @param id Identificador do timer
+     * @return true se havia um timer pendente para o id
+     */
+    public boolean cancel(String id) {
+        int entry = indexRemove(id);
+        if (entry == NIL) {
+            return false;
+        }
+        unlink(entry);
+        release(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Avança o relógio até {@code nowMillis}, entregando os ids cujos timers venceram.
+     *
+     * @param nowMillis Instante atual em epoch millis
+     * @param expired   Recebe cada id vencido, em ordem de tick
+     * @return Quantidade de timers disparados
+     */
+    public int advance(long nowMillis, Consumer<String> expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            if ((currentTick & WHEEL_MASK) == 0) {
+                cascade(1);
+            }
+            fired += fire((int) (currentTick & WHEEL_MASK), expired);
+        }
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int slot = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        if (slot == 0) {
+            cascade(level + 1);
+        }
+        int bucket = level * WHEEL_SIZE + slot;
+        int entry = buckets[bucket];
+        buckets[bucket] = NIL;
+        while (entry != NIL) {
+            int following = next[entry];
+            link(entry);
+            entry = following;
+        }
+    }
+
+    private int fire(int slot, Consumer<String> expired) {
+        int entry = buckets[slot];
+        buckets[slot] = NIL;
+        int fired = 0;
+        while (entry != NIL) {
+            int following = next[entry];
+            if (ticks[entry] <= currentTick) {
+                String id = ids[entry];
+                indexRemove(id);
+                release(entry);
+                size--;
+                fired++;
+                expired.accept(id);
+            } else {
+                link(entry);
+            }
+            entry = following;
+        }
+        return fired;
+    }
+
+    private void link(int entry) {
+        long placement = Math.max(Math.min(ticks[entry], currentTick + MAX_DELTA - 1), currentTick);
+        long delta = placement - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int bucket = level * WHEEL_SIZE + ((int) (placement >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        int head = buckets[bucket];
+        next[entry] = head;
+        prev[entry] = -(bucket + 2);
+        if (head != NIL) {
+            prev[head] = entry;
+        }
+        buckets[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int before = prev[entry];
+        int after = next[entry];
+        if (before < 0) {
+            buckets[-before - 2] = after;
+            if (after != NIL) {
+                prev[after] = before;
+            }
+        } else {
+            next[before] = after;
+            if (after != NIL) {
+                prev[after] = before;
+            }
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NIL) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (allocated == ids.length) {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int entry) {
+        ids[entry] = null;
+        next[entry] = freeHead;
+        freeHead = entry;
+    }
+
+    private void indexPut(String id, int entry) {
+        if ((size + 1) * 2 > indexKeys.length) {
+            resizeIndex();
+        }
+        int position = mix(id.hashCode()) & indexMask;
+        while (indexKeys[position] != null) {
+            position = (position + 1) & indexMask;
+        }
+        indexKeys[position] = id;
+        indexValues[position] = entry;
+    }
+
+    private int indexRemove(String id) {
+        int position = mix(id.hashCode()) & indexMask;
+        while (indexKeys[position] != null) {
+            if (indexKeys[position].equals(id)) {
+                int entry = indexValues[position];
+                shiftBack(position);
+                return entry;
+            }
+            position = (position + 1) & indexMask;
+        }
+        return NIL;
+    }
+
+    /**
+     * Remoção com deslocamento para trás, mantendo as cadeias de sondagem linear sem lápides.
+     */
+    private void shiftBack(int position) {
+        int gap = position;
+        int current = (gap + 1) & indexMask;
+        while (indexKeys[current] != null) {
+            int home = mix(indexKeys[current].hashCode()) & indexMask;
+            if (((current - home) & indexMask) >= ((current - gap) & indexMask)) {
+                indexKeys[gap] = indexKeys[current];
+                indexValues[gap] = indexValues[current];
+                gap = current;
+            }
+            current = (current + 1) & indexMask;
+        }
+        indexKeys[gap] = null;
+    }
+
+    private void resizeIndex() {
+        String[] oldKeys = indexKeys;
+        int[] oldValues = indexValues;
+        indexKeys = new String[oldKeys.length << 1];
+        indexValues = new int[oldKeys.length << 1];
+        indexMask = indexKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int position = mix(oldKeys[i].hashCode()) & indexMask;
+                while (indexKeys[position] != null) {
+                    position = (position + 1) & indexMask;
+                }
+                indexKeys[position] = oldKeys[i];
+                indexValues[position] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+}
@@ -0,0 +1,161 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.model.ConsentBatchResult;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentStateService;
+import com.rabbitmq.client.Channel;
+import jakarta.persistence.PersistenceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumidor em lote da fila consent.queue. Cada lote gera uma única leitura e uma única escrita
+ * no MongoDB; o ack/nack é feito por mensagem para que um consentId inválido não reentregue o lote.
+ * <p>
+ * Só as mensagens que falharam deixam de ser confirmadas: com o retry habilitado elas seguem pelo
+ * {@link ConsentRetryRouter}; sem ele, falhas transitórias de persistência (leitura do lote ou escrita
+ * que falhou também isoladamente) voltam para a fila e as demais são rejeitadas sem requeue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "batch")
+public class ConsentBatchConsumerUtils {
+
+    private static final String QUEUE = "consent.queue";
+
+    private final ConsentStateService consentStateService;
+    private final ConsentEventCodecs consentEventCodecs;
+    private final ObjectProvider<ConsentDeliveryFilter> deliveryFilter;
+    private final ObjectProvider<ConsentRetryRouter> retryRouter;
+    private final ConsentMetrics consentMetrics;
+
+    @RabbitListener(queues = QUEUE, containerFactory = "consentBatchContainerFactory")
+    public void receivedMessages(List<Message> messages, Channel channel) throws IOException {
+        log.info("Lote consumido com {} eventos", messages.size());
+
+        ConsentDeliveryFilter filter = deliveryFilter.getIfAvailable();
+        List<String> consentIds = new ArrayList<>(messages.size());
+        List<String> messageIds = new ArrayList<>(messages.size());
+        List<String> pending = new ArrayList<>(messages.size());
+        RuntimeException[] decodeFailures = new RuntimeException[messages.size()];
+        boolean[] duplicate = new boolean[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            Object publishedAt = message.getMessageProperties().getHeader(ConsentMetrics.PUBLISHED_AT_HEADER);
+            consentMetrics.recordQueueDwell(publishedAt instanceof Number number ? number.longValue() : null);
+            long started = System.nanoTime();
+            String consentId = null;
+            try {
+                consentId = consentEventCodecs.decode(message).consentId();
+                consentMetrics.record(Stage.DECODE, null, Outcome.SUCCESS, started);
+            } catch (ConsentCodecException e) {
+                consentMetrics.record(Stage.DECODE, null, Outcome.FAILURE, started);
+                consentMetrics.failure(FailureReason.DECODE);
+                log.warn(e.getMessage());
+                decodeFailures[i] = e;
+            }
+            String messageId = message.getMessageProperties().getMessageId();
+            consentIds.add(consentId);
+            messageIds.add(messageId);
+            if (consentId != null && filter != null && filter.isDuplicate(messageId, consentId)) {
+                duplicate[i] = true;
+            } else if (consentId != null) {
+                pending.add(consentId);
+            }
+        }
+
+        try {
+            ConsentBatchResult result = pending.isEmpty()
+                    ? new ConsentBatchResult(Map.of())
+                    : process(pending);
+
+            ConsentRetryRouter router = retryRouter.getIfAvailable();
+            for (int i = 0; i < messages.size(); i++) {
+                long deliveryTag = messages.get(i).getMessageProperties().getDeliveryTag();
+                String consentId = consentIds.get(i);
+                if (duplicate[i]) {
+                    log.info("Entrega duplicada descartada para o consentId {} (messageId {})", consentId, messageIds.get(i));
+                    channel.basicAck(deliveryTag, false);
+                    continue;
+                }
+                RuntimeException failure = consentId == null ? decodeFailures[i] : result.failures().get(consentId);
+                if (failure == null) {
+                    if (filter != null) {
+                        filter.completed(messageIds.get(i), consentId, null);
+                    }
+                    channel.basicAck(deliveryTag, false);
+                    continue;
+                }
+                log.warn("Evento rejeitado para o consentId {}: {}", consentId, failure.getMessage());
+                ConsentRetryRouter.Outcome outcome = router == null ? null : route(router, messages.get(i), failure);
+                // Sem destino no roteador, a mensagem só volta para a fila se uma nova tentativa pode dar certo
+                boolean requeue = outcome == null
+                        && (router == null ? isTransient(failure) : ConsentRetryRouter.isRetryable(failure));
+                if (filter != null && consentId != null && outcome != ConsentRetryRouter.Outcome.RETRY && !requeue) {
+                    filter.completed(messageIds.get(i), consentId, failure);
+                }
+                if (outcome != null) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicNack(deliveryTag, false, requeue);
+                }
+            }
+        } finally {
+            // As entregas liberadas pelo filtro deixam de constar como em andamento
+            for (int i = 0; i < consentIds.size(); i++) {
+                if (filter != null && consentIds.get(i) != null && !duplicate[i]) {
+                    filter.release(messageIds.get(i), consentIds.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Uma falha que interrompe o lote inteiro (a leitura $in, por exemplo) vira a falha de cada consentId,
+     * em vez de rejeitar as mensagens pelo container.
+     */
+    private ConsentBatchResult process(List<String> consentIds) {
+        try {
+            return consentStateService.processConsents(consentIds);
+        } catch (RuntimeException e) {
+            log.error("Erro ao processar lote de {} consentimentos", consentIds.size(), e);
+            Map<String, RuntimeException> failures = new HashMap<>();
+            consentIds.forEach(consentId -> failures.put(consentId, e));
+            return new ConsentBatchResult(failures);
+        }
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        return failure instanceof PersistenceException || failure instanceof DataAccessException;
+    }
+
+    private static ConsentRetryRouter.Outcome route(ConsentRetryRouter router, Message message, RuntimeException failure) {
+        try {
+            return router.route(message, QUEUE, failure);
+        } catch (AmqpException e) {
+            log.error("Falha ao republicar a mensagem {}", message.getMessageProperties().getDeliveryTag(), e);
+            return null;
+        }
+    }
+}
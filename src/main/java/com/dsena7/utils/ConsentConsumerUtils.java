@@ -1,31 +1,100 @@
 package com.dsena7.utils;
 
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
 import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.retry.ConsentRetryRouter;
 import com.dsena7.service.ConsentStateService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
+@ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "single", matchIfMissing = true)
 public class ConsentConsumerUtils {
 
+    private static final String QUEUE = "consent.queue";
+
     private final ConsentStateService consentStateService;
+    private final ConsentMetrics consentMetrics;
+    private final ConsentEventCodecs consentEventCodecs;
+    private final ObjectProvider<ConsentDeliveryFilter> deliveryFilter;
+    private final ObjectProvider<ConsentRetryRouter> retryRouter;
 
-    @RabbitListener(queues = "consent.queue")
-    public void receivedMessage(String message) throws IllegalAccessException {
-        log.info("Evento consumido para o consentId {}", message);
-        ObjectMapper objectMapper = new ObjectMapper();
+    @RabbitListener(queues = QUEUE)
+    public void receivedMessage(Message message,
+                                @Header(name = ConsentMetrics.PUBLISHED_AT_HEADER, required = false) Long publishedAt,
+                                @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId)
+            throws IllegalAccessException {
+        consentMetrics.recordQueueDwell(publishedAt);
+        long started = System.nanoTime();
+        ConsentRetryRouter router = retryRouter.getIfAvailable();
         ConsentIdRequestDTO dto;
         try {
-            dto = objectMapper.readValue(message, ConsentIdRequestDTO.class);
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Payload inválido: " + message, e);
+            dto = consentEventCodecs.decode(message);
+        } catch (ConsentCodecException e) {
+            consentMetrics.record(Stage.DECODE, null, Outcome.FAILURE, started);
+            consentMetrics.failure(FailureReason.DECODE);
+            if (router == null) {
+                throw e;
+            }
+            route(router, message, e);
+            return;
+        }
+        consentMetrics.record(Stage.DECODE, null, Outcome.SUCCESS, started);
+        log.info("Evento consumido para o consentId {}", dto.consentId());
+
+        ConsentDeliveryFilter filter = deliveryFilter.getIfAvailable();
+        if (filter != null && filter.isDuplicate(messageId, dto.consentId())) {
+            log.info("Entrega duplicada descartada para o consentId {} (messageId {})", dto.consentId(), messageId);
+            return;
+        }
+        try {
+            consentStateService.processConsent(dto.consentId());
+            if (filter != null) {
+                filter.completed(messageId, dto.consentId(), null);
+            }
+        } catch (RuntimeException | IllegalAccessException e) {
+            // Uma entrega reagendada ainda não terminou: a cópia volta com o mesmo messageId
+            boolean retrying = router != null && route(router, message, e) == ConsentRetryRouter.Outcome.RETRY;
+            if (filter != null && !retrying) {
+                filter.completed(messageId, dto.consentId(), e);
+            }
+            if (router == null) {
+                throw e;
+            }
+        } finally {
+            if (filter != null) {
+                filter.release(messageId, dto.consentId());
+            }
+        }
+    }
+
+    /**
+     * Se a republicação não for confirmada a entrega volta para a fila: com {@code default-requeue-rejected: false}
+     * uma exceção comum faria o container rejeitá-la sem requeue, e consent.queue não tem DLX.
+     */
+    private static ConsentRetryRouter.Outcome route(ConsentRetryRouter router, Message message, Throwable failure) {
+        try {
+            return router.route(message, QUEUE, failure);
+        } catch (AmqpException e) {
+            log.error("Falha ao republicar a mensagem {}", message.getMessageProperties().getDeliveryTag(), e);
+            throw new ImmediateRequeueAmqpException("Republicação não confirmada; entrega devolvida à fila", e);
         }
-        consentStateService.processConsent(dto.consentId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentStateService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor das filas particionadas consent.queue.p{n}. As filas assinadas são definidas pelo
+ * {@link com.dsena7.partition.PartitionedConsumerCoordinator}; cada fila tem um único consumidor
+ * ativo, então os eventos de um consentimento são processados na ordem de publicação.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.partitions", name = "enabled", havingValue = "true")
+public class ConsentPartitionedConsumerUtils implements MessageListener {
+
+    private final ConsentStateService consentStateService;
+    private final ConsentMetrics consentMetrics;
+    private final ConsentEventCodecs consentEventCodecs;
+    private final ObjectProvider<ConsentDeliveryFilter> deliveryFilter;
+    private final ObjectProvider<ConsentRetryRouter> retryRouter;
+
+    @Override
+    public void onMessage(Message message) {
+        Object publishedAt = message.getMessageProperties().getHeader(ConsentMetrics.PUBLISHED_AT_HEADER);
+        consentMetrics.recordQueueDwell(publishedAt instanceof Number number ? number.longValue() : null);
+
+        long started = System.nanoTime();
+        String queue = message.getMessageProperties().getConsumerQueue();
+        ConsentRetryRouter router = retryRouter.getIfAvailable();
+        String consentId;
+        try {
+            consentId = consentEventCodecs.decode(message).consentId();
+        } catch (ConsentCodecException e) {
+            consentMetrics.record(Stage.DECODE, null, Outcome.FAILURE, started);
+            consentMetrics.failure(FailureReason.DECODE);
+            if (router == null) {
+                throw new AmqpRejectAndDontRequeueException("Payload inválido na fila " + queue, e);
+            }
+            router.route(message, queue, e);
+            return;
+        }
+        consentMetrics.record(Stage.DECODE, null, Outcome.SUCCESS, started);
+        String messageId = message.getMessageProperties().getMessageId();
+        ConsentDeliveryFilter filter = deliveryFilter.getIfAvailable();
+        if (filter != null && filter.isDuplicate(messageId, consentId)) {
+            log.info("Entrega duplicada descartada para o consentId {} (messageId {})", consentId, messageId);
+            return;
+        }
+        log.info("Evento consumido para o consentId {} na fila {}", consentId, queue);
+        try {
+            consentStateService.processConsent(consentId);
+            if (filter != null) {
+                filter.completed(messageId, consentId, null);
+            }
+        } catch (RuntimeException | IllegalAccessException e) {
+            boolean retrying = router != null && router.route(message, queue, e) == ConsentRetryRouter.Outcome.RETRY;
+            if (filter != null && !retrying) {
+                filter.completed(messageId, consentId, e);
+            }
+            if (router == null) {
+                throw new AmqpRejectAndDontRequeueException(e.getMessage(), e);
+            }
+        } finally {
+            if (filter != null) {
+                filter.release(messageId, consentId);
+            }
+        }
+    }
+}
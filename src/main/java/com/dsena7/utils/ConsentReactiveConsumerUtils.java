@@ -0,0 +1,227 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ReactiveConsentStateService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.Receiver;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumidor reativo da fila consent.queue sobre o reactor-rabbitmq.
+ * <p>
+ * O backpressure é propagado de ponta a ponta: cada entrega só é confirmada depois que o
+ * {@link ReactiveConsentStateService} conclui a escrita no MongoDB, o {@code flatMap} limita a
+ * {@code prefetch} as entregas em processamento e o qos do canal com o mesmo valor impede o broker de
+ * enviar mais mensagens enquanto houver {@code prefetch} entregas sem ack. Assim a latência do
+ * MongoDB reduz diretamente a vazão de entrega do broker.
+ * <p>
+ * A falha no tratamento de uma entrega fica restrita a ela: a entrega volta para a fila e o consumo
+ * segue. Se o próprio consumo falhar (canal ou conexão perdidos), ele é reiniciado com backoff
+ * exponencial entre {@code retry-min-backoff-ms} e {@code retry-max-backoff-ms}.
+ * <p>
+ * Só é não bloqueante de ponta a ponta com {@code consent.statemachine.engine=compiled}; com
+ * {@code engine=spring} cada transição ocupa uma thread do boundedElastic.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "reactive")
+public class ConsentReactiveConsumerUtils implements SmartLifecycle {
+
+    private static final String QUEUE = "consent.queue";
+    private static final MessagePropertiesConverter PROPERTIES_CONVERTER = new DefaultMessagePropertiesConverter();
+
+    private final ReactiveConsentStateService consentStateService;
+    private final Receiver receiver;
+    private final ConsentEventCodecs consentEventCodecs;
+    private final ObjectProvider<ConsentDeliveryFilter> deliveryFilter;
+    private final ObjectProvider<ConsentRetryRouter> retryRouter;
+    private final ConsentMetrics consentMetrics;
+    private final int prefetch;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Disposable subscription;
+
+    public ConsentReactiveConsumerUtils(ReactiveConsentStateService consentStateService,
+                                        Receiver receiver,
+                                        ConsentEventCodecs consentEventCodecs,
+                                        ObjectProvider<ConsentDeliveryFilter> deliveryFilter,
+                                        ObjectProvider<ConsentRetryRouter> retryRouter,
+                                        ConsentMetrics consentMetrics,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${consent.consumer.reactive.prefetch:256}") int prefetch,
+                                        @Value("${consent.consumer.reactive.retry-min-backoff-ms:1000}") long minBackoffMillis,
+                                        @Value("${consent.consumer.reactive.retry-max-backoff-ms:30000}") long maxBackoffMillis) {
+        this.consentStateService = consentStateService;
+        this.receiver = receiver;
+        this.consentEventCodecs = consentEventCodecs;
+        this.deliveryFilter = deliveryFilter;
+        this.retryRouter = retryRouter;
+        this.consentMetrics = consentMetrics;
+        this.prefetch = prefetch;
+        this.minBackoff = Duration.ofMillis(minBackoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+
+        Gauge.builder("consent.consumer.in.flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        subscription = receiver.consumeManualAck(QUEUE, new ConsumeOptions().qos(prefetch))
+                .flatMap(delivery -> Mono.defer(() -> handle(delivery))
+                        .onErrorResume(e -> requeue(delivery, e)), prefetch)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Consumo reativo da fila {} interrompido; reiniciando",
+                                QUEUE, signal.failure())))
+                .subscribe(null, e -> log.error("Consumo reativo da fila {} encerrado", QUEUE, e));
+        log.info("Consumidor reativo iniciado na fila {} com prefetch {}", QUEUE, prefetch);
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Disposable current = subscription;
+        return current != null && !current.isDisposed();
+    }
+
+    private Mono<Void> handle(AcknowledgableDelivery delivery) {
+        Map<String, Object> headers = delivery.getProperties().getHeaders();
+        Object publishedAt = headers == null ? null : headers.get(ConsentMetrics.PUBLISHED_AT_HEADER);
+        consentMetrics.recordQueueDwell(publishedAt instanceof Number number ? number.longValue() : null);
+
+        long started = System.nanoTime();
+        String consentId;
+        try {
+            consentId = consentEventCodecs.decode(delivery.getProperties().getContentType(), delivery.getBody()).consentId();
+        } catch (ConsentCodecException e) {
+            consentMetrics.record(Stage.DECODE, null, Outcome.FAILURE, started);
+            consentMetrics.failure(FailureReason.DECODE);
+            log.warn(e.getMessage());
+            return reject(delivery, e).then();
+        }
+        consentMetrics.record(Stage.DECODE, null, Outcome.SUCCESS, started);
+
+        String messageId = delivery.getProperties().getMessageId();
+        ConsentDeliveryFilter filter = deliveryFilter.getIfAvailable();
+        if (filter != null && filter.isDuplicate(messageId, consentId)) {
+            log.info("Entrega duplicada descartada para o consentId {} (messageId {})", consentId, messageId);
+            delivery.ack();
+            return Mono.empty();
+        }
+
+        log.info("Evento consumido para o consentId {}", consentId);
+        inFlight.incrementAndGet();
+        return Mono.defer(() -> consentStateService.processConsent(consentId))
+                .thenReturn(true)
+                .onErrorResume(e -> {
+                    log.warn("Evento rejeitado para o consentId {}: {}", consentId, e.getMessage());
+                    return reject(delivery, e)
+                            .doOnNext(finished -> {
+                                if (filter != null && finished) {
+                                    filter.completed(messageId, consentId, e);
+                                }
+                            })
+                            .thenReturn(false);
+                })
+                // O ack fica fora do onErrorResume: uma falha nele não pode republicar a entrega
+                .doOnNext(processed -> {
+                    if (processed) {
+                        if (filter != null) {
+                            filter.completed(messageId, consentId, null);
+                        }
+                        delivery.ack();
+                    }
+                })
+                .doFinally(signal -> {
+                    if (filter != null) {
+                        filter.release(messageId, consentId);
+                    }
+                    inFlight.decrementAndGet();
+                })
+                .then();
+    }
+
+    /**
+     * Republica a entrega pelo {@link ConsentRetryRouter} e confirma a original. A republicação aguarda o
+     * confirm do broker, então roda no scheduler boundedElastic. Sem o roteador a entrega é rejeitada sem
+     * requeue; se a republicação falhar ela volta para a fila, pois consent.queue não tem DLX.
+     *
+     * @return true se a entrega não voltará com o mesmo messageId (descartada ou enviada à DLQ)
+     */
+    private Mono<Boolean> reject(AcknowledgableDelivery delivery, Throwable failure) {
+        ConsentRetryRouter router = retryRouter.getIfAvailable();
+        if (router == null) {
+            delivery.nack(false);
+            return Mono.just(true);
+        }
+        return Mono.fromCallable(() -> router.route(toMessage(delivery), QUEUE, failure))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(outcome -> {
+                    delivery.ack();
+                    return outcome == ConsentRetryRouter.Outcome.DEAD_LETTER;
+                })
+                .onErrorResume(e -> {
+                    log.error("Falha ao republicar a entrega {}", delivery.getEnvelope().getDeliveryTag(), e);
+                    delivery.nack(true);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Devolve à fila uma entrega cujo tratamento falhou fora do fluxo de rejeição. Se ela já foi confirmada
+     * ou rejeitada o nack não tem efeito.
+     */
+    private Mono<Void> requeue(AcknowledgableDelivery delivery, Throwable failure) {
+        log.error("Falha ao tratar a entrega {}; devolvendo à fila", delivery.getEnvelope().getDeliveryTag(), failure);
+        try {
+            delivery.nack(true);
+        } catch (RuntimeException e) {
+            log.error("Falha ao devolver a entrega {} à fila", delivery.getEnvelope().getDeliveryTag(), e);
+        }
+        return Mono.empty();
+    }
+
+    private static Message toMessage(AcknowledgableDelivery delivery) {
+        MessageProperties properties = PROPERTIES_CONVERTER.toMessageProperties(
+                delivery.getProperties(), delivery.getEnvelope(), StandardCharsets.UTF_8.name());
+        return new Message(delivery.getBody(), properties);
+    }
+}
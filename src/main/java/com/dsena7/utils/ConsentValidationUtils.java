@@ -1,16 +1,22 @@
 package com.dsena7.utils;
 
-import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.exceptions.InvalidConsentStateException;
+import com.dsena7.lifecycle.ConsentLifecycle;
 import com.dsena7.model.ConsentEntity;
-import com.dsena7.model.ConsentStateEnum;
 
 public class ConsentValidationUtils {
 
     private static final String STATE_VALIDATION_ERROR = "Consentimento %s com estádo %s inválido.";
 
-    public static void validateConsentState(ConsentEntity entity) {
-        if (entity.getState() != ConsentStateEnum.AUTHORISED && entity.getState() != ConsentStateEnum.AWAITING_AUTHORISATION) {
-            throw new StateMachineTransitionException(String.format(STATE_VALIDATION_ERROR,
+    /**
+     * Recusa consentimentos em estados não declarados ou terminais no ciclo de vida informado.
+     *
+     * @param lifecycle Ciclo de vida em uso
+     * @param entity    Entidade de consentimento
+     */
+    public static void validateConsentState(ConsentLifecycle lifecycle, ConsentEntity entity) {
+        if (!lifecycle.accepts(entity.getState())) {
+            throw new InvalidConsentStateException(String.format(STATE_VALIDATION_ERROR,
                     entity.getConsentId(), entity.getState()));
         }
     }
@@ -0,0 +1,202 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.executor.KeyedSerialExecutor;
+import com.dsena7.executor.VirtualThreads;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentStateService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Consumidor que despacha cada entrega para uma virtual thread, serializando o processamento por
+ * consentId: o mesmo consentimento nunca é processado em paralelo, enquanto consentimentos diferentes
+ * seguem em paralelo. A thread do container bloqueia quando {@code max-in-flight} mensagens estão em
+ * processamento, o que junto com o prefetch derivado desse limite aplica backpressure ao broker.
+ * <p>
+ * Virtual threads exigem Java 21. No Java 17, a versão do build, o modo roda sobre um pool de até
+ * {@code max-in-flight} threads de plataforma, com as mesmas garantias de ordem por consentId e de
+ * backpressure, e um aviso é registrado na inicialização.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "consent.consumer", name = "mode", havingValue = "virtual")
+public class ConsentVirtualThreadConsumerUtils {
+
+    /**
+     * Id do container; o controle adaptativo não o ajusta, pois o prefetch deriva de {@code max-in-flight}.
+     */
+    public static final String LISTENER_ID = "consentVirtualThreadListener";
+
+    private static final String QUEUE = "consent.queue";
+
+    private final ConsentStateService consentStateService;
+    private final ConsentEventCodecs consentEventCodecs;
+    private final ExecutorService executor;
+    private final KeyedSerialExecutor keyedExecutor;
+    private final Semaphore inFlight;
+    private final ObjectProvider<ConsentDeliveryFilter> deliveryFilter;
+    private final ObjectProvider<ConsentRetryRouter> retryRouter;
+    private final ConsentMetrics consentMetrics;
+
+    public ConsentVirtualThreadConsumerUtils(ConsentStateService consentStateService,
+                                             ConsentEventCodecs consentEventCodecs,
+                                             MeterRegistry meterRegistry,
+                                             ObjectProvider<ConsentDeliveryFilter> deliveryFilter,
+                                             ObjectProvider<ConsentRetryRouter> retryRouter,
+                                             ConsentMetrics consentMetrics,
+                                             @Value("${consent.consumer.virtual.max-in-flight:256}") int maxInFlight) {
+        this.consentStateService = consentStateService;
+        this.consentEventCodecs = consentEventCodecs;
+        this.executor = VirtualThreads.newExecutor("consent-consumer", maxInFlight);
+        this.keyedExecutor = new KeyedSerialExecutor(executor);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.deliveryFilter = deliveryFilter;
+        this.retryRouter = retryRouter;
+        this.consentMetrics = consentMetrics;
+
+        Gauge.builder("consent.consumer.in.flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("consent.consumer.active.keys", keyedExecutor, KeyedSerialExecutor::activeKeys)
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(id = LISTENER_ID, queues = QUEUE, containerFactory = "consentVirtualThreadContainerFactory")
+    public void receivedMessage(Message message, Channel channel) throws IOException, InterruptedException {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        Object publishedAt = message.getMessageProperties().getHeader(ConsentMetrics.PUBLISHED_AT_HEADER);
+        consentMetrics.recordQueueDwell(publishedAt instanceof Number number ? number.longValue() : null);
+
+        long started = System.nanoTime();
+        String consentId;
+        try {
+            consentId = consentEventCodecs.decode(message).consentId();
+        } catch (ConsentCodecException e) {
+            consentMetrics.record(Stage.DECODE, null, Outcome.FAILURE, started);
+            consentMetrics.failure(FailureReason.DECODE);
+            log.warn(e.getMessage());
+            reject(message, e, deliveryTag, channel);
+            return;
+        }
+        consentMetrics.record(Stage.DECODE, null, Outcome.SUCCESS, started);
+
+        String messageId = message.getMessageProperties().getMessageId();
+        ConsentDeliveryFilter filter = deliveryFilter.getIfAvailable();
+        if (filter != null && filter.isDuplicate(messageId, consentId)) {
+            log.info("Entrega duplicada descartada para o consentId {} (messageId {})", consentId, messageId);
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            release(filter, messageId, consentId);
+            throw e;
+        }
+        log.info("Evento consumido para o consentId {}", consentId);
+        try {
+            keyedExecutor.execute(consentId, () -> process(message, consentId, messageId, filter, deliveryTag, channel),
+                    () -> requeue(deliveryTag, channel, filter, messageId, consentId));
+        } catch (RuntimeException e) {
+            log.error("Executor recusou o evento do consentId {}; devolvendo a mensagem à fila", consentId, e);
+            requeue(deliveryTag, channel, filter, messageId, consentId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void process(Message message, String consentId, String messageId, ConsentDeliveryFilter filter,
+                         long deliveryTag, Channel channel) {
+        try {
+            consentStateService.processConsent(consentId);
+            if (filter != null) {
+                filter.completed(messageId, consentId, null);
+            }
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            log.warn("Evento rejeitado para o consentId {}: {}", consentId, e.getMessage());
+            ConsentRetryRouter.Outcome outcome = reject(message, e, deliveryTag, channel);
+            // Reagendada ou devolvida à fila, a entrega volta com o mesmo messageId
+            boolean finished = outcome == ConsentRetryRouter.Outcome.DEAD_LETTER
+                    || (outcome == null && retryRouter.getIfAvailable() == null);
+            if (filter != null && finished) {
+                filter.completed(messageId, consentId, e);
+            }
+        } finally {
+            release(filter, messageId, consentId);
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Devolve à fila uma entrega que não chegou a ser processada e libera a sua vaga em {@code max-in-flight}.
+     */
+    private void requeue(long deliveryTag, Channel channel, ConsentDeliveryFilter filter, String messageId,
+                         String consentId) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException e) {
+            log.error("Falha ao devolver a mensagem {} à fila", deliveryTag, e);
+        } finally {
+            release(filter, messageId, consentId);
+            inFlight.release();
+        }
+    }
+
+    private static void release(ConsentDeliveryFilter filter, String messageId, String consentId) {
+        if (filter != null) {
+            filter.release(messageId, consentId);
+        }
+    }
+
+    /**
+     * Republica a entrega pelo {@link ConsentRetryRouter} e confirma a original. Sem o roteador a entrega é
+     * rejeitada sem requeue; se a republicação falhar ela volta para a fila, pois consent.queue não tem DLX.
+     *
+     * @return Destino da mensagem, ou null se ela foi rejeitada ou devolvida à fila
+     */
+    private ConsentRetryRouter.Outcome reject(Message message, Exception failure, long deliveryTag, Channel channel) {
+        ConsentRetryRouter router = retryRouter.getIfAvailable();
+        boolean requeue = false;
+        try {
+            if (router != null) {
+                ConsentRetryRouter.Outcome outcome = router.route(message, QUEUE, failure);
+                channel.basicAck(deliveryTag, false);
+                return outcome;
+            }
+        } catch (AmqpException | IOException e) {
+            log.error("Falha ao republicar a mensagem {}", deliveryTag, e);
+            requeue = true;
+        }
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (IOException e) {
+            log.error("Falha ao rejeitar a mensagem {}", deliveryTag, e);
+        }
+        return null;
+    }
+}
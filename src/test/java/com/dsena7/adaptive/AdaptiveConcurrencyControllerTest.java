@@ -0,0 +1,134 @@
+package com.dsena7.adaptive;
+
+import com.dsena7.adaptive.AdaptiveConcurrencyController.Decision;
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.service.ConsentStateService;
+import com.dsena7.service.ConsentStateServiceImpl;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.timer.ConsentExpirationTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    private static final int SAMPLES = 5;
+
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ZERO);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentMetrics consentMetrics = new ConsentMetrics(meterRegistry);
+    private final SimpleMessageListenerContainer container = container("consent.queue", 1, 10);
+    private final SimpleMessageListenerContainer invalidationContainer = container("consent.cache.invalidation.1", 1, 250);
+    private ConsentStateService service;
+    private AdaptiveConcurrencyController controller;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ConsentTransitionEngine engine = (entity, event) -> switch (event) {
+            case EXPIRE -> ConsentStateEnum.EXPIRED;
+            case REJECT -> ConsentStateEnum.REJECTED;
+        };
+        service = new ConsentStateServiceImpl(engine, store.blocking(), new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+                new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class),
+                consentMetrics);
+        controller = new AdaptiveConcurrencyController(() -> List.of(container, invalidationContainer), consentMetrics, meterRegistry,
+                1, 8, 10, 100, 10, 50, 0.05, 0.5, SAMPLES);
+
+        // Descarta a janela das primeiras chamadas, que incluem o carregamento de classes
+        process(40 * SAMPLES);
+        consentMetrics.findLatency().snapshot();
+        consentMetrics.updateLatency().snapshot();
+    }
+
+    @Test
+    void shouldGrowWhileFastAndBackOffWhenRepositorySlowsDown() throws Exception {
+        for (int tick = 0; tick < 5; tick++) {
+            process(SAMPLES);
+            assertEquals(Decision.INCREASE, controller.adjust());
+        }
+        assertEquals(6, controller.consumers());
+        assertEquals(60, controller.prefetch());
+
+        store.setLatency(Duration.ofMillis(100));
+        process(SAMPLES);
+
+        assertEquals(Decision.DECREASE, controller.adjust());
+        assertEquals(3, controller.consumers());
+        assertEquals(30, controller.prefetch());
+        assertEquals(Decision.HOLD, controller.adjust());
+        assertEquals(1.0, meterRegistry.counter("consent.adaptive.decisions", "decision", "decrease").count());
+    }
+
+    @Test
+    void shouldBackOffOnPersistenceErrorsAndStayWithinBounds() throws Exception {
+        process(SAMPLES);
+        consentMetrics.failure(FailureReason.PERSISTENCE);
+        consentMetrics.failure(FailureReason.PERSISTENCE);
+
+        assertEquals(Decision.DECREASE, controller.adjust());
+        assertEquals(1, controller.consumers());
+        assertEquals(10, controller.prefetch());
+
+        for (int tick = 0; tick < 20; tick++) {
+            process(SAMPLES);
+            controller.adjust();
+        }
+        assertEquals(8, controller.consumers());
+        assertEquals(100, controller.prefetch());
+    }
+
+    @Test
+    void shouldStartFromConfiguredConcurrencyAndOnlyTouchConsentQueueContainers() {
+        container.setConcurrentConsumers(4);
+        container.setPrefetchCount(40);
+
+        assertEquals(Decision.HOLD, controller.adjust());
+
+        assertEquals(4, controller.consumers());
+        assertEquals(40, controller.prefetch());
+        assertEquals(4, new DirectFieldAccessor(container).getPropertyValue("concurrentConsumers"));
+        assertEquals(250, new DirectFieldAccessor(invalidationContainer).getPropertyValue("prefetchCount"));
+    }
+
+    private static SimpleMessageListenerContainer container(String queue, int consumers, int prefetch) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(mock(ConnectionFactory.class));
+        container.setQueueNames(queue);
+        container.setConcurrentConsumers(consumers);
+        container.setPrefetchCount(prefetch);
+        return container;
+    }
+
+    private void process(int consents) throws IllegalAccessException {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        for (int i = 0; i < consents; i++) {
+            String consentId = "adaptive-" + sequence++;
+            store.put(ConsentEntity.builder().consentId(consentId).state(ConsentStateEnum.AUTHORISED)
+                    .createdAt(past).expiratedAt(past).build());
+            service.processConsent(consentId);
+        }
+    }
+}
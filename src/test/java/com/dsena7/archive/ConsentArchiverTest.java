@@ -0,0 +1,102 @@
+package com.dsena7.archive;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.SweeperStateEntity;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.storage.ConsentStorageFormat;
+import com.dsena7.support.InMemoryConsentStore;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConsentArchiverTest {
+
+    private static final long INDEX_BYTES_PER_DOCUMENT = 100;
+    private static final List<String> IDS = List.of("old-expired", "old-rejected", "recent-expired", "old-authorised");
+
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ZERO);
+    private final ConsentRepository repository = store.blocking();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentArchiver archiver = new ConsentArchiver(repository, mongoTemplate,
+            new ConsentStorageFormat(ConsentStorageFormat.Mode.LEGACY), meterRegistry,
+            Duration.ofDays(30).toMillis(), 1, 60_000);
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        store.put(consent("old-expired", ConsentStateEnum.EXPIRED, now.minusDays(40)));
+        store.put(consent("old-rejected", ConsentStateEnum.REJECTED, now.minusDays(31)));
+        store.put(consent("recent-expired", ConsentStateEnum.EXPIRED, now.minusDays(2)));
+        store.put(consent("old-authorised", ConsentStateEnum.AUTHORISED, now.minusDays(40)));
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(SweeperStateEntity.class))).thenReturn(new SweeperStateEntity());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(SweeperStateEntity.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.indexOps(anyString())).thenReturn(mock(IndexOperations.class));
+        when(mongoTemplate.executeCommand(any(Document.class))).thenAnswer(invocation -> {
+            boolean archive = ConsentEntity.ARCHIVE_COLLECTION.equals(
+                    invocation.<Document>getArgument(0).getString("collStats"));
+            long count = IDS.stream().filter(id -> store.isArchived(id) == archive).count();
+            return new Document("count", count).append("size", count * 200)
+                    .append("totalIndexSize", count * INDEX_BYTES_PER_DOCUMENT);
+        });
+    }
+
+    @Test
+    void shouldMoveOnlyOldTerminalConsentsAndKeepThemReadable() {
+        archiver.archive();
+
+        assertTrue(store.isArchived("old-expired"));
+        assertTrue(store.isArchived("old-rejected"));
+        assertFalse(store.isArchived("recent-expired"));
+        assertFalse(store.isArchived("old-authorised"));
+        assertEquals(ConsentStateEnum.EXPIRED, repository.findByConsentId("old-expired").orElseThrow().getState());
+        assertEquals(4, repository.findByConsentIdIn(IDS).size());
+
+        assertEquals(2.0, meterRegistry.counter("consent.archive.moved").count());
+        assertEquals(2, archiver.hotStats().documents());
+        assertEquals(2, archiver.archiveStats().documents());
+        assertEquals(2 * INDEX_BYTES_PER_DOCUMENT,
+                meterRegistry.get("consent.archive.index.reclaimed").summary().totalAmount());
+        assertEquals(2.0, meterRegistry.get("consent.archive.collection.documents")
+                .tag("collection", ConsentEntity.COLLECTION).gauge().value());
+    }
+
+    @Test
+    void shouldBeIdempotentWhenCopyIsRepeated() {
+        ConsentEntity entity = repository.findByConsentId("old-expired").orElseThrow();
+        assertEquals(1, repository.archive(List.of(entity)));
+        // Repetição após falha entre cópia e remoção: a cópia é refeita, nada mais é removido
+        assertEquals(0, repository.archive(List.of(entity)));
+
+        archiver.archive();
+
+        assertTrue(store.isArchived("old-expired"));
+        assertEquals(1.0, meterRegistry.counter("consent.archive.moved").count());
+    }
+
+    private static ConsentEntity consent(String consentId, ConsentStateEnum state, LocalDateTime expiratedAt) {
+        return new ConsentEntity(consentId, consentId, state, expiratedAt, expiratedAt.minusDays(1), expiratedAt);
+    }
+}
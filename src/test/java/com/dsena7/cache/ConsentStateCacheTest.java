@@ -0,0 +1,68 @@
+package com.dsena7.cache;
+
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentStateEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ConsentStateCacheTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConsentStateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConsentStateCache(rabbitTemplate,
+                new ConsentLifecycleRegistry(ConsentLifecycle.defaults()), meterRegistry, 100, 60_000, "consent.cache.invalidation");
+    }
+
+    @Test
+    void shouldKeepOnlyTerminalStates() {
+        cache.put("1", ConsentStateEnum.EXPIRED);
+        cache.put("2", ConsentStateEnum.AUTHORISED);
+
+        assertEquals(ConsentStateEnum.EXPIRED, cache.get("1").getState());
+        assertNull(cache.get("2"));
+
+        cache.put("1", ConsentStateEnum.AWAITING_AUTHORISATION);
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    void shouldEvictOnInvalidationFromOtherReplica() {
+        cache.put("1", ConsentStateEnum.REJECTED);
+
+        cache.onInvalidation("1", "outra-replica");
+
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    void shouldPublishInvalidationToFanoutExchange() {
+        cache.publishInvalidation("1");
+
+        verify(rabbitTemplate).convertAndSend(eq("consent.cache.invalidation"), eq(""), eq("1"), any(MessagePostProcessor.class));
+        assertEquals(1.0, meterRegistry.counter("consent.cache.invalidations", "direction", "sent").count());
+    }
+
+    @Test
+    void shouldExposeHitAndMissMetrics() {
+        cache.put("1", ConsentStateEnum.EXPIRED);
+        cache.get("1");
+        cache.get("2");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "consent.state").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "consent.state").tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,41 @@
+package com.dsena7.codec;
+
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.model.ConsentIdRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentEventCodecsTest {
+
+    private static final ConsentIdRequestDTO EVENT = new ConsentIdRequestDTO("urn:consent:1");
+
+    private final JsonConsentEventCodec json = new JsonConsentEventCodec();
+    private final BinaryConsentEventCodec binary = new BinaryConsentEventCodec();
+    private final ConsentEventCodecs codecs = new ConsentEventCodecs(List.of(json, binary), "binary");
+
+    @Test
+    void shouldRoundTripBothFormatsByContentType() {
+        assertSame(binary, codecs.outbound());
+        assertEquals(EVENT, codecs.decode(BinaryConsentEventCodec.CONTENT_TYPE, binary.encode(EVENT)));
+        assertEquals(EVENT, codecs.decode("application/json;charset=UTF-8", json.encode(EVENT)));
+        assertEquals(EVENT, codecs.decode(null, json.encode(EVENT)));
+    }
+
+    @Test
+    void shouldAcceptLegacyDoubleEncodedJson() {
+        byte[] legacy = "\"{\\\"consentId\\\":\\\"urn:consent:1\\\"}\"".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(EVENT, codecs.decode("application/json", legacy));
+    }
+
+    @Test
+    void shouldRejectMalformedBodies() {
+        assertThrows(ConsentCodecException.class, () -> codecs.decode(BinaryConsentEventCodec.CONTENT_TYPE, new byte[]{1, 40, 'a'}));
+        assertThrows(ConsentCodecException.class, () -> codecs.decode("application/json", "{\"consentId\":\"\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(ConsentCodecException.class, () -> codecs.decode("text/plain", json.encode(EVENT)));
+    }
+}
@@ -0,0 +1,38 @@
+package com.dsena7.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class ReactiveMongoAutoConfigurationFilterTest {
+
+    private static final String[] AUTO_CONFIGURATIONS = {
+            "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration",
+            "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+            null,
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration"
+    };
+
+    @Test
+    void shouldSkipReactiveMongoOutsideTheReactiveMode() {
+        assertArrayEquals(new boolean[]{true, false, true, false, false}, filter("single").match(AUTO_CONFIGURATIONS, null));
+        assertArrayEquals(new boolean[]{true, false, true, false, false}, filter(null).match(AUTO_CONFIGURATIONS, null));
+    }
+
+    @Test
+    void shouldKeepReactiveMongoInTheReactiveMode() {
+        assertArrayEquals(new boolean[]{true, true, true, true, true}, filter("reactive").match(AUTO_CONFIGURATIONS, null));
+    }
+
+    private static ReactiveMongoAutoConfigurationFilter filter(String mode) {
+        MockEnvironment environment = new MockEnvironment();
+        if (mode != null) {
+            environment.setProperty("consent.consumer.mode", mode);
+        }
+        ReactiveMongoAutoConfigurationFilter filter = new ReactiveMongoAutoConfigurationFilter();
+        filter.setEnvironment(environment);
+        return filter;
+    }
+}
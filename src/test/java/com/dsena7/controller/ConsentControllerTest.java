@@ -0,0 +1,101 @@
+package com.dsena7.controller;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.codec.JsonConsentEventCodec;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentDTO;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.publisher.ConsentEventPublisher;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.service.ConsentIngestionService;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentControllerTest {
+
+    private final ConsentRepository repository = mock(ConsentRepository.class);
+    private final ConsentExpirationTimer timer = mock(ConsentExpirationTimer.class);
+    private final ConsentStateCache cache = mock(ConsentStateCache.class);
+    private final ConsentStateCounters counters = new ConsentStateCounters(new SimpleMeterRegistry(), 5);
+    private final ConsentController controller = controller();
+
+    @Test
+    void shouldAnswerCreatedWhenASideEffectFailsAfterTheSave() {
+        when(repository.replaceByConsentId(any())).thenReturn(Optional.of(consent(ConsentStateEnum.EXPIRED)));
+        doThrow(new IllegalStateException("timer parado")).when(timer).schedule(any());
+
+        ResponseEntity<ConsentEntity> response = controller.insertConsent(new ConsentDTO("1", ConsentStateEnum.AUTHORISED));
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(cache).evict("1");
+        verify(cache).publishInvalidation("1");
+    }
+
+    @Test
+    void shouldInvalidateOnlyWhenReplacingATerminalConsent() {
+        controller.insertConsent(new ConsentDTO("1", ConsentStateEnum.AUTHORISED));
+        when(repository.replaceByConsentId(any())).thenReturn(Optional.of(consent(ConsentStateEnum.AWAITING_AUTHORISATION)));
+        controller.insertConsent(new ConsentDTO("1", ConsentStateEnum.AUTHORISED));
+
+        verify(cache, never()).evict(any());
+        verify(cache, never()).publishInvalidation(any());
+    }
+
+    @Test
+    void shouldMoveAReplacedConsentOutOfItsPreviousStateInTheCounters() {
+        long expired = counters.count(ConsentStateEnum.EXPIRED);
+        long authorised = counters.count(ConsentStateEnum.AUTHORISED);
+        when(repository.replaceByConsentId(any())).thenReturn(Optional.of(consent(ConsentStateEnum.EXPIRED)));
+
+        controller.insertConsent(new ConsentDTO("1", ConsentStateEnum.AUTHORISED));
+
+        assertEquals(expired - 1, counters.count(ConsentStateEnum.EXPIRED));
+        assertEquals(authorised + 1, counters.count(ConsentStateEnum.AUTHORISED));
+    }
+
+    @Test
+    void shouldReportPersistenceFailures() {
+        when(repository.replaceByConsentId(any())).thenThrow(new DataAccessResourceFailureException("Mongo indisponível"));
+
+        assertThrows(PersistenceException.class,
+                () -> controller.insertConsent(new ConsentDTO("1", ConsentStateEnum.AUTHORISED)));
+        verify(timer, never()).schedule(any());
+    }
+
+    private static ConsentEntity consent(ConsentStateEnum state) {
+        return ConsentEntity.builder().id("doc-1").consentId("1").state(state).build();
+    }
+
+    private ConsentController controller() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("consentExpirationTimer", timer);
+        beans.addBean("consentStateCache", cache);
+        beans.addBean("consentStateCounters", counters);
+        StaticListableBeanFactory empty = new StaticListableBeanFactory();
+        return new ConsentController(repository, new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+                beans.getBeanProvider(ConsentExpirationTimer.class), beans.getBeanProvider(ConsentStateCache.class),
+                empty.getBeanProvider(ConsentTransitionJournal.class), beans.getBeanProvider(ConsentStateCounters.class),
+                mock(ConsentIngestionService.class), mock(ConsentEventPublisher.class), mock(JsonConsentEventCodec.class));
+    }
+}
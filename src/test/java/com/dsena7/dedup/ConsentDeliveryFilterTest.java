@@ -0,0 +1,104 @@
+package com.dsena7.dedup;
+
+import com.dsena7.exceptions.StateMachineTransitionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentDeliveryFilterTest {
+
+    private static final long WINDOW_MS = 60_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final ConsentDeliveryFilter filter =
+            new ConsentDeliveryFilter(meterRegistry, WINDOW_MS, 10_000, 0.01, 10_000, clock::get);
+
+    @Test
+    void shouldDropRedeliveryOfProcessedMessage() {
+        assertFalse(filter.isDuplicate("m-1", "1"));
+        filter.completed("m-1", "1", new StateMachineTransitionException("Consentimento 1 com estádo EXPIRED inválido."));
+        filter.release("m-1", "1");
+
+        assertTrue(filter.isDuplicate("m-1", "1"));
+        assertFalse(filter.isDuplicate("m-2", "1"));
+        assertFalse(filter.isDuplicate(null, "1"));
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.checks", "result", "duplicate").count());
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.checks", "result", "unkeyed").count());
+    }
+
+    @Test
+    void shouldLetRetryThroughAfterPersistenceFailure() {
+        filter.completed("m-1", "1", new StateMachineTransitionException("falha",
+                new PersistenceException("Erro ao salvar alteração de estado do consentimento")));
+
+        assertFalse(filter.isDuplicate("m-1", "1"));
+    }
+
+    @Test
+    void shouldDropRedeliveryWhileTheFirstDeliveryIsInFlight() {
+        assertFalse(filter.isDuplicate("m-1", "1"));
+
+        assertTrue(filter.isDuplicate("m-1", "1"));
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.checks", "result", "in_flight").count());
+        assertEquals(1.0, meterRegistry.get("consent.dedup.in.flight").gauge().value());
+
+        filter.completed("m-1", "1", null);
+        filter.release("m-1", "1");
+        assertTrue(filter.isDuplicate("m-1", "1"));
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.checks", "result", "duplicate").count());
+        assertEquals(0.0, meterRegistry.get("consent.dedup.in.flight").gauge().value());
+    }
+
+    @Test
+    void shouldLetRedeliveryThroughAfterATransientFailureIsReleased() {
+        assertFalse(filter.isDuplicate("m-1", "1"));
+        filter.completed("m-1", "1", new PersistenceException("Erro ao salvar alteração de estado do consentimento"));
+        filter.release("m-1", "1");
+
+        assertFalse(filter.isDuplicate("m-1", "1"));
+    }
+
+    @Test
+    void shouldForgetDeliveriesOlderThanWindow() {
+        filter.completed("m-1", "1", null);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS / 2 + 1));
+        assertTrue(filter.isDuplicate("m-1", "1"));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS));
+        assertFalse(filter.isDuplicate("m-1", "1"));
+    }
+
+    @Test
+    void shouldNotCountKeysEvictedFromLruAsFalsePositives() {
+        ConsentDeliveryFilter small = new ConsentDeliveryFilter(meterRegistry, WINDOW_MS, 10_000, 0.01, 2, clock::get);
+        small.completed("m-1", "1", null);
+        small.completed("m-2", "2", null);
+        small.completed("m-3", "3", null);
+
+        assertFalse(small.isDuplicate("m-1", "1"));
+        assertTrue(small.isDuplicate("m-3", "3"));
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.lru.evictions").count());
+        assertEquals(1.0, meterRegistry.counter("consent.dedup.checks", "result", "unconfirmed").count());
+        assertEquals(0.0, meterRegistry.counter("consent.dedup.checks", "result", "false_positive").count());
+    }
+
+    @Test
+    void shouldKeepFalsePositiveRateNearConfiguredProbability() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.completed("m-" + i, "consent-" + i, null);
+        }
+        for (int i = 10_000; i < 20_000; i++) {
+            assertFalse(filter.isDuplicate("m-" + i, "consent-" + i));
+        }
+
+        double falsePositives = meterRegistry.counter("consent.dedup.checks", "result", "false_positive").count();
+        assertTrue(falsePositives < 200, "falsos positivos: " + falsePositives);
+        assertEquals(falsePositives / 10_000, meterRegistry.get("consent.dedup.false.positive.ratio").gauge().value(), 1e-9);
+    }
+}
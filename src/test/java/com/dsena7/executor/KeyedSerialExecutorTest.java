@@ -0,0 +1,69 @@
+package com.dsena7.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyedSerialExecutorTest {
+
+    @Test
+    void shouldReleaseKeyWhenDelegateRejectsTask() {
+        List<String> executed = new ArrayList<>();
+        boolean[] rejecting = {true};
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(command -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("shutdown");
+            }
+            command.run();
+        });
+
+        assertThrows(RejectedExecutionException.class,
+                () -> executor.execute("1", () -> executed.add("primeira"), () -> executed.add("primeira recusada")));
+        assertEquals(0, executor.activeKeys());
+        // A tarefa recusada é tratada pelo chamador, a partir da exceção
+        assertEquals(List.of(), executed);
+
+        rejecting[0] = false;
+        executor.execute("1", () -> executed.add("segunda"), () -> executed.add("segunda recusada"));
+
+        assertEquals(List.of("segunda"), executed);
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void shouldRejectTasksQueuedBehindARejectedTask() {
+        List<String> executed = new ArrayList<>();
+        KeyedSerialExecutor[] executor = new KeyedSerialExecutor[1];
+        executor[0] = new KeyedSerialExecutor(command -> {
+            // Outra entrega do mesmo consentId chega antes de o executor recusar a primeira
+            executor[0].execute("1", () -> executed.add("segunda"), () -> executed.add("segunda recusada"));
+            throw new RejectedExecutionException("shutdown");
+        });
+
+        assertThrows(RejectedExecutionException.class,
+                () -> executor[0].execute("1", () -> executed.add("primeira"), () -> executed.add("primeira recusada")));
+
+        assertEquals(List.of("segunda recusada"), executed);
+        assertEquals(0, executor[0].activeKeys());
+    }
+
+    @Test
+    void shouldKeepDrainingAfterATaskFails() {
+        List<String> executed = new ArrayList<>();
+        List<Runnable> submitted = new ArrayList<>();
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(submitted::add);
+
+        executor.execute("1", () -> {
+            throw new IllegalStateException("falha");
+        }, () -> executed.add("primeira recusada"));
+        executor.execute("1", () -> executed.add("segunda"), () -> executed.add("segunda recusada"));
+        submitted.forEach(Runnable::run);
+
+        assertEquals(List.of("segunda"), executed);
+        assertEquals(0, executor.activeKeys());
+    }
+}
@@ -0,0 +1,115 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.ConsentTransitionEntity;
+import com.dsena7.support.InMemoryConsentStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentTransitionJournalTest {
+
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ZERO);
+    private final RecordingSink sink = new RecordingSink();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldDrainRecordedTransitionsToSinksInOrder() throws InterruptedException {
+        ConsentTransitionJournal journal = journal(1024);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 100; i++) {
+            journal.record("consent-" + i, ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now);
+        }
+        journal.shutdown();
+
+        assertEquals(100, sink.entries.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("consent-" + i, sink.entries.get(i).getConsentId());
+        }
+        assertEquals(List.of(sink.entries.get(7)), journal.history("consent-7").orElseThrow());
+    }
+
+    @Test
+    void shouldDropEntriesWhenBufferIsFull() throws InterruptedException {
+        sink.blocked = true;
+        ConsentTransitionJournal journal = journal(4);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 50; i++) {
+            journal.record("consent-" + i, ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now);
+        }
+
+        assertTrue(meterRegistry.counter("consent.journal.dropped").count() > 0);
+        sink.blocked = false;
+        journal.shutdown();
+    }
+
+    @Test
+    void shouldRecordOnlyBatchTransitionsAppliedByThisWriter() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        store.put(consent("1", ConsentStateEnum.AUTHORISED));
+        store.put(consent("2", ConsentStateEnum.EXPIRED));
+        List<ConsentStateTransition> transitions = List.of(
+                new ConsentStateTransition("1", ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now),
+                new ConsentStateTransition("2", ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now));
+        int applied = store.blocking().applyTransitions(transitions);
+
+        ConsentTransitionJournal journal = journal(1024);
+        journal.recordApplied(store.blocking().findApplied(transitions, applied));
+        journal.shutdown();
+
+        assertEquals(1, applied);
+        assertEquals(1, sink.entries.size());
+        assertEquals("1", sink.entries.get(0).getConsentId());
+    }
+
+    private ConsentTransitionJournal journal(int bufferSize) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("recordingSink", sink);
+        return new ConsentTransitionJournal(beanFactory.getBeanProvider(JournalSink.class),
+                meterRegistry, bufferSize, 16, 5);
+    }
+
+    private static ConsentEntity consent(String consentId, ConsentStateEnum state) {
+        return ConsentEntity.builder().consentId(consentId).state(state).build();
+    }
+
+    private static class RecordingSink implements JournalSink {
+        final List<ConsentTransitionEntity> entries = new CopyOnWriteArrayList<>();
+        volatile boolean blocked;
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void write(List<ConsentTransitionEntity> batch) {
+            while (blocked) {
+                Thread.onSpinWait();
+            }
+            entries.addAll(batch);
+        }
+
+        @Override
+        public List<ConsentTransitionEntity> history(String consentId) {
+            return entries.stream().filter(entry -> entry.getConsentId().equals(consentId)).toList();
+        }
+
+        @Override
+        public void replay(Consumer<ConsentTransitionEntity> consumer) {
+            entries.forEach(consumer);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dsena7.journal;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentTransitionEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileJournalSinkTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_456_789);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadBackEntriesInOrderAcrossSegments() {
+        MappedFileJournalSink sink = new MappedFileJournalSink(directory.toString(), 0, "batch", 1000);
+        List<ConsentTransitionEntity> written = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            written.add(entry("consent-" + i, START.plusNanos(i)));
+        }
+        sink.write(written.subList(0, 1000));
+        sink.write(written.subList(1000, 2000));
+
+        List<ConsentTransitionEntity> replayed = new ArrayList<>();
+        sink.replay(replayed::add);
+
+        assertTrue(sink.segments().size() > 1, "segmento mínimo deveria ter sido rotacionado");
+        assertEquals(written, replayed);
+    }
+
+    @Test
+    void shouldReturnHistoryOfSingleConsentAndSurviveReopen() {
+        MappedFileJournalSink sink = new MappedFileJournalSink(directory.toString(), 1 << 20, "never", 1000);
+        ConsentTransitionEntity first = entry("1", START);
+        ConsentTransitionEntity second = ConsentTransitionEntity.builder()
+                .consentId("1").from(ConsentStateEnum.AWAITING_AUTHORISATION).to(ConsentStateEnum.REJECTED)
+                .event(ConsentEventEnum.REJECT).at(START.plusSeconds(1)).build();
+        sink.write(List.of(first, entry("2", START), second));
+        sink.close();
+
+        MappedFileJournalSink reopened = new MappedFileJournalSink(directory.toString(), 1 << 20, "never", 1000);
+        reopened.write(List.of(entry("1", START.plusSeconds(2))));
+
+        List<ConsentTransitionEntity> history = reopened.history("1");
+        assertEquals(3, history.size());
+        assertEquals(first, history.get(0));
+        assertEquals(second, history.get(1));
+        assertEquals(START.plusSeconds(2), history.get(2).getAt());
+    }
+
+    private static ConsentTransitionEntity entry(String consentId, LocalDateTime at) {
+        return ConsentTransitionEntity.builder()
+                .consentId(consentId)
+                .from(ConsentStateEnum.AUTHORISED)
+                .to(ConsentStateEnum.EXPIRED)
+                .event(ConsentEventEnum.EXPIRE)
+                .at(at)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.dsena7.lifecycle;
+
+import com.dsena7.exceptions.ConsentLifecycleException;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentLifecycleTest {
+
+    private static final String DELAYED_EXPIRATION = """
+            states: [AWAITING_AUTHORISATION, AUTHORISED, EXPIRED, REJECTED]
+            initial: AWAITING_AUTHORISATION
+            terminal: [EXPIRED, REJECTED]
+            transitions:
+              - source: AUTHORISED
+                event: EXPIRE
+                target: EXPIRED
+                guard: { field: expiratedAt, after: PT1H }
+              - source: AWAITING_AUTHORISATION
+                event: REJECT
+                target: REJECTED
+                guard: { field: createdAt }
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultsShouldResolveEventsFromGuards() {
+        ConsentLifecycle lifecycle = ConsentLifecycle.defaults();
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(ConsentEventEnum.EXPIRE, lifecycle.resolveEvent(consent(ConsentStateEnum.AUTHORISED, now.minusSeconds(1)), now));
+        assertNull(lifecycle.resolveEvent(consent(ConsentStateEnum.AUTHORISED, now.plusMinutes(1)), now));
+        assertEquals(ConsentEventEnum.REJECT, lifecycle.resolveEvent(consent(ConsentStateEnum.AWAITING_AUTHORISATION, now), now.plusSeconds(1)));
+        assertEquals(ConsentStateEnum.EXPIRED, lifecycle.target(ConsentStateEnum.AUTHORISED, ConsentEventEnum.EXPIRE));
+        assertNull(lifecycle.target(ConsentStateEnum.AWAITING_AUTHORISATION, ConsentEventEnum.EXPIRE));
+        assertTrue(lifecycle.accepts(ConsentStateEnum.AUTHORISED));
+        assertFalse(lifecycle.accepts(ConsentStateEnum.EXPIRED));
+    }
+
+    @Test
+    void shouldRejectIncoherentDefinitions() {
+        assertInvalid(DELAYED_EXPIRATION.replace("target: EXPIRED", "target: REVOKED"));
+        assertInvalid(DELAYED_EXPIRATION.replace("source: AWAITING_AUTHORISATION", "source: AUTHORISED")
+                .replace("event: REJECT", "event: EXPIRE"));
+        assertInvalid(DELAYED_EXPIRATION.replace("source: AUTHORISED", "source: EXPIRED"));
+        assertInvalid(DELAYED_EXPIRATION.replace("after: PT1H", "after: 1h"));
+        assertInvalid(DELAYED_EXPIRATION.replace("field: createdAt", "field: deletedAt"));
+    }
+
+    @Test
+    void registryShouldSwapValidDefinitionsAndKeepCurrentOnInvalidOnes() throws IOException {
+        Path file = directory.resolve("consent-lifecycle.yml");
+        Files.copy(new DefaultResourceLoader().getResource("classpath:consent-lifecycle.yml").getInputStream(), file);
+        ConsentLifecycleRegistry registry = registry(file, true, "compiled");
+        LocalDateTime now = LocalDateTime.now();
+        ConsentEntity expiredMinutesAgo = consent(ConsentStateEnum.AUTHORISED, now.minusMinutes(5));
+
+        assertFalse(registry.reload());
+        assertEquals(ConsentEventEnum.EXPIRE, registry.current().resolveEvent(expiredMinutesAgo, now));
+
+        ConsentLifecycle before = registry.current();
+        write(file, DELAYED_EXPIRATION);
+        assertTrue(registry.reload());
+        assertNull(registry.current().resolveEvent(expiredMinutesAgo, now));
+        assertEquals(2, registry.generation());
+        // A instância lida antes da troca continua válida para quem já a obteve
+        assertEquals(ConsentEventEnum.EXPIRE, before.resolveEvent(expiredMinutesAgo, now));
+
+        ConsentLifecycle applied = registry.current();
+        write(file, "states: [");
+        assertFalse(registry.reload());
+        assertSame(applied, registry.current());
+    }
+
+    @Test
+    void compiledEngineRegistryShouldAcceptChangedTransitions() throws IOException {
+        Path file = directory.resolve("consent-lifecycle.yml");
+        write(file, DELAYED_EXPIRATION);
+        ConsentLifecycleRegistry registry = registry(file, true, "compiled");
+
+        write(file, DELAYED_EXPIRATION.replace("target: REJECTED", "target: EXPIRED"));
+        assertTrue(registry.reload());
+        assertEquals(ConsentStateEnum.EXPIRED,
+                registry.current().target(ConsentStateEnum.AWAITING_AUTHORISATION, ConsentEventEnum.REJECT));
+    }
+
+    @Test
+    void springEngineRegistryShouldRefuseReloadAtStartup() throws IOException {
+        Path file = directory.resolve("consent-lifecycle.yml");
+        write(file, DELAYED_EXPIRATION);
+
+        assertThrows(ConsentLifecycleException.class, () -> registry(file, true, "spring"));
+
+        ConsentLifecycleRegistry registry = registry(file, false, "spring");
+        write(file, DELAYED_EXPIRATION.replace("target: REJECTED", "target: EXPIRED"));
+        assertFalse(registry.reload());
+        assertEquals(ConsentStateEnum.REJECTED,
+                registry.current().target(ConsentStateEnum.AWAITING_AUTHORISATION, ConsentEventEnum.REJECT));
+    }
+
+    private ConsentLifecycleRegistry registry(Path file, boolean reloadEnabled, String engine) {
+        return new ConsentLifecycleRegistry(new DefaultResourceLoader(),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                file.toUri().toString(), reloadEnabled, engine);
+    }
+
+    private static void assertInvalid(String yaml) {
+        assertThrows(ConsentLifecycleException.class,
+                () -> ConsentLifecycle.parse(yaml.getBytes(StandardCharsets.UTF_8)), yaml);
+    }
+
+    private static void write(Path file, String yaml) throws IOException {
+        Files.writeString(file, yaml);
+    }
+
+    private static ConsentEntity consent(ConsentStateEnum state, LocalDateTime date) {
+        return ConsentEntity.builder()
+                .consentId("lifecycle")
+                .state(state)
+                .createdAt(date)
+                .expiratedAt(date)
+                .build();
+    }
+}
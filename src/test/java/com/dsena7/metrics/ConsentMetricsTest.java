@@ -0,0 +1,71 @@
+package com.dsena7.metrics;
+
+import com.dsena7.metrics.ConsentMetrics.FailureReason;
+import com.dsena7.metrics.ConsentMetrics.Outcome;
+import com.dsena7.metrics.ConsentMetrics.Stage;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentMetrics consentMetrics = new ConsentMetrics(meterRegistry);
+
+    @Test
+    void shouldRecordStagesTaggedByEventAndOutcome() {
+        consentMetrics.record(Stage.SEND_EVENT, ConsentEventEnum.EXPIRE, Outcome.SUCCESS, System.nanoTime());
+        consentMetrics.record(Stage.SEND_EVENT, ConsentEventEnum.EXPIRE, Outcome.SUCCESS, System.nanoTime());
+        consentMetrics.record(Stage.UPDATE, ConsentEventEnum.REJECT, Outcome.LOST_RACE, System.nanoTime());
+
+        Timer sendEvent = meterRegistry.get("consent.process.stage")
+                .tags("stage", "send.event", "event", "EXPIRE", "outcome", "success").timer();
+        Timer update = meterRegistry.get("consent.process.stage")
+                .tags("stage", "update", "event", "REJECT", "outcome", "lost.race").timer();
+        assertEquals(2, sendEvent.count());
+        assertEquals(1, update.count());
+    }
+
+    @Test
+    void shouldCountTransitionsNoopsAndFailures() {
+        consentMetrics.transition(ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED);
+        consentMetrics.noop();
+        consentMetrics.failure(FailureReason.NOT_FOUND);
+
+        assertEquals(1.0, meterRegistry.get("consent.transitions").tags("from", "AUTHORISED", "to", "EXPIRED").counter().count());
+        assertEquals(1.0, meterRegistry.get("consent.process.noop").counter().count());
+        assertEquals(1.0, meterRegistry.get("consent.process.failures").tag("reason", "not.found").counter().count());
+    }
+
+    @Test
+    void shouldCountAppliedBatchTransitions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ConsentStateTransition> transitions = List.of(
+                new ConsentStateTransition("1", ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now),
+                new ConsentStateTransition("2", ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now));
+
+        consentMetrics.recordApplied(transitions);
+        consentMetrics.recordApplied(transitions.subList(0, 1));
+        consentMetrics.lostRace(1);
+
+        assertEquals(3.0, meterRegistry.get("consent.transitions").tags("from", "AUTHORISED", "to", "EXPIRED").counter().count());
+        assertEquals(1.0, meterRegistry.get("consent.transition.lost.race").counter().count());
+    }
+
+    @Test
+    void shouldIgnoreMissingPublishTimestamp() {
+        consentMetrics.recordQueueDwell(null);
+        consentMetrics.recordQueueDwell(System.currentTimeMillis() - 50);
+
+        Timer dwell = meterRegistry.get("consent.process.stage").tag("stage", "queue.dwell").timer();
+        assertEquals(1, dwell.count());
+    }
+}
@@ -0,0 +1,55 @@
+package com.dsena7.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionAssignorTest {
+
+    private static final int PARTITIONS = 64;
+
+    @Test
+    void shouldAssignEachPartitionToExactlyOneMember() {
+        List<String> members = List.of("a", "b", "c", "d");
+
+        Set<Integer> covered = new HashSet<>();
+        int total = 0;
+        for (String member : members) {
+            Set<Integer> owned = PartitionAssignor.assign(member, members, PARTITIONS);
+            covered.addAll(owned);
+            total += owned.size();
+            // Distribuição razoável: nenhuma réplica fica com o dobro da média
+            assertTrue(owned.size() < 2 * PARTITIONS / members.size(), member + " recebeu " + owned.size());
+        }
+        assertEquals(PARTITIONS, covered.size());
+        assertEquals(PARTITIONS, total);
+    }
+
+    @Test
+    void shouldOnlyMovePartitionsOfTheMemberThatJoinedOrLeft() {
+        List<String> before = List.of("a", "b", "c");
+        List<String> after = List.of("a", "b", "c", "d");
+
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            String previous = PartitionAssignor.owner(before, partition);
+            String current = PartitionAssignor.owner(after, partition);
+            assertTrue(previous.equals(current) || current.equals("d"),
+                    "partição " + partition + " moveu de " + previous + " para " + current);
+        }
+    }
+
+    @Test
+    void shouldRouteConsentToStablePartition() {
+        ConsentPartitioner partitioner = new ConsentPartitioner(true, 16);
+
+        int partition = partitioner.partition("urn:consent:123");
+
+        assertEquals(partition, partitioner.partition("urn:consent:123"));
+        assertEquals(Integer.toString(partition), partitioner.routingKey("urn:consent:123"));
+        assertTrue(partition >= 0 && partition < 16);
+    }
+}
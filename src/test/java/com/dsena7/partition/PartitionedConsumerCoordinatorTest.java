@@ -0,0 +1,102 @@
+package com.dsena7.partition;
+
+import com.dsena7.support.InMemoryPartitionMembership;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedConsumerCoordinatorTest {
+
+    private static final int PARTITIONS = 16;
+
+    private final InMemoryPartitionMembership membership = new InMemoryPartitionMembership();
+    private final ConsentPartitioner partitioner = new ConsentPartitioner(true, PARTITIONS);
+
+    @Test
+    void shouldSplitPartitionsAcrossInstancesAndRebalanceOnJoinAndLeave() {
+        Replica first = new Replica();
+        first.coordinator.rebalance();
+        assertEquals(PARTITIONS, first.container.subscribed.size());
+        assertTrue(first.container.started);
+
+        Replica second = new Replica();
+        second.coordinator.rebalance();
+        first.coordinator.rebalance();
+        assertDisjointAndComplete(List.of(first, second));
+        assertFalse(second.container.subscribed.isEmpty());
+
+        second.coordinator.leave();
+        first.coordinator.rebalance();
+        assertEquals(PARTITIONS, first.container.subscribed.size());
+        assertTrue(second.container.subscribed.isEmpty());
+    }
+
+    @Test
+    void shouldTakeOverPartitionsOfExpiredInstance() {
+        Replica first = new Replica();
+        Replica second = new Replica();
+        Replica third = new Replica();
+        List<Replica> replicas = List.of(first, second, third);
+        replicas.forEach(replica -> replica.coordinator.rebalance());
+        replicas.forEach(replica -> replica.coordinator.rebalance());
+        assertDisjointAndComplete(replicas);
+
+        Set<Integer> keptByFirst = first.coordinator.ownedPartitions();
+        membership.expire(third.coordinator.instanceId());
+        first.coordinator.rebalance();
+        second.coordinator.rebalance();
+
+        assertTrue(first.coordinator.ownedPartitions().containsAll(keptByFirst));
+        Set<Integer> covered = new HashSet<>(first.coordinator.ownedPartitions());
+        covered.addAll(second.coordinator.ownedPartitions());
+        assertEquals(PARTITIONS, covered.size());
+    }
+
+    private void assertDisjointAndComplete(List<Replica> replicas) {
+        Set<String> covered = new HashSet<>();
+        for (Replica replica : replicas) {
+            for (String queue : replica.container.subscribed) {
+                assertTrue(covered.add(queue), queue + " assinada por mais de uma réplica");
+            }
+        }
+        assertEquals(Set.copyOf(IntStream.range(0, PARTITIONS).mapToObj(ConsentPartitioner::queueName).toList()),
+                covered);
+    }
+
+    private class Replica {
+        final RecordingContainer container = new RecordingContainer();
+        final PartitionedConsumerCoordinator coordinator =
+                new PartitionedConsumerCoordinator(membership, partitioner, container, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Container que apenas registra as filas assinadas, no lugar do broker.
+     */
+    private static class RecordingContainer extends DirectMessageListenerContainer {
+        final Set<String> subscribed = new HashSet<>();
+        boolean started;
+
+        @Override
+        public void addQueueNames(String... queueNames) {
+            subscribed.addAll(Arrays.asList(queueNames));
+        }
+
+        @Override
+        public boolean removeQueueNames(String... queueNames) {
+            return subscribed.removeAll(Arrays.asList(queueNames));
+        }
+
+        @Override
+        public void start() {
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.dsena7.publisher;
+
+import com.dsena7.exceptions.PublisherBackpressureException;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.partition.ConsentPartitioner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConsentEventPublisherTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operations = mock(RabbitOperations.class);
+    private ConsentEventPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void shouldCompleteWhenBrokerConfirms() throws Exception {
+        confirmWith(true);
+        publisher = publisher(10);
+
+        List<CompletableFuture<Void>> futures = publisher.publishAll(List.of(event("1"), event("2"), event("3")));
+
+        publisher.acknowledgement(futures).get(1, TimeUnit.SECONDS);
+        assertTrue(futures.stream().allMatch(future -> future.isDone() && !future.isCompletedExceptionally()));
+    }
+
+    @Test
+    void shouldFailWhenBrokerNacks() {
+        confirmWith(false);
+        publisher = publisher(10);
+
+        CompletableFuture<Void> future = publisher.publish(event("1"));
+
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRejectWhenUnconfirmedLimitIsReached() {
+        // Sem confirms do broker as permissões nunca são devolvidas
+        stubInvoke();
+        publisher = publisher(2);
+
+        publisher.publishAll(List.of(event("1"), event("2")));
+
+        assertThrows(PublisherBackpressureException.class, () -> publisher.publish(event("3")));
+    }
+
+    private ConsentEventPublisher publisher(int maxUnconfirmed) {
+        return new ConsentEventPublisher(rabbitTemplate, new ConsentPartitioner(false, 1), new SimpleMeterRegistry(), 16, 0, maxUnconfirmed, 10, true, 1000);
+    }
+
+    private static OutboundConsentEvent event(String consentId) {
+        return new OutboundConsentEvent(consentId, new ConsentIdRequestDTO(consentId));
+    }
+
+    private void confirmWith(boolean ack) {
+        stubInvoke();
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(4);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(operations).convertAndSend(eq(""), eq("consent.queue"), any(), any(MessagePostProcessor.class), any(CorrelationData.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubInvoke() {
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class)))
+                .thenAnswer(invocation -> ((RabbitOperations.OperationsCallback<Object>) invocation.getArgument(0)).doInRabbit(operations));
+    }
+}
@@ -0,0 +1,182 @@
+package com.dsena7.repository;
+
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.lifecycle.GuardField;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.storage.ConsentDocumentConverters;
+import com.dsena7.storage.ConsentStorageFormat;
+import com.dsena7.storage.ConsentStorageLayout;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentRepositoryCustomImplTest {
+
+    private static final String TERMINAL_AUTHORISED = """
+            states: [AWAITING_AUTHORISATION, AUTHORISED, EXPIRED, REJECTED]
+            initial: AWAITING_AUTHORISATION
+            terminal: [AUTHORISED, EXPIRED, REJECTED]
+            transitions:
+              - source: AWAITING_AUTHORISATION
+                event: REJECT
+                target: REJECTED
+                guard: { field: createdAt }
+            """;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    @Test
+    void expirationCandidatesShouldProjectEveryGuardField() {
+        for (ConsentStorageFormat.Mode mode : ConsentStorageFormat.Mode.values()) {
+            Query query = expirationQuery(new ConsentStorageFormat(mode), ConsentLifecycle.defaults());
+            ConsentStorageLayout layout = new ConsentStorageFormat(mode).writeLayout();
+            for (GuardField field : GuardField.values()) {
+                assertTrue(query.getFieldsObject().containsKey(layout.field(field)), mode + " sem " + field);
+            }
+        }
+    }
+
+    @Test
+    void candidateStatesShouldFollowTheLifecycle() {
+        Query query = expirationQuery(new ConsentStorageFormat(ConsentStorageFormat.Mode.LEGACY),
+                ConsentLifecycle.parse(TERMINAL_AUTHORISED.getBytes()));
+
+        assertEquals(List.of("AWAITING_AUTHORISATION"), query.getQueryObject().get("state", Document.class).get("$in"));
+    }
+
+    @Test
+    void archivalCandidatesShouldFollowTheLifecycleTerminals() {
+        ConsentRepositoryCustomImpl repository = repository(new ConsentStorageFormat(ConsentStorageFormat.Mode.LEGACY),
+                ConsentLifecycle.parse(TERMINAL_AUTHORISED.getBytes()));
+        when(mongoTemplate.stream(any(Query.class), eq(ConsentEntity.class))).thenReturn(Stream.empty());
+
+        repository.streamArchivalCandidates(LocalDateTime.now()).close();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(ConsentEntity.class));
+        assertEquals(Set.of("AUTHORISED", "EXPIRED", "REJECTED"), Set.copyOf(
+                query.getValue().getQueryObject().get("state", Document.class).getList("$in", String.class)));
+    }
+
+    @Test
+    void shouldFindOnlyTheTransitionsWrittenByAPartiallyAppliedBatch() {
+        ConsentRepositoryCustomImpl repository = repository(new ConsentStorageFormat(ConsentStorageFormat.Mode.LEGACY),
+                ConsentLifecycle.defaults());
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        ConsentStateTransition expire = new ConsentStateTransition("1", ConsentStateEnum.AUTHORISED,
+                ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now);
+        ConsentStateTransition reject = new ConsentStateTransition("2", ConsentStateEnum.AWAITING_AUTHORISATION,
+                ConsentStateEnum.REJECTED, ConsentEventEnum.REJECT, now);
+        ConsentStateTransition lost = new ConsentStateTransition("3", ConsentStateEnum.AUTHORISED,
+                ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now);
+        when(mongoTemplate.find(any(Query.class), eq(ConsentEntity.class))).thenReturn(List.of(
+                consent("1", ConsentStateEnum.EXPIRED, now),
+                consent("2", ConsentStateEnum.REJECTED, now),
+                consent("3", ConsentStateEnum.EXPIRED, now.minusSeconds(1))));
+
+        List<ConsentStateTransition> transitions = List.of(expire, reject, lost);
+
+        assertEquals(List.of(expire, reject), repository.findApplied(transitions, 2));
+        assertSame(transitions, repository.findApplied(transitions, 3));
+        assertEquals(List.of(), repository.findApplied(transitions, 0));
+    }
+
+    @Test
+    void shouldReplaceInOneUpsertAndRemoveTheArchivedCopyOfANewConsent() {
+        ConsentRepositoryCustomImpl repository = repository(new ConsentStorageFormat(ConsentStorageFormat.Mode.MIGRATING),
+                ConsentLifecycle.defaults());
+        when(mongoTemplate.getConverter()).thenReturn(converter(ConsentStorageFormat.Mode.MIGRATING));
+        ConsentEntity archived = consent("1", ConsentStateEnum.EXPIRED, LocalDateTime.now());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(ConsentEntity.class), eq(ConsentEntity.ARCHIVE_COLLECTION)))
+                .thenReturn(archived);
+        ConsentEntity entity = ConsentEntity.builder().consentId("1").state(ConsentStateEnum.AUTHORISED)
+                .createdAt(LocalDateTime.now()).build();
+
+        assertSame(archived, repository.replaceByConsentId(entity).orElseThrow());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), options.capture(), eq(ConsentEntity.class));
+        assertTrue(options.getValue().isUpsert());
+        assertFalse(options.getValue().isReturnNew());
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        Document unset = update.getValue().getUpdateObject().get("$unset", Document.class);
+        assertEquals(Set.of("c", "s", "t"), set.keySet());
+        assertTrue(unset.keySet().containsAll(Set.of("u", "e", "consentId", "state", "updateStatus", "createdAt", "_class")));
+        assertEquals(new ObjectId(entity.getId()),
+                update.getValue().getUpdateObject().get("$setOnInsert", Document.class).get("_id"));
+    }
+
+    @Test
+    void shouldKeepTheIdOfTheReplacedDocument() {
+        ConsentRepositoryCustomImpl repository = repository(new ConsentStorageFormat(ConsentStorageFormat.Mode.LEGACY),
+                ConsentLifecycle.defaults());
+        when(mongoTemplate.getConverter()).thenReturn(converter(ConsentStorageFormat.Mode.LEGACY));
+        ConsentEntity previous = ConsentEntity.builder().id("doc-1").consentId("1").state(ConsentStateEnum.EXPIRED).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ConsentEntity.class))).thenReturn(previous);
+        ConsentEntity entity = ConsentEntity.builder().consentId("1").state(ConsentStateEnum.AUTHORISED).build();
+
+        assertSame(previous, repository.replaceByConsentId(entity).orElseThrow());
+        assertEquals("doc-1", entity.getId());
+        verify(mongoTemplate, never()).findAndRemove(any(Query.class), any(), any(String.class));
+    }
+
+    private static MappingMongoConverter converter(ConsentStorageFormat.Mode mode) {
+        MongoCustomConversions conversions = new MongoCustomConversions(ConsentDocumentConverters.forMode(mode));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static ConsentEntity consent(String consentId, ConsentStateEnum state, LocalDateTime updateStatus) {
+        return ConsentEntity.builder().consentId(consentId).state(state).updateStatus(updateStatus).build();
+    }
+
+    private Query expirationQuery(ConsentStorageFormat format, ConsentLifecycle lifecycle) {
+        MongoTemplate template = mock(MongoTemplate.class);
+        when(template.stream(any(Query.class), eq(ConsentEntity.class))).thenReturn(Stream.empty());
+        new ConsentRepositoryCustomImpl(template, format, new ConsentLifecycleRegistry(lifecycle))
+                .streamExpirationCandidates(LocalDateTime.now().minusDays(1), null, LocalDateTime.now()).close();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(template, atLeastOnce()).stream(query.capture(), eq(ConsentEntity.class));
+        return query.getAllValues().get(0);
+    }
+
+    private ConsentRepositoryCustomImpl repository(ConsentStorageFormat format, ConsentLifecycle lifecycle) {
+        return new ConsentRepositoryCustomImpl(mongoTemplate, format, new ConsentLifecycleRegistry(lifecycle));
+    }
+}
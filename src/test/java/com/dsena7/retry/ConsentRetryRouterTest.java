@@ -0,0 +1,86 @@
+package com.dsena7.retry;
+
+import com.dsena7.exceptions.EntityNotFoundException;
+import com.dsena7.exceptions.InvalidConsentStateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ConsentRetryRouterTest {
+
+    private static final String QUEUE = "consent.queue";
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentRetryRouter router =
+            new ConsentRetryRouter(rabbitTemplate, meterRegistry, List.of(2000L, 3000L), "consent.dlq", 100);
+
+    @BeforeEach
+    void setUp() {
+        confirmWith(true);
+    }
+
+    @Test
+    void shouldWalkDelayTiersBeforeDeadLettering() {
+        Message message = message();
+        EntityNotFoundException failure = new EntityNotFoundException("Consentimento 1 não encontrado");
+
+        assertEquals(ConsentRetryRouter.Outcome.RETRY, router.route(message, QUEUE, failure));
+        verify(rabbitTemplate).send(eq("consent.retry.2000ms"), eq(QUEUE), eq(message), any(CorrelationData.class));
+        assertEquals(1, (Integer) message.getMessageProperties().getHeader(ConsentRetryRouter.ATTEMPT_HEADER));
+
+        assertEquals(ConsentRetryRouter.Outcome.RETRY, router.route(message, QUEUE, failure));
+        verify(rabbitTemplate).send(eq("consent.retry.3000ms"), eq(QUEUE), eq(message), any(CorrelationData.class));
+
+        assertEquals(ConsentRetryRouter.Outcome.DEAD_LETTER, router.route(message, QUEUE, failure));
+        verify(rabbitTemplate).send(eq(""), eq("consent.dlq"), eq(message), any(CorrelationData.class));
+        assertEquals(QUEUE, message.getMessageProperties().getHeader(ConsentRetryRouter.ORIGIN_HEADER));
+        assertEquals(1.0, meterRegistry.counter("consent.retry.messages", "destination", "dlq").count());
+    }
+
+    @Test
+    void shouldDeadLetterInvalidStateImmediately() {
+        Message message = message();
+
+        ConsentRetryRouter.Outcome outcome = router.route(message, QUEUE,
+                new InvalidConsentStateException("Consentimento 1 com estádo EXPIRED inválido."));
+
+        assertEquals(ConsentRetryRouter.Outcome.DEAD_LETTER, outcome);
+        verify(rabbitTemplate).send(eq(""), eq("consent.dlq"), eq(message), any(CorrelationData.class));
+        assertEquals(1.0, meterRegistry.counter("consent.retry.non.retryable").count());
+    }
+
+    @Test
+    void shouldFailWhenBrokerNacksRepublish() {
+        confirmWith(false);
+
+        assertThrows(AmqpException.class, () -> router.route(message(), QUEUE, new RuntimeException("falha")));
+    }
+
+    private static Message message() {
+        return new Message("{\"consentId\":\"1\"}".getBytes(), new MessageProperties());
+    }
+
+    private void confirmWith(boolean ack) {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+}
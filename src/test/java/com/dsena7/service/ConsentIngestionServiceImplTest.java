@@ -0,0 +1,93 @@
+package com.dsena7.service;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.timer.ConsentExpirationTimer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentIngestionServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ZERO);
+    private final ConsentIngestionService service = new ConsentIngestionServiceImpl(store.blocking(), new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+            new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class),
+            objectMapper, new SimpleMeterRegistry(), 2);
+
+    @Test
+    void shouldIngestNdjsonReportingEachRecord() throws IOException {
+        List<JsonNode> lines = ingest("""
+                {"consentId":"1","state":"AUTHORISED"}
+                {"consentId":"2","state":"EXPIRED"}
+                {"consentId":"","state":"AUTHORISED"}
+                {"consentId":"3","state":"AWAITING_AUTHORISATION"}
+                """);
+
+        assertEquals(List.of("CREATED", "INVALID", "INVALID", "CREATED"), statuses(lines));
+        JsonNode summary = lines.get(lines.size() - 1).get("summary");
+        assertEquals(4, summary.get("received").asInt());
+        assertEquals(2, summary.get("created").asInt());
+        assertEquals(2, summary.get("invalid").asInt());
+        assertEquals(0, summary.get("failed").asInt());
+        assertEquals(ConsentStateEnum.AWAITING_AUTHORISATION, store.get("3").orElseThrow().getState());
+    }
+
+    @Test
+    void shouldIngestJsonArray() throws IOException {
+        List<JsonNode> lines = ingest("""
+                [{"consentId":"1","state":"AUTHORISED"},{"consentId":"2","state":"UNKNOWN"},{"consentId":"3","state":"AUTHORISED"}]
+                """);
+
+        assertEquals(List.of("CREATED", "INVALID", "CREATED"), statuses(lines));
+        assertTrue(store.get("3").isPresent());
+    }
+
+    @Test
+    void shouldStopAtMalformedBodyKeepingRecordsAlreadyRead() throws IOException {
+        List<JsonNode> lines = ingest("""
+                {"consentId":"1","state":"AUTHORISED"}
+                {"consentId":"2",
+                """);
+
+        assertEquals(List.of("CREATED"), statuses(lines));
+        JsonNode summary = lines.get(lines.size() - 1).get("summary");
+        assertEquals(1, summary.get("created").asInt());
+        assertFalse(summary.get("error").isNull());
+    }
+
+    private List<JsonNode> ingest(String body) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static List<String> statuses(List<JsonNode> lines) {
+        return lines.subList(0, lines.size() - 1).stream()
+                .sorted((a, b) -> Long.compare(a.get("index").asLong(), b.get("index").asLong()))
+                .map(line -> line.get("status").asText())
+                .toList();
+    }
+}
@@ -0,0 +1,76 @@
+package com.dsena7.service;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentBatchResult;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.timer.ConsentExpirationTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConsentStateServiceImplTest {
+
+    private final ConsentRepository repository = mock(ConsentRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentTransitionEngine engine = (entity, event) -> ConsentStateEnum.EXPIRED;
+    private final ConsentStateService service = new ConsentStateServiceImpl(engine, repository,
+            new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+            new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class),
+            new ConsentMetrics(meterRegistry));
+
+    @Test
+    void shouldFailOnlyTransitionsThatAlsoFailIndividuallyWhenTheBulkWriteFails() {
+        when(repository.findByConsentIdIn(anyCollection()))
+                .thenReturn(List.of(expired("1"), expired("2"), expired("3")));
+        when(repository.applyTransitions(anyList())).thenThrow(new DataAccessResourceFailureException("timeout"));
+        when(repository.applyTransition(argThat(transition -> transition != null && transition.consentId().equals("1"))))
+                .thenReturn(true);
+        when(repository.applyTransition(argThat(transition -> transition != null && transition.consentId().equals("2"))))
+                .thenThrow(new DataAccessResourceFailureException("timeout"));
+        when(repository.applyTransition(argThat(transition -> transition != null && transition.consentId().equals("3"))))
+                .thenReturn(false);
+        // Gravadas uma a uma, as transições aplicadas já são conhecidas
+        when(repository.findApplied(anyList(), eq(1))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ConsentBatchResult result = service.processConsents(List.of("1", "2", "3"));
+
+        assertEquals(1, result.failures().size());
+        assertInstanceOf(PersistenceException.class, result.failures().get("2"));
+        assertEquals(1.0, meterRegistry.counter("consent.transition.lost.race").count());
+        assertEquals(1.0, meterRegistry.get("consent.transitions").tags("from", "AUTHORISED", "to", "EXPIRED").counter().count());
+    }
+
+    private static ConsentEntity expired(String consentId) {
+        LocalDateTime now = LocalDateTime.now();
+        return ConsentEntity.builder()
+                .consentId(consentId)
+                .state(ConsentStateEnum.AUTHORISED)
+                .createdAt(now.minusMinutes(5))
+                .expiratedAt(now.minusMinutes(1))
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.dsena7.service;
+
+import com.dsena7.cache.ConsentStateCache;
+import com.dsena7.exceptions.EntityNotFoundException;
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.statemachine.ConsentTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.dsena7.timer.ConsentExpirationTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveConsentStateServiceImplTest {
+
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ofMillis(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentMetrics consentMetrics = new ConsentMetrics(meterRegistry);
+    private ReactiveConsentStateService service;
+
+    @BeforeEach
+    void setUp() {
+        ConsentTransitionEngine engine = (entity, event) -> switch (event) {
+            case EXPIRE -> ConsentStateEnum.EXPIRED;
+            case REJECT -> ConsentStateEnum.REJECTED;
+        };
+        service = new ReactiveConsentStateServiceImpl(engine, store.reactive(), new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+                new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class), consentMetrics);
+    }
+
+    @Test
+    void shouldExpireAuthorisedConsent() {
+        store.put(consent("1", ConsentStateEnum.AUTHORISED));
+
+        StepVerifier.create(service.processConsent("1")).verifyComplete();
+
+        assertEquals(ConsentStateEnum.EXPIRED, store.get("1").orElseThrow().getState());
+        assertEquals(1.0, meterRegistry.get("consent.transitions").tags("from", "AUTHORISED", "to", "EXPIRED").counter().count());
+        assertEquals(1, meterRegistry.get("consent.process.stage").tags("stage", "find", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("consent.process.stage")
+                .tags("stage", "update", "event", "EXPIRE", "outcome", "success").timer().count());
+        assertEquals(1, consentMetrics.findLatency().snapshot().samples());
+    }
+
+    @Test
+    void shouldRejectAwaitingConsent() {
+        store.put(consent("2", ConsentStateEnum.AWAITING_AUTHORISATION));
+
+        StepVerifier.create(service.processConsent("2")).verifyComplete();
+
+        assertEquals(ConsentStateEnum.REJECTED, store.get("2").orElseThrow().getState());
+    }
+
+    @Test
+    void shouldFailForUnknownOrTerminalConsent() {
+        store.put(consent("3", ConsentStateEnum.EXPIRED));
+
+        StepVerifier.create(service.processConsent("missing")).verifyError(EntityNotFoundException.class);
+        StepVerifier.create(service.processConsent("3")).verifyError(StateMachineTransitionException.class);
+
+        assertEquals(1, meterRegistry.get("consent.process.stage").tags("stage", "find", "outcome", "failure").timer().count());
+        assertEquals(1.0, meterRegistry.get("consent.process.failures").tags("reason", "not.found").counter().count());
+    }
+
+    @Test
+    void shouldCountLostRaceWhenAnotherConsumerAppliedTheTransition() {
+        store.put(consent("4", ConsentStateEnum.AUTHORISED));
+        ConsentTransitionEngine racingEngine = (entity, event) -> {
+            // Outro consumidor grava a transição entre a leitura e a escrita condicional
+            store.put(consent("4", ConsentStateEnum.EXPIRED));
+            return ConsentStateEnum.EXPIRED;
+        };
+        ReactiveConsentStateService racingService = new ReactiveConsentStateServiceImpl(racingEngine, store.reactive(),
+                new ConsentLifecycleRegistry(ConsentLifecycle.defaults()),
+                new StaticListableBeanFactory().getBeanProvider(ConsentExpirationTimer.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCache.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class), new ConsentMetrics(meterRegistry));
+
+        StepVerifier.create(racingService.processConsent("4")).verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("consent.transition.lost.race").count());
+    }
+
+    private static ConsentEntity consent(String consentId, ConsentStateEnum state) {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        return ConsentEntity.builder().consentId(consentId).state(state).createdAt(past).expiratedAt(past).build();
+    }
+}
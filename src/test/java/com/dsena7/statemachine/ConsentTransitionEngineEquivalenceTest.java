@@ -0,0 +1,111 @@
+package com.dsena7.statemachine;
+
+import com.dsena7.config.PrecomputedStateMachineConfig;
+import com.dsena7.config.StateMachineConfig;
+import com.dsena7.exceptions.StateMachineTransitionException;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.statemachine.config.ObjectStateMachineFactory;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig({ConsentLifecycleRegistry.class, StateMachineConfig.class})
+public class ConsentTransitionEngineEquivalenceTest {
+
+    @Autowired
+    private StateMachineFactory<ConsentStateEnum, ConsentEventEnum> stateMachineFactory;
+
+    @Autowired
+    private ConsentLifecycleRegistry lifecycleRegistry;
+
+    private ConsentTransitionEngine compiledEngine;
+    private ConsentTransitionEngine perCallEngine;
+    private ConsentTransitionEngine pooledEngine;
+    private ConsentTransitionEngine precomputedEngine;
+
+    @BeforeEach
+    void setUp() {
+        compiledEngine = new CompiledTransitionEngine(lifecycleRegistry);
+        ConsentMetrics consentMetrics = new ConsentMetrics(new SimpleMeterRegistry());
+        perCallEngine = new SpringStateMachineTransitionEngine(new PerCallStateMachineProvider(stateMachineFactory), consentMetrics);
+        pooledEngine = new SpringStateMachineTransitionEngine(
+                new PooledStateMachineProvider(stateMachineFactory, new SimpleMeterRegistry(), 2, 1, 1000), consentMetrics);
+        ObjectStateMachineFactory<ConsentStateEnum, ConsentEventEnum> precomputedFactory = new ObjectStateMachineFactory<>(
+                PrecomputedStateMachineConfig.model(lifecycleRegistry.current()));
+        precomputedFactory.setBeanFactory(new StaticListableBeanFactory());
+        precomputedEngine = new SpringStateMachineTransitionEngine(new PerCallStateMachineProvider(precomputedFactory), consentMetrics);
+    }
+
+    @Test
+    void compiledEngineShouldMatchSpringStateMachineForEveryStateAndEvent() {
+        // Duas passadas para garantir que as máquinas reutilizadas do pool se comportam igual às novas
+        for (int pass = 0; pass < 2; pass++) {
+            for (ConsentStateEnum state : ConsentStateEnum.values()) {
+                for (ConsentEventEnum event : ConsentEventEnum.values()) {
+                    ConsentEntity entity = ConsentEntity.builder()
+                            .consentId("equivalence-" + state + "-" + event)
+                            .state(state)
+                            .build();
+
+                    String expected = outcome(perCallEngine, entity, event);
+                    assertEquals(expected, outcome(compiledEngine, entity, event),
+                            "Motor compilado divergiu para " + state + " com " + event);
+                    assertEquals(expected, outcome(pooledEngine, entity, event),
+                            "Motor com pool divergiu para " + state + " com " + event);
+                    assertEquals(expected, outcome(precomputedEngine, entity, event),
+                            "Modelo pré-computado divergiu para " + state + " com " + event);
+                }
+            }
+        }
+    }
+
+    @Test
+    void compiledEngineShouldApplyConfiguredTransitions() {
+        ConsentEntity authorised = ConsentEntity.builder().consentId("1").state(ConsentStateEnum.AUTHORISED).build();
+        ConsentEntity awaiting = ConsentEntity.builder().consentId("2").state(ConsentStateEnum.AWAITING_AUTHORISATION).build();
+
+        assertEquals(ConsentStateEnum.EXPIRED, compiledEngine.fire(authorised, ConsentEventEnum.EXPIRE));
+        assertEquals(ConsentStateEnum.REJECTED, compiledEngine.fire(awaiting, ConsentEventEnum.REJECT));
+        assertThrows(StateMachineTransitionException.class,
+                () -> compiledEngine.fire(awaiting, ConsentEventEnum.EXPIRE));
+    }
+
+    @Test
+    void pooledProviderShouldReplaceMachinesThatReachedTerminalStates() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PooledStateMachineProvider pool = new PooledStateMachineProvider(stateMachineFactory, meterRegistry, 1, 1, 1000);
+        ConsentTransitionEngine engine = new SpringStateMachineTransitionEngine(pool,
+                new ConsentMetrics(new SimpleMeterRegistry()));
+
+        for (int i = 0; i < 3; i++) {
+            ConsentEntity authorised = ConsentEntity.builder().consentId("reuse-" + i).state(ConsentStateEnum.AUTHORISED).build();
+            ConsentEntity awaiting = ConsentEntity.builder().consentId("reuse-" + i).state(ConsentStateEnum.AWAITING_AUTHORISATION).build();
+            assertEquals(ConsentStateEnum.EXPIRED, engine.fire(authorised, ConsentEventEnum.EXPIRE));
+            assertEquals(ConsentStateEnum.REJECTED, engine.fire(awaiting, ConsentEventEnum.REJECT));
+        }
+
+        assertEquals(6, meterRegistry.counter("consent.statemachine.pool.hits").count());
+        assertEquals(0, meterRegistry.counter("consent.statemachine.pool.misses").count());
+        assertEquals(6, meterRegistry.counter("consent.statemachine.pool.discards").count());
+        assertEquals(1, meterRegistry.get("consent.statemachine.pool.size").gauge().value());
+        assertEquals(1, meterRegistry.get("consent.statemachine.pool.idle").gauge().value());
+    }
+
+    private static String outcome(ConsentTransitionEngine engine, ConsentEntity entity, ConsentEventEnum event) {
+        try {
+            return engine.fire(entity, event).name();
+        } catch (StateMachineTransitionException e) {
+            return "REJECTED_TRANSITION";
+        }
+    }
+}
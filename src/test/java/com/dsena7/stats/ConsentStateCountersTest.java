@@ -0,0 +1,88 @@
+package com.dsena7.stats;
+
+import com.dsena7.model.ConsentEventEnum;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.model.ConsentStatsDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentStateCountersTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(10 * MINUTE);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentStateCounters counters = new ConsentStateCounters(meterRegistry, 5, clock::get);
+
+    @Test
+    void shouldKeepCountsAcrossDrainAndFlush() {
+        counters.flushed(Map.of("AUTHORISED", 10L, "EXPIRED", 4L), false);
+        counters.inserted(ConsentStateEnum.AUTHORISED);
+        counters.transition(ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED);
+
+        long[] deltas = counters.drain();
+        assertEquals(0, deltas[ConsentStateEnum.AUTHORISED.ordinal()]);
+        assertEquals(1, deltas[ConsentStateEnum.EXPIRED.ordinal()]);
+        assertEquals(5, counters.count(ConsentStateEnum.EXPIRED));
+
+        counters.restore();
+        assertEquals(5, counters.count(ConsentStateEnum.EXPIRED));
+
+        counters.drain();
+        counters.flushed(Map.of("AUTHORISED", 10L, "EXPIRED", 7L), false);
+        assertEquals(7, counters.count(ConsentStateEnum.EXPIRED));
+        assertEquals(7.0, meterRegistry.get("consent.state.count").tag("state", "EXPIRED").gauge().value());
+    }
+
+    @Test
+    void shouldServeTransitionRatesPerMinute() {
+        for (int minute = 0; minute < 3; minute++) {
+            for (int i = 0; i < 6; i++) {
+                counters.transition(ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED);
+            }
+            counters.transition(ConsentStateEnum.AWAITING_AUTHORISATION, ConsentStateEnum.REJECTED);
+            clock.addAndGet(MINUTE);
+        }
+
+        ConsentStatsDTO stats = counters.snapshot();
+
+        assertEquals(6, stats.transitionsLastMinute().get(ConsentStateEnum.EXPIRED));
+        assertEquals(1, stats.transitionsLastMinute().get(ConsentStateEnum.REJECTED));
+        assertEquals(6.0, stats.transitionsPerMinute().get(ConsentStateEnum.EXPIRED));
+
+        clock.addAndGet(10 * MINUTE);
+        assertEquals(0, counters.snapshot().transitionsLastMinute().get(ConsentStateEnum.EXPIRED));
+    }
+
+    @Test
+    void shouldCountEveryAppliedTransitionOfAMixedBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        ConsentStateTransition expire = new ConsentStateTransition("1", ConsentStateEnum.AUTHORISED, ConsentStateEnum.EXPIRED, ConsentEventEnum.EXPIRE, now);
+        ConsentStateTransition reject = new ConsentStateTransition("2", ConsentStateEnum.AWAITING_AUTHORISATION, ConsentStateEnum.REJECTED, ConsentEventEnum.REJECT, now);
+
+        counters.recordApplied(List.of(expire, reject));
+
+        assertEquals(1, counters.count(ConsentStateEnum.EXPIRED));
+        assertEquals(1, counters.count(ConsentStateEnum.REJECTED));
+        assertEquals(-1, counters.count(ConsentStateEnum.AUTHORISED));
+    }
+
+    @Test
+    void shouldMoveAReplacedConsentOutOfItsPreviousState() {
+        counters.flushed(Map.of("EXPIRED", 3L), false);
+
+        counters.replaced(ConsentStateEnum.EXPIRED, ConsentStateEnum.AUTHORISED);
+
+        assertEquals(2, counters.count(ConsentStateEnum.EXPIRED));
+        assertEquals(1, counters.count(ConsentStateEnum.AUTHORISED));
+        assertEquals(0, counters.snapshot().transitionsLastMinute().get(ConsentStateEnum.AUTHORISED));
+    }
+}
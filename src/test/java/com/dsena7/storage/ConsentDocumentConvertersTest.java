@@ -0,0 +1,77 @@
+package com.dsena7.storage;
+
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsentDocumentConvertersTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Test
+    void shouldReadLegacyAndCompactDocumentsIntoTheSameEntity() {
+        ObjectId id = new ObjectId();
+        Document legacy = new Document("_id", id)
+                .append("consentId", "consent-1")
+                .append("state", "AUTHORISED")
+                .append("updateStatus", date(NOW))
+                .append("createdAt", date(NOW.minusMinutes(1)))
+                .append("expiratedAt", date(NOW.plusDays(1)))
+                .append("_class", ConsentEntity.class.getName());
+
+        ConsentEntity entity = ConsentDocumentConverters.read(legacy);
+        Document compact = ConsentDocumentConverters.toCompact(entity);
+
+        assertEquals(id, compact.get("_id"));
+        assertEquals("consent-1", compact.get("c"));
+        assertEquals(ConsentStateEnum.AUTHORISED.code(), compact.get("s"));
+        assertFalse(compact.containsKey("_class"));
+        assertTrue(ConsentDocumentConverters.isLegacy(legacy));
+        assertFalse(ConsentDocumentConverters.isLegacy(compact));
+        assertEquals(entity, ConsentDocumentConverters.read(compact));
+        assertEquals(NOW.plusDays(1), entity.getExpiratedAt());
+    }
+
+    @Test
+    void compactDocumentShouldBeSmallerThanLegacy() {
+        Document legacy = new Document("_id", new ObjectId())
+                .append("consentId", "c0a8012e-7d1f-4b8e-9a55-3f2d1c9e8b70")
+                .append("state", "AWAITING_AUTHORISATION")
+                .append("updateStatus", date(NOW))
+                .append("createdAt", date(NOW))
+                .append("expiratedAt", date(NOW.plusMinutes(1)))
+                .append("_class", ConsentEntity.class.getName());
+
+        int legacySize = ConsentStorageMigrator.bsonSize(legacy);
+        int compactSize = ConsentStorageMigrator.bsonSize(
+                ConsentDocumentConverters.toCompact(ConsentDocumentConverters.read(legacy)));
+
+        assertTrue(compactSize < legacySize * 0.6, compactSize + " >= 60% de " + legacySize);
+    }
+
+    @Test
+    void shouldMergeStreamsOfBothLayoutsInOrder() {
+        Stream<Integer> compact = Stream.of(1, 4, 5);
+        Stream<Integer> legacy = Stream.of(2, 3, 6);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6),
+                SortedStreams.merge(List.of(compact, legacy), Integer::compare).toList());
+        assertEquals(ConsentStateEnum.REJECTED, ConsentStorageLayout.readState(ConsentStateEnum.REJECTED.code()));
+        assertEquals(ConsentStateEnum.REJECTED, ConsentStorageLayout.readState("REJECTED"));
+    }
+
+    private static Date date(LocalDateTime value) {
+        return Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
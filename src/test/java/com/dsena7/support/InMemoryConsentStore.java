@@ -0,0 +1,283 @@
+package com.dsena7.support;
+
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.ConsentStateTransition;
+import com.dsena7.repository.ConsentRepository;
+import com.dsena7.repository.ReactiveConsentRepository;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Armazenamento em memória que substitui o MongoDB em testes e benchmarks.
+ * <p>
+ * Expõe o mesmo conteúdo como {@link ConsentRepository} e {@link ReactiveConsentRepository}, com
+ * latência opcional por operação: o repositório bloqueante dorme na thread chamadora, o reativo
+ * atrasa o sinal com {@link Mono#delay(Duration)}, como faria um driver assíncrono. Apenas os
+ * métodos usados pelos serviços são implementados; os demais lançam UnsupportedOperationException.
+ * Uma taxa de falhas opcional faz parte das operações lançar DataAccessResourceFailureException.
+ * Como no MongoDB, as buscas por consentId consultam o arquivo quando o documento não está na coleção principal.
+ */
+public class InMemoryConsentStore {
+
+    private static final ConsentLifecycle LIFECYCLE = ConsentLifecycle.defaults();
+
+    private final Map<String, ConsentEntity> documents = new ConcurrentHashMap<>();
+    private final Map<String, ConsentEntity> archived = new ConcurrentHashMap<>();
+    private volatile Duration latency;
+    private volatile double failureRate;
+
+    public InMemoryConsentStore(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Altera a latência das operações seguintes, para simular um MongoDB que degrada durante o teste.
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Fração das operações seguintes que falha como um MongoDB indisponível, entre 0 e 1.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public void put(ConsentEntity entity) {
+        documents.put(entity.getConsentId(), copy(entity));
+    }
+
+    public Optional<ConsentEntity> get(String consentId) {
+        ConsentEntity entity = documents.get(consentId);
+        return Optional.ofNullable(entity != null ? entity : archived.get(consentId)).map(InMemoryConsentStore::copy);
+    }
+
+    public boolean isArchived(String consentId) {
+        return !documents.containsKey(consentId) && archived.containsKey(consentId);
+    }
+
+    public void clear() {
+        documents.clear();
+        archived.clear();
+    }
+
+    public ConsentRepository blocking() {
+        return proxy(ConsentRepository.class, new BlockingOperations());
+    }
+
+    public ReactiveConsentRepository reactive() {
+        return proxy(ReactiveConsentRepository.class, new ReactiveOperations());
+    }
+
+    /**
+     * Mesma semântica do updateOne condicional: só altera o documento se ele ainda estiver no estado de origem.
+     */
+    private boolean apply(ConsentStateTransition transition) {
+        boolean[] applied = new boolean[1];
+        documents.computeIfPresent(transition.consentId(), (id, entity) -> {
+            if (entity.getState() != transition.from()) {
+                return entity;
+            }
+            applied[0] = true;
+            ConsentEntity updated = copy(entity);
+            updated.setState(transition.to());
+            updated.setUpdateStatus(transition.at());
+            return updated;
+        });
+        return applied[0];
+    }
+
+    private void pause() {
+        fail();
+        Duration current = latency;
+        if (current.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(current.toMillis(), current.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> Mono<T> delayed(Mono<T> result) {
+        Duration current = latency;
+        Mono<T> failing = Mono.defer(() -> {
+            fail();
+            return result;
+        });
+        return current.isZero() ? failing : Mono.delay(current).then(failing);
+    }
+
+    private void fail() {
+        double rate = failureRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            throw new DataAccessResourceFailureException("Falha injetada no armazenamento em memória");
+        }
+    }
+
+    private static ConsentEntity copy(ConsentEntity entity) {
+        return new ConsentEntity(entity.getId(), entity.getConsentId(), entity.getState(),
+                entity.getUpdateStatus(), entity.getCreatedAt(), entity.getExpiratedAt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object operations) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(operations, args);
+            }
+            Method target;
+            try {
+                target = operations.getClass().getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            try {
+                return target.invoke(operations, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    public class BlockingOperations {
+
+        public Optional<ConsentEntity> findByConsentId(String consentId) {
+            pause();
+            return get(consentId);
+        }
+
+        public List<ConsentEntity> findByConsentIdIn(Collection<String> consentIds) {
+            pause();
+            List<ConsentEntity> found = new ArrayList<>(consentIds.size());
+            for (String consentId : consentIds) {
+                get(consentId).ifPresent(found::add);
+            }
+            return found;
+        }
+
+        public boolean applyTransition(ConsentStateTransition transition) {
+            pause();
+            return apply(transition);
+        }
+
+        public int applyTransitions(List<ConsentStateTransition> transitions) {
+            pause();
+            int applied = 0;
+            for (ConsentStateTransition transition : transitions) {
+                applied += apply(transition) ? 1 : 0;
+            }
+            return applied;
+        }
+
+        public List<ConsentStateTransition> findApplied(List<ConsentStateTransition> transitions, int applied) {
+            pause();
+            return transitions.stream()
+                    .filter(transition -> get(transition.consentId())
+                            .filter(entity -> entity.getState() == transition.to()
+                                    && transition.at().equals(entity.getUpdateStatus()))
+                            .isPresent())
+                    .toList();
+        }
+
+        public Map<Integer, String> insertUnordered(List<ConsentEntity> entities) {
+            pause();
+            entities.forEach(InMemoryConsentStore.this::put);
+            return Map.of();
+        }
+
+        public Stream<ConsentEntity> streamExpirationCandidates(LocalDateTime after, String afterId, LocalDateTime upTo) {
+            pause();
+            Set<ConsentStateEnum> activeStates = LIFECYCLE.activeStates();
+            return documents.values().stream()
+                    .filter(entity -> activeStates.contains(entity.getState()) && entity.getExpiratedAt() != null)
+                    .filter(entity -> !entity.getExpiratedAt().isAfter(upTo) && (entity.getExpiratedAt().isAfter(after)
+                            || (afterId != null && entity.getExpiratedAt().equals(after) && entity.getId().compareTo(afterId) > 0)))
+                    .sorted(Comparator.comparing(ConsentEntity::getExpiratedAt).thenComparing(ConsentEntity::getId))
+                    .map(InMemoryConsentStore::copy)
+                    .toList()
+                    .stream();
+        }
+
+        public Stream<ConsentEntity> streamArchivalCandidates(LocalDateTime expiredBefore) {
+            pause();
+            Set<ConsentStateEnum> terminalStates = LIFECYCLE.terminalStates();
+            return documents.values().stream()
+                    .filter(entity -> terminalStates.contains(entity.getState()))
+                    .filter(entity -> entity.getExpiratedAt().isBefore(expiredBefore))
+                    .sorted(Comparator.comparing(ConsentEntity::getExpiratedAt))
+                    .map(InMemoryConsentStore::copy)
+                    .toList()
+                    .stream();
+        }
+
+        public int archive(List<ConsentEntity> entities) {
+            pause();
+            entities.forEach(entity -> archived.put(entity.getConsentId(), copy(entity)));
+            int removed = 0;
+            for (ConsentEntity entity : entities) {
+                ConsentEntity current = documents.get(entity.getConsentId());
+                if (current != null && LIFECYCLE.isTerminal(current.getState())
+                        && documents.remove(entity.getConsentId(), current)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        public Optional<ConsentEntity> replaceByConsentId(ConsentEntity entity) {
+            pause();
+            ConsentEntity[] replaced = new ConsentEntity[1];
+            documents.compute(entity.getConsentId(), (id, current) -> {
+                replaced[0] = current;
+                entity.setId(current != null ? current.getId() : UUID.randomUUID().toString());
+                return copy(entity);
+            });
+            ConsentEntity previous = replaced[0];
+            if (previous == null) {
+                previous = archived.remove(entity.getConsentId());
+            }
+            return Optional.ofNullable(previous).map(InMemoryConsentStore::copy);
+        }
+
+        public Object save(Object entity) {
+            pause();
+            put((ConsentEntity) entity);
+            return entity;
+        }
+    }
+
+    public class ReactiveOperations {
+
+        public Mono<ConsentEntity> findByConsentId(String consentId) {
+            return delayed(Mono.fromCallable(() -> get(consentId).orElse(null)));
+        }
+
+        public Mono<Boolean> applyTransition(ConsentStateTransition transition) {
+            return delayed(Mono.fromCallable(() -> apply(transition)));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dsena7.support;
+
+import com.dsena7.partition.PartitionMembership;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Membros das partições em memória, compartilhados entre várias instâncias do coordenador no mesmo
+ * teste para simular réplicas entrando e saindo.
+ */
+public class InMemoryPartitionMembership implements PartitionMembership {
+
+    private final Set<String> members = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void heartbeat(String member) {
+        members.add(member);
+    }
+
+    @Override
+    public Set<String> liveMembers() {
+        return Set.copyOf(members);
+    }
+
+    @Override
+    public void leave(String member) {
+        members.remove(member);
+    }
+
+    /**
+     * Remove um membro sem passar pelo leave, como uma réplica que parou de enviar heartbeats.
+     */
+    public void expire(String member) {
+        members.remove(member);
+    }
+}
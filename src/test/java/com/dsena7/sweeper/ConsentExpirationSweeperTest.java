@@ -0,0 +1,90 @@
+package com.dsena7.sweeper;
+
+import com.dsena7.journal.ConsentTransitionJournal;
+import com.dsena7.lifecycle.ConsentLifecycle;
+import com.dsena7.lifecycle.ConsentLifecycleRegistry;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentEntity;
+import com.dsena7.model.ConsentStateEnum;
+import com.dsena7.model.SweeperStateEntity;
+import com.dsena7.statemachine.CompiledTransitionEngine;
+import com.dsena7.stats.ConsentStateCounters;
+import com.dsena7.support.InMemoryConsentStore;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConsentExpirationSweeperTest {
+
+    private final InMemoryConsentStore store = new InMemoryConsentStore(Duration.ZERO);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentLifecycleRegistry lifecycleRegistry = new ConsentLifecycleRegistry(ConsentLifecycle.defaults());
+    private final ConsentExpirationSweeper sweeper = new ConsentExpirationSweeper(store.blocking(),
+            new CompiledTransitionEngine(lifecycleRegistry), lifecycleRegistry, mongoTemplate,
+            new StaticListableBeanFactory().getBeanProvider(ConsentTransitionJournal.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentStateCounters.class),
+            new ConsentMetrics(meterRegistry), meterRegistry, 1, 2, 60_000, 3_600_000);
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(SweeperStateEntity.class))).thenReturn(new SweeperStateEntity());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(SweeperStateEntity.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    void shouldApplyTheEventResolvedByEachGuard() {
+        LocalDateTime now = LocalDateTime.now();
+        // A guarda de AWAITING_AUTHORISATION compara createdAt, não expiratedAt
+        store.put(consent("awaiting", ConsentStateEnum.AWAITING_AUTHORISATION, now.minusHours(1), now.minusMinutes(1)));
+        store.put(consent("authorised", ConsentStateEnum.AUTHORISED, now.minusHours(1), now.minusMinutes(1)));
+        store.put(consent("not-due", ConsentStateEnum.AUTHORISED, now.minusHours(1), now.plusHours(1)));
+
+        sweeper.sweep();
+
+        assertEquals(ConsentStateEnum.REJECTED, store.get("awaiting").orElseThrow().getState());
+        assertEquals(ConsentStateEnum.EXPIRED, store.get("authorised").orElseThrow().getState());
+        assertEquals(ConsentStateEnum.AUTHORISED, store.get("not-due").orElseThrow().getState());
+        assertEquals(1.0, meterRegistry.counter("consent.sweeper.candidates", "event", "REJECT").count());
+        assertEquals(1.0, meterRegistry.counter("consent.sweeper.candidates", "event", "EXPIRE").count());
+    }
+
+    @Test
+    void shouldSkipCandidatesWhoseGuardDoesNotPassYet() {
+        LocalDateTime now = LocalDateTime.now();
+        store.put(consent("pending", ConsentStateEnum.AWAITING_AUTHORISATION, now.plusMinutes(5), now.minusMinutes(1)));
+
+        sweeper.sweep();
+
+        assertEquals(ConsentStateEnum.AWAITING_AUTHORISATION, store.get("pending").orElseThrow().getState());
+        assertEquals(0.0, meterRegistry.counter("consent.sweeper.candidates", "event", "REJECT").count());
+    }
+
+    private static ConsentEntity consent(String consentId, ConsentStateEnum state, LocalDateTime createdAt,
+                                         LocalDateTime expiratedAt) {
+        return new ConsentEntity(consentId, consentId, state, null, createdAt, expiratedAt);
+    }
+}
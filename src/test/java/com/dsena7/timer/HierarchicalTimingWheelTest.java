@@ -0,0 +1,81 @@
+package com.dsena7.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_000;
+
+    @Test
+    void shouldFireEveryTimerAtItsTickAcrossAllLevels() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, START, 16);
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        long[] ranges = {500, 40_000, 2_500_000, 160_000_000L};
+
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = START + 1 + (long) (random.nextDouble() * ranges[i % ranges.length]);
+            deadlines.put("consent-" + i, deadline);
+            wheel.schedule("consent-" + i, deadline);
+        }
+        assertEquals(deadlines.size(), wheel.size());
+
+        Set<String> fired = new HashSet<>();
+        long now = START;
+        while (wheel.size() > 0) {
+            now += 7_919;
+            long current = now;
+            wheel.advance(now, id -> {
+                long deadline = deadlines.get(id);
+                assertTrue(deadline <= current, "Timer " + id + " disparou antes do prazo");
+                assertTrue(current - deadline < 7_919 + TICK, "Timer " + id + " disparou atrasado");
+                assertTrue(fired.add(id), "Timer " + id + " disparou mais de uma vez");
+            });
+        }
+        assertEquals(deadlines.keySet(), fired);
+    }
+
+    @Test
+    void shouldNotFireCancelledOrRescheduledTimers() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, START, 16);
+        wheel.schedule("a", START + 100);
+        wheel.schedule("b", START + 100);
+        wheel.schedule("c", START + 100);
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+        wheel.schedule("c", START + 50_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 1_000, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(START + 50_000, fired::add);
+        assertEquals(List.of("a", "c"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldHandleDeadlinesBeyondWheelRange() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, START, 16);
+        long farDeadline = START + (1L << 26);
+        wheel.schedule("far", farDeadline);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(farDeadline - 1, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(farDeadline, fired::add);
+        assertEquals(List.of("far"), fired);
+    }
+}
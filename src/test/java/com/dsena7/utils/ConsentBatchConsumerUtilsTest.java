@@ -0,0 +1,97 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.EntityNotFoundException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentBatchResult;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentStateService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentBatchConsumerUtilsTest {
+
+    private final ConsentStateService service = mock(ConsentStateService.class);
+    private final ConsentEventCodecs codecs = mock(ConsentEventCodecs.class);
+    private final Channel channel = mock(Channel.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsentMetrics consentMetrics = new ConsentMetrics(meterRegistry);
+    private final ConsentBatchConsumerUtils consumer = new ConsentBatchConsumerUtils(service, codecs,
+            new StaticListableBeanFactory().getBeanProvider(ConsentDeliveryFilter.class),
+            new StaticListableBeanFactory().getBeanProvider(ConsentRetryRouter.class), consentMetrics);
+
+    @Test
+    void shouldRequeueOnlyMessagesWithTransientFailures() throws IOException {
+        List<Message> messages = List.of(message("1", 1), message("2", 2), message("3", 3));
+        when(service.processConsents(anyList())).thenReturn(new ConsentBatchResult(Map.of(
+                "1", new PersistenceException("Erro ao salvar"),
+                "2", new EntityNotFoundException("Consentimento 2 não encontrado"))));
+
+        consumer.receivedMessages(messages, channel);
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, false);
+        verify(channel).basicAck(3, false);
+        assertEquals(3, meterRegistry.get("consent.process.stage").tags("stage", "decode", "outcome", "success").timer().count());
+        assertEquals(3, meterRegistry.get("consent.process.stage").tags("stage", "queue.dwell").timer().count());
+    }
+
+    @Test
+    void shouldRequeueWholeBatchWhenTheBatchReadFails() throws IOException {
+        List<Message> messages = List.of(message("1", 1), message("2", 2));
+        when(service.processConsents(anyList())).thenThrow(new DataAccessResourceFailureException("Mongo indisponível"));
+
+        consumer.receivedMessages(messages, channel);
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, true);
+    }
+
+    @Test
+    void shouldReleaseDeliveriesThatFailedTransientlySoTheirRedeliveryIsProcessed() throws IOException {
+        ConsentDeliveryFilter filter = new ConsentDeliveryFilter(meterRegistry, 60_000, 10_000, 0.01, 10_000);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("consentDeliveryFilter", filter);
+        ConsentBatchConsumerUtils filtered = new ConsentBatchConsumerUtils(service, codecs,
+                beans.getBeanProvider(ConsentDeliveryFilter.class),
+                new StaticListableBeanFactory().getBeanProvider(ConsentRetryRouter.class), consentMetrics);
+        List<Message> messages = List.of(message("1", 1), message("2", 2));
+        when(service.processConsents(anyList())).thenReturn(new ConsentBatchResult(Map.of(
+                "1", new PersistenceException("Erro ao salvar"))));
+
+        filtered.receivedMessages(messages, channel);
+
+        assertFalse(filter.isDuplicate("message-1", "1"));
+        assertTrue(filter.isDuplicate("message-2", "2"));
+    }
+
+    private Message message(String consentId, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        properties.setMessageId("message-" + consentId);
+        properties.setHeader(ConsentMetrics.PUBLISHED_AT_HEADER, System.currentTimeMillis());
+        Message message = new Message(("{\"consentId\":\"" + consentId + "\"}").getBytes(), properties);
+        when(codecs.decode(message)).thenReturn(new ConsentIdRequestDTO(consentId));
+        return message;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.exceptions.ConsentCodecException;
+import com.dsena7.exceptions.EntityNotFoundException;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ConsentStateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentConsumerUtilsTest {
+
+    private final ConsentStateService service = mock(ConsentStateService.class);
+    private final ConsentEventCodecs codecs = mock(ConsentEventCodecs.class);
+    private final ConsentRetryRouter router = mock(ConsentRetryRouter.class);
+    private final ConsentConsumerUtils consumer = consumer();
+
+    @Test
+    void shouldRequeueWhenRepublishingAFailedDeliveryFails() throws IllegalAccessException {
+        Message message = message();
+        when(codecs.decode(message)).thenReturn(new ConsentIdRequestDTO("1"));
+        EntityNotFoundException failure = new EntityNotFoundException("Consentimento 1 não encontrado");
+        doThrow(failure).when(service).processConsent("1");
+        when(router.route(eq(message), eq("consent.queue"), any())).thenThrow(new AmqpException("sem confirm"));
+
+        assertThrows(ImmediateRequeueAmqpException.class, () -> consumer.receivedMessage(message, null, "message-1"));
+        verify(router).route(message, "consent.queue", failure);
+    }
+
+    @Test
+    void shouldRequeueWhenRepublishingAnUndecodableDeliveryFails() {
+        Message message = message();
+        when(codecs.decode(message)).thenThrow(new ConsentCodecException("payload inválido"));
+        when(router.route(eq(message), eq("consent.queue"), any())).thenThrow(new AmqpException("nack"));
+
+        assertThrows(ImmediateRequeueAmqpException.class, () -> consumer.receivedMessage(message, null, "message-1"));
+    }
+
+    private ConsentConsumerUtils consumer() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("consentRetryRouter", router);
+        return new ConsentConsumerUtils(service, new ConsentMetrics(new SimpleMeterRegistry()), codecs,
+                new StaticListableBeanFactory().getBeanProvider(ConsentDeliveryFilter.class),
+                beans.getBeanProvider(ConsentRetryRouter.class));
+    }
+
+    private static Message message() {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(1);
+        properties.setMessageId("message-1");
+        return new Message("{\"consentId\":\"1\"}".getBytes(), properties);
+    }
+}
@@ -0,0 +1,118 @@
+package com.dsena7.utils;
+
+import com.dsena7.codec.ConsentEventCodecs;
+import com.dsena7.dedup.ConsentDeliveryFilter;
+import com.dsena7.metrics.ConsentMetrics;
+import com.dsena7.model.ConsentIdRequestDTO;
+import com.dsena7.retry.ConsentRetryRouter;
+import com.dsena7.service.ReactiveConsentStateService;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.Receiver;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsentReactiveConsumerUtilsTest {
+
+    private final ReactiveConsentStateService service = mock(ReactiveConsentStateService.class);
+    private final Receiver receiver = mock(Receiver.class);
+    private final ConsentEventCodecs codecs = mock(ConsentEventCodecs.class);
+    private final ConsentRetryRouter router = mock(ConsentRetryRouter.class);
+    private final Channel channel = mock(Channel.class);
+    private ConsentReactiveConsumerUtils consumer;
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.stop();
+        }
+    }
+
+    @Test
+    void shouldKeepConsumingAfterASynchronousFailure() throws IOException {
+        when(codecs.decode(any(), any())).thenReturn(new ConsentIdRequestDTO("1"), new ConsentIdRequestDTO("2"));
+        when(service.processConsent("1")).thenThrow(new IllegalStateException("falha"));
+        when(service.processConsent("2")).thenReturn(Mono.empty());
+        when(router.route(any(), eq("consent.queue"), any())).thenReturn(ConsentRetryRouter.Outcome.RETRY);
+        when(receiver.consumeManualAck(eq("consent.queue"), any(ConsumeOptions.class)))
+                .thenReturn(Flux.just(delivery(1), delivery(2)));
+
+        start();
+
+        verify(router, timeout(1000)).route(any(), eq("consent.queue"), any(IllegalStateException.class));
+        verify(channel, timeout(1000)).basicAck(1, false);
+        verify(channel, timeout(1000)).basicAck(2, false);
+    }
+
+    @Test
+    void shouldRequeueInsteadOfRepublishingWhenTheAckFails() throws IOException {
+        when(codecs.decode(any(), any())).thenReturn(new ConsentIdRequestDTO("1"), new ConsentIdRequestDTO("2"));
+        when(service.processConsent(any())).thenReturn(Mono.empty());
+        doThrow(new IOException("canal fechado")).when(channel).basicAck(1, false);
+        when(receiver.consumeManualAck(eq("consent.queue"), any(ConsumeOptions.class)))
+                .thenReturn(Flux.just(delivery(1), delivery(2)));
+
+        start();
+
+        verify(channel, timeout(1000)).basicAck(2, false);
+        verify(channel).basicNack(1, false, true);
+        verify(router, never()).route(any(), any(), any());
+    }
+
+    @Test
+    void shouldResumeConsumingAfterTheReceiverFails() throws IOException {
+        when(codecs.decode(any(), any())).thenReturn(new ConsentIdRequestDTO("1"));
+        when(service.processConsent("1")).thenReturn(Mono.empty());
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(receiver.consumeManualAck(eq("consent.queue"), any(ConsumeOptions.class)))
+                .thenReturn(Flux.defer(() -> subscriptions.incrementAndGet() == 1
+                        ? Flux.error(new IOException("conexão perdida"))
+                        : Flux.just(delivery(1)).concatWith(Flux.never())));
+
+        start();
+
+        verify(channel, timeout(1000)).basicAck(1, false);
+    }
+
+    private void start() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("consentRetryRouter", router);
+        consumer = new ConsentReactiveConsumerUtils(service, receiver, codecs,
+                new StaticListableBeanFactory().getBeanProvider(ConsentDeliveryFilter.class),
+                beans.getBeanProvider(ConsentRetryRouter.class), new ConsentMetrics(new SimpleMeterRegistry()),
+                new SimpleMeterRegistry(), 4, 1, 10);
+        consumer.start();
+    }
+
+    private AcknowledgableDelivery delivery(long deliveryTag) {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType("application/json")
+                .messageId("message-" + deliveryTag)
+                .build();
+        Delivery delivery = new Delivery(new Envelope(deliveryTag, false, "", "consent.queue"), properties,
+                "{}".getBytes());
+        return new AcknowledgableDelivery(delivery, channel, (context, e) -> {
+            throw new IllegalStateException(e);
+        });
+    }
+}